@@ -10,8 +10,13 @@ import org.slf4j.LoggerFactory;
 
 import org.togetherjava.tjbot.commands.Features;
 import org.togetherjava.tjbot.commands.system.BotCore;
+import org.togetherjava.tjbot.commands.utils.CacheSnapshots;
 import org.togetherjava.tjbot.config.Config;
+import org.togetherjava.tjbot.config.MetricsConfig;
 import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.metrics.DatabaseMetrics;
+import org.togetherjava.tjbot.metrics.MetricsRegistry;
+import org.togetherjava.tjbot.metrics.MetricsServer;
 import org.togetherjava.tjbot.commands.SlashCommandAdapter;
 
 import javax.security.auth.login.LoginException;
@@ -34,6 +39,27 @@ public class Application {
 
     private static final Logger logger = LoggerFactory.getLogger(Application.class);
     private static final String DEFAULT_CONFIG_PATH = "config.json";
+    private static final String CACHE_SNAPSHOTS_DIRECTORY = "cache-snapshots";
+    /**
+     * The database of the running bot, {@code null} if not started yet. Used to shut it down
+     * gracefully.
+     */
+    private static volatile Database runningDatabase;
+    /**
+     * The cache snapshots of the running bot, {@code null} if not started yet. Used to save them on
+     * shutdown.
+     */
+    private static volatile CacheSnapshots runningCacheSnapshots;
+    /**
+     * The command system of the running bot, {@code null} if not started yet. Used to flush its
+     * pending state on shutdown.
+     */
+    private static volatile BotCore runningCore;
+    /**
+     * The metrics endpoint of the running bot, {@code null} if not started (yet). Used to stop it
+     * on shutdown.
+     */
+    private static volatile MetricsServer runningMetricsServer;
 
     /**
      * Starts the application.
@@ -79,19 +105,38 @@ public class Application {
             if (parentDatabasePath != null) {
                 Files.createDirectories(parentDatabasePath);
             }
-            Database database = new Database("jdbc:sqlite:" + databasePath.toAbsolutePath());
+            Database database = new Database("jdbc:sqlite:" + databasePath.toAbsolutePath(),
+                    config.getDatabase().getReadConnectionPoolSize(),
+                    config.getDatabase().getSlowQueryThreshold(),
+                    config.getDatabase().getPerformanceProfile());
+            runningDatabase = database;
+
+            MetricsRegistry metrics = new MetricsRegistry();
+            DatabaseMetrics.register(metrics, database);
+            if (config.getMetrics().isEnabled()) {
+                startMetricsServer(metrics, config.getMetrics());
+            }
 
             JDA jda = JDABuilder.createDefault(config.getToken())
                 .enableIntents(GatewayIntent.GUILD_MEMBERS)
                 .build();
 
-            BotCore core = new BotCore(jda, database, config);
+            // Snapshots are kept next to the database
+            CacheSnapshots cacheSnapshots = new CacheSnapshots(
+                    databasePath.toAbsolutePath().resolveSibling(CACHE_SNAPSHOTS_DIRECTORY));
+            runningCacheSnapshots = cacheSnapshots;
+
+            BotCore core = new BotCore(jda, database, config, cacheSnapshots, metrics);
+            runningCore = core;
+            // Warms up the caches while JDA is still connecting
+            cacheSnapshots.preloadAll();
             jda.addEventListener(core);
             jda.awaitReady();
 
             // We fire the event manually, since the core might be added too late to receive the
             // actual event fired from JDA
             core.onReady(jda);
+            cacheSnapshots.startWarmUp();
             logger.info("Bot is ready");
         } catch (LoginException e) {
             logger.error("Failed to login", e);
@@ -106,11 +151,42 @@ public class Application {
         }
     }
 
+    private static void startMetricsServer(@NotNull MetricsRegistry metrics,
+            @NotNull MetricsConfig metricsConfig) {
+        try {
+            runningMetricsServer =
+                    new MetricsServer(metrics, metricsConfig.getHost(), metricsConfig.getPort());
+        } catch (IOException e) {
+            // The bot works without the endpoint, it is only needed to look at the metrics
+            logger.error("Failed to start the metrics endpoint at {}:{}", metricsConfig.getHost(),
+                    metricsConfig.getPort(), e);
+        }
+    }
+
     private static void onShutdown() {
         // This may be called during JVM shutdown via a hook and hence only has minimal time to
         // react.
         // There is no guarantee that this method can be executed fully - it should run as
         // fast as possible and only do the minimal necessary actions.
+        MetricsServer metricsServer = runningMetricsServer;
+        if (metricsServer != null) {
+            metricsServer.close();
+        }
+        CacheSnapshots cacheSnapshots = runningCacheSnapshots;
+        if (cacheSnapshots != null) {
+            // Only writes a few small files, hence fast enough for the shutdown hook
+            cacheSnapshots.saveAll();
+        }
+        BotCore core = runningCore;
+        if (core != null) {
+            // Writes the latest usages of component IDs, a single batch
+            core.close();
+        }
+        Database database = runningDatabase;
+        if (database != null) {
+            // Executes pending buffered writes and closes all connections
+            database.close();
+        }
         logger.info("Bot has been stopped");
     }
 
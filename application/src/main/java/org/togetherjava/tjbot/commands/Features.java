@@ -9,11 +9,11 @@ import org.togetherjava.tjbot.commands.mathcommands.TeXCommand;
 import org.togetherjava.tjbot.commands.mathcommands.wolframalpha.WolframAlphaCommand;
 import org.togetherjava.tjbot.commands.moderation.*;
 import org.togetherjava.tjbot.commands.moderation.scam.ScamBlocker;
-import org.togetherjava.tjbot.commands.moderation.scam.ScamHistoryPurgeRoutine;
 import org.togetherjava.tjbot.commands.moderation.scam.ScamHistoryStore;
 import org.togetherjava.tjbot.commands.moderation.temp.TemporaryModerationRoutine;
 import org.togetherjava.tjbot.commands.reminder.RemindCommand;
 import org.togetherjava.tjbot.commands.reminder.RemindRoutine;
+import org.togetherjava.tjbot.commands.system.BackupDatabaseCommand;
 import org.togetherjava.tjbot.commands.system.BotCore;
 import org.togetherjava.tjbot.commands.system.LogLevelCommand;
 import org.togetherjava.tjbot.commands.tags.TagCommand;
@@ -22,14 +22,19 @@ import org.togetherjava.tjbot.commands.tags.TagSystem;
 import org.togetherjava.tjbot.commands.tags.TagsCommand;
 import org.togetherjava.tjbot.commands.tophelper.TopHelpersCommand;
 import org.togetherjava.tjbot.commands.tophelper.TopHelpersMessageListener;
-import org.togetherjava.tjbot.commands.tophelper.TopHelpersPurgeMessagesRoutine;
 import org.togetherjava.tjbot.config.Config;
 import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.db.DatabaseBackups;
+import org.togetherjava.tjbot.metrics.MetricsRegistry;
 import org.togetherjava.tjbot.moderation.ModAuditLogWriter;
+import org.togetherjava.tjbot.routines.DatabaseMaintenanceRoutine;
 import org.togetherjava.tjbot.routines.ModAuditLogRoutine;
+import org.togetherjava.tjbot.routines.RetentionRoutine;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Utility class that offers all features that should be registered by the system, such as commands.
@@ -37,7 +42,7 @@ import java.util.Collection;
  * it with the system.
  * <p>
  * To add a new slash command, extend the commands returned by
- * {@link #createFeatures(JDA, Database, Config)}.
+ * {@link #createFeatures(JDA, Database, Config, MetricsRegistry)}.
  */
 public class Features {
     private Features() {
@@ -53,15 +58,19 @@ public class Features {
      * @param jda the JDA instance commands will be registered at
      * @param database the database of the application, which features can use to persist data
      * @param config the configuration features should use
+     * @param metrics the registry features can record their metrics in
      * @return a collection of all features
      */
     public static @NotNull Collection<Feature> createFeatures(@NotNull JDA jda,
-            @NotNull Database database, @NotNull Config config) {
+            @NotNull Database database, @NotNull Config config, @NotNull MetricsRegistry metrics) {
         TagSystem tagSystem = new TagSystem(database);
         ModerationActionsStore actionsStore = new ModerationActionsStore(database);
         ModAuditLogWriter modAuditLogWriter = new ModAuditLogWriter(config);
         ScamHistoryStore scamHistoryStore = new ScamHistoryStore(database);
         HelpSystemHelper helpSystemHelper = new HelpSystemHelper(config, database);
+        DatabaseBackups databaseBackups =
+                new DatabaseBackups(database, Path.of(config.getDatabase().getBackupDirectory()),
+                        config.getDatabase().getMaxBackups());
 
         // NOTE The system can add special system relevant commands also by itself,
         // hence this list may not necessarily represent the full list of all commands actually
@@ -71,11 +80,12 @@ public class Features {
         // Routines
         features.add(new ModAuditLogRoutine(database, config, modAuditLogWriter));
         features.add(new TemporaryModerationRoutine(jda, actionsStore, config));
-        features.add(new TopHelpersPurgeMessagesRoutine(database));
         features.add(new RemindRoutine(database));
-        features.add(new ScamHistoryPurgeRoutine(scamHistoryStore));
         features.add(new BotMessageCleanup(config));
-        features.add(new HelpThreadMetadataPurger(database));
+        features
+            .add(new RetentionRoutine(database, List.of(TopHelpersMessageListener.RETENTION_POLICY,
+                    HelpSystemHelper.RETENTION_POLICY, ScamHistoryStore.RETENTION_POLICY)));
+        features.add(new DatabaseMaintenanceRoutine(database, databaseBackups));
         features.add(new HelpThreadActivityUpdater(helpSystemHelper));
         features
             .add(new AutoPruneHelperRoutine(config, helpSystemHelper, modAuditLogWriter, database));
@@ -85,7 +95,7 @@ public class Features {
         features.add(new SuggestionsUpDownVoter(config));
         features.add(new ScamBlocker(actionsStore, scamHistoryStore, config));
         features.add(new ImplicitAskListener(config, helpSystemHelper));
-        features.add(new FileSharingMessageListener(config));
+        features.add(new FileSharingMessageListener(config, metrics));
 
         // Event receivers
         features.add(new RejoinModerationRoleListener(actionsStore, config));
@@ -93,6 +103,7 @@ public class Features {
 
         // Slash commands
         features.add(new LogLevelCommand());
+        features.add(new BackupDatabaseCommand(databaseBackups));
         features.add(new PingCommand());
         features.add(new TeXCommand());
         features.add(new TagCommand(tagSystem));
@@ -113,7 +124,7 @@ public class Features {
         features.add(new QuarantineCommand(actionsStore, config));
         features.add(new UnquarantineCommand(actionsStore, config));
         features.add(new WhoIsCommand());
-        features.add(new WolframAlphaCommand(config));
+        features.add(new WolframAlphaCommand(config, metrics));
         features.add(new AskCommand(config, helpSystemHelper));
         features.add(new CloseCommand());
         features.add(new ChangeHelpCategoryCommand(config, helpSystemHelper));
@@ -17,6 +17,10 @@ import java.util.regex.Pattern;
  * After registration, the system will notify a receiver whenever a new message was sent or an
  * existing message was updated in any channel matching the {@link #getChannelNamePattern()} the bot
  * is added to.
+ * <p>
+ * Receivers are not notified on the event thread of JDA but on a separate thread. Messages of the
+ * same channel are delivered one after another in the order they were sent, messages of different
+ * channels might be delivered in parallel. Under heavy load, updated messages might be dropped.
  */
 public interface MessageReceiver extends Feature {
     /**
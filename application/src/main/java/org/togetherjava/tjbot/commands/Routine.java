@@ -3,6 +3,9 @@ package org.togetherjava.tjbot.commands;
 import net.dv8tion.jda.api.JDA;
 import org.jetbrains.annotations.NotNull;
 
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -36,23 +39,102 @@ public interface Routine extends Feature {
 
     /**
      * The schedule of routines.
+     * <p>
+     * Executions of a routine never overlap, if an execution takes longer than planned, the
+     * executions that were missed in the meantime are skipped. Schedules are created with
+     * {@link #Schedule(ScheduleMode, long, long, TimeUnit)} or {@link #atTimesOfDay(LocalTime...)}
+     * and can be refined with {@link #withJitter(Duration)} and {@link #withIsolatedExecutor()}.
      *
-     * @param mode whether subsequent executions are executed at a fixed rate or are delayed,
-     *        influences how {@link #duration} is interpreted
-     * @param initialDuration the time which the first execution of the routine is delayed
+     * @param mode whether subsequent executions are executed at a fixed rate, are delayed or happen
+     *        at fixed times of the day, influences how {@link #duration} is interpreted
+     * @param initialDuration the time which the first execution of the routine is delayed, ignored
+     *        for {@link ScheduleMode#WALL_CLOCK}
      * @param duration the time all subsequent executions of the routine are delayed. Either
      *        measured before execution ({@link ScheduleMode#FIXED_RATE}) or after execution has
-     *        finished ({@link ScheduleMode#FIXED_DELAY}).
+     *        finished ({@link ScheduleMode#FIXED_DELAY}). Ignored for
+     *        {@link ScheduleMode#WALL_CLOCK}.
      * @param unit the time unit for both, {@link #initialDuration} and {@link #duration}, e.g.
      *        seconds
+     * @param timesOfDay the times of the day, in UTC, at which the routine is executed, only used
+     *        for {@link ScheduleMode#WALL_CLOCK}
+     * @param maxJitter each execution is delayed by a random time up to this, so that routines with
+     *        the same schedule do not all run at the same moment
+     * @param hasIsolatedExecutor whether the routine is executed on its own thread instead of the
+     *        threads shared by all routines, meant for slow routines that would otherwise delay
+     *        others
      */
     record Schedule(@NotNull ScheduleMode mode, long initialDuration, long duration,
-            @NotNull TimeUnit unit) {
+            @NotNull TimeUnit unit, @NotNull List<LocalTime> timesOfDay,
+            @NotNull Duration maxJitter, boolean hasIsolatedExecutor) {
+        /**
+         * Creates a schedule.
+         */
+        public Schedule {
+            if (mode == ScheduleMode.WALL_CLOCK && timesOfDay.isEmpty()) {
+                throw new IllegalArgumentException(
+                        "Wall-clock schedules need at least one time of the day");
+            }
+            if (mode != ScheduleMode.WALL_CLOCK && duration <= 0) {
+                throw new IllegalArgumentException(
+                        "The duration between executions must be positive, but was " + duration);
+            }
+            if (maxJitter.isNegative()) {
+                throw new IllegalArgumentException("The jitter must not be negative");
+            }
+            timesOfDay = timesOfDay.stream().sorted().distinct().toList();
+        }
+
+        /**
+         * Creates a schedule for execution at a fixed rate or with a fixed delay, without jitter
+         * and on the threads shared by all routines.
+         *
+         * @param mode whether subsequent executions are executed at a fixed rate or are delayed
+         * @param initialDuration the time which the first execution of the routine is delayed
+         * @param duration the time all subsequent executions of the routine are delayed
+         * @param unit the time unit for both, {@code initialDuration} and {@code duration}
+         */
+        public Schedule(@NotNull ScheduleMode mode, long initialDuration, long duration,
+                @NotNull TimeUnit unit) {
+            this(mode, initialDuration, duration, unit, List.of(), Duration.ZERO, false);
+        }
+
+        /**
+         * Creates a schedule for execution at fixed times of the day, in UTC. For example, at 4:00,
+         * 12:00 and 20:00 each day. The first execution happens at the next of those times.
+         *
+         * @param timesOfDay the times of the day to execute the routine at, in UTC
+         * @return the schedule
+         */
+        public static @NotNull Schedule atTimesOfDay(@NotNull LocalTime... timesOfDay) {
+            return new Schedule(ScheduleMode.WALL_CLOCK, 0, 0, TimeUnit.SECONDS,
+                    List.of(timesOfDay), Duration.ZERO, false);
+        }
+
+        /**
+         * Creates a copy of this schedule whose executions are delayed by a random time.
+         *
+         * @param maxJitter the maximal random delay of each execution
+         * @return the schedule with jitter
+         */
+        public @NotNull Schedule withJitter(@NotNull Duration maxJitter) {
+            return new Schedule(mode, initialDuration, duration, unit, timesOfDay, maxJitter,
+                    hasIsolatedExecutor);
+        }
+
+        /**
+         * Creates a copy of this schedule that executes the routine on its own thread.
+         *
+         * @return the schedule with an isolated executor
+         */
+        public @NotNull Schedule withIsolatedExecutor() {
+            return new Schedule(mode, initialDuration, duration, unit, timesOfDay, maxJitter, true);
+        }
     }
 
 
     /**
-     * Whether subsequent executions of a routine are executed at a fixed rate or are delayed.
+     * Whether subsequent executions of a routine are executed at a fixed rate, are delayed or
+     * happen at fixed times of the day.
      */
     enum ScheduleMode {
         /**
@@ -64,6 +146,11 @@ public interface Routine extends Feature {
          * Executions are scheduled for a fixed delay, the time duration between executions is
          * measured between after they have finished.
          */
-        FIXED_DELAY
+        FIXED_DELAY,
+        /**
+         * Executions are scheduled for fixed times of the day, in UTC, regardless of when the
+         * routine was started.
+         */
+        WALL_CLOCK
     }
 }
@@ -97,9 +97,10 @@ public interface SlashCommand extends UserInteractor {
      * in a very specific format, otherwise the core system will fail to identify the command that
      * corresponded to the button or menu click event and is unable to route it back.
      * <p>
-     * The component ID has to be a UUID-string (see {@link java.util.UUID}), which is associated to
-     * a specific database entry, containing meta information about the command being executed. Such
-     * a database entry can be created and a UUID be obtained by using
+     * The component ID has to be generated by the system, it contains meta information about the
+     * command being executed. Small payloads are encoded directly into the ID, others are stored in
+     * a database entry and the ID is a UUID-string (see {@link java.util.UUID}) associated to it.
+     * Such an ID can be obtained by using
      * {@link ComponentIdGenerator#generate(ComponentId, Lifespan)}, as provided by the instance
      * given to {@link #acceptComponentIdGenerator(ComponentIdGenerator)} during system setup. The
      * required {@link ComponentId} instance accepts optional extra arguments, which, if provided,
@@ -114,6 +114,12 @@ public abstract class SlashCommandAdapter implements SlashCommand {
         componentIdGenerator = generator;
     }
 
+    @Override
+    public boolean isAutoDeferrable() {
+        // Adapter does not opt in by default, subclasses may change this behavior
+        return false;
+    }
+
     @SuppressWarnings("NoopMethodInAbstractClass")
     @Override
     public void onButtonClick(@NotNull ButtonInteractionEvent event, @NotNull List<String> args) {
@@ -165,6 +171,22 @@ public abstract class SlashCommandAdapter implements SlashCommand {
             .generate(new ComponentId(getName(), Arrays.asList(args)), lifespan);
     }
 
+    /**
+     * Helper method to generate multiple component IDs at once, for example for all buttons of a
+     * dialog. Behaves like {@link #generateComponentId(String...)}, but persists all of them
+     * together, see {@link ComponentIdGenerator#generateAll(List, Lifespan)}.
+     *
+     * @param argsPerId the extra arguments that should be part of each ID
+     * @return the generated component IDs, in the same order
+     */
+    protected final @NotNull List<String> generateComponentIds(
+            @NotNull List<List<String>> argsPerId) {
+        List<ComponentId> componentIds =
+                argsPerId.stream().map(args -> new ComponentId(getName(), args)).toList();
+        return Objects.requireNonNull(componentIdGenerator)
+            .generateAll(componentIds, Lifespan.REGULAR);
+    }
+
     /**
      * Copies the given option multiple times.
      * <p>
@@ -82,4 +82,17 @@ public interface UserInteractor extends Feature {
      * @param generator the provided component id generator
      */
     void acceptComponentIdGenerator(@NotNull ComponentIdGenerator generator);
+
+    /**
+     * Whether the core system may defer interactions of this interactor automatically, if they were
+     * not acknowledged shortly before the deadline of Discord.
+     * <p>
+     * Once deferred, replying to the interaction fails. Hence, interactors should only opt in if
+     * they respond through the hook of the interaction, for example since they defer it themselves
+     * first thing, and do not acknowledge it again if it was acknowledged already, see
+     * {@link net.dv8tion.jda.api.interactions.callbacks.IReplyCallback#isAcknowledged()}.
+     *
+     * @return whether interactions of this interactor may be deferred automatically
+     */
+    boolean isAutoDeferrable();
 }
@@ -0,0 +1,111 @@
+package org.togetherjava.tjbot.commands.componentids;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary form of {@link ComponentId}, used to persist them in the {@link ComponentIdStore}
+ * and to encode them into {@link StatelessComponentIds}.
+ * <p>
+ * The user interactor name and each element are written one after another, as UTF-8 bytes prefixed
+ * by their length. Lengths are variable-length integers with 7 bits per byte, lowest bits first, so
+ * strings of less than 128 bytes only need a single byte of framing. No other separators or
+ * escaping is needed, hence elements can contain arbitrary text.
+ * <p>
+ * The binary form does not contain a version, callers that persist it have to add their own.
+ * Callers can reserve space for such a header in front of the encoded bytes, see
+ * {@link #encode(ComponentId, int)}.
+ */
+final class ComponentIdCodec {
+    private ComponentIdCodec() {
+        throw new UnsupportedOperationException("Utility class, construction not supported");
+    }
+
+    /**
+     * Encodes the given component ID into its binary form.
+     *
+     * @param componentId the component ID to encode
+     * @param headerLength amount of bytes to reserve in front of the binary form, they are left
+     *        zero for the caller to fill
+     * @return the binary form, starting at index {@code headerLength}
+     */
+    static byte @NotNull [] encode(@NotNull ComponentId componentId, int headerLength) {
+        List<String> elements = componentId.elements();
+        byte[][] texts = new byte[elements.size() + 1][];
+        texts[0] = componentId.userInteractorName().getBytes(StandardCharsets.UTF_8);
+        int length = headerLength + framedLength(texts[0]);
+        for (int i = 0; i < elements.size(); i++) {
+            texts[i + 1] = elements.get(i).getBytes(StandardCharsets.UTF_8);
+            length += framedLength(texts[i + 1]);
+        }
+
+        // Sized exactly, so no buffer has to grow or be copied
+        byte[] encoded = new byte[length];
+        int position = headerLength;
+        for (byte[] text : texts) {
+            int remainingLength = text.length;
+            while (remainingLength >= 0x80) {
+                encoded[position++] = (byte) (remainingLength & 0x7F | 0x80);
+                remainingLength >>>= 7;
+            }
+            encoded[position++] = (byte) remainingLength;
+
+            System.arraycopy(text, 0, encoded, position, text.length);
+            position += text.length;
+        }
+        return encoded;
+    }
+
+    private static int framedLength(byte @NotNull [] text) {
+        int lengthBytes = 1;
+        for (int remainingLength = text.length; remainingLength >= 0x80; remainingLength >>>= 7) {
+            lengthBytes++;
+        }
+        return lengthBytes + text.length;
+    }
+
+    /**
+     * Decodes a component ID from its binary form, as created by {@link #encode(ComponentId, int)}.
+     *
+     * @param encoded the bytes to decode, the binary form has to span until their end
+     * @param offset the index at which the binary form starts, i.e. the length of the header
+     * @return the decoded component ID
+     * @throws InvalidComponentIdFormatException if the bytes are not a valid binary form
+     */
+    static @NotNull ComponentId decode(byte @NotNull [] encoded, int offset) {
+        // The user interactor name, followed by the elements
+        List<String> texts = new ArrayList<>();
+        int position = offset;
+        while (position < encoded.length) {
+            int length = 0;
+            int shift = 0;
+            byte lengthByte;
+            do {
+                if (position >= encoded.length || shift > 28) {
+                    throw new InvalidComponentIdFormatException(
+                            "Truncated length in binary component ID at index " + position);
+                }
+                lengthByte = encoded[position++];
+                length |= (lengthByte & 0x7F) << shift;
+                shift += 7;
+            } while ((lengthByte & 0x80) != 0);
+
+            if (length < 0 || length > encoded.length - position) {
+                throw new InvalidComponentIdFormatException(
+                        "Invalid length in binary component ID: " + length);
+            }
+            texts.add(new String(encoded, position, length, StandardCharsets.UTF_8));
+            position += length;
+        }
+
+        if (texts.isEmpty()) {
+            throw new InvalidComponentIdFormatException(
+                    "Binary component ID is missing the user interactor name");
+        }
+        String userInteractorName = texts.remove(0);
+        return new ComponentId(userInteractorName, texts);
+    }
+}
@@ -10,11 +10,14 @@ import org.togetherjava.tjbot.commands.SlashCommand;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 /**
  * Provides component ID generation.
  * <p>
  * Component IDs are used during button or selection menu events. They can carry arbitrary data and
- * are persisted by the system.
+ * are persisted by the system, unless they are small enough to be encoded into the ID itself and
+ * not permanent, see {@link StatelessComponentIds}.
  * <p>
  * See {@link SlashCommand#onSlashCommand(SlashCommandInteractionEvent)} for more context on how to
  * use this.
@@ -34,10 +37,30 @@ public interface ComponentIdGenerator {
      *
      * @param componentId the component ID payload to persist and generate a valid ID for
      * @param lifespan the lifespan of the generated and persisted component ID
-     * @return a UUID for the given payload, which can be used as component ID
+     * @return an ID for the given payload, which can be used as component ID. Either the encoded
+     *         payload or a UUID associated to the persisted payload.
      * @throws InvalidComponentIdFormatException if the given component ID was in an unexpected
      *         format and could not be serialized
      */
     @NotNull
     String generate(@NotNull ComponentId componentId, @NotNull Lifespan lifespan);
+
+    /**
+     * Generates and persists valid component IDs for all given payloads at once, for example for
+     * all buttons of a dialog.
+     * <p>
+     * Behaves like calling {@link #generate(ComponentId, Lifespan)} for each payload, but
+     * implementations persist all of them together, which is considerably faster. The default
+     * implementation generates them one by one.
+     *
+     * @param componentIds the component ID payloads to persist and generate valid IDs for
+     * @param lifespan the lifespan of the generated and persisted component IDs
+     * @return the IDs for the given payloads, in the same order, which can be used as component IDs
+     * @throws InvalidComponentIdFormatException if any of the given component IDs was in an
+     *         unexpected format and could not be serialized
+     */
+    default @NotNull List<String> generateAll(@NotNull List<ComponentId> componentIds,
+            @NotNull Lifespan lifespan) {
+        return componentIds.stream().map(componentId -> generate(componentId, lifespan)).toList();
+    }
 }
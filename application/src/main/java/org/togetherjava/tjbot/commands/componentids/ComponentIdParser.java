@@ -14,7 +14,8 @@ import java.util.Optional;
  * Provides component ID parsing.
  * <p>
  * Component IDs are used during button or selection menu events. They can carry arbitrary data and
- * are persisted by the system.
+ * are persisted by the system, unless they are small enough to be encoded into the ID itself, see
+ * {@link StatelessComponentIds}.
  * <p>
  * See
  * {@link org.togetherjava.tjbot.commands.SlashCommand#onSlashCommand(SlashCommandInteractionEvent)}
@@ -33,12 +34,13 @@ public interface ComponentIdParser {
      * {@link Button#of(ButtonStyle, String, Emoji)} for details on where the ID was originally
      * transported with.
      *
-     * @param uuid the UUID to parse which represents the component ID
-     * @return the payload associated to the given UUID, if empty the component ID either never
+     * @param id the ID to parse which represents the component ID, either the encoded payload or a
+     *        UUID associated to the persisted payload
+     * @return the payload associated to the given ID, if empty the component ID either never
      *         existed to begin with or expired due to its lifetime setting
-     * @throws InvalidComponentIdFormatException if the component ID associated to the given UUID
-     *         was in an unexpected format and could not be deserialized
+     * @throws InvalidComponentIdFormatException if the component ID associated to the given ID was
+     *         in an unexpected format and could not be deserialized
      */
     @NotNull
-    Optional<ComponentId> parse(@NotNull String uuid);
+    Optional<ComponentId> parse(@NotNull String id);
 }
@@ -1,28 +1,39 @@
 package org.togetherjava.tjbot.commands.componentids;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import org.togetherjava.tjbot.commands.SlashCommand;
+import org.togetherjava.tjbot.commands.utils.CacheSnapshots;
+import org.togetherjava.tjbot.commands.utils.CacheStatistics;
+import org.togetherjava.tjbot.commands.utils.ExecutorStatistics;
 import org.jetbrains.annotations.NotNull;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Record2;
 import org.jooq.Result;
+import org.jooq.impl.DSL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.db.RetentionEngine;
+import org.togetherjava.tjbot.db.RetentionPolicy;
+import org.togetherjava.tjbot.db.RetentionReport;
 import org.togetherjava.tjbot.db.generated.tables.ComponentIds;
 import org.togetherjava.tjbot.db.generated.tables.records.ComponentIdsRecord;
+import org.togetherjava.tjbot.metrics.MetricsRegistry;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.time.temporal.TemporalUnit;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -32,35 +43,65 @@ import java.util.stream.Collectors;
  * <p>
  * Use {@link #putOrThrow(UUID, ComponentId, Lifespan)} to put and persist a component ID; and
  * {@link #get(UUID)} to get it back. Component IDs are persisted during application runs and can
- * hence be retrieved back even after long times.
+ * hence be retrieved back even after long times. They are persisted in a compact binary form, see
+ * {@link ComponentIdCodec}.
  * <p>
  * <p>
  * Component IDs which have not been used for a long time, depending on their {@link Lifespan}
  * setting, might get evicted from the store after some time. The store implements a
  * <strong>LRU-cache</strong> and each call of {@link #get(UUID)} will update the usage-timestamp
- * for the component ID.
+ * for the component ID. Usages are collected in memory and written to the database periodically in
+ * a single batch, at the latest right before an eviction. Component IDs used after that are spared
+ * by the eviction as well.
  * <p>
  * Users can react to eviction by adding a listener to
  * {@link #addComponentIdRemovedListener(Consumer)}.
  * <p>
- * The store is fully thread-safe, component IDs can be generated and parsed multithreaded.
+ * The store is fully thread-safe, component IDs can be generated and parsed multithreaded. There is
+ * no global lock, lookups that hit the cache never wait for writes or a running eviction and only
+ * lookups of the same UUID wait for each other when loading from the database.
  */
 @SuppressWarnings("ClassWithTooManyFields")
 public final class ComponentIdStore implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(ComponentIdStore.class);
-    private static final CsvMapper CSV = new CsvMapper();
+    /**
+     * Version of the binary form of persisted component IDs, written as first byte in front of the
+     * {@link ComponentIdCodec binary form}. Legacy CSV text never starts with this byte.
+     */
+    private static final byte STORAGE_FORMAT_VERSION = 1;
+    /**
+     * Reads component IDs persisted as CSV text, before the binary form was introduced. Created
+     * once, as creating the schema is expensive.
+     */
+    private static final ObjectReader LEGACY_CSV_READER;
+
+    static {
+        CsvMapper csv = new CsvMapper();
+        LEGACY_CSV_READER = csv.readerFor(ComponentId.class).with(csv.schemaFor(ComponentId.class));
+    }
 
     private static final long EVICT_DATABASE_EVERY_INITIAL_DELAY = 1;
     private static final long EVICT_DATABASE_EVERY_DELAY = 15;
     private static final ChronoUnit EVICT_DATABASE_EVERY_UNIT = ChronoUnit.MINUTES;
     private static final long EVICT_DATABASE_OLDER_THAN = 20;
+    private static final int EVICT_DATABASE_BATCH_SIZE = 5_000;
+    private static final Duration EVICT_DATABASE_PAUSE_BETWEEN_BATCHES = Duration.ofMillis(10);
     private static final ChronoUnit EVICT_DATABASE_OLDER_THAN_UNIT = ChronoUnit.DAYS;
 
+    private static final long FLUSH_HEATS_EVERY_DELAY = 30;
+    private static final ChronoUnit FLUSH_HEATS_EVERY_UNIT = ChronoUnit.SECONDS;
+    /**
+     * Maximal amount of UUIDs per statement, to stay well below the limit of bind parameters of
+     * SQLite.
+     */
+    private static final int MAX_UUIDS_PER_STATEMENT = 500;
+    private static final int REWRITE_LEGACY_CHUNK_SIZE = 500;
+
     private static final int CACHE_SIZE = 1_000;
+    private static final String CACHE_SNAPSHOT_NAME = "component-ids";
     private static final int EVICT_CACHE_OLDER_THAN = 2;
     private static final ChronoUnit EVICT_CACHE_OLDER_THAN_UNIT = ChronoUnit.HOURS;
 
-    private final Object storeLock = new Object();
     private final Database database;
     /**
      * In-memory cache which is used as first stage before the database, to speedup look-ups. Should
@@ -69,15 +110,27 @@ public final class ComponentIdStore implements AutoCloseable {
      */
     private final Cache<UUID, ComponentId> storeCache;
     private final Collection<Consumer<ComponentId>> componentIdRemovedListeners =
-            Collections.synchronizedCollection(new ArrayList<>());
-    private final ExecutorService heatService = Executors.newCachedThreadPool();
-    private final ExecutorService componentIdRemovedListenerService =
-            Executors.newCachedThreadPool();
-    private final ScheduledExecutorService evictionService =
-            Executors.newSingleThreadScheduledExecutor();
+            new CopyOnWriteArrayList<>();
+    /**
+     * UUIDs of component IDs that have been used since the last flush of heats, see
+     * {@link #flushHeats()}.
+     */
+    private final Set<UUID> pendingHeats = ConcurrentHashMap.newKeySet();
+    /**
+     * Notifies listeners about evicted component IDs, one task per evicted batch, in order.
+     */
+    private final ThreadPoolExecutor componentIdRemovedListenerService =
+            new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    /**
+     * Executes flushing heats and evicting, on a single thread, so that both never run at the same
+     * time.
+     */
+    private final ScheduledThreadPoolExecutor maintenanceService =
+            new ScheduledThreadPoolExecutor(1);
+    private final ScheduledFuture<?> flushHeatsTask;
     private final ScheduledFuture<?> evictionTask;
-    private final long evictDatabaseOlderThan;
-    private final TemporalUnit evictDatabaseOlderThanUnit;
+    private final RetentionEngine retentionEngine;
+    private final RetentionPolicy<ComponentIdsRecord> retentionPolicy;
 
     /**
      * Creates a new instance with default eviction settings.
@@ -106,15 +159,45 @@ public final class ComponentIdStore implements AutoCloseable {
     public ComponentIdStore(@NotNull Database database, long evictEveryInitialDelay,
             long evictEveryDelay, ChronoUnit evictEveryUnit, long evictOlderThan,
             @SuppressWarnings("TypeMayBeWeakened") ChronoUnit evictOlderThanUnit) {
+        this(database, evictEveryInitialDelay, evictEveryDelay, evictEveryUnit, evictOlderThan,
+                evictOlderThanUnit, EVICT_DATABASE_BATCH_SIZE);
+    }
+
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    ComponentIdStore(@NotNull Database database, long evictEveryInitialDelay, long evictEveryDelay,
+            ChronoUnit evictEveryUnit, long evictOlderThan,
+            @SuppressWarnings("TypeMayBeWeakened") ChronoUnit evictOlderThanUnit,
+            int evictBatchSize) {
         this.database = database;
-        evictDatabaseOlderThan = evictOlderThan;
-        evictDatabaseOlderThanUnit = evictOlderThanUnit;
+        retentionEngine =
+                new RetentionEngine(database, evictBatchSize, EVICT_DATABASE_PAUSE_BETWEEN_BATCHES);
+        retentionPolicy = new RetentionPolicy<>(ComponentIds.COMPONENT_IDS,
+                ComponentIds.COMPONENT_IDS.LAST_USED,
+                Duration.of(evictOlderThan, evictOlderThanUnit),
+                ComponentIds.COMPONENT_IDS.LIFESPAN.notEqual(Lifespan.PERMANENT.name()),
+                this::onComponentIdsEvicted);
 
         storeCache = Caffeine.newBuilder()
             .maximumSize(CACHE_SIZE)
             .expireAfterAccess(EVICT_CACHE_OLDER_THAN, TimeUnit.of(EVICT_CACHE_OLDER_THAN_UNIT))
+            .recordStats()
             .build();
 
+        rewriteLegacyComponentIds();
+
+        Runnable flushHeatsCommand = () -> {
+            try {
+                flushHeats();
+            } catch (Exception e) {
+                logger.error(
+                        "Unknown error while flushing heats to the component ID store database.",
+                        e);
+            }
+        };
+        flushHeatsTask = maintenanceService.scheduleWithFixedDelay(flushHeatsCommand,
+                FLUSH_HEATS_EVERY_DELAY, FLUSH_HEATS_EVERY_DELAY,
+                TimeUnit.of(FLUSH_HEATS_EVERY_UNIT));
+
         Runnable evictCommand = () -> {
             try {
                 evictDatabase();
@@ -122,15 +205,16 @@ public final class ComponentIdStore implements AutoCloseable {
                 logger.error("Unknown error while evicting the component ID store database.", e);
             }
         };
-        evictionTask = evictionService.scheduleWithFixedDelay(evictCommand, evictEveryInitialDelay,
-                evictEveryDelay, TimeUnit.of(evictEveryUnit));
+        evictionTask = maintenanceService.scheduleWithFixedDelay(evictCommand,
+                evictEveryInitialDelay, evictEveryDelay, TimeUnit.of(evictEveryUnit));
 
         logDebugSizeStatistics();
     }
 
     /**
      * Adds a listener for component ID removal. The listener is triggered during eviction, once for
-     * each component ID that has been removed from the store.
+     * each component ID that has been removed from the store. Listeners are notified about each
+     * evicted batch at once, decoupled from the eviction itself.
      * <p>
      * The listener might be triggered multithreaded, there are no guarantees made regarding the
      * executing thread. In particular, it might be a different thread each time it is triggered.
@@ -141,6 +225,89 @@ public final class ComponentIdStore implements AutoCloseable {
         componentIdRemovedListeners.add(listener);
     }
 
+    /**
+     * Registers the cache of this store at the given snapshots, so that its hottest component IDs
+     * are loaded into the cache again after a restart.
+     *
+     * @param cacheSnapshots the snapshots to register the cache at
+     */
+    public void registerCacheSnapshot(@NotNull CacheSnapshots cacheSnapshots) {
+        cacheSnapshots.register(CACHE_SNAPSHOT_NAME, storeCache, UUID::toString, UUID::fromString,
+                this::preloadCache);
+    }
+
+    /**
+     * Registers metrics about the cache of this store, such as its hit rate, at the given registry.
+     *
+     * @param metrics the registry to register the metrics at
+     */
+    public void registerMetrics(@NotNull MetricsRegistry metrics) {
+        metrics.registerCollector(sink -> {
+            CacheStats stats = storeCache.stats();
+            sink.counter("tjbot_component_id_cache_hits_total",
+                    "Lookups of component IDs that were served by the cache", stats.hitCount());
+            sink.counter("tjbot_component_id_cache_misses_total",
+                    "Lookups of component IDs that had to query the database", stats.missCount());
+            sink.counter("tjbot_component_id_cache_evictions_total",
+                    "Component IDs evicted from the cache", stats.evictionCount());
+            sink.gauge("tjbot_component_id_cache_size", "Component IDs currently cached",
+                    storeCache.estimatedSize());
+        });
+    }
+
+    /**
+     * Gets statistics about the cache of this store.
+     *
+     * @return the statistics of the cache
+     */
+    public @NotNull CacheStatistics getCacheStatistics() {
+        return CacheStatistics.of(CACHE_SNAPSHOT_NAME, storeCache);
+    }
+
+    /**
+     * Gets statistics about the thread pools of this store, which notify listeners and run the
+     * maintenance.
+     *
+     * @return statistics of each thread pool
+     */
+    public @NotNull List<ExecutorStatistics> getExecutorStatistics() {
+        return List.of(
+                ExecutorStatistics.of("component-id-removed-listeners",
+                        componentIdRemovedListenerService),
+                ExecutorStatistics.of("component-id-maintenance", maintenanceService));
+    }
+
+    /**
+     * Loads the component IDs of the given UUIDs from the database into the cache, unless they are
+     * cached already. UUIDs that are not present anymore are ignored. Does not count as usage.
+     * <p>
+     * Executed on the maintenance thread, so that it can not put component IDs back into the cache
+     * that are evicted at the same time. Blocks until done.
+     *
+     * @param uuids the UUIDs to load
+     */
+    private void preloadCache(@NotNull List<UUID> uuids) {
+        CompletableFuture.runAsync(() -> {
+            for (int from = 0; from < uuids.size(); from += MAX_UUIDS_PER_STATEMENT) {
+                List<String> chunk =
+                        uuids.subList(from, Math.min(uuids.size(), from + MAX_UUIDS_PER_STATEMENT))
+                            .stream()
+                            .map(UUID::toString)
+                            .toList();
+
+                Result<ComponentIdsRecord> records =
+                        database.read(context -> context.selectFrom(ComponentIds.COMPONENT_IDS)
+                            .where(ComponentIds.COMPONENT_IDS.UUID.in(chunk))
+                            .fetch());
+                for (ComponentIdsRecord componentIdRecord : records) {
+                    storeCache.asMap()
+                        .putIfAbsent(UUID.fromString(componentIdRecord.getUuid()),
+                                deserializeComponentId(componentIdRecord.getComponentId()));
+                }
+            }
+        }, maintenanceService).join();
+    }
+
     /**
      * Gets the component ID associated to the given UUID.
      * <p>
@@ -157,19 +324,15 @@ public final class ComponentIdStore implements AutoCloseable {
      */
     @SuppressWarnings("WeakerAccess")
     public @NotNull Optional<ComponentId> get(@NotNull UUID uuid) {
-        synchronized (storeLock) {
-            // Get it from the cache or, if not found, the database
-            return Optional.ofNullable(storeCache.getIfPresent(uuid)).or(() -> {
-                Optional<ComponentId> databaseComponentId = getFromDatabase(uuid);
-                databaseComponentId.ifPresent(id -> {
-                    // Put it back into the cache
-                    storeCache.put(uuid, id);
-
-                    heatService.execute(() -> heatRecord(uuid));
-                });
-                return databaseComponentId;
-            });
-        }
+        // Get it from the cache or, if not found, load it from the database. Concurrent loads of
+        // the same UUID are executed only once, while other UUIDs are not blocked.
+        // Absent IDs are not cached.
+        Optional<ComponentId> componentId =
+                Optional.ofNullable(storeCache.get(uuid, key -> getFromDatabase(key).orElse(null)));
+
+        // Heats the record, deferred to the next flush
+        componentId.ifPresent(id -> pendingHeats.add(uuid));
+        return componentId;
     }
 
     /**
@@ -178,6 +341,8 @@ public final class ComponentIdStore implements AutoCloseable {
      * The method throws if the UUID is already associated to a component ID. After a component ID
      * has been evicted (see {@link #addComponentIdRemovedListener(Consumer)}), it is safe to call
      * this method again for the evicted UUID.
+     * <p>
+     * Use {@link #putAllOrThrow(Map, Lifespan)} to add multiple component IDs at once.
      *
      * @param uuid the UUID to associate the component ID with
      * @param componentId the component ID to add to the store
@@ -190,34 +355,85 @@ public final class ComponentIdStore implements AutoCloseable {
     @SuppressWarnings("WeakerAccess")
     public void putOrThrow(@NotNull UUID uuid, @NotNull ComponentId componentId,
             @NotNull Lifespan lifespan) {
-        Supplier<String> alreadyExistsMessageSupplier =
-                () -> "The UUID '%s' already exists and is associated to a component id."
+        putAllOrThrow(Map.of(uuid, componentId), lifespan);
+    }
+
+    /**
+     * Adds all given component IDs to the store, associated with the given UUIDs as keys.
+     * <p>
+     * All of them are persisted together in a single transaction, with a single statement, which is
+     * considerably faster than adding them one by one. Either all of them are added or none.
+     * <p>
+     * The method throws if any of the UUIDs is already associated to a component ID. After a
+     * component ID has been evicted (see {@link #addComponentIdRemovedListener(Consumer)}), it is
+     * safe to call this method again for the evicted UUID.
+     *
+     * @param uuidToComponentId the component IDs to add to the store, keyed by the UUID to
+     *        associate them with
+     * @param lifespan the lifespan of the component IDs, controls when they will be targeted for
+     *        eviction
+     * @throws IllegalArgumentException if any of the given UUIDs is already associated to a
+     *         component ID
+     * @throws InvalidComponentIdFormatException if any of the component IDs was in an unexpected
+     *         format and could not be serialized
+     */
+    @SuppressWarnings("WeakerAccess")
+    public void putAllOrThrow(@NotNull Map<UUID, ComponentId> uuidToComponentId,
+            @NotNull Lifespan lifespan) {
+        if (uuidToComponentId.isEmpty()) {
+            return;
+        }
+
+        Function<Object, String> alreadyExistsMessage =
+                uuid -> "The UUID '%s' already exists and is associated to a component id."
                     .formatted(uuid);
 
-        synchronized (storeLock) {
-            if (storeCache.getIfPresent(uuid) != null) {
-                throw new IllegalArgumentException(alreadyExistsMessageSupplier.get());
+        // Claims the UUIDs atomically, concurrent puts of the same UUID fail here already
+        Map<UUID, ComponentId> claimed = new HashMap<>();
+        uuidToComponentId.forEach((uuid, componentId) -> {
+            if (storeCache.asMap().putIfAbsent(uuid, componentId) != null) {
+                releaseClaims(claimed);
+                throw new IllegalArgumentException(alreadyExistsMessage.apply(uuid));
             }
-            storeCache.put(uuid, componentId);
+            claimed.put(uuid, componentId);
+        });
 
+        try {
             database.writeTransaction(context -> {
-                String uuidText = uuid.toString();
-                if (context.fetchExists(ComponentIds.COMPONENT_IDS,
-                        ComponentIds.COMPONENT_IDS.UUID.eq(uuidText))) {
-                    throw new IllegalArgumentException(alreadyExistsMessageSupplier.get());
+                List<String> uuidTexts =
+                        uuidToComponentId.keySet().stream().map(UUID::toString).toList();
+                context.select(ComponentIds.COMPONENT_IDS.UUID)
+                    .from(ComponentIds.COMPONENT_IDS)
+                    .where(ComponentIds.COMPONENT_IDS.UUID.in(uuidTexts))
+                    .limit(1)
+                    .fetchOptional(ComponentIds.COMPONENT_IDS.UUID)
+                    .ifPresent(uuid -> {
+                        throw new IllegalArgumentException(alreadyExistsMessage.apply(uuid));
+                    });
+
+                // Not inserted as records, since jOOQ would fetch the keys back by row ID, which
+                // the table does not have
+                Instant now = Instant.now();
+                var insert = context.insertInto(ComponentIds.COMPONENT_IDS,
+                        ComponentIds.COMPONENT_IDS.UUID, ComponentIds.COMPONENT_IDS.COMPONENT_ID,
+                        ComponentIds.COMPONENT_IDS.LAST_USED, ComponentIds.COMPONENT_IDS.LIFESPAN);
+                for (Map.Entry<UUID, ComponentId> entry : uuidToComponentId.entrySet()) {
+                    insert = insert.values(entry.getKey().toString(),
+                            serializeComponentId(entry.getValue()), now, lifespan.name());
                 }
-
-                ComponentIdsRecord componentIdsRecord =
-                        context.newRecord(ComponentIds.COMPONENT_IDS)
-                            .setUuid(uuid.toString())
-                            .setComponentId(serializeComponentId(componentId))
-                            .setLastUsed(Instant.now())
-                            .setLifespan(lifespan.name());
-                componentIdsRecord.insert();
+                insert.execute();
             });
+        } catch (RuntimeException e) {
+            releaseClaims(claimed);
+            throw e;
         }
     }
 
+    private void releaseClaims(@NotNull Map<UUID, ComponentId> claimed) {
+        // Unless the entry has been replaced in the meantime
+        claimed.forEach((uuid, componentId) -> storeCache.asMap().remove(uuid, componentId));
+    }
+
     private @NotNull Optional<ComponentId> getFromDatabase(@NotNull UUID uuid) {
         return database.read(context -> Optional
             .ofNullable(context.selectFrom(ComponentIds.COMPONENT_IDS)
@@ -228,88 +444,191 @@ public final class ComponentIdStore implements AutoCloseable {
     }
 
     /**
-     * Updates the <b>last_used</b> timestamp for the given UUID in the database to the current
-     * time. This effectively heats the record, so that it will not be targeted for the next
-     * evictions.
-     *
-     * @param uuid the uuid to heat
-     * @throws IllegalArgumentException if there is no, or multiple, records associated to that UUID
+     * Updates the <b>last_used</b> timestamp of all component IDs that have been used since the
+     * last flush to the current time. This effectively heats the records, so that they will not be
+     * targeted for the next evictions.
+     * <p>
+     * Usages are collected in memory, so that each UUID is only updated once per flush, no matter
+     * how often it has been used. All updates are executed in a single transaction.
      */
-    private void heatRecord(@NotNull UUID uuid) {
-        int updatedRecords;
-        synchronized (storeLock) {
-            updatedRecords =
-                    database.writeAndProvide(context -> context.update(ComponentIds.COMPONENT_IDS)
-                        .set(ComponentIds.COMPONENT_IDS.LAST_USED, Instant.now())
-                        .where(ComponentIds.COMPONENT_IDS.UUID.eq(uuid.toString()))
-                        .execute());
+    private void flushHeats() {
+        if (pendingHeats.isEmpty()) {
+            return;
+        }
+
+        List<String> uuids = drainPendingHeats();
+        try {
+            database.writeTransaction(context -> heat(context, uuids));
+        } catch (RuntimeException e) {
+            // Retry them with the next flush
+            uuids.stream().map(UUID::fromString).forEach(pendingHeats::add);
+            throw e;
+        }
+
+        logger.debug("Heated {} component ids", uuids.size());
+    }
+
+    private @NotNull List<String> drainPendingHeats() {
+        List<String> uuids = new ArrayList<>();
+        // Removes them one by one, so that usages while draining are kept for the next flush
+        for (Iterator<UUID> iterator = pendingHeats.iterator(); iterator.hasNext();) {
+            uuids.add(iterator.next().toString());
+            iterator.remove();
         }
+        return uuids;
+    }
 
-        // NOTE Case 0, where no records are updated, is ignored on purpose.
-        // This happens when the entry has been evicted before the heating was executed.
-        if (updatedRecords > 1) {
-            throw new AssertionError(
-                    "Multiple records had the UUID '%s' even though it is unique.".formatted(uuid));
+    private static void heat(@NotNull DSLContext context, @NotNull List<String> uuids) {
+        Instant now = Instant.now();
+        for (int from = 0; from < uuids.size(); from += MAX_UUIDS_PER_STATEMENT) {
+            List<String> chunk =
+                    uuids.subList(from, Math.min(uuids.size(), from + MAX_UUIDS_PER_STATEMENT));
+
+            // NOTE UUIDs that have been evicted in the meantime are ignored on purpose
+            context.update(ComponentIds.COMPONENT_IDS)
+                .set(ComponentIds.COMPONENT_IDS.LAST_USED, now)
+                .where(ComponentIds.COMPONENT_IDS.UUID.in(chunk))
+                .execute();
         }
     }
 
     private void evictDatabase() {
         logger.debug("Evicting old non-permanent component ids from the database...");
-        AtomicInteger evictedCounter = new AtomicInteger(0);
-        synchronized (storeLock) {
-            database.write(context -> {
-                Result<ComponentIdsRecord> oldRecords = context
-                    .selectFrom(ComponentIds.COMPONENT_IDS)
-                    .where(ComponentIds.COMPONENT_IDS.LIFESPAN.notEqual(Lifespan.PERMANENT.name())
-                        .and(ComponentIds.COMPONENT_IDS.LAST_USED.lessOrEqual(Instant.now()
-                            .minus(evictDatabaseOlderThan, evictDatabaseOlderThanUnit))))
-                    .fetch();
-
-                oldRecords.forEach(recordToDelete -> {
-                    UUID uuid = UUID
-                        .fromString(recordToDelete.getValue(ComponentIds.COMPONENT_IDS.UUID));
-                    ComponentId componentId = deserializeComponentId(
-                            recordToDelete.getValue(ComponentIds.COMPONENT_IDS.COMPONENT_ID));
-                    Instant lastUsed = recordToDelete.getLastUsed();
-
-                    recordToDelete.delete();
-                    evictedCounter.getAndIncrement();
-                    logger.debug(
-                            "Evicted component id with uuid '{}' from user interactor '{}', last used '{}'",
-                            uuid, componentId.userInteractorName(), lastUsed);
-
-                    // Remove them from the cache if still in there
-                    storeCache.invalidate(uuid);
-                    // Notify all listeners, but non-blocking to not delay eviction
-                    componentIdRemovedListeners
-                        .forEach(listener -> componentIdRemovedListenerService
-                            .execute(() -> listener.accept(componentId)));
-                });
+
+        // Eviction must see the latest usage, otherwise it might delete recently used IDs. Also
+        // IDs used while evicting are heated, right before each batch and within its transaction.
+        List<String> heatedUuids = new ArrayList<>();
+        RetentionReport report;
+        try {
+            report = retentionEngine.purge(retentionPolicy, context -> {
+                List<String> uuids = drainPendingHeats();
+                heatedUuids.addAll(uuids);
+                heat(context, uuids);
             });
+        } catch (RuntimeException e) {
+            // The heats of the failed batch have been rolled back, retry them with the next flush
+            heatedUuids.stream().map(UUID::fromString).forEach(pendingHeats::add);
+            throw e;
         }
 
-        if (evictedCounter.get() != 0) {
-            logger.info("Evicted {} old non-permanent component ids from the database",
-                    evictedCounter.get());
+        if (report.purgedRows() != 0) {
+            logger.info(
+                    "Evicted {} old non-permanent component ids from the database in {} batches, took {} ms",
+                    report.purgedRows(), report.batches(), report.timeSpent().toMillis());
         }
     }
 
-    private static @NotNull String serializeComponentId(@NotNull ComponentId componentId) {
-        try {
-            return CSV.writerFor(ComponentId.class)
-                .with(CSV.schemaFor(ComponentId.class))
-                .writeValueAsString(componentId);
-        } catch (JsonProcessingException e) {
-            throw new InvalidComponentIdFormatException(e);
+    private void onComponentIdsEvicted(@NotNull Result<ComponentIdsRecord> evictedRecords) {
+        // Remove them from the cache if still in there. If a 'get' is currently loading one of the
+        // UUIDs, this waits for the load and removes its result, so evicted IDs can not be put
+        // back into the cache.
+        storeCache.invalidateAll(evictedRecords.stream()
+            .map(evictedRecord -> UUID.fromString(evictedRecord.getUuid()))
+            .toList());
+
+        // Deserialize and notify all listeners at once, but non-blocking to not delay eviction
+        componentIdRemovedListenerService.execute(() -> notifyComponentIdsEvicted(evictedRecords));
+    }
+
+    private void notifyComponentIdsEvicted(@NotNull Result<ComponentIdsRecord> evictedRecords) {
+        List<ComponentId> evictedComponentIds = new ArrayList<>(evictedRecords.size());
+        for (ComponentIdsRecord evictedRecord : evictedRecords) {
+            try {
+                evictedComponentIds.add(deserializeComponentId(evictedRecord.getComponentId()));
+            } catch (InvalidComponentIdFormatException e) {
+                logger.warn("Unable to read the evicted component id with uuid '{}'",
+                        evictedRecord.getUuid(), e);
+            }
+        }
+
+        if (logger.isDebugEnabled()) {
+            Map<String, Long> userInteractorToEvictedCount = evictedComponentIds.stream()
+                .collect(Collectors.groupingBy(ComponentId::userInteractorName, TreeMap::new,
+                        Collectors.counting()));
+            logger.debug("Evicted {} component ids by user interactor: {}", evictedRecords.size(),
+                    userInteractorToEvictedCount);
+        }
+
+        for (Consumer<ComponentId> listener : componentIdRemovedListeners) {
+            for (ComponentId componentId : evictedComponentIds) {
+                try {
+                    listener.accept(componentId);
+                } catch (Exception e) {
+                    logger.error("Unknown error in a listener for evicted component ids", e);
+                }
+            }
         }
     }
 
-    private static @NotNull ComponentId deserializeComponentId(@NotNull String componentId) {
+    /**
+     * Rewrites all component IDs that are still persisted as CSV text, from before the binary form
+     * was introduced, into the binary form. Finishes quickly if there are none left.
+     * <p>
+     * Component IDs that can not be read are left unchanged, they will be evicted eventually.
+     */
+    private void rewriteLegacyComponentIds() {
+        Condition isLegacy =
+                DSL.condition("typeof({0}) = 'text'", ComponentIds.COMPONENT_IDS.COMPONENT_ID);
+        int rewrittenAmount = 0;
+        int invalidAmount = 0;
+        String lastUuid = null;
+
+        while (true) {
+            // Pages by UUID, so that invalid component IDs are not selected over and over again
+            Condition page = lastUuid == null ? isLegacy
+                    : isLegacy.and(ComponentIds.COMPONENT_IDS.UUID.greaterThan(lastUuid));
+            Result<Record2<String, byte[]>> legacyRecords = database.read(context -> context
+                .select(ComponentIds.COMPONENT_IDS.UUID, ComponentIds.COMPONENT_IDS.COMPONENT_ID)
+                .from(ComponentIds.COMPONENT_IDS)
+                .where(page)
+                .orderBy(ComponentIds.COMPONENT_IDS.UUID)
+                .limit(REWRITE_LEGACY_CHUNK_SIZE)
+                .fetch());
+            if (legacyRecords.isEmpty()) {
+                break;
+            }
+            lastUuid = legacyRecords.get(legacyRecords.size() - 1).value1();
+
+            Map<String, byte[]> uuidToRewritten = new HashMap<>();
+            for (Record2<String, byte[]> legacyRecord : legacyRecords) {
+                try {
+                    uuidToRewritten.put(legacyRecord.value1(),
+                            serializeComponentId(deserializeComponentId(legacyRecord.value2())));
+                } catch (InvalidComponentIdFormatException e) {
+                    logger.warn("Unable to rewrite the legacy component id with uuid '{}'",
+                            legacyRecord.value1(), e);
+                    invalidAmount++;
+                }
+            }
+            database.writeTransaction(context -> uuidToRewritten
+                .forEach((uuid, componentId) -> context.update(ComponentIds.COMPONENT_IDS)
+                    .set(ComponentIds.COMPONENT_IDS.COMPONENT_ID, componentId)
+                    .where(ComponentIds.COMPONENT_IDS.UUID.eq(uuid))
+                    .execute()));
+            rewrittenAmount += uuidToRewritten.size();
+        }
+
+        if (rewrittenAmount != 0 || invalidAmount != 0) {
+            logger.info("Rewrote {} legacy component ids into the binary form, {} were invalid",
+                    rewrittenAmount, invalidAmount);
+        }
+    }
+
+    private static byte @NotNull [] serializeComponentId(@NotNull ComponentId componentId) {
+        byte[] serialized = ComponentIdCodec.encode(componentId, 1);
+        serialized[0] = STORAGE_FORMAT_VERSION;
+        return serialized;
+    }
+
+    private static @NotNull ComponentId deserializeComponentId(byte @NotNull [] componentId) {
+        if (componentId.length != 0 && componentId[0] == STORAGE_FORMAT_VERSION) {
+            return ComponentIdCodec.decode(componentId, 1);
+        }
+
+        // Persisted as CSV text, before the binary form was introduced
         try {
-            return CSV.readerFor(ComponentId.class)
-                .with(CSV.schemaFor(ComponentId.class))
-                .readValue(componentId);
-        } catch (JsonProcessingException e) {
+            return LEGACY_CSV_READER.readValue(componentId);
+        } catch (IOException e) {
             throw new InvalidComponentIdFormatException(e);
         }
     }
@@ -332,11 +651,19 @@ public final class ComponentIdStore implements AutoCloseable {
 
     @Override
     public void close() {
-        heatService.shutdown();
+        flushHeatsTask.cancel(false);
         if (evictionTask != null) {
             evictionTask.cancel(false);
         }
-        evictionService.shutdown();
+        maintenanceService.shutdown();
         componentIdRemovedListenerService.shutdown();
+
+        // Do not lose the latest usages
+        try {
+            flushHeats();
+        } catch (Exception e) {
+            logger.error("Unknown error while flushing heats to the component ID store database.",
+                    e);
+        }
     }
 }
@@ -0,0 +1,160 @@
+package org.togetherjava.tjbot.commands.componentids;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Encodes small component IDs directly into the ID string that is sent to Discord, instead of
+ * persisting them in a {@link ComponentIdStore}. Parsing them back hence requires no database
+ * access at all.
+ * <p>
+ * Discord allows component IDs of up to {@value #MAX_ID_LENGTH} characters. Component IDs whose
+ * encoded form exceeds that can not be encoded and have to be persisted instead, see
+ * {@link #encode(ComponentId)}.
+ * <p>
+ * The encoded form is authenticated with a truncated HMAC-SHA256, keyed with a dedicated secret of
+ * the bot. Users can hence neither forge component IDs nor change the arguments of existing ones.
+ * Encoded IDs are recognized by a prefix that never occurs in UUIDs, so both kinds can be told
+ * apart, see {@link #isEncoded(String)}.
+ * <p>
+ * Each encoded ID contains a few random bytes, so encoding the same payload twice, for example for
+ * the buttons of a yes-no dialog, still yields distinct IDs, as required by Discord.
+ * <p>
+ * Unlike persisted component IDs, encoded component IDs are never evicted. They stay valid as long
+ * as the secret does not change, hence component IDs with a {@link Lifespan#PERMANENT} lifespan
+ * should be persisted instead.
+ * <p>
+ * The class is thread-safe.
+ */
+public final class StatelessComponentIds {
+    /**
+     * Maximal length of component IDs accepted by Discord.
+     */
+    public static final int MAX_ID_LENGTH = 100;
+
+    private static final String PREFIX = "~";
+    private static final byte FORMAT_VERSION = 1;
+    private static final int NONCE_LENGTH = 4;
+    /**
+     * Format version followed by the nonce, the component ID is encoded after it, see
+     * {@link ComponentIdCodec}.
+     */
+    private static final int HEADER_LENGTH = 1 + NONCE_LENGTH;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    /**
+     * Length of the truncated authentication code, in bytes. Forging an ID requires guessing it
+     * through Discord, which is infeasible for 64 bits.
+     */
+    private static final int MAC_LENGTH = 8;
+    private static final int MAX_ENCODED_BYTES = (MAX_ID_LENGTH - PREFIX.length()) * 3 / 4;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param secret the secret to authenticate the component IDs with, must not be empty. Changing
+     *        it invalidates all component IDs encoded with the old secret.
+     */
+    public StatelessComponentIds(@NotNull String secret) {
+        if (secret.isEmpty()) {
+            throw new IllegalArgumentException("The secret must not be empty");
+        }
+        key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM);
+    }
+
+    /**
+     * Encodes the given component ID into a string that can be used as component ID on Discord.
+     *
+     * @param componentId the component ID to encode
+     * @return the encoded component ID, or empty if it is too large to be encoded
+     */
+    public @NotNull Optional<String> encode(@NotNull ComponentId componentId) {
+        byte[] payload = ComponentIdCodec.encode(componentId, HEADER_LENGTH);
+        if (payload.length + MAC_LENGTH > MAX_ENCODED_BYTES) {
+            return Optional.empty();
+        }
+
+        payload[0] = FORMAT_VERSION;
+        byte[] nonce = new byte[NONCE_LENGTH];
+        random.nextBytes(nonce);
+        System.arraycopy(nonce, 0, payload, 1, NONCE_LENGTH);
+
+        byte[] encoded = Arrays.copyOf(payload, payload.length + MAC_LENGTH);
+        System.arraycopy(computeMac(payload), 0, encoded, payload.length, MAC_LENGTH);
+        return Optional.of(PREFIX + ENCODER.encodeToString(encoded));
+    }
+
+    /**
+     * Whether the given component ID has been encoded by this class, as opposed to being the UUID
+     * of a persisted component ID.
+     *
+     * @param id the component ID as received from Discord
+     * @return whether the component ID is encoded
+     */
+    public static boolean isEncoded(@NotNull String id) {
+        return id.startsWith(PREFIX);
+    }
+
+    /**
+     * Decodes a component ID previously encoded by {@link #encode(ComponentId)}.
+     *
+     * @param id the encoded component ID
+     * @return the decoded component ID
+     * @throws InvalidComponentIdFormatException if the given ID is not a valid encoded component
+     *         ID, for example if it has been tampered with or was encoded with a different secret
+     */
+    public @NotNull ComponentId decode(@NotNull String id) {
+        if (!isEncoded(id)) {
+            throw new InvalidComponentIdFormatException("Not an encoded component ID: " + id);
+        }
+
+        byte[] encoded;
+        try {
+            encoded = DECODER.decode(id.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidComponentIdFormatException(e);
+        }
+        if (encoded.length < HEADER_LENGTH + MAC_LENGTH) {
+            throw new InvalidComponentIdFormatException("Encoded component ID is too short: " + id);
+        }
+
+        byte[] payload = Arrays.copyOf(encoded, encoded.length - MAC_LENGTH);
+        byte[] mac = Arrays.copyOfRange(encoded, payload.length, encoded.length);
+        if (!MessageDigest.isEqual(mac, Arrays.copyOf(computeMac(payload), MAC_LENGTH))) {
+            throw new InvalidComponentIdFormatException(
+                    "Authentication of the encoded component ID failed: " + id);
+        }
+
+        if (payload[0] != FORMAT_VERSION) {
+            throw new InvalidComponentIdFormatException(
+                    "Unsupported version of encoded component ID: " + payload[0]);
+        }
+        // Skips the nonce, it only makes IDs distinct
+        return ComponentIdCodec.decode(payload, HEADER_LENGTH);
+    }
+
+    private byte[] computeMac(byte[] payload) {
+        try {
+            // Mac instances are not thread-safe, but cheap to create
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is required to be supported by all JVMs",
+                    e);
+        }
+    }
+}
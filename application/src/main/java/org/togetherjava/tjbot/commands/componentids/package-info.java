@@ -8,6 +8,8 @@
  * The class {@link org.togetherjava.tjbot.commands.componentids.ComponentIdStore} is the central
  * point of this package and is generally exposed as
  * {@link org.togetherjava.tjbot.commands.componentids.ComponentIdGenerator} and
- * {@link org.togetherjava.tjbot.commands.componentids.ComponentIdParser}.
+ * {@link org.togetherjava.tjbot.commands.componentids.ComponentIdParser}. Small component IDs skip
+ * the store and are encoded into the ID itself by
+ * {@link org.togetherjava.tjbot.commands.componentids.StatelessComponentIds}.
  */
 package org.togetherjava.tjbot.commands.componentids;
@@ -13,6 +13,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.togetherjava.tjbot.commands.MessageReceiverAdapter;
 import org.togetherjava.tjbot.config.Config;
+import org.togetherjava.tjbot.metrics.HttpClientMetrics;
+import org.togetherjava.tjbot.metrics.MetricsRegistry;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -43,6 +45,7 @@ public class FileSharingMessageListener extends MessageReceiverAdapter {
     private static final HttpClient CLIENT = HttpClient.newHttpClient();
 
     private final String gistApiKey;
+    private final HttpClientMetrics gistMetrics;
     private final Set<String> extensionFilter = Set.of("txt", "java", "gradle", "xml", "kt", "json",
             "fxml", "css", "c", "h", "cpp", "py", "yml");
 
@@ -53,12 +56,14 @@ public class FileSharingMessageListener extends MessageReceiverAdapter {
      * Creates a new instance.
      * 
      * @param config used to get api key and channel names.
+     * @param metrics used to record the requests to the gist API.
      * @see org.togetherjava.tjbot.commands.Features
      */
-    public FileSharingMessageListener(@NotNull Config config) {
+    public FileSharingMessageListener(@NotNull Config config, @NotNull MetricsRegistry metrics) {
         super(Pattern.compile(".*"));
 
         gistApiKey = config.getGistApiKey();
+        gistMetrics = new HttpClientMetrics(metrics, "gist");
         isStagingChannelName = Pattern.compile(config.getHelpSystem().getStagingChannelPattern())
             .asMatchPredicate();
         isOverviewChannelName = Pattern.compile(config.getHelpSystem().getOverviewChannelPattern())
@@ -177,7 +182,7 @@ public class FileSharingMessageListener extends MessageReceiverAdapter {
 
         HttpResponse<String> apiResponse;
         try {
-            apiResponse = CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+            apiResponse = gistMetrics.send(CLIENT, request, HttpResponse.BodyHandlers.ofString());
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         } catch (InterruptedException e) {
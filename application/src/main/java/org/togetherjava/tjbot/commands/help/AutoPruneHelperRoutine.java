@@ -9,6 +9,7 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.togetherjava.tjbot.commands.Routine;
+import org.togetherjava.tjbot.commands.utils.GuildFanOut;
 import org.togetherjava.tjbot.config.Config;
 import org.togetherjava.tjbot.db.Database;
 import org.togetherjava.tjbot.moderation.ModAuditLogWriter;
@@ -30,6 +31,7 @@ import static org.togetherjava.tjbot.db.generated.tables.HelpChannelMessages.HEL
  */
 public final class AutoPruneHelperRoutine implements Routine {
     private static final Logger logger = LoggerFactory.getLogger(AutoPruneHelperRoutine.class);
+    private static final Duration GUILD_TIMEOUT = Duration.ofMinutes(10);
 
     private static final int ROLE_FULL_LIMIT = 100;
     private static final int ROLE_FULL_THRESHOLD = 95;
@@ -60,12 +62,16 @@ public final class AutoPruneHelperRoutine implements Routine {
 
     @Override
     public @NotNull Schedule createSchedule() {
-        return new Schedule(ScheduleMode.FIXED_RATE, 0, 1, TimeUnit.HOURS);
+        // Iterates all members of all guilds, which should neither delay other routines nor hit
+        // Discord at the same moment as them
+        return new Schedule(ScheduleMode.FIXED_RATE, 0, 1, TimeUnit.HOURS)
+            .withJitter(Duration.ofMinutes(5))
+            .withIsolatedExecutor();
     }
 
     @Override
     public void runRoutine(@NotNull JDA jda) {
-        jda.getGuildCache().forEach(this::pruneForGuild);
+        GuildFanOut.forEachGuild(jda, "Prune helpers", GUILD_TIMEOUT, this::pruneForGuild);
     }
 
     private void pruneForGuild(@NotNull Guild guild) {
@@ -11,6 +11,7 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.togetherjava.tjbot.commands.Routine;
+import org.togetherjava.tjbot.commands.utils.GuildFanOut;
 import org.togetherjava.tjbot.config.Config;
 import org.togetherjava.tjbot.config.HelpSystemConfig;
 
@@ -34,6 +35,8 @@ import java.util.regex.Pattern;
  */
 public final class BotMessageCleanup implements Routine {
     private static final Logger logger = LoggerFactory.getLogger(BotMessageCleanup.class);
+    // Runs every minute, a guild must not delay the next run
+    private static final Duration GUILD_TIMEOUT = Duration.ofSeconds(50);
 
     private static final int MESSAGE_HISTORY_LIMIT = 50;
     private static final Duration DELETE_MESSAGE_AFTER = Duration.ofMinutes(2);
@@ -60,7 +63,8 @@ public final class BotMessageCleanup implements Routine {
 
     @Override
     public void runRoutine(@NotNull JDA jda) {
-        jda.getGuildCache().forEach(this::cleanupBotMessagesForGuild);
+        GuildFanOut.forEachGuild(jda, "Clean up bot messages", GUILD_TIMEOUT,
+                this::cleanupBotMessagesForGuild);
     }
 
     private void cleanupBotMessagesForGuild(@NotNull Guild guild) {
@@ -12,11 +12,13 @@ import org.slf4j.LoggerFactory;
 import org.togetherjava.tjbot.config.Config;
 import org.togetherjava.tjbot.config.HelpSystemConfig;
 import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.db.RetentionPolicy;
 import org.togetherjava.tjbot.db.generated.tables.HelpThreads;
 import org.togetherjava.tjbot.db.generated.tables.records.HelpThreadsRecord;
 
 import java.awt.Color;
 import java.io.InputStream;
+import java.time.Period;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Predicate;
@@ -30,6 +32,12 @@ import java.util.stream.Stream;
 public final class HelpSystemHelper {
     private static final Logger logger = LoggerFactory.getLogger(HelpSystemHelper.class);
 
+    /**
+     * Metadata of help threads is only needed while they are active and is purged afterwards.
+     */
+    public static final RetentionPolicy<HelpThreadsRecord> RETENTION_POLICY = new RetentionPolicy<>(
+            HelpThreads.HELP_THREADS, HelpThreads.HELP_THREADS.CREATED_AT, Period.ofDays(30));
+
     static final Color AMBIENT_COLOR = new Color(255, 255, 165);
 
     private static final String CODE_SYNTAX_EXAMPLE_PATH = "codeSyntaxExample.png";
@@ -7,7 +7,9 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.togetherjava.tjbot.commands.Routine;
+import org.togetherjava.tjbot.commands.utils.GuildFanOut;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -23,6 +25,7 @@ import java.util.stream.Collectors;
  */
 public final class HelpThreadActivityUpdater implements Routine {
     private static final Logger logger = LoggerFactory.getLogger(HelpThreadActivityUpdater.class);
+    private static final Duration GUILD_TIMEOUT = Duration.ofMinutes(10);
     private static final int SCHEDULE_MINUTES = 30;
     private static final int ACTIVITY_DETERMINE_MESSAGE_LIMIT = 11;
 
@@ -39,12 +42,16 @@ public final class HelpThreadActivityUpdater implements Routine {
 
     @Override
     public @NotNull Schedule createSchedule() {
-        return new Schedule(ScheduleMode.FIXED_RATE, 1, SCHEDULE_MINUTES, TimeUnit.MINUTES);
+        // Iterates the history of all help threads, which should not delay other routines
+        return new Schedule(ScheduleMode.FIXED_RATE, 1, SCHEDULE_MINUTES, TimeUnit.MINUTES)
+            .withJitter(Duration.ofMinutes(1))
+            .withIsolatedExecutor();
     }
 
     @Override
     public void runRoutine(@NotNull JDA jda) {
-        jda.getGuildCache().forEach(this::updateActivityForGuild);
+        GuildFanOut.forEachGuild(jda, "Update help thread activity", GUILD_TIMEOUT,
+                this::updateActivityForGuild);
     }
 
     private void updateActivityForGuild(@NotNull Guild guild) {
@@ -12,8 +12,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.togetherjava.tjbot.commands.MessageReceiverAdapter;
 import org.togetherjava.tjbot.commands.Routine;
+import org.togetherjava.tjbot.commands.utils.GuildFanOut;
 import org.togetherjava.tjbot.config.Config;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -33,6 +35,8 @@ import java.util.stream.Collectors;
  */
 public final class HelpThreadOverviewUpdater extends MessageReceiverAdapter implements Routine {
     private static final Logger logger = LoggerFactory.getLogger(HelpThreadOverviewUpdater.class);
+    // Runs every minute, a guild must not delay the next run
+    private static final Duration GUILD_TIMEOUT = Duration.ofSeconds(50);
 
     private static final String STATUS_TITLE = "## __**Active questions**__ ##";
     private static final int OVERVIEW_QUESTION_LIMIT = 150;
@@ -66,7 +70,8 @@ public final class HelpThreadOverviewUpdater extends MessageReceiverAdapter impl
 
     @Override
     public void runRoutine(@NotNull JDA jda) {
-        jda.getGuildCache().forEach(this::updateOverviewForGuild);
+        GuildFanOut.forEachGuild(jda, "Update help thread overview", GUILD_TIMEOUT,
+                this::updateOverviewForGuild);
     }
 
     @Override
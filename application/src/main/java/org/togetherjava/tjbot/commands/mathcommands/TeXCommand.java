@@ -61,8 +61,19 @@ public final class TeXCommand extends SlashCommandAdapter {
                 "The latex which is rendered as an image", true);
     }
 
+    @Override
+    public boolean isAutoDeferrable() {
+        // Responds through the hook only
+        return true;
+    }
+
     @Override
     public void onSlashCommand(@NotNull final SlashCommandInteractionEvent event) {
+        // Parsing and rendering might take a while, acknowledge before unless done already
+        if (!event.isAcknowledged()) {
+            event.deferReply().queue();
+        }
+
         String latex = Objects.requireNonNull(event.getOption(LATEX_OPTION)).getAsString();
         String userID = (Objects.requireNonNull(event.getMember()).getId());
         TeXFormula formula;
@@ -73,12 +84,13 @@ public final class TeXCommand extends SlashCommandAdapter {
             }
             formula = new TeXFormula(latex);
         } catch (ParseException e) {
-            event.reply(BAD_LATEX_ERROR_PREFIX + e.getMessage()).setEphemeral(true).queue();
+            event.getHook()
+                .sendMessage(BAD_LATEX_ERROR_PREFIX + e.getMessage())
+                .setEphemeral(true)
+                .queue();
             return;
         }
 
-        event.deferReply().queue();
-
         try {
             Image image = renderImage(formula);
             sendImage(event, userID, image);
@@ -166,9 +178,13 @@ public final class TeXCommand extends SlashCommandAdapter {
     public void onButtonClick(@NotNull final ButtonInteractionEvent event,
             @NotNull final List<String> args) {
         if (!args.get(0).equals(Objects.requireNonNull(event.getMember()).getId())) {
-            event.reply("You are not the person who executed the command, you cannot do that")
-                .setEphemeral(true)
-                .queue();
+            String message = "You are not the person who executed the command, you cannot do that";
+            // The click might have been deferred automatically already
+            if (event.isAcknowledged()) {
+                event.getHook().sendMessage(message).setEphemeral(true).queue();
+            } else {
+                event.reply(message).setEphemeral(true).queue();
+            }
             return;
         }
         event.getMessage().delete().queue();
@@ -10,6 +10,8 @@ import org.jetbrains.annotations.NotNull;
 import org.togetherjava.tjbot.commands.SlashCommandAdapter;
 import org.togetherjava.tjbot.commands.SlashCommandVisibility;
 import org.togetherjava.tjbot.config.Config;
+import org.togetherjava.tjbot.metrics.HttpClientMetrics;
+import org.togetherjava.tjbot.metrics.MetricsRegistry;
 
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -33,18 +35,27 @@ public final class WolframAlphaCommand extends SlashCommandAdapter {
     private static final HttpClient CLIENT = HttpClient.newHttpClient();
 
     private final String appId;
+    private final HttpClientMetrics apiMetrics;
 
     /**
      * Creates a new instance.
      *
      * @param config the config to use
+     * @param metrics the registry to record the requests to the API in
      */
-    public WolframAlphaCommand(@NotNull Config config) {
+    public WolframAlphaCommand(@NotNull Config config, @NotNull MetricsRegistry metrics) {
         super("wolfram-alpha", "Renders mathematical queries using WolframAlpha",
                 SlashCommandVisibility.GUILD);
         getData().addOption(OptionType.STRING, QUERY_OPTION, "the query to send to WolframAlpha",
                 true);
         appId = config.getWolframAlphaAppId();
+        apiMetrics = new HttpClientMetrics(metrics, "wolfram-alpha");
+    }
+
+    @Override
+    public boolean isAutoDeferrable() {
+        // Responds through the hook only
+        return true;
     }
 
     @Override
@@ -52,8 +63,10 @@ public final class WolframAlphaCommand extends SlashCommandAdapter {
         String query = event.getOption(QUERY_OPTION).getAsString();
         WolframAlphaHandler handler = new WolframAlphaHandler(query);
 
-        // The API call takes a bit
-        event.deferReply().queue();
+        // The API call takes a bit, acknowledge unless that was done automatically already
+        if (!event.isAcknowledged()) {
+            event.deferReply().queue();
+        }
 
         // Send query
         HttpRequest request = HttpRequest
@@ -66,7 +79,7 @@ public final class WolframAlphaCommand extends SlashCommandAdapter {
             .build();
 
         CompletableFuture<HttpResponse<String>> apiResponse =
-                CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+                apiMetrics.sendAsync(CLIENT, request, HttpResponse.BodyHandlers.ofString());
 
         // Parse and respond
         apiResponse.thenApply(handler::handleApiResponse)
@@ -127,9 +127,11 @@ public final class AuditCommand extends SlashCommandAdapter {
             return;
         }
 
-        event
-            .reply(auditUser(guild.getIdLong(), target.getIdLong(), event.getMember().getIdLong(),
-                    1, event.getJDA()))
+        // Auditing retrieves the target from Discord, which might take a while
+        event.deferReply().queue();
+        event.getHook()
+            .editOriginal(auditUser(guild.getIdLong(), target.getIdLong(),
+                    event.getMember().getIdLong(), 1, event.getJDA()))
             .queue();
     }
 
@@ -188,15 +190,18 @@ public final class AuditCommand extends SlashCommandAdapter {
     private @NotNull ActionRow makeActionRow(long guildId, long targetId, long callerId,
             int pageNumber, int totalPages) {
         int previousButtonTurnPageBy = -1;
-        Button previousButton = createPageTurnButton(PREVIOUS_BUTTON_LABEL, guildId, targetId,
-                callerId, pageNumber, previousButtonTurnPageBy);
+        int nextButtonTurnPageBy = 1;
+        List<String> componentIds = generateComponentIds(List.of(
+                createPageTurnArgs(guildId, targetId, callerId, pageNumber,
+                        previousButtonTurnPageBy),
+                createPageTurnArgs(guildId, targetId, callerId, pageNumber, nextButtonTurnPageBy)));
+
+        Button previousButton = Button.primary(componentIds.get(0), PREVIOUS_BUTTON_LABEL);
         if (pageNumber == 1) {
             previousButton = previousButton.asDisabled();
         }
 
-        int nextButtonTurnPageBy = 1;
-        Button nextButton = createPageTurnButton(NEXT_BUTTON_LABEL, guildId, targetId, callerId,
-                pageNumber, nextButtonTurnPageBy);
+        Button nextButton = Button.primary(componentIds.get(1), NEXT_BUTTON_LABEL);
         if (pageNumber == totalPages) {
             nextButton = nextButton.asDisabled();
         }
@@ -204,11 +209,10 @@ public final class AuditCommand extends SlashCommandAdapter {
         return ActionRow.of(previousButton, nextButton);
     }
 
-    private @NotNull Button createPageTurnButton(@NotNull String label, long guildId, long targetId,
+    private static @NotNull List<String> createPageTurnArgs(long guildId, long targetId,
             long callerId, long pageNumber, int turnPageBy) {
-        return Button.primary(generateComponentId(String.valueOf(guildId), String.valueOf(targetId),
-                String.valueOf(callerId), String.valueOf(pageNumber), String.valueOf(turnPageBy)),
-                label);
+        return List.of(String.valueOf(guildId), String.valueOf(targetId), String.valueOf(callerId),
+                String.valueOf(pageNumber), String.valueOf(turnPageBy));
     }
 
     @Override
@@ -231,7 +235,9 @@ public final class AuditCommand extends SlashCommandAdapter {
         long targetId = Long.parseLong(args.get(1));
         int pageToDisplay = currentPage + turnPageBy;
 
-        event.editMessage(auditUser(guildId, targetId, interactorId, pageToDisplay, event.getJDA()))
+        event.deferEdit().queue();
+        event.getHook()
+            .editOriginal(auditUser(guildId, targetId, interactorId, pageToDisplay, event.getJDA()))
             .queue();
     }
 }
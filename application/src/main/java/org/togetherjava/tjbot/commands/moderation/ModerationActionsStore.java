@@ -3,14 +3,18 @@ package org.togetherjava.tjbot.commands.moderation;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.exception.DataAccessException;
 import org.togetherjava.tjbot.db.Database;
 import org.togetherjava.tjbot.db.generated.tables.ModerationActions;
 import org.togetherjava.tjbot.db.generated.tables.records.ModerationActionsRecord;
+import org.togetherjava.tjbot.db.util.CheckedFunction;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Store for moderation actions, e.g. as banning users. Can be used to retrieve information about
@@ -109,17 +113,39 @@ public final class ModerationActionsStore {
      */
     public @NotNull Optional<ActionRecord> findLastActionAgainstTargetByType(long guildId,
             long targetId, @NotNull ModerationAction actionType) {
-        return database
-            .read(context -> context.selectFrom(ModerationActions.MODERATION_ACTIONS)
-                .where(ModerationActions.MODERATION_ACTIONS.GUILD_ID.eq(guildId)
-                    .and(ModerationActions.MODERATION_ACTIONS.TARGET_ID.eq(targetId))
-                    .and(ModerationActions.MODERATION_ACTIONS.ACTION_TYPE.eq(actionType.name())))
-                .orderBy(ModerationActions.MODERATION_ACTIONS.ISSUED_AT.desc())
-                .limit(1)
-                .fetchOptional())
+        return database.read(lastActionAgainstTargetByType(guildId, targetId, actionType))
             .map(ActionRecord::of);
     }
 
+    /**
+     * Asynchronous variant of
+     * {@link #findLastActionAgainstTargetByType(long, long, ModerationAction)}, which does not
+     * block the caller.
+     *
+     * @param guildId the id of the guild, only actions that happened in the context of that guild
+     *        will be retrieved
+     * @param targetId the id of the target user to filter for
+     * @param actionType the type of the action
+     * @return a future that completes with the last action issued against the given user of the
+     *         given type, if present
+     */
+    public @NotNull CompletableFuture<Optional<ActionRecord>> findLastActionAgainstTargetByTypeAsync(
+            long guildId, long targetId, @NotNull ModerationAction actionType) {
+        return database.readAsync(lastActionAgainstTargetByType(guildId, targetId, actionType))
+            .thenApply(action -> action.map(ActionRecord::of));
+    }
+
+    private static @NotNull CheckedFunction<DSLContext, Optional<ModerationActionsRecord>, DataAccessException> lastActionAgainstTargetByType(
+            long guildId, long targetId, @NotNull ModerationAction actionType) {
+        return context -> context.selectFrom(ModerationActions.MODERATION_ACTIONS)
+            .where(ModerationActions.MODERATION_ACTIONS.GUILD_ID.eq(guildId)
+                .and(ModerationActions.MODERATION_ACTIONS.TARGET_ID.eq(targetId))
+                .and(ModerationActions.MODERATION_ACTIONS.ACTION_TYPE.eq(actionType.name())))
+            .orderBy(ModerationActions.MODERATION_ACTIONS.ISSUED_AT.desc())
+            .limit(1)
+            .fetchOptional();
+    }
+
     /**
      * Gets the action with the given case id from the store, if present.
      *
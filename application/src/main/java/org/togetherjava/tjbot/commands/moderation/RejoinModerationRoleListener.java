@@ -7,6 +7,7 @@ import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.events.GenericEvent;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.togetherjava.tjbot.commands.EventReceiver;
@@ -14,6 +15,7 @@ import org.togetherjava.tjbot.config.Config;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 /**
@@ -61,34 +63,50 @@ public final class RejoinModerationRoleListener implements EventReceiver {
     private void onGuildMemberJoin(@NotNull GuildMemberJoinEvent event) {
         Member member = event.getMember();
 
+        // Looking up the actions must not block the event thread
         for (ModerationRole moderationRole : moderationRoles) {
-            if (shouldApplyModerationRole(moderationRole, member)) {
-                applyModerationRole(moderationRole, member);
-            }
+            shouldApplyModerationRole(moderationRole, member).thenAccept(shouldApply -> {
+                if (Boolean.TRUE.equals(shouldApply)) {
+                    applyModerationRole(moderationRole, member);
+                }
+            }).exceptionally(failure -> {
+                logger.error("Unable to check whether {} has to be reapplied to user '{}'.",
+                        moderationRole.actionName, member.getId(), failure);
+                return null;
+            });
         }
     }
 
-    private boolean shouldApplyModerationRole(@NotNull ModerationRole moderationRole,
-            @NotNull IPermissionHolder member) {
-        Optional<ActionRecord> lastApplyAction = actionsStore.findLastActionAgainstTargetByType(
-                member.getGuild().getIdLong(), member.getIdLong(), moderationRole.applyAction);
-        if (lastApplyAction.isEmpty()) {
+    private @NotNull CompletableFuture<Boolean> shouldApplyModerationRole(
+            @NotNull ModerationRole moderationRole, @NotNull IPermissionHolder member) {
+        long guildId = member.getGuild().getIdLong();
+        long targetId = member.getIdLong();
+
+        CompletableFuture<Optional<ActionRecord>> lastApplyActionTask = actionsStore
+            .findLastActionAgainstTargetByTypeAsync(guildId, targetId, moderationRole.applyAction);
+        CompletableFuture<Optional<ActionRecord>> lastRevokeActionTask = actionsStore
+            .findLastActionAgainstTargetByTypeAsync(guildId, targetId, moderationRole.revokeAction);
+
+        return lastApplyActionTask.thenCombine(lastRevokeActionTask,
+                (lastApplyAction, lastRevokeAction) -> shouldApplyModerationRole(
+                        lastApplyAction.orElse(null), lastRevokeAction.orElse(null)));
+    }
+
+    private static boolean shouldApplyModerationRole(@Nullable ActionRecord lastApplyAction,
+            @Nullable ActionRecord lastRevokeAction) {
+        if (lastApplyAction == null) {
             // User was never e.g. muted
             return false;
         }
 
-        Optional<ActionRecord> lastRevokeAction = actionsStore.findLastActionAgainstTargetByType(
-                member.getGuild().getIdLong(), member.getIdLong(), moderationRole.revokeAction);
-        if (lastRevokeAction.isEmpty()) {
+        if (lastRevokeAction == null) {
             // User was never e.g. unmuted
-            return lastApplyAction.orElseThrow().isEffective();
+            return lastApplyAction.isEffective();
         }
 
         // The last issued action takes priority
-        if (lastApplyAction.orElseThrow()
-            .issuedAt()
-            .isAfter(lastRevokeAction.orElseThrow().issuedAt())) {
-            return lastApplyAction.orElseThrow().isEffective();
+        if (lastApplyAction.issuedAt().isAfter(lastRevokeAction.issuedAt())) {
+            return lastApplyAction.isEffective();
         }
         return false;
     }
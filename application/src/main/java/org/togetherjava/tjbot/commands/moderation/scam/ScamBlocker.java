@@ -57,6 +57,13 @@ public final class ScamBlocker extends MessageReceiverAdapter implements UserInt
     private final ScamHistoryStore scamHistoryStore;
     private final Predicate<String> hasRequiredRole;
 
+    /**
+     * Detected scam is handled one after another, also if it was sent in channels that are handled
+     * in parallel. Otherwise, a burst of duplicate scam could be handled concurrently, with none of
+     * it seeing the others as duplicate yet.
+     */
+    private final Object scamHandlingLock = new Object();
+
     private ComponentIdGenerator componentIdGenerator;
 
     /**
@@ -99,6 +106,11 @@ public final class ScamBlocker extends MessageReceiverAdapter implements UserInt
         componentIdGenerator = generator;
     }
 
+    @Override
+    public boolean isAutoDeferrable() {
+        return false;
+    }
+
     @Override
     public void onMessageReceived(@NotNull MessageReceivedEvent event) {
         if (event.getAuthor().isBot() || event.isWebhookMessage()) {
@@ -115,12 +127,15 @@ public final class ScamBlocker extends MessageReceiverAdapter implements UserInt
             return;
         }
 
-        if (scamHistoryStore.hasRecentScamDuplicate(message)) {
-            takeActionWasAlreadyReported(event);
-            return;
-        }
+        // Messages are received off the event thread already, so the lookup may block
+        synchronized (scamHandlingLock) {
+            if (scamHistoryStore.hasRecentScamDuplicate(message)) {
+                takeActionWasAlreadyReported(event);
+                return;
+            }
 
-        takeAction(event);
+            takeAction(event);
+        }
     }
 
     private void takeActionWasAlreadyReported(@NotNull MessageReceivedEvent event) {
@@ -261,13 +276,13 @@ public final class ScamBlocker extends MessageReceiverAdapter implements UserInt
                 event.getAuthor().getIdLong(),
                 ScamHistoryStore.hashMessageContent(event.getMessage()));
 
-        return ActionRow.of(Button.success(generateComponentId(args), "Yes"),
-                Button.danger(generateComponentId(args), "No"));
-    }
+        // Both buttons carry the same arguments, but need distinct IDs
+        ComponentId componentId = new ComponentId(getName(), args.toList());
+        List<String> yesNoIds = Objects.requireNonNull(componentIdGenerator)
+            .generateAll(List.of(componentId, componentId), Lifespan.REGULAR);
 
-    private @NotNull String generateComponentId(@NotNull ComponentIdArguments args) {
-        return Objects.requireNonNull(componentIdGenerator)
-            .generate(new ComponentId(getName(), args.toList()), Lifespan.REGULAR);
+        return ActionRow.of(Button.success(yesNoIds.get(0), "Yes"),
+                Button.danger(yesNoIds.get(1), "No"));
     }
 
     @Override
@@ -5,11 +5,13 @@ import org.jetbrains.annotations.NotNull;
 import org.jooq.Result;
 import org.togetherjava.tjbot.commands.utils.Hashing;
 import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.db.RetentionPolicy;
 import org.togetherjava.tjbot.db.generated.tables.records.ScamHistoryRecord;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.Period;
 import java.util.Collection;
 import java.util.Objects;
 
@@ -24,12 +26,18 @@ import static org.togetherjava.tjbot.db.generated.tables.ScamHistory.SCAM_HISTOR
  * to determine {@link #hasRecentScamDuplicate(Message)} or for further processing, such as
  * {@link #markScamDuplicatesDeleted(Message)}.
  * <p>
- * Entries are only kept for a certain amount of time and will be purged regularly by
- * {@link ScamHistoryPurgeRoutine}.
+ * Entries are only kept for a certain amount of time and will be purged regularly, according to
+ * {@link #RETENTION_POLICY}.
  * <p>
  * The store persists the actions and is thread safe.
  */
 public final class ScamHistoryStore {
+    /**
+     * Scam history is only needed to handle recent scam and is purged afterwards.
+     */
+    public static final RetentionPolicy<ScamHistoryRecord> RETENTION_POLICY =
+            new RetentionPolicy<>(SCAM_HISTORY, SCAM_HISTORY.SENT_AT, Period.ofWeeks(2));
+
     private final Database database;
     private static final Duration RECENT_SCAM_DURATION = Duration.ofMinutes(15);
     private static final String HASH_METHOD = "SHA";
@@ -121,17 +129,6 @@ public final class ScamHistoryStore {
                     .and(SCAM_HISTORY.CONTENT_HASH.eq(hashMessageContent(scam))))) != 0;
     }
 
-    /**
-     * Deletes all scam records from the history, which have been sent earlier than the given time.
-     *
-     * @param olderThan all records older than this will be deleted
-     */
-    public void deleteHistoryOlderThan(Instant olderThan) {
-        database.write(context -> context.deleteFrom(SCAM_HISTORY)
-            .where(SCAM_HISTORY.SENT_AT.lessOrEqual(olderThan))
-            .execute());
-    }
-
     /**
      * Hashes the content of the given message to uniquely identify it.
      * 
@@ -0,0 +1,76 @@
+package org.togetherjava.tjbot.commands.system;
+
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.commands.SlashCommandAdapter;
+import org.togetherjava.tjbot.commands.SlashCommandVisibility;
+import org.togetherjava.tjbot.db.BackupReport;
+import org.togetherjava.tjbot.db.DatabaseBackups;
+import org.togetherjava.tjbot.db.DatabaseException;
+
+import java.util.Objects;
+
+/**
+ * Implements the '/backup-database' command which creates a backup of the database of the bot,
+ * while it is running.
+ * <p>
+ * Backups are also created periodically, see
+ * {@link org.togetherjava.tjbot.routines.DatabaseMaintenanceRoutine}. This command is meant for
+ * taking one on demand, for example before a risky deployment.
+ */
+public final class BackupDatabaseCommand extends SlashCommandAdapter {
+    private static final Logger logger = LoggerFactory.getLogger(BackupDatabaseCommand.class);
+    private static final double BYTES_PER_MIB = 1024.0 * 1024.0;
+
+    private final DatabaseBackups backups;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param backups the backups of the database to create a new backup in
+     */
+    public BackupDatabaseCommand(@NotNull DatabaseBackups backups) {
+        super("backup-database", "Creates a backup of the database of the bot while it is running.",
+                SlashCommandVisibility.GUILD);
+        this.backups = backups;
+    }
+
+    @Override
+    public void onSlashCommand(@NotNull SlashCommandInteractionEvent event) {
+        Member member = Objects.requireNonNull(event.getMember());
+
+        if (!member.hasPermission(Permission.MANAGE_SERVER)) {
+            event.reply("You need the 'MANAGE_SERVER' permission to use this command.")
+                .setEphemeral(true)
+                .queue();
+            return;
+        }
+
+        event.deferReply(true).queue();
+
+        BackupReport report;
+        try {
+            report = backups.create();
+        } catch (DatabaseException e) {
+            logger.error("Failed to create a backup of the database, triggered by user '{}'",
+                    member.getId(), e);
+            event.getHook().editOriginal("Sorry, failed to create the backup.").queue();
+            return;
+        }
+
+        logger.info("Created backup '{}' of the database, triggered by user '{}', took {} ms",
+                report.file(), member.getId(), report.timeSpent().toMillis());
+        event.getHook()
+            .editOriginal(
+                    "Created backup '%s' with %d pages (%.1f MiB, %.1f MiB compressed) in %d ms."
+                        .formatted(report.file().getFileName(), report.pages(),
+                                report.databaseSize() / BYTES_PER_MIB,
+                                report.compressedSize() / BYTES_PER_MIB,
+                                report.timeSpent().toMillis()))
+            .queue();
+    }
+}
@@ -2,7 +2,6 @@ package org.togetherjava.tjbot.commands.system;
 
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.Permission;
-import net.dv8tion.jda.api.entities.Channel;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
@@ -16,25 +15,29 @@ import net.dv8tion.jda.api.interactions.commands.Command;
 import net.dv8tion.jda.api.interactions.components.ComponentInteraction;
 import net.dv8tion.jda.api.requests.ErrorResponse;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.togetherjava.tjbot.commands.*;
 import org.togetherjava.tjbot.commands.componentids.ComponentId;
+import org.togetherjava.tjbot.commands.componentids.ComponentIdGenerator;
 import org.togetherjava.tjbot.commands.componentids.ComponentIdParser;
 import org.togetherjava.tjbot.commands.componentids.ComponentIdStore;
 import org.togetherjava.tjbot.commands.componentids.InvalidComponentIdFormatException;
+import org.togetherjava.tjbot.commands.componentids.Lifespan;
+import org.togetherjava.tjbot.commands.componentids.StatelessComponentIds;
+import org.togetherjava.tjbot.commands.utils.CacheSnapshots;
+import org.togetherjava.tjbot.commands.utils.CacheStatistics;
+import org.togetherjava.tjbot.commands.utils.ExecutorStatistics;
 import org.togetherjava.tjbot.config.Config;
 import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.metrics.MetricsRegistry;
 
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * The bot core is the core of command handling in this application.
@@ -48,18 +51,24 @@ import java.util.stream.Stream;
  * event listener, using {@link net.dv8tion.jda.api.JDA#addEventListener(Object...)}. Afterwards,
  * the system is ready and will correctly forward events to all commands.
  */
-public final class BotCore extends ListenerAdapter implements SlashCommandProvider {
+public final class BotCore extends ListenerAdapter implements SlashCommandProvider, AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(BotCore.class);
     private static final String RELOAD_COMMAND = "reload";
-    private static final ExecutorService COMMAND_SERVICE = Executors.newCachedThreadPool();
-    private static final ScheduledExecutorService ROUTINE_SERVICE =
-            Executors.newScheduledThreadPool(5);
+    private static final String DIAGNOSTICS_COMMAND = "diagnostics";
     private final Config config;
+    private final CommandExecutor commandExecutor;
+    private final RoutineScheduler routineScheduler = new RoutineScheduler();
     private final Map<String, UserInteractor> nameToInteractor;
     private final List<Routine> routines;
     private final ComponentIdParser componentIdParser;
     private final ComponentIdStore componentIdStore;
-    private final Map<Pattern, MessageReceiver> channelNameToMessageReceiver = new HashMap<>();
+    /**
+     * Encodes small component IDs into the ID itself, {@code null} if no secret is configured for
+     * it, in which case all component IDs are persisted.
+     */
+    private final @Nullable StatelessComponentIds statelessComponentIds;
+    private final MessageRoutingTable messageRoutingTable;
+    private final MessageDispatcher messageDispatcher;
     private final AtomicBoolean receivedOnReady = new AtomicBoolean(false);
 
     /**
@@ -70,18 +79,29 @@ public final class BotCore extends ListenerAdapter implements SlashCommandProvid
      * @param jda the JDA instance that this command system will be used with
      * @param database the database that commands may use to persist data
      * @param config the configuration to use for this system
+     * @param cacheSnapshots the snapshots to register caches at, so that they are warm again after
+     *        a restart
+     * @param metrics the registry to record the metrics of the system and its features in
      */
     @SuppressWarnings("ThisEscapedInObjectConstruction")
-    public BotCore(@NotNull JDA jda, @NotNull Database database, @NotNull Config config) {
+    public BotCore(@NotNull JDA jda, @NotNull Database database, @NotNull Config config,
+            @NotNull CacheSnapshots cacheSnapshots, @NotNull MetricsRegistry metrics) {
         this.config = config;
-        Collection<Feature> features = Features.createFeatures(jda, database, config);
+        commandExecutor = new CommandExecutor(config.getCommandSystem().getMaxConcurrentCommands(),
+                config.getCommandSystem().getMaxConcurrentCommandsPerInteractor(),
+                Duration.ofMillis(config.getCommandSystem().getAutoDeferAfterMillis()));
+        messageDispatcher = new MessageDispatcher(
+                config.getCommandSystem().getMessageDispatchLanes(),
+                config.getCommandSystem().getMessageQueueCapacityPerLane(),
+                Duration.ofMillis(config.getCommandSystem().getMessageDispatchMaxWaitMillis()));
+        Collection<Feature> features = Features.createFeatures(jda, database, config, metrics);
 
         // Message receivers
-        features.stream()
+        messageRoutingTable = new MessageRoutingTable(features.stream()
             .filter(MessageReceiver.class::isInstance)
             .map(MessageReceiver.class::cast)
-            .forEach(messageReceiver -> channelNameToMessageReceiver
-                .put(messageReceiver.getChannelNamePattern(), messageReceiver));
+            .toList());
+        jda.addEventListener(messageRoutingTable);
 
         // Event receivers
         features.stream()
@@ -108,17 +128,50 @@ public final class BotCore extends ListenerAdapter implements SlashCommandProvid
         }
         nameToInteractor.put(RELOAD_COMMAND, new ReloadCommand(this));
 
-        // Component Id Store
+        // Diagnostics Command
+        if (nameToInteractor.containsKey(DIAGNOSTICS_COMMAND)) {
+            throw new IllegalStateException(
+                    "The 'diagnostics' command is a special reserved command that must not be used by other user interactors");
+        }
+        nameToInteractor.put(DIAGNOSTICS_COMMAND, new DiagnosticsCommand(this, database, config));
+
+        // Component Ids, small ones are encoded into the ID itself, others are persisted
+        String componentIdSecret = config.getComponentIdSecret();
+        if (componentIdSecret == null || componentIdSecret.isBlank()) {
+            logger.warn(
+                    "No secret for component IDs configured, all component IDs will be persisted.");
+            statelessComponentIds = null;
+        } else {
+            statelessComponentIds = new StatelessComponentIds(componentIdSecret);
+        }
         componentIdStore = new ComponentIdStore(database);
         componentIdStore.addComponentIdRemovedListener(BotCore::onComponentIdRemoved);
-        componentIdParser = uuid -> componentIdStore.get(UUID.fromString(uuid));
+        componentIdStore.registerCacheSnapshot(cacheSnapshots);
+        componentIdStore.registerMetrics(metrics);
+        componentIdParser = this::parseComponentId;
+        ComponentIdGenerator componentIdGenerator = new ComponentIdGenerator() {
+            @Override
+            public @NotNull String generate(@NotNull ComponentId componentId,
+                    @NotNull Lifespan lifespan) {
+                return generateComponentId(componentId, lifespan);
+            }
+
+            @Override
+            public @NotNull List<String> generateAll(@NotNull List<ComponentId> componentIds,
+                    @NotNull Lifespan lifespan) {
+                return generateComponentIds(componentIds, lifespan);
+            }
+        };
         nameToInteractor.values()
-            .forEach(slashCommand -> slashCommand
-                .acceptComponentIdGenerator(((componentId, lifespan) -> {
-                    UUID uuid = UUID.randomUUID();
-                    componentIdStore.putOrThrow(uuid, componentId, lifespan);
-                    return uuid.toString();
-                })));
+            .forEach(slashCommand -> slashCommand.acceptComponentIdGenerator(componentIdGenerator));
+
+        // Metrics
+        commandExecutor.registerMetrics(metrics);
+        routineScheduler.registerMetrics(metrics);
+        messageDispatcher.registerMetrics(metrics);
+        metrics.gauge("tjbot_gateway_ping_seconds",
+                "Time of the last heartbeat of the gateway connection to Discord",
+                () -> jda.getGatewayPing() / 1000.0);
 
         if (logger.isInfoEnabled()) {
             logger.info("Available user interactors: {}", nameToInteractor.keySet());
@@ -155,7 +208,7 @@ public final class BotCore extends ListenerAdapter implements SlashCommandProvid
         // Register reload on all guilds
         logger.debug("JDA is ready, registering reload command");
         jda.getGuildCache()
-            .forEach(guild -> COMMAND_SERVICE.execute(() -> registerReloadCommand(guild)));
+            .forEach(guild -> commandExecutor.execute(() -> registerReloadCommand(guild)));
         // NOTE We do not have to wait for reload to complete for the command system to be ready
         // itself
         logger.debug("Bot core is now ready");
@@ -164,77 +217,141 @@ public final class BotCore extends ListenerAdapter implements SlashCommandProvid
     }
 
     private void scheduleRoutines(@NotNull JDA jda) {
-        routines.forEach(routine -> {
-            Runnable command = () -> {
-                String routineName = routine.getClass().getSimpleName();
-                try {
-                    logger.debug("Running routine %s...".formatted(routineName));
-                    routine.runRoutine(jda);
-                    logger.debug("Finished routine %s.".formatted(routineName));
-                } catch (Exception e) {
-                    logger.error("Unknown error in routine {}.", routineName, e);
-                }
-            };
-
-            Routine.Schedule schedule = routine.createSchedule();
-            switch (schedule.mode()) {
-                case FIXED_RATE -> ROUTINE_SERVICE.scheduleAtFixedRate(command,
-                        schedule.initialDuration(), schedule.duration(), schedule.unit());
-                case FIXED_DELAY -> ROUTINE_SERVICE.scheduleWithFixedDelay(command,
-                        schedule.initialDuration(), schedule.duration(), schedule.unit());
-                default -> throw new AssertionError("Unsupported schedule mode");
-            }
-        });
+        routines.forEach(routine -> routineScheduler.schedule(routine, jda));
     }
 
     @Override
     public void onMessageReceived(@NotNull final MessageReceivedEvent event) {
-        if (event.isFromGuild()) {
-            getMessageReceiversSubscribedTo(event.getChannel())
-                .forEach(messageReceiver -> messageReceiver.onMessageReceived(event));
+        if (!event.isFromGuild()) {
+            return;
         }
+
+        MessageReceiver[] messageReceivers =
+                messageRoutingTable.getMessageReceiversSubscribedTo(event.getChannel());
+        if (messageReceivers.length == 0) {
+            return;
+        }
+        // New messages are only dropped after waiting, receivers such as the scam blocker should
+        // see all of them
+        messageDispatcher.dispatch(event.getChannel().getIdLong(), () -> {
+            for (MessageReceiver messageReceiver : messageReceivers) {
+                messageReceiver.onMessageReceived(event);
+            }
+        }, MessageDispatcher.OverflowPolicy.WAIT);
     }
 
     @Override
     public void onMessageUpdate(@NotNull final MessageUpdateEvent event) {
-        if (event.isFromGuild()) {
-            getMessageReceiversSubscribedTo(event.getChannel())
-                .forEach(messageReceiver -> messageReceiver.onMessageUpdated(event));
+        if (!event.isFromGuild()) {
+            return;
         }
+
+        MessageReceiver[] messageReceivers =
+                messageRoutingTable.getMessageReceiversSubscribedTo(event.getChannel());
+        if (messageReceivers.length == 0) {
+            return;
+        }
+        // Edits are dropped when overloaded, e.g. during raids, to keep the gateway responsive
+        messageDispatcher.dispatch(event.getChannel().getIdLong(), () -> {
+            for (MessageReceiver messageReceiver : messageReceivers) {
+                messageReceiver.onMessageUpdated(event);
+            }
+        }, MessageDispatcher.OverflowPolicy.DISCARD);
     }
 
-    private @NotNull Stream<MessageReceiver> getMessageReceiversSubscribedTo(
-            @NotNull Channel channel) {
-        String channelName = channel.getName();
-        return channelNameToMessageReceiver.entrySet()
-            .stream()
-            .filter(patternAndReceiver -> patternAndReceiver.getKey()
-                .matcher(channelName)
-                .matches())
-            .map(Map.Entry::getValue);
+    /**
+     * Gets statistics about the messages dispatched to {@link MessageReceiver}s, such as the amount
+     * of messages currently waiting to be handled and how long they waited.
+     *
+     * @return the statistics
+     */
+    public @NotNull MessageDispatcher.Statistics getMessageDispatchStatistics() {
+        return messageDispatcher.getStatistics();
+    }
+
+    /**
+     * Gets statistics about the commands executed so far, such as how long they waited for a thread
+     * and how long they took.
+     *
+     * @return statistics for each user interactor, the interactor with the most executed commands
+     *         first
+     */
+    public @NotNull Collection<CommandStatistics> getCommandStatistics() {
+        return commandExecutor.getStatistics();
+    }
+
+    /**
+     * Gets statistics about the routines executed so far, such as how long they took and how many
+     * executions they missed.
+     *
+     * @return statistics for each routine
+     */
+    public @NotNull Collection<RoutineStatistics> getRoutineStatistics() {
+        return routineScheduler.getStatistics();
+    }
+
+    /**
+     * Gets statistics about the thread pools of the system, such as the executor of commands and
+     * the executors of routines.
+     *
+     * @return statistics of each thread pool
+     */
+    public @NotNull List<ExecutorStatistics> getExecutorStatistics() {
+        List<ExecutorStatistics> statistics = new ArrayList<>();
+        statistics.add(commandExecutor.getExecutorStatistics());
+        statistics.addAll(routineScheduler.getExecutorStatistics());
+        statistics.addAll(componentIdStore.getExecutorStatistics());
+        return statistics;
+    }
+
+    /**
+     * Gets statistics about the in-memory caches of the system, such as the cache of component IDs.
+     *
+     * @return statistics of each cache
+     */
+    public @NotNull List<CacheStatistics> getCacheStatistics() {
+        return List.of(componentIdStore.getCacheStatistics(),
+                messageRoutingTable.getCacheStatistics());
+    }
+
+    /**
+     * Stops the parts of the system that hold state which is not persisted yet or access the
+     * database, such as messages still waiting to be handled, running routines or the latest usages
+     * of component IDs. Must be called before the database is closed.
+     */
+    @Override
+    public void close() {
+        // Receivers of the remaining messages and routines may still use the store and the database
+        messageDispatcher.close();
+        routineScheduler.close();
+        componentIdStore.close();
     }
 
     @Override
     public void onSlashCommandInteraction(@NotNull SlashCommandInteractionEvent event) {
         logger.debug("Received slash command '{}' (#{}) on guild '{}'", event.getName(),
                 event.getId(), event.getGuild());
-        COMMAND_SERVICE.execute(() -> requireSlashCommand(event.getName()).onSlashCommand(event));
+        commandExecutor.execute(event, () -> {
+            SlashCommand command = requireSlashCommand(event.getName());
+            return Optional.of(new CommandExecutor.Invocation(command.getName(),
+                    command.isAutoDeferrable(), () -> command.onSlashCommand(event)));
+        });
     }
 
     @Override
     public void onButtonInteraction(@NotNull ButtonInteractionEvent event) {
         logger.debug("Received button click '{}' (#{}) on guild '{}'", event.getComponentId(),
                 event.getId(), event.getGuild());
-        COMMAND_SERVICE
-            .execute(() -> forwardComponentCommand(event, UserInteractor::onButtonClick));
+        commandExecutor.execute(event,
+                () -> resolveComponentCommand(event, UserInteractor::onButtonClick));
     }
 
     @Override
     public void onSelectMenuInteraction(@NotNull SelectMenuInteractionEvent event) {
         logger.debug("Received selection menu event '{}' (#{}) on guild '{}'",
                 event.getComponentId(), event.getId(), event.getGuild());
-        COMMAND_SERVICE
-            .execute(() -> forwardComponentCommand(event, UserInteractor::onSelectionMenu));
+        commandExecutor.execute(event,
+                () -> resolveComponentCommand(event, UserInteractor::onSelectionMenu));
     }
 
     private void registerReloadCommand(@NotNull Guild guild) {
@@ -255,14 +372,15 @@ public final class BotCore extends ListenerAdapter implements SlashCommandProvid
     }
 
     /**
-     * Forwards the given component event to the associated user interactor.
+     * Resolves the command of the given component event, which forwards it to the associated user
+     * interactor.
      * <p>
      * <p>
      * An example call might look like:
      *
      * <pre>
      * {@code
-     * forwardComponentCommand(event, UserInteractor::onSelectionMenu);
+     * resolveComponentCommand(event, UserInteractor::onSelectionMenu);
      * }
      * </pre>
      *
@@ -270,8 +388,10 @@ public final class BotCore extends ListenerAdapter implements SlashCommandProvid
      * @param interactorArgumentConsumer the action to trigger on the associated user interactor,
      *        providing the event and list of arguments for consumption
      * @param <T> the type of the component interaction that should be forwarded
+     * @return the command forwarding the event, or empty if the event can not be forwarded
      */
-    private <T extends ComponentInteraction> void forwardComponentCommand(@NotNull T event,
+    private <T extends ComponentInteraction> @NotNull Optional<CommandExecutor.Invocation> resolveComponentCommand(
+            @NotNull T event,
             @NotNull TriConsumer<? super UserInteractor, ? super T, ? super List<String>> interactorArgumentConsumer) {
         Optional<ComponentId> componentIdOpt;
         try {
@@ -283,22 +403,107 @@ public final class BotCore extends ListenerAdapter implements SlashCommandProvid
                         + " (refer to the documentation of UserInteractor). Component ID was: {}",
                         event.getId(), event.getComponentId(), e);
             // Unable to forward, simply fade out the event
-            return;
+            return Optional.empty();
         }
         if (componentIdOpt.isEmpty()) {
             logger.warn("The event (#{}) has an expired component ID, which was: {}.",
                     event.getId(), event.getComponentId());
-            event.reply("Sorry, but this event has expired. You can not use it anymore.")
-                .setEphemeral(true)
-                .queue();
-            return;
+            CommandExecutor.replyEphemerally(event,
+                    "Sorry, but this event has expired. You can not use it anymore.");
+            return Optional.empty();
         }
         ComponentId componentId = componentIdOpt.orElseThrow();
 
         UserInteractor interactor = requireUserInteractor(componentId.userInteractorName());
         logger.trace("Routing a component event with id '{}' back to user interactor '{}'",
                 event.getComponentId(), interactor.getName());
-        interactorArgumentConsumer.accept(interactor, event, componentId.elements());
+        return Optional.of(new CommandExecutor.Invocation(interactor.getName(),
+                interactor.isAutoDeferrable(), () -> interactorArgumentConsumer.accept(interactor,
+                        event, componentId.elements())));
+    }
+
+    /**
+     * Generates a component ID for the given payload. Small payloads are encoded into the ID
+     * itself, larger and permanent ones are persisted in the store.
+     *
+     * @param componentId the payload to generate an ID for
+     * @param lifespan the lifespan of the payload, if it has to be persisted
+     * @return the generated ID
+     */
+    private @NotNull String generateComponentId(@NotNull ComponentId componentId,
+            @NotNull Lifespan lifespan) {
+        return encodeStatelessly(componentId, lifespan).orElseGet(() -> {
+            UUID uuid = UUID.randomUUID();
+            componentIdStore.putOrThrow(uuid, componentId, lifespan);
+            return uuid.toString();
+        });
+    }
+
+    /**
+     * Generates component IDs for all given payloads, like
+     * {@link #generateComponentId(ComponentId, Lifespan)}. All payloads that have to be persisted
+     * are added to the store together.
+     *
+     * @param componentIds the payloads to generate IDs for
+     * @param lifespan the lifespan of the payloads, if they have to be persisted
+     * @return the generated IDs, in the same order
+     */
+    private @NotNull List<String> generateComponentIds(@NotNull List<ComponentId> componentIds,
+            @NotNull Lifespan lifespan) {
+        List<String> ids = new ArrayList<>(componentIds.size());
+        Map<UUID, ComponentId> uuidToPersistedComponentId = new HashMap<>();
+        for (ComponentId componentId : componentIds) {
+            ids.add(encodeStatelessly(componentId, lifespan).orElseGet(() -> {
+                UUID uuid = UUID.randomUUID();
+                uuidToPersistedComponentId.put(uuid, componentId);
+                return uuid.toString();
+            }));
+        }
+
+        componentIdStore.putAllOrThrow(uuidToPersistedComponentId, lifespan);
+        return ids;
+    }
+
+    /**
+     * Encodes the given payload into the ID itself, if possible.
+     * <p>
+     * Permanent payloads are always persisted instead. Encoded IDs become invalid once the secret
+     * changes, for example after it leaked, while permanent ones must stay usable forever.
+     *
+     * @param componentId the payload to encode
+     * @param lifespan the lifespan of the payload
+     * @return the encoded ID, if the payload can be encoded
+     */
+    private @NotNull Optional<String> encodeStatelessly(@NotNull ComponentId componentId,
+            @NotNull Lifespan lifespan) {
+        if (statelessComponentIds == null || lifespan == Lifespan.PERMANENT) {
+            return Optional.empty();
+        }
+        return statelessComponentIds.encode(componentId);
+    }
+
+    /**
+     * Parses a component ID generated by {@link #generateComponentId(ComponentId, Lifespan)}.
+     * Encoded IDs are decoded without any database access, all others are looked up in the store.
+     *
+     * @param id the ID to parse
+     * @return the payload of the ID, if present
+     * @throws InvalidComponentIdFormatException if the ID is in an unexpected format
+     */
+    private @NotNull Optional<ComponentId> parseComponentId(@NotNull String id) {
+        if (StatelessComponentIds.isEncoded(id)) {
+            // Without the secret, encoded IDs can not be verified anymore, so they expired
+            return statelessComponentIds == null ? Optional.empty()
+                    : Optional.of(statelessComponentIds.decode(id));
+        }
+
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidComponentIdFormatException(e);
+        }
+        return componentIdStore.get(uuid);
     }
 
     /**
@@ -0,0 +1,454 @@
+package org.togetherjava.tjbot.commands.system;
+
+import net.dv8tion.jda.api.interactions.callbacks.IMessageEditCallback;
+import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
+import net.dv8tion.jda.api.requests.RestAction;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.commands.utils.ExecutorStatistics;
+import org.togetherjava.tjbot.commands.utils.NamedThreadFactory;
+import org.togetherjava.tjbot.metrics.MetricSink;
+import org.togetherjava.tjbot.metrics.MetricsRegistry;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Executes the commands of user interactors, such as slash commands or button clicks, away from the
+ * event thread of JDA.
+ * <p>
+ * The amount of threads is bounded, so that a burst of slow commands can not create an unbounded
+ * amount of threads. Further, each user interactor may only have a limited amount of commands
+ * running at the same time. Further commands of it wait for one of them to finish, but only as long
+ * as the interaction can still be answered in time, otherwise they are rejected with a message to
+ * the user. That way, a single slow interactor can not occupy all threads.
+ * <p>
+ * For each interactor, the time commands waited for a thread, their execution time and the time
+ * until their interaction was acknowledged are recorded, see {@link #getStatistics()}. Since
+ * commands acknowledge through JDA directly, the acknowledgement is only checked once the handler
+ * returns or the auto-defer budget is used up, whichever happens first. Hence the time until then
+ * is an upper bound, but at most the budget for commands that keep working after acknowledging.
+ * <p>
+ * Discord only accepts acknowledgements of interactions within three seconds. As a safety net,
+ * interactions of commands that opted in, see {@link Invocation#isAutoDeferrable()}, are deferred
+ * automatically if they were not acknowledged within a budget after receiving them. Commands should
+ * not rely on that, but acknowledge early themselves. Once deferred, replying to the interaction
+ * fails and commands have to respond through its hook instead, hence commands have to opt in
+ * explicitly. Deferred interactions are counted, to reveal which commands come close to the
+ * deadline.
+ * <p>
+ * The executor is thread-safe.
+ */
+public final class CommandExecutor implements Executor {
+    private static final Logger logger = LoggerFactory.getLogger(CommandExecutor.class);
+    private static final Duration IDLE_THREAD_TIMEOUT = Duration.ofMinutes(1);
+
+    private final ThreadPoolExecutor service;
+    private final ScheduledExecutorService autoDeferService = Executors
+        .newSingleThreadScheduledExecutor(new NamedThreadFactory("command-auto-defer-"));
+    private final int maxConcurrentCommandsPerInteractor;
+    private final Duration autoDeferAfter;
+    private final Map<String, Semaphore> interactorNameToPermits = new ConcurrentHashMap<>();
+    private final Map<String, InteractorMetrics> interactorNameToMetrics =
+            new ConcurrentHashMap<>();
+
+    /**
+     * A command to execute, resolved from an interaction.
+     *
+     * @param interactorName the name of the user interactor the command belongs to
+     * @param isAutoDeferrable whether the interaction may be deferred automatically, the handler
+     *        must then respond through the hook of the interaction once it was acknowledged
+     * @param handler the handler of the command
+     */
+    public record Invocation(@NotNull String interactorName, boolean isAutoDeferrable,
+            @NotNull Runnable handler) {
+    }
+
+    /**
+     * Creates a new executor.
+     *
+     * @param maxConcurrentCommands the maximal amount of threads to execute commands on, must be
+     *        positive
+     * @param maxConcurrentCommandsPerInteractor the maximal amount of commands a single user
+     *        interactor may have running at the same time, must be positive
+     * @param autoDeferAfter the time after receiving an interaction, after which it is deferred
+     *        automatically if it was not acknowledged yet, must be positive
+     */
+    public CommandExecutor(int maxConcurrentCommands, int maxConcurrentCommandsPerInteractor,
+            @NotNull Duration autoDeferAfter) {
+        if (maxConcurrentCommands <= 0 || maxConcurrentCommandsPerInteractor <= 0) {
+            throw new IllegalArgumentException(
+                    "The concurrency limits must be positive, but were %d and %d"
+                        .formatted(maxConcurrentCommands, maxConcurrentCommandsPerInteractor));
+        }
+        if (autoDeferAfter.isNegative() || autoDeferAfter.isZero()) {
+            throw new IllegalArgumentException(
+                    "The auto-defer budget must be positive, but was " + autoDeferAfter);
+        }
+        this.maxConcurrentCommandsPerInteractor = maxConcurrentCommandsPerInteractor;
+        this.autoDeferAfter = autoDeferAfter;
+
+        service = new ThreadPoolExecutor(maxConcurrentCommands, maxConcurrentCommands,
+                IDLE_THREAD_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new NamedThreadFactory("command-executor-"));
+        service.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Executes a task that does not belong to any user interactor, without any limits or metrics.
+     *
+     * @param task the task to execute
+     */
+    @Override
+    public void execute(@NotNull Runnable task) {
+        service.execute(task);
+    }
+
+    /**
+     * Executes the command of the given interaction.
+     * <p>
+     * The command is resolved on the executing thread, since that might be expensive, for example
+     * by looking up the payload of a button in the database. If the user interactor of the command
+     * has too many commands running already, the command waits for one of them to finish, as long
+     * as the interaction can still be answered in time. Only then, it is rejected and the user is
+     * told to try again later. Failures to resolve the command are logged and told to the user.
+     * <p>
+     * If the interaction is not acknowledged within the auto-defer budget, it is deferred
+     * automatically, given that the command allows it. If resolving the command or waiting for
+     * other commands of its interactor used up the budget, that happens right before running it.
+     *
+     * @param interaction the interaction that triggered the command
+     * @param resolver resolves the command to execute, or empty if there is none, for example if
+     *        the resolver already replied with an error
+     */
+    public void execute(@NotNull IReplyCallback interaction,
+            @NotNull Supplier<Optional<Invocation>> resolver) {
+        Execution execution = new Execution(interaction);
+        service.execute(() -> {
+            Optional<Invocation> invocation;
+            try {
+                invocation = resolver.get();
+            } catch (Exception e) {
+                logger.error("Unknown error while resolving the command of #{}",
+                        interaction.getId(), e);
+                replyEphemerally(interaction,
+                        "Sorry, something went wrong. Please try again in a moment.");
+                return;
+            }
+
+            // Nothing to execute otherwise, so there is nothing to acknowledge either
+            invocation.ifPresent(presentInvocation -> run(execution, presentInvocation));
+        });
+    }
+
+    private void scheduleAcknowledgementCheck(@NotNull Execution execution,
+            boolean isAutoDeferrable) {
+        long untilBudgetUsedUpNanos =
+                execution.receivedAtNanos + autoDeferAfter.toNanos() - System.nanoTime();
+        execution.checkTask =
+                autoDeferService.schedule(() -> checkAcknowledgement(execution, isAutoDeferrable),
+                        Math.max(untilBudgetUsedUpNanos, 0), TimeUnit.NANOSECONDS);
+    }
+
+    private static void checkAcknowledgement(@NotNull Execution execution,
+            boolean isAutoDeferrable) {
+        long nowNanos = System.nanoTime();
+        if (execution.interaction.isAcknowledged()) {
+            // Acknowledged at some point within the budget, the handler is still running though
+            execution.onAcknowledgedByCommand(nowNanos);
+        } else if (isAutoDeferrable) {
+            autoDefer(execution, nowNanos);
+        }
+    }
+
+    private static void autoDefer(@NotNull Execution execution, long autoDeferredAtNanos) {
+        IReplyCallback interaction = execution.interaction;
+        execution.onAutoDeferring();
+
+        // Acknowledging races with the command, which might have acknowledged in the meantime
+        Consumer<Object> onSuccess = any -> execution.onAcknowledged(autoDeferredAtNanos, true);
+        Consumer<Throwable> onFailure = failure -> {
+            logger.debug("Could not auto-defer #{}, it was acknowledged in the meantime",
+                    interaction.getId(), failure);
+            execution.onAcknowledged(autoDeferredAtNanos, false);
+        };
+        // Buttons and select menus keep their message, everything else gets a loading message
+        if (interaction instanceof IMessageEditCallback messageEditCallback) {
+            messageEditCallback.deferEdit().queue(onSuccess, onFailure);
+        } else {
+            interaction.deferReply().queue(onSuccess, onFailure);
+        }
+    }
+
+    private void run(@NotNull Execution execution, @NotNull Invocation invocation) {
+        IReplyCallback interaction = execution.interaction;
+        String interactorName = invocation.interactorName();
+        InteractorMetrics metrics = interactorNameToMetrics.computeIfAbsent(interactorName,
+                any -> new InteractorMetrics());
+        execution.setMetrics(interactorName, metrics);
+
+        Semaphore permits = interactorNameToPermits.computeIfAbsent(interactorName,
+                any -> new Semaphore(maxConcurrentCommandsPerInteractor));
+        if (!acquirePermit(permits, execution)) {
+            metrics.rejections.increment();
+            logger.warn(
+                    "Rejected a command of '{}' (#{}), it has too many commands running already",
+                    interactorName, interaction.getId());
+            replyEphemerally(interaction,
+                    "Sorry, this is too busy right now. Please try again in a moment.");
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        metrics.queueWait.record(startNanos - execution.receivedAtNanos);
+        scheduleAcknowledgementCheck(execution, invocation.isAutoDeferrable());
+        try {
+            invocation.handler().run();
+        } catch (Exception e) {
+            logger.error("Unknown error while executing a command of '{}' (#{})", interactorName,
+                    interaction.getId(), e);
+        } finally {
+            permits.release();
+
+            long endNanos = System.nanoTime();
+            metrics.execution.record(endNanos - startNanos);
+            execution.cancelAcknowledgementCheck();
+            if (interaction.isAcknowledged()) {
+                // Recorded by the check already if the handler took longer than the budget
+                execution.onAcknowledgedByCommand(endNanos);
+            } else {
+                metrics.unacknowledged.increment();
+            }
+        }
+    }
+
+    /**
+     * Acquires a permit to run a command. If there is none available, it waits for one until the
+     * auto-defer budget of the interaction is used up, so that it can still be rejected in time.
+     */
+    private boolean acquirePermit(@NotNull Semaphore permits, @NotNull Execution execution) {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+
+        long remainingNanos =
+                execution.receivedAtNanos + autoDeferAfter.toNanos() - System.nanoTime();
+        try {
+            return permits.tryAcquire(Math.max(remainingNanos, 0), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Replies ephemerally to the given interaction. If it was acknowledged already, for example
+     * since it was deferred automatically, the reply is sent through its hook instead.
+     *
+     * @param interaction the interaction to reply to
+     * @param message the message to reply with
+     */
+    static void replyEphemerally(@NotNull IReplyCallback interaction, @NotNull String message) {
+        Runnable sendThroughHook =
+                () -> interaction.getHook().sendMessage(message).setEphemeral(true).queue();
+        if (interaction.isAcknowledged()) {
+            sendThroughHook.run();
+            return;
+        }
+
+        // Acknowledging races with the automatic deferral, JDA rejects the second one right away
+        interaction.reply(message).setEphemeral(true).queue(null, failure -> {
+            if (failure instanceof IllegalStateException && interaction.isAcknowledged()) {
+                sendThroughHook.run();
+            } else {
+                RestAction.getDefaultFailure().accept(failure);
+            }
+        });
+    }
+
+    /**
+     * Gets statistics about all commands executed so far.
+     *
+     * @return statistics for each user interactor, the interactor with the most executed commands
+     *         first
+     */
+    public @NotNull Collection<CommandStatistics> getStatistics() {
+        return interactorNameToMetrics.entrySet()
+            .stream()
+            .map(nameAndMetrics -> nameAndMetrics.getValue().toStatistics(nameAndMetrics.getKey()))
+            .sorted(Comparator
+                .comparingLong((CommandStatistics statistics) -> statistics.execution().count())
+                .reversed())
+            .toList();
+    }
+
+    /**
+     * Gets statistics about the thread pool that executes commands.
+     *
+     * @return the statistics of the thread pool
+     */
+    public @NotNull ExecutorStatistics getExecutorStatistics() {
+        return ExecutorStatistics.of("command-executor", service);
+    }
+
+    /**
+     * Registers metrics about the executed commands at the given registry, labeled by the name of
+     * their user interactor.
+     *
+     * @param metrics the registry to register the metrics at
+     */
+    public void registerMetrics(@NotNull MetricsRegistry metrics) {
+        metrics.gauge("tjbot_command_executor_active_threads",
+                "Threads currently executing commands", service::getActiveCount);
+        metrics.gauge("tjbot_command_executor_queued", "Commands waiting for a free thread",
+                () -> service.getQueue().size());
+        metrics.registerCollector(
+                sink -> getStatistics().forEach(statistics -> collectStatistics(statistics, sink)));
+    }
+
+    private static void collectStatistics(@NotNull CommandStatistics statistics,
+            @NotNull MetricSink sink) {
+        String interactor = statistics.interactorName();
+        sink.counter("tjbot_commands_total", "Executed commands", statistics.execution().count(),
+                "interactor", interactor);
+        sink.counter("tjbot_commands_rejected_total",
+                "Commands rejected since their interactor had too many commands running",
+                statistics.rejections(), "interactor", interactor);
+        sink.counter("tjbot_commands_auto_deferred_total",
+                "Commands whose interaction was not acknowledged in time and deferred automatically",
+                statistics.autoDeferred(), "interactor", interactor);
+        sink.gauge("tjbot_command_execution_seconds_max", "Longest execution of a command",
+                statistics.execution().max().toNanos() / 1e9, "interactor", interactor);
+        sink.gauge("tjbot_command_time_to_acknowledge_seconds_max",
+                "Longest time from receiving an interaction until it was first acknowledged",
+                statistics.timeToAcknowledge().max().toNanos() / 1e9, "interactor", interactor);
+        sink.gauge("tjbot_command_queue_wait_seconds_max",
+                "Longest time a command waited for a free thread",
+                statistics.queueWait().max().toNanos() / 1e9, "interactor", interactor);
+    }
+
+    /**
+     * A single execution of a command, from receiving its interaction until it was acknowledged.
+     * <p>
+     * The acknowledgement is observed by the check at the end of the auto-defer budget, when the
+     * handler returns or when an automatic deferral completes. Only the first acknowledgement is
+     * recorded, an automatic deferral in flight takes precedence over acknowledgements observed
+     * meanwhile, since those are likely caused by it.
+     */
+    private static final class Execution {
+        private final IReplyCallback interaction;
+        private final long receivedAtNanos = System.nanoTime();
+        private volatile ScheduledFuture<?> checkTask;
+        private String interactorName;
+        private InteractorMetrics metrics;
+        private boolean isAutoDeferring;
+        private boolean isAcknowledged;
+
+        private Execution(IReplyCallback interaction) {
+            this.interaction = interaction;
+        }
+
+        private void cancelAcknowledgementCheck() {
+            ScheduledFuture<?> task = checkTask;
+            if (task != null) {
+                task.cancel(false);
+            }
+        }
+
+        private synchronized void setMetrics(String interactorName, InteractorMetrics metrics) {
+            this.interactorName = interactorName;
+            this.metrics = metrics;
+        }
+
+        private void onAcknowledgedByCommand(long acknowledgedAtNanos) {
+            synchronized (this) {
+                if (isAutoDeferring) {
+                    return;
+                }
+            }
+            onAcknowledged(acknowledgedAtNanos, false);
+        }
+
+        private synchronized void onAutoDeferring() {
+            isAutoDeferring = true;
+        }
+
+        private void onAcknowledged(long acknowledgedAtNanos, boolean byAutoDeferral) {
+            String interactorNameSnapshot;
+            InteractorMetrics metricsSnapshot;
+            synchronized (this) {
+                if (isAcknowledged) {
+                    return;
+                }
+                isAcknowledged = true;
+                interactorNameSnapshot = interactorName;
+                metricsSnapshot = metrics;
+            }
+
+            metricsSnapshot.timeToAcknowledge.record(acknowledgedAtNanos - receivedAtNanos);
+            if (!byAutoDeferral) {
+                return;
+            }
+            metricsSnapshot.autoDeferred.increment();
+            logger.warn(
+                    "A command of '{}' (#{}) did not acknowledge its interaction in time, it was deferred automatically",
+                    interactorNameSnapshot, interaction.getId());
+        }
+    }
+
+    /**
+     * Metrics of a single user interactor.
+     */
+    private static final class InteractorMetrics {
+        private final LongAdder rejections = new LongAdder();
+        private final LongAdder unacknowledged = new LongAdder();
+        private final LongAdder autoDeferred = new LongAdder();
+        private final TimingRecorder queueWait = new TimingRecorder();
+        private final TimingRecorder execution = new TimingRecorder();
+        private final TimingRecorder timeToAcknowledge = new TimingRecorder();
+
+        private CommandStatistics toStatistics(String interactorName) {
+            return new CommandStatistics(interactorName, rejections.sum(), unacknowledged.sum(),
+                    autoDeferred.sum(), queueWait.toStatistics(), execution.toStatistics(),
+                    timeToAcknowledge.toStatistics());
+        }
+    }
+
+    /**
+     * Records the samples of a single timing.
+     */
+    private static final class TimingRecorder {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private void record(long sampleNanos) {
+            count.increment();
+            totalNanos.add(sampleNanos);
+            maxNanos.accumulate(sampleNanos);
+        }
+
+        private CommandStatistics.Timing toStatistics() {
+            long samples = count.sum();
+            Duration average = Duration.ofNanos(samples == 0 ? 0 : totalNanos.sum() / samples);
+            return new CommandStatistics.Timing(samples, average, Duration.ofNanos(maxNanos.get()));
+        }
+    }
+}
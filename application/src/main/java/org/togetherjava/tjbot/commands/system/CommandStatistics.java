@@ -0,0 +1,37 @@
+package org.togetherjava.tjbot.commands.system;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of statistics about the commands of a single user interactor, see
+ * {@link CommandExecutor#getStatistics()}.
+ *
+ * @param interactorName the name of the user interactor
+ * @param rejections the amount of commands rejected, since the interactor had too many commands
+ *        running already and none of them finished in time
+ * @param unacknowledged the amount of commands whose interaction was not acknowledged yet once the
+ *        handler returned, for example because it replied asynchronously
+ * @param autoDeferred the amount of commands whose interaction was not acknowledged within the
+ *        budget and hence deferred automatically, these came close to the deadline of Discord
+ * @param queueWait the time commands that ran waited for a free thread and permit
+ * @param execution the time the handlers of commands took
+ * @param timeToAcknowledge the time from receiving commands until their interaction was first
+ *        acknowledged, by the command or automatically, bounded by the auto-defer budget for
+ *        commands that keep working after acknowledging
+ */
+public record CommandStatistics(@NotNull String interactorName, long rejections,
+        long unacknowledged, long autoDeferred, @NotNull Timing queueWait,
+        @NotNull Timing execution, @NotNull Timing timeToAcknowledge) {
+
+    /**
+     * Snapshot of statistics about a single timing.
+     *
+     * @param count the amount of samples
+     * @param average the average over all samples
+     * @param max the maximal sample
+     */
+    public record Timing(long count, @NotNull Duration average, @NotNull Duration max) {
+    }
+}
@@ -0,0 +1,247 @@
+package org.togetherjava.tjbot.commands.system;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import org.jetbrains.annotations.NotNull;
+import org.togetherjava.tjbot.commands.SlashCommandAdapter;
+import org.togetherjava.tjbot.commands.SlashCommandVisibility;
+import org.togetherjava.tjbot.commands.utils.CacheStatistics;
+import org.togetherjava.tjbot.commands.utils.ExecutorStatistics;
+import org.togetherjava.tjbot.config.Config;
+import org.togetherjava.tjbot.db.CallerStatistics;
+import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.db.WriteBehindStatistics;
+
+import java.awt.Color;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Implements the '/diagnostics' command which shows a snapshot of the health of the running bot,
+ * such as the load of its thread pools, the latencies of the database and the memory usage. That
+ * way, slowdowns can be diagnosed directly from Discord.
+ * <p>
+ * Only users with the soft moderation role can use it, the snapshot is only shown to them.
+ * <p>
+ * Example usage:
+ *
+ * <pre>
+ * {@code
+ * /diagnostics
+ * }
+ * </pre>
+ */
+public final class DiagnosticsCommand extends SlashCommandAdapter {
+    private static final Color AMBIENT_COLOR = Color.decode("#3788AC");
+    private static final int MAX_SLOWEST_ENTRIES = 5;
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    private final BotCore core;
+    private final Database database;
+    private final Predicate<String> hasRequiredRole;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param core the command system to show the statistics of
+     * @param database the database to show the statistics of
+     * @param config the config to use for the role required to use this command
+     */
+    public DiagnosticsCommand(@NotNull BotCore core, @NotNull Database database,
+            @NotNull Config config) {
+        super("diagnostics", "Shows a snapshot of the health of the running bot",
+                SlashCommandVisibility.GUILD);
+
+        this.core = core;
+        this.database = database;
+        hasRequiredRole = Pattern.compile(config.getSoftModerationRolePattern()).asMatchPredicate();
+    }
+
+    @Override
+    public void onSlashCommand(@NotNull SlashCommandInteractionEvent event) {
+        if (event.getMember().getRoles().stream().map(Role::getName).noneMatch(hasRequiredRole)) {
+            event.reply(
+                    "You can not see the diagnostics of the bot, since you do not have the required role.")
+                .setEphemeral(true)
+                .queue();
+            return;
+        }
+
+        // Measuring the REST ping sends a request, so acknowledge first
+        event.deferReply(true).queue();
+
+        JDA jda = event.getJDA();
+        jda.getRestPing()
+            .onErrorMap(failure -> -1L)
+            .queue(restPing -> event.getHook()
+                .editOriginalEmbeds(createDiagnostics(jda, restPing))
+                .queue());
+    }
+
+    private @NotNull MessageEmbed createDiagnostics(@NotNull JDA jda, long restPing) {
+        return new EmbedBuilder().setTitle("Diagnostics")
+            .addField("Thread pools", describeThreadPools(), false)
+            .addField("Caches", describeCaches(), false)
+            .addField("Database", describeDatabase(), false)
+            .addField("Discord", describeDiscord(jda, restPing), false)
+            .addField("JVM", describeJvm(), false)
+            .addField("Routines", describeRoutines(), false)
+            .addField("Commands closest to the acknowledgement deadline", describeCommands(), false)
+            .setColor(AMBIENT_COLOR)
+            .setTimestamp(Instant.now())
+            .build();
+    }
+
+    private @NotNull String describeThreadPools() {
+        List<String> lines = new ArrayList<>();
+        core.getExecutorStatistics()
+            .stream()
+            .map(DiagnosticsCommand::describeExecutor)
+            .forEach(lines::add);
+
+        MessageDispatcher.Statistics dispatch = core.getMessageDispatchStatistics();
+        lines.add("`message-dispatcher`: %d queued, %d discarded, lag avg %s, max %s, wait max %s"
+            .formatted(dispatch.queuedMessages(), dispatch.discardedMessages(),
+                    formatDuration(dispatch.averageLag()), formatDuration(dispatch.maxLag()),
+                    formatDuration(dispatch.maxDispatchWait())));
+        return toFieldValue(lines);
+    }
+
+    private static @NotNull String describeExecutor(@NotNull ExecutorStatistics statistics) {
+        return "`%s`: %d of %d threads active, %d queued".formatted(statistics.name(),
+                statistics.activeThreads(), statistics.poolSize(), statistics.queuedTasks());
+    }
+
+    private @NotNull String describeCaches() {
+        return toFieldValue(
+                core.getCacheStatistics().stream().map(DiagnosticsCommand::describeCache).toList());
+    }
+
+    private static @NotNull String describeCache(@NotNull CacheStatistics statistics) {
+        return "`%s`: %d entries, %.1f%% hits of %d lookups, %d evictions".formatted(
+                statistics.name(), statistics.estimatedSize(), statistics.hitRate() * 100,
+                statistics.requests(), statistics.evictions());
+    }
+
+    private @NotNull String describeDatabase() {
+        List<String> lines = new ArrayList<>();
+        WriteBehindStatistics writeBehind = database.getWriteBehindStatistics();
+        lines.add("Write-behind: %d of %d queued, %d failed. WAL: %.1f MB".formatted(
+                writeBehind.queueSize(), writeBehind.queueCapacity(), writeBehind.failedWrites(),
+                database.getWalSize() / BYTES_PER_MEGABYTE));
+
+        Collection<CallerStatistics> callers = database.getQueryStatistics();
+        callers.stream()
+            .map(caller -> caller.accessWait().max())
+            .max(Comparator.naturalOrder())
+            .ifPresent(maxWait -> lines.add("Longest lock wait: " + formatDuration(maxWait)));
+
+        // The slowest callers, by the p99 of their execution
+        callers.stream()
+            .sorted(Comparator.comparing((CallerStatistics caller) -> caller.execution().p99())
+                .reversed())
+            .limit(MAX_SLOWEST_ENTRIES)
+            .map(caller -> "`%s`: %d calls, wait p99 %s, execution p50 %s, p99 %s".formatted(
+                    caller.caller(), caller.calls(), formatDuration(caller.accessWait().p99()),
+                    formatDuration(caller.execution().p50()),
+                    formatDuration(caller.execution().p99())))
+            .forEach(lines::add);
+        return toFieldValue(lines);
+    }
+
+    private static @NotNull String describeDiscord(@NotNull JDA jda, long restPing) {
+        List<String> lines = new ArrayList<>();
+        lines.add("Gateway ping: %d ms".formatted(jda.getGatewayPing()));
+        lines.add(restPing < 0 ? "REST ping: unavailable" : "REST ping: %d ms".formatted(restPing));
+        if (jda.getRateLimitPool() instanceof ThreadPoolExecutor rateLimitPool) {
+            lines.add("REST queue: "
+                    + describeExecutor(ExecutorStatistics.of("jda-rate-limit", rateLimitPool)));
+        }
+        return toFieldValue(lines);
+    }
+
+    private static @NotNull String describeJvm() {
+        List<String> lines = new ArrayList<>();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        lines.add("Heap: %.0f MB used, %.0f MB committed, %.0f MB max".formatted(
+                heap.getUsed() / BYTES_PER_MEGABYTE, heap.getCommitted() / BYTES_PER_MEGABYTE,
+                heap.getMax() / BYTES_PER_MEGABYTE));
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            lines.add("GC `%s`: %d collections, %s total".formatted(collector.getName(),
+                    collector.getCollectionCount(),
+                    formatDuration(Duration.ofMillis(collector.getCollectionTime()))));
+        }
+        lines.add("Threads: %d".formatted(ManagementFactory.getThreadMXBean().getThreadCount()));
+        lines.add("Uptime: " + formatUptime(
+                Duration.ofMillis(ManagementFactory.getRuntimeMXBean().getUptime())));
+        return toFieldValue(lines);
+    }
+
+    private @NotNull String describeRoutines() {
+        return toFieldValue(core.getRoutineStatistics()
+            .stream()
+            .map(routine -> "`%s`: last %s, avg %s, %d failed, next <t:%d:R>".formatted(
+                    routine.routineName(), formatDuration(routine.lastDuration()),
+                    formatDuration(routine.averageDuration()), routine.failures(),
+                    routine.nextRun().getEpochSecond()))
+            .toList());
+    }
+
+    private @NotNull String describeCommands() {
+        return toFieldValue(core.getCommandStatistics()
+            .stream()
+            .sorted(Comparator
+                .comparing((CommandStatistics command) -> command.timeToAcknowledge().max())
+                .reversed())
+            .limit(MAX_SLOWEST_ENTRIES)
+            .map(command -> "`%s`: acknowledged after max %s, %d auto-deferred, %d rejected"
+                .formatted(command.interactorName(),
+                        formatDuration(command.timeToAcknowledge().max()), command.autoDeferred(),
+                        command.rejections()))
+            .toList());
+    }
+
+    private static @NotNull String formatDuration(@NotNull Duration duration) {
+        long millis = duration.toMillis();
+        return millis < 10_000 ? millis + " ms" : duration.toSeconds() + " s";
+    }
+
+    private static @NotNull String formatUptime(@NotNull Duration uptime) {
+        return "%dd %dh %dm".formatted(uptime.toDays(), uptime.toHoursPart(),
+                uptime.toMinutesPart());
+    }
+
+    /**
+     * Joins the given lines to the value of an embed field, dropping lines that do not fit into it
+     * anymore.
+     */
+    private static @NotNull String toFieldValue(@NotNull List<String> lines) {
+        if (lines.isEmpty()) {
+            return "None";
+        }
+
+        String cutOffHint = "…";
+        StringBuilder value = new StringBuilder();
+        for (String line : lines) {
+            int lengthWithLine = value.length() + line.length() + 1;
+            if (lengthWithLine > MessageEmbed.VALUE_MAX_LENGTH - cutOffHint.length()) {
+                return value.append(cutOffHint).toString();
+            }
+            value.append(line).append('\n');
+        }
+        return value.toString().stripTrailing();
+    }
+}
@@ -0,0 +1,277 @@
+package org.togetherjava.tjbot.commands.system;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.metrics.MetricsRegistry;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dispatches the handling of messages away from the event thread of JDA, so that slow message
+ * receivers, for example ones accessing the database, do not stall the gateway.
+ * <p>
+ * Messages of the same channel are handled in the order they were dispatched, one after another.
+ * Different channels are handled in parallel, on a fixed amount of lanes. Each channel is always
+ * assigned to the same lane, which has a single thread and a bounded queue.
+ * <p>
+ * If the queue of a lane is full, for example during raids, the {@link OverflowPolicy} given on
+ * dispatch decides whether the event thread waits a bounded time for space or the message is
+ * discarded right away. Statistics about the queues are available through {@link #getStatistics()}.
+ * <p>
+ * The dispatcher is thread-safe.
+ */
+public final class MessageDispatcher implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MessageDispatcher.class);
+
+    /**
+     * Discarding is logged for the first discarded message and then only every so many messages, to
+     * not flood the log during raids.
+     */
+    private static final long LOG_DISCARDED_EVERY = 1_000;
+    /**
+     * How often idle lanes check whether the dispatcher was closed.
+     */
+    private static final Duration IDLE_LANE_CHECK_INTERVAL = Duration.ofMillis(100);
+    /**
+     * Maximal time to wait for the lanes to handle their remaining messages on closing.
+     */
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(3);
+
+    /**
+     * What to do with a message if the queue of its lane is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The dispatching thread waits until there is space in the queue, but at most for the
+         * maximal wait of the dispatcher, after which the message is discarded. Nothing is lost
+         * during short bursts, while the event thread of JDA is never stalled for long.
+         */
+        WAIT,
+        /**
+         * The message is discarded and not handled at all.
+         */
+        DISCARD
+    }
+
+    /**
+     * Statistics about dispatched messages.
+     *
+     * @param queuedMessages the amount of messages currently waiting to be handled
+     * @param handledMessages the amount of messages handled so far
+     * @param discardedMessages the amount of messages discarded so far, since their queue was full
+     * @param averageLag the average time messages waited in the queue before being handled
+     * @param maxLag the longest time a message waited in the queue before being handled
+     * @param maxDispatchWait the longest time a dispatching thread waited for space in a full
+     *        queue, see {@link OverflowPolicy#WAIT}
+     */
+    public record Statistics(int queuedMessages, long handledMessages, long discardedMessages,
+            @NotNull Duration averageLag, @NotNull Duration maxLag,
+            @NotNull Duration maxDispatchWait) {
+    }
+
+    private final Lane[] lanes;
+    private final Duration maxWait;
+    private volatile boolean isClosed;
+    private final LongAdder handledMessages = new LongAdder();
+    private final LongAdder discardedMessages = new LongAdder();
+    private final LongAdder totalLagNanos = new LongAdder();
+    private final LongAccumulator maxLagNanos = new LongAccumulator(Long::max, 0);
+    private final LongAccumulator maxDispatchWaitNanos = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Creates a new dispatcher and starts its lanes.
+     *
+     * @param lanesAmount the amount of channels that can be handled in parallel, must be positive
+     * @param queueCapacityPerLane the maximal amount of messages waiting per lane, must be positive
+     * @param maxWait the maximal time a dispatching thread waits for space in a full queue, before
+     *        the message is discarded, see {@link OverflowPolicy#WAIT}, must not be negative
+     */
+    public MessageDispatcher(int lanesAmount, int queueCapacityPerLane, @NotNull Duration maxWait) {
+        if (lanesAmount <= 0 || queueCapacityPerLane <= 0) {
+            throw new IllegalArgumentException(
+                    "The amount of lanes and their capacity must be positive, but were %d and %d"
+                        .formatted(lanesAmount, queueCapacityPerLane));
+        }
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException(
+                    "The maximal wait must not be negative, but was " + maxWait);
+        }
+        this.maxWait = maxWait;
+
+        lanes = new Lane[lanesAmount];
+        for (int i = 0; i < lanesAmount; i++) {
+            lanes[i] = new Lane("message-dispatcher-" + i, queueCapacityPerLane);
+        }
+    }
+
+    /**
+     * Dispatches the handling of a message. Handlers of the same channel are executed in the order
+     * they were dispatched.
+     *
+     * @param channelId the ID of the channel the message was sent in
+     * @param handler the handler to execute, failures are logged
+     * @param overflowPolicy what to do if the queue of the channel is full
+     */
+    public void dispatch(long channelId, @NotNull Runnable handler,
+            @NotNull OverflowPolicy overflowPolicy) {
+        if (isClosed) {
+            logger.debug("Dropped a message of channel {}, the dispatcher is closed already",
+                    channelId);
+            return;
+        }
+        Lane lane = lanes[Math.floorMod(Long.hashCode(channelId), lanes.length)];
+        Task task = new Task(handler, System.nanoTime());
+
+        switch (overflowPolicy) {
+            case WAIT -> {
+                if (!lane.queue.offer(task) && !waitForSpace(lane, task)) {
+                    discard(channelId);
+                }
+            }
+            case DISCARD -> {
+                if (!lane.queue.offer(task)) {
+                    discard(channelId);
+                }
+            }
+            default -> throw new AssertionError("Unsupported overflow policy: " + overflowPolicy);
+        }
+    }
+
+    private boolean waitForSpace(@NotNull Lane lane, @NotNull Task task) {
+        long waitStartNanos = System.nanoTime();
+        try {
+            return lane.queue.offer(task, maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            maxDispatchWaitNanos.accumulate(System.nanoTime() - waitStartNanos);
+        }
+    }
+
+    private void discard(long channelId) {
+        discardedMessages.increment();
+        long discarded = discardedMessages.sum();
+        if (discarded % LOG_DISCARDED_EVERY == 1) {
+            logger.warn(
+                    "Discarded a message of channel {}, the message queue is full. {} messages have been discarded so far.",
+                    channelId, discarded);
+        }
+    }
+
+    /**
+     * Gets statistics about all messages dispatched so far.
+     *
+     * @return the statistics
+     */
+    public @NotNull Statistics getStatistics() {
+        int queuedMessages = Arrays.stream(lanes).mapToInt(lane -> lane.queue.size()).sum();
+        long handled = handledMessages.sum();
+        Duration averageLag = Duration.ofNanos(handled == 0 ? 0 : totalLagNanos.sum() / handled);
+
+        return new Statistics(queuedMessages, handled, discardedMessages.sum(), averageLag,
+                Duration.ofNanos(maxLagNanos.get()), Duration.ofNanos(maxDispatchWaitNanos.get()));
+    }
+
+    /**
+     * Registers metrics about the dispatched messages at the given registry.
+     *
+     * @param metrics the registry to register the metrics at
+     */
+    public void registerMetrics(@NotNull MetricsRegistry metrics) {
+        metrics.registerCollector(sink -> {
+            Statistics statistics = getStatistics();
+            sink.gauge("tjbot_message_dispatch_queued", "Messages waiting to be handled",
+                    statistics.queuedMessages());
+            sink.counter("tjbot_message_dispatch_handled_total", "Messages handled by receivers",
+                    statistics.handledMessages());
+            sink.counter("tjbot_message_dispatch_discarded_total",
+                    "Messages discarded since their queue was full",
+                    statistics.discardedMessages());
+            sink.gauge("tjbot_message_dispatch_lag_seconds_max",
+                    "Longest time a message waited before being handled",
+                    statistics.maxLag().toNanos() / 1e9);
+            sink.gauge("tjbot_message_dispatch_wait_seconds_max",
+                    "Longest time the event thread waited for space in a full message queue",
+                    statistics.maxDispatchWait().toNanos() / 1e9);
+        });
+    }
+
+    /**
+     * Stops all lanes. Messages dispatched afterwards are dropped, messages that are still queued
+     * are handled first, for at most a few seconds. Lanes that did not finish in time are
+     * interrupted and their remaining messages are not handled anymore.
+     */
+    @Override
+    public void close() {
+        isClosed = true;
+
+        long deadlineNanos = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        for (Lane lane : lanes) {
+            try {
+                long remainingNanos = Math.max(deadlineNanos - System.nanoTime(), 0);
+                TimeUnit.NANOSECONDS.timedJoin(lane.thread, remainingNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (lane.thread.isAlive()) {
+                logger.warn("Lane '{}' did not finish in time, dropping its {} queued messages",
+                        lane.thread.getName(), lane.queue.size());
+                lane.thread.interrupt();
+            }
+        }
+    }
+
+    private void handle(@NotNull Task task) {
+        long lagNanos = System.nanoTime() - task.dispatchedAtNanos;
+        totalLagNanos.add(lagNanos);
+        maxLagNanos.accumulate(lagNanos);
+
+        try {
+            task.handler.run();
+        } catch (Exception e) {
+            logger.error("Unknown error while handling a message.", e);
+        } finally {
+            handledMessages.increment();
+        }
+    }
+
+    private record Task(Runnable handler, long dispatchedAtNanos) {
+    }
+
+    private final class Lane {
+        private final BlockingQueue<Task> queue;
+        private final Thread thread;
+
+        private Lane(String name, int queueCapacity) {
+            queue = new ArrayBlockingQueue<>(queueCapacity);
+            thread = new Thread(this::run, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Task task =
+                            queue.poll(IDLE_LANE_CHECK_INTERVAL.toNanos(), TimeUnit.NANOSECONDS);
+                    if (task != null) {
+                        handle(task);
+                    } else if (isClosed) {
+                        // Drained, nothing can be dispatched anymore
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
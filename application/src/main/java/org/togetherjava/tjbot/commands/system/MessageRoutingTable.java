@@ -0,0 +1,97 @@
+package org.togetherjava.tjbot.commands.system;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import net.dv8tion.jda.api.entities.Channel;
+import net.dv8tion.jda.api.events.channel.ChannelCreateEvent;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.channel.update.ChannelUpdateNameEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.jetbrains.annotations.NotNull;
+import org.togetherjava.tjbot.commands.MessageReceiver;
+import org.togetherjava.tjbot.commands.utils.CacheStatistics;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Routing table for messages, the {@link MessageReceiver}s subscribed to each channel.
+ * <p>
+ * Receivers subscribe to channels by a pattern of their names. The receivers of a channel are
+ * computed once and then cached, so that routing a message needs no pattern matching. The entry of
+ * a channel is invalidated whenever it is created, renamed or deleted, hence the table has to be
+ * registered as event listener at JDA.
+ * <p>
+ * The table is thread-safe.
+ */
+public final class MessageRoutingTable extends ListenerAdapter {
+    /**
+     * Maximal amount of channels to keep the routing of messages for. Comfortably covers all
+     * channels and active threads of the guilds the bot is in.
+     */
+    private static final int MAX_CHANNELS = 10_000;
+
+    private final Map<Pattern, MessageReceiver> channelNameToMessageReceiver =
+            new LinkedHashMap<>();
+    private final Cache<Long, MessageReceiver[]> channelIdToMessageReceivers =
+            Caffeine.newBuilder().maximumSize(MAX_CHANNELS).recordStats().build();
+
+    /**
+     * Creates a new routing table.
+     *
+     * @param messageReceivers the receivers to route messages to
+     */
+    public MessageRoutingTable(@NotNull Collection<? extends MessageReceiver> messageReceivers) {
+        messageReceivers.forEach(messageReceiver -> channelNameToMessageReceiver
+            .put(messageReceiver.getChannelNamePattern(), messageReceiver));
+    }
+
+    /**
+     * Gets the receivers subscribed to the given channel.
+     *
+     * @param channel the channel to get the receivers of
+     * @return the receivers whose pattern matches the name of the channel, possibly empty. The
+     *         array is shared and must not be modified.
+     */
+    public MessageReceiver @NotNull [] getMessageReceiversSubscribedTo(@NotNull Channel channel) {
+        return channelIdToMessageReceivers.get(channel.getIdLong(),
+                channelId -> computeMessageReceiversSubscribedTo(channel.getName()));
+    }
+
+    private MessageReceiver @NotNull [] computeMessageReceiversSubscribedTo(
+            @NotNull String channelName) {
+        return channelNameToMessageReceiver.entrySet()
+            .stream()
+            .filter(patternAndReceiver -> patternAndReceiver.getKey()
+                .matcher(channelName)
+                .matches())
+            .map(Map.Entry::getValue)
+            .toArray(MessageReceiver[]::new);
+    }
+
+    /**
+     * Gets statistics about the cached routing of channels.
+     *
+     * @return the statistics of the cache
+     */
+    public @NotNull CacheStatistics getCacheStatistics() {
+        return CacheStatistics.of("message-routing", channelIdToMessageReceivers);
+    }
+
+    @Override
+    public void onChannelCreate(@NotNull ChannelCreateEvent event) {
+        channelIdToMessageReceivers.invalidate(event.getChannel().getIdLong());
+    }
+
+    @Override
+    public void onChannelUpdateName(@NotNull ChannelUpdateNameEvent event) {
+        channelIdToMessageReceivers.invalidate(event.getChannel().getIdLong());
+    }
+
+    @Override
+    public void onChannelDelete(@NotNull ChannelDeleteEvent event) {
+        channelIdToMessageReceivers.invalidate(event.getChannel().getIdLong());
+    }
+}
@@ -67,10 +67,12 @@ public final class ReloadCommand extends SlashCommandAdapter {
             return;
         }
 
+        List<String> yesNoIds =
+                generateComponentIds(List.of(List.of(member.getId()), List.of(member.getId())));
         event.reply(
                 "Are you sure? You can only reload commands a few times each day, so do not overdo this.")
-            .addActionRow(Button.success(generateComponentId(member.getId()), "Yes"),
-                    Button.danger(generateComponentId(member.getId()), "No"))
+            .addActionRow(Button.success(yesNoIds.get(0), "Yes"),
+                    Button.danger(yesNoIds.get(1), "No"))
             .queue();
     }
 
@@ -0,0 +1,311 @@
+package org.togetherjava.tjbot.commands.system;
+
+import net.dv8tion.jda.api.JDA;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.commands.Routine;
+import org.togetherjava.tjbot.commands.utils.ExecutorStatistics;
+import org.togetherjava.tjbot.commands.utils.NamedThreadFactory;
+import org.togetherjava.tjbot.metrics.MetricsRegistry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executes {@link Routine}s on their {@link Routine.Schedule}.
+ * <p>
+ * Each routine schedules its next execution only once its current execution has finished, hence a
+ * routine never runs twice at the same time. If an execution takes longer than planned, the
+ * executions that were missed in the meantime are skipped and counted, instead of being caught up
+ * all at once.
+ * <p>
+ * Routines share a small pool of threads, unless their schedule asks for an isolated executor. Slow
+ * routines should do so, to not delay the others. Statistics about the executions are available
+ * through {@link #getStatistics()}.
+ * <p>
+ * The scheduler is thread-safe.
+ */
+public final class RoutineScheduler implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RoutineScheduler.class);
+    private static final int SHARED_THREADS = 5;
+    /**
+     * Maximal time to wait for running executions on closing, before they are interrupted.
+     */
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(5);
+
+    private final ScheduledThreadPoolExecutor sharedService =
+            new ScheduledThreadPoolExecutor(SHARED_THREADS, new NamedThreadFactory("routine-"));
+    private final Collection<ScheduledRoutine> scheduledRoutines = new CopyOnWriteArrayList<>();
+
+    /**
+     * The time of a planned execution, together with the amount of executions that were skipped to
+     * get there.
+     *
+     * @param plannedAt the time the execution is planned for, without jitter
+     * @param missedRuns the amount of executions that were skipped
+     */
+    record NextRun(@NotNull Instant plannedAt, long missedRuns) {
+    }
+
+    /**
+     * Starts executing the given routine on its schedule.
+     *
+     * @param routine the routine to execute
+     * @param jda the JDA instance to execute the routine with
+     */
+    public void schedule(@NotNull Routine routine, @NotNull JDA jda) {
+        Routine.Schedule schedule = routine.createSchedule();
+        String name = routine.getClass().getSimpleName();
+        ScheduledThreadPoolExecutor service =
+                schedule.hasIsolatedExecutor()
+                        ? new ScheduledThreadPoolExecutor(1,
+                                new NamedThreadFactory("routine-" + name + "-"))
+                        : sharedService;
+
+        ScheduledRoutine scheduledRoutine =
+                new ScheduledRoutine(name, routine, jda, schedule, service);
+        scheduleRun(scheduledRoutine, computeFirstRun(schedule, Instant.now()));
+        scheduledRoutines.add(scheduledRoutine);
+    }
+
+    private void scheduleRun(@NotNull ScheduledRoutine routine, @NotNull Instant plannedAt) {
+        routine.nextRun = plannedAt;
+
+        long jitterMillis = routine.schedule.maxJitter().isZero() ? 0
+                : ThreadLocalRandom.current().nextLong(routine.schedule.maxJitter().toMillis() + 1);
+        long delayMillis =
+                Math.max(0, Duration.between(Instant.now(), plannedAt).toMillis()) + jitterMillis;
+        if (routine.service.isShutdown()) {
+            return;
+        }
+        try {
+            routine.service.schedule(() -> run(routine), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The scheduler was closed in the meantime
+            logger.debug("Did not schedule routine {}, the scheduler is closed", routine.name);
+        }
+    }
+
+    private void run(@NotNull ScheduledRoutine routine) {
+        Instant plannedAt = routine.nextRun;
+        long startNanos = System.nanoTime();
+        try {
+            logger.debug("Running routine {}...", routine.name);
+            routine.routine.runRoutine(routine.jda);
+            logger.debug("Finished routine {}.", routine.name);
+        } catch (Exception e) {
+            routine.failures.increment();
+            logger.error("Unknown error in routine {}.", routine.name, e);
+        } finally {
+            long durationNanos = System.nanoTime() - startNanos;
+            routine.runs.increment();
+            routine.totalDurationNanos.add(durationNanos);
+            routine.lastDuration = Duration.ofNanos(durationNanos);
+
+            NextRun nextRun = computeNextRun(routine.schedule, plannedAt, Instant.now());
+            if (nextRun.missedRuns() > 0) {
+                routine.missedRuns.add(nextRun.missedRuns());
+                logger.warn("Routine {} took {} ms and missed {} planned executions", routine.name,
+                        TimeUnit.NANOSECONDS.toMillis(durationNanos), nextRun.missedRuns());
+            }
+            scheduleRun(routine, nextRun.plannedAt());
+        }
+    }
+
+    /**
+     * Computes when the first execution of a routine is planned for.
+     *
+     * @param schedule the schedule of the routine
+     * @param now the current time
+     * @return the time of the first execution, without jitter
+     */
+    static @NotNull Instant computeFirstRun(@NotNull Routine.Schedule schedule,
+            @NotNull Instant now) {
+        return switch (schedule.mode()) {
+            case FIXED_RATE, FIXED_DELAY -> now
+                .plusNanos(schedule.unit().toNanos(schedule.initialDuration()));
+            case WALL_CLOCK -> computeNextTimeOfDay(schedule.timesOfDay(), now);
+        };
+    }
+
+    /**
+     * Computes when the next execution of a routine is planned for, once an execution finished.
+     * Executions whose time has passed already are skipped.
+     *
+     * @param schedule the schedule of the routine
+     * @param plannedAt the time the finished execution was planned for, without jitter
+     * @param finishedAt the time the execution finished
+     * @return the next execution
+     */
+    static @NotNull NextRun computeNextRun(@NotNull Routine.Schedule schedule,
+            @NotNull Instant plannedAt, @NotNull Instant finishedAt) {
+        return switch (schedule.mode()) {
+            case FIXED_RATE -> {
+                long periodNanos = schedule.unit().toNanos(schedule.duration());
+                Instant nextRun = plannedAt.plusNanos(periodNanos);
+                if (nextRun.isAfter(finishedAt)) {
+                    yield new NextRun(nextRun, 0);
+                }
+
+                long missedRuns = Duration.between(nextRun, finishedAt).toNanos() / periodNanos + 1;
+                yield new NextRun(nextRun.plusNanos(missedRuns * periodNanos), missedRuns);
+            }
+            case FIXED_DELAY -> new NextRun(
+                    finishedAt.plusNanos(schedule.unit().toNanos(schedule.duration())), 0);
+            case WALL_CLOCK -> {
+                Instant nextRun = computeNextTimeOfDay(schedule.timesOfDay(), plannedAt);
+                long missedRuns = 0;
+                while (!nextRun.isAfter(finishedAt)) {
+                    missedRuns++;
+                    nextRun = computeNextTimeOfDay(schedule.timesOfDay(), nextRun);
+                }
+                yield new NextRun(nextRun, missedRuns);
+            }
+        };
+    }
+
+    private static @NotNull Instant computeNextTimeOfDay(@NotNull List<LocalTime> timesOfDay,
+            @NotNull Instant after) {
+        // The times are sorted, so the first one after the instant is the next, either on the
+        // same day or the day after
+        LocalDate day = LocalDate.ofInstant(after, ZoneOffset.UTC);
+        for (LocalDate candidateDay : List.of(day, day.plusDays(1))) {
+            for (LocalTime timeOfDay : timesOfDay) {
+                Instant candidate = candidateDay.atTime(timeOfDay).toInstant(ZoneOffset.UTC);
+                if (candidate.isAfter(after)) {
+                    return candidate;
+                }
+            }
+        }
+        throw new AssertionError("A schedule must have at least one time of the day");
+    }
+
+    /**
+     * Gets statistics about all scheduled routines.
+     *
+     * @return statistics for each routine, in the order they were scheduled
+     */
+    public @NotNull Collection<RoutineStatistics> getStatistics() {
+        return scheduledRoutines.stream().map(ScheduledRoutine::toStatistics).toList();
+    }
+
+    /**
+     * Gets statistics about the thread pools that execute routines, the shared pool first and then
+     * the isolated executors of routines.
+     *
+     * @return statistics of each thread pool
+     */
+    public @NotNull List<ExecutorStatistics> getExecutorStatistics() {
+        List<ExecutorStatistics> statistics = new ArrayList<>();
+        statistics.add(ExecutorStatistics.of("routine-shared", sharedService));
+        scheduledRoutines.stream()
+            .filter(routine -> routine.service != sharedService)
+            .map(routine -> ExecutorStatistics.of("routine-" + routine.name, routine.service))
+            .forEach(statistics::add);
+        return statistics;
+    }
+
+    /**
+     * Registers metrics about the executions of all routines at the given registry, labeled by the
+     * name of the routine.
+     *
+     * @param metrics the registry to register the metrics at
+     */
+    public void registerMetrics(@NotNull MetricsRegistry metrics) {
+        metrics.registerCollector(sink -> getStatistics().forEach(statistics -> {
+            String routine = statistics.routineName();
+            sink.counter("tjbot_routine_runs_total", "Executions of routines", statistics.runs(),
+                    "routine", routine);
+            sink.counter("tjbot_routine_failures_total",
+                    "Executions of routines that failed with an exception", statistics.failures(),
+                    "routine", routine);
+            sink.counter("tjbot_routine_missed_runs_total",
+                    "Planned executions of routines skipped since a previous one took too long",
+                    statistics.missedRuns(), "routine", routine);
+            sink.gauge("tjbot_routine_last_duration_seconds",
+                    "Time the last execution of a routine took",
+                    statistics.lastDuration().toNanos() / 1e9, "routine", routine);
+            sink.gauge("tjbot_routine_next_run_timestamp_seconds",
+                    "Time the next execution of a routine is planned for, as Unix timestamp",
+                    statistics.nextRun().getEpochSecond(), "routine", routine);
+        }));
+    }
+
+    /**
+     * Stops all routines. Planned executions are cancelled, executions that are currently running
+     * are waited for, for at most a few seconds, and interrupted after that. Routines may access
+     * the database, hence this must be called before it is closed.
+     */
+    @Override
+    public void close() {
+        Collection<ScheduledThreadPoolExecutor> services = new ArrayList<>();
+        services.add(sharedService);
+        scheduledRoutines.stream()
+            .map(routine -> routine.service)
+            .filter(service -> service != sharedService)
+            .forEach(services::add);
+
+        for (ScheduledThreadPoolExecutor service : services) {
+            service.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            service.shutdown();
+        }
+
+        long deadlineNanos = System.nanoTime() + CLOSE_TIMEOUT.toNanos();
+        for (ScheduledThreadPoolExecutor service : services) {
+            try {
+                long remainingNanos = Math.max(deadlineNanos - System.nanoTime(), 0);
+                if (service.awaitTermination(remainingNanos, TimeUnit.NANOSECONDS)) {
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            logger.warn("Routines did not finish in time on closing, interrupting them");
+            service.shutdownNow();
+        }
+    }
+
+    private static final class ScheduledRoutine {
+        private final String name;
+        private final Routine routine;
+        private final JDA jda;
+        private final Routine.Schedule schedule;
+        private final ScheduledThreadPoolExecutor service;
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder missedRuns = new LongAdder();
+        private final LongAdder totalDurationNanos = new LongAdder();
+        private volatile Duration lastDuration = Duration.ZERO;
+        private volatile Instant nextRun;
+
+        private ScheduledRoutine(String name, Routine routine, JDA jda, Routine.Schedule schedule,
+                ScheduledThreadPoolExecutor service) {
+            this.name = name;
+            this.routine = routine;
+            this.jda = jda;
+            this.schedule = schedule;
+            this.service = service;
+        }
+
+        private RoutineStatistics toStatistics() {
+            long runsSum = runs.sum();
+            Duration averageDuration =
+                    Duration.ofNanos(runsSum == 0 ? 0 : totalDurationNanos.sum() / runsSum);
+            return new RoutineStatistics(name, runsSum, failures.sum(), missedRuns.sum(),
+                    lastDuration, averageDuration, nextRun);
+        }
+    }
+}
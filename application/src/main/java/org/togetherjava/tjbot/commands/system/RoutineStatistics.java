@@ -0,0 +1,24 @@
+package org.togetherjava.tjbot.commands.system;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Snapshot of statistics about the executions of a single routine, see
+ * {@link RoutineScheduler#getStatistics()}.
+ *
+ * @param routineName the simple class name of the routine
+ * @param runs the amount of executions so far
+ * @param failures the amount of executions that failed with an exception
+ * @param missedRuns the amount of planned executions that were skipped, since a previous execution
+ *        took too long
+ * @param lastDuration the time the last execution took, zero if there was none yet
+ * @param averageDuration the average time executions took, zero if there was none yet
+ * @param nextRun the time the next execution is planned for, without jitter
+ */
+public record RoutineStatistics(@NotNull String routineName, long runs, long failures,
+        long missedRuns, @NotNull Duration lastDuration, @NotNull Duration averageDuration,
+        @NotNull Instant nextRun) {
+}
@@ -64,22 +64,31 @@ public final class TopHelpersCommand extends SlashCommandAdapter {
         this.database = database;
     }
 
+    @Override
+    public boolean isAutoDeferrable() {
+        // Responds through the hook only
+        return true;
+    }
+
     @Override
     public void onSlashCommand(@NotNull SlashCommandInteractionEvent event) {
         OptionMapping atMonthData = event.getOption(MONTH_OPTION);
+        // The aggregation might take a while, acknowledge before running it unless done already
+        if (!event.isAcknowledged()) {
+            event.deferReply().queue();
+        }
 
         TimeRange timeRange = computeTimeRange(computeMonth(atMonthData));
         List<TopHelperResult> topHelpers =
                 computeTopHelpersDescending(event.getGuild().getIdLong(), timeRange);
 
         if (topHelpers.isEmpty()) {
-            event
-                .reply("No entries for the selected time range (%s)."
+            event.getHook()
+                .editOriginal("No entries for the selected time range (%s)."
                     .formatted(timeRange.description()))
                 .queue();
             return;
         }
-        event.deferReply().queue();
 
         List<Long> topHelperIds = topHelpers.stream().map(TopHelperResult::authorId).toList();
         event.getGuild()
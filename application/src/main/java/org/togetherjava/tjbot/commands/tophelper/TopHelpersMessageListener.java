@@ -7,7 +7,10 @@ import org.jetbrains.annotations.NotNull;
 import org.togetherjava.tjbot.commands.MessageReceiverAdapter;
 import org.togetherjava.tjbot.config.Config;
 import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.db.RetentionPolicy;
+import org.togetherjava.tjbot.db.generated.tables.records.HelpChannelMessagesRecord;
 
+import java.time.Period;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
@@ -18,6 +21,14 @@ import static org.togetherjava.tjbot.db.generated.tables.HelpChannelMessages.HEL
  * {@link TopHelpersCommand} to pick them up.
  */
 public final class TopHelpersMessageListener extends MessageReceiverAdapter {
+    /**
+     * Message records are only needed for the top helpers of the last few months and are purged
+     * afterwards.
+     */
+    public static final RetentionPolicy<HelpChannelMessagesRecord> RETENTION_POLICY =
+            new RetentionPolicy<>(HELP_CHANNEL_MESSAGES, HELP_CHANNEL_MESSAGES.SENT_AT,
+                    Period.ofDays(90));
+
     private final Database database;
 
     private final Predicate<String> isStagingChannelName;
@@ -65,7 +76,9 @@ public final class TopHelpersMessageListener extends MessageReceiverAdapter {
     }
 
     private void addMessageRecord(@NotNull MessageReceivedEvent event) {
-        database.write(context -> context.newRecord(HELP_CHANNEL_MESSAGES)
+        // Help threads produce a lot of messages, buffering the inserts groups them into a single
+        // transaction. The records are not needed right away, so the delay is no problem.
+        database.writeBehind(context -> context.newRecord(HELP_CHANNEL_MESSAGES)
             .setMessageId(event.getMessage().getIdLong())
             .setGuildId(event.getGuild().getIdLong())
             .setChannelId(event.getChannel().getIdLong())
@@ -0,0 +1,298 @@
+package org.togetherjava.tjbot.commands.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Lets in-memory caches survive restarts of the bot, by saving the keys of their hottest entries to
+ * disk on shutdown and preloading them again on startup.
+ * <p>
+ * Only keys are saved, the values are loaded again from their source by the preload action that
+ * each cache is registered with, see
+ * {@link #register(String, Cache, Function, Function, Consumer)}. Snapshots are limited in size and
+ * ignored once they are too old, since their keys are unlikely to be hot anymore then.
+ * <p>
+ * Registered caches should record statistics, see
+ * {@link com.github.benmanes.caffeine.cache.Caffeine#recordStats()}. Their hit rate during a fixed
+ * warm-up period after the bot is ready, see {@link #startWarmUp()}, and afterwards is then logged.
+ * The warm-up hit rate is logged for caches without a snapshot as well, so that runs with and
+ * without snapshots can be compared to judge their effect.
+ * <p>
+ * The class is thread-safe.
+ */
+public final class CacheSnapshots {
+    private static final Logger logger = LoggerFactory.getLogger(CacheSnapshots.class);
+
+    private static final int DEFAULT_MAX_KEYS = 1_000;
+    private static final Duration DEFAULT_MAX_AGE = Duration.ofDays(1);
+    private static final Duration DEFAULT_WARM_UP = Duration.ofMinutes(10);
+    private static final String SNAPSHOT_FILE_SUFFIX = ".snapshot";
+
+    private final Path directory;
+    private final int maxKeys;
+    private final Duration maxAge;
+    private final Duration warmUp;
+    private final Collection<RegisteredCache<?>> caches = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a new instance with default limits.
+     *
+     * @param directory the directory to save the snapshots in, created if it does not exist yet
+     */
+    public CacheSnapshots(@NotNull Path directory) {
+        this(directory, DEFAULT_MAX_KEYS, DEFAULT_MAX_AGE, DEFAULT_WARM_UP);
+    }
+
+    /**
+     * Creates a new instance with the default warm-up period.
+     *
+     * @param directory the directory to save the snapshots in, created if it does not exist yet
+     * @param maxKeys the maximal amount of keys to save per cache, the hottest are kept
+     * @param maxAge snapshots older than this are not preloaded
+     */
+    public CacheSnapshots(@NotNull Path directory, int maxKeys, @NotNull Duration maxAge) {
+        this(directory, maxKeys, maxAge, DEFAULT_WARM_UP);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param directory the directory to save the snapshots in, created if it does not exist yet
+     * @param maxKeys the maximal amount of keys to save per cache, the hottest are kept
+     * @param maxAge snapshots older than this are not preloaded
+     * @param warmUp the period after the bot is ready that counts as warm-up, see
+     *        {@link #startWarmUp()}
+     */
+    public CacheSnapshots(@NotNull Path directory, int maxKeys, @NotNull Duration maxAge,
+            @NotNull Duration warmUp) {
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException(
+                    "The key limit must be positive, but was " + maxKeys);
+        }
+
+        this.directory = directory;
+        this.maxKeys = maxKeys;
+        this.maxAge = maxAge;
+        this.warmUp = warmUp;
+    }
+
+    /**
+     * Registers a cache, to be saved by {@link #saveAll()} and preloaded by {@link #preloadAll()}.
+     *
+     * @param name the unique name of the cache, used as name of its snapshot file
+     * @param cache the cache to save the hottest keys of
+     * @param keyToText converts a key to a single line of text
+     * @param textToKey converts a line of text back to a key
+     * @param preload loads the values of the given keys from their source into the cache, called on
+     *        a background thread
+     * @param <K> the type of the keys
+     */
+    public <K> void register(@NotNull String name, @NotNull Cache<K, ?> cache,
+            @NotNull Function<? super K, String> keyToText,
+            @NotNull Function<String, ? extends K> textToKey,
+            @NotNull Consumer<? super List<K>> preload) {
+        caches.add(new RegisteredCache<>(name, cache, keyToText, textToKey, preload));
+    }
+
+    /**
+     * Saves the hottest keys of all registered caches to disk. Meant to be called on shutdown.
+     * <p>
+     * Failures are logged, but do not stop saving the other caches.
+     */
+    public void saveAll() {
+        for (RegisteredCache<?> cache : caches) {
+            try {
+                save(cache);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Unable to save the snapshot of cache '{}'", cache.name, e);
+            }
+        }
+    }
+
+    private <K> void save(@NotNull RegisteredCache<K> cache) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(Long.toString(Instant.now().toEpochMilli()));
+        hottestKeys(cache.cache).stream().map(cache.keyToText).forEach(lines::add);
+
+        // Written to a temporary file first, so that a crash never leaves a partial snapshot
+        Files.createDirectories(directory);
+        Path snapshot = snapshotPath(cache.name);
+        Path temporarySnapshot = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        Files.write(temporarySnapshot, lines, StandardCharsets.UTF_8);
+        Files.move(temporarySnapshot, snapshot, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        CacheStats warmUpEndStats = cache.warmUpEndStats;
+        if (warmUpEndStats == null) {
+            logger.info("Saved {} keys of cache '{}', stopped before the warm-up ended",
+                    lines.size() - 1, cache.name);
+            return;
+        }
+        CacheStats statsAfterWarmUp = cache.cache.stats().minus(warmUpEndStats);
+        logger.info("Saved {} keys of cache '{}', hit rate after warm-up was {} of {} requests",
+                lines.size() - 1, cache.name, formatHitRate(statsAfterWarmUp),
+                statsAfterWarmUp.requestCount());
+    }
+
+    private <K> @NotNull Collection<K> hottestKeys(@NotNull Cache<K, ?> cache) {
+        // Applies pending reads first, since the order of the keys depends on them
+        cache.cleanUp();
+
+        // Prefers the most frequently used keys, then the most recently used ones
+        Policy<K, ?> policy = cache.policy();
+        return policy.eviction()
+            .<Collection<K>>map(eviction -> eviction.hottest(maxKeys).keySet())
+            .or(() -> policy.expireAfterAccess()
+                .map(expiration -> expiration.youngest(maxKeys).keySet()))
+            .orElseGet(() -> cache.asMap().keySet().stream().limit(maxKeys).toList());
+    }
+
+    /**
+     * Preloads all registered caches from their snapshots, asynchronously. Meant to be called on
+     * startup, once all caches have been registered.
+     * <p>
+     * Snapshots that are missing, too old or unreadable are skipped.
+     *
+     * @return a future that completes once all caches have been preloaded
+     */
+    public @NotNull CompletableFuture<Void> preloadAll() {
+        ExecutorService preloadService = Executors.newSingleThreadExecutor();
+        CompletableFuture<?>[] preloads = caches.stream()
+            .map(cache -> CompletableFuture.runAsync(() -> preload(cache), preloadService))
+            .toArray(CompletableFuture[]::new);
+        // Already submitted tasks still complete
+        preloadService.shutdown();
+
+        return CompletableFuture.allOf(preloads);
+    }
+
+    private <K> void preload(@NotNull RegisteredCache<K> cache) {
+        try {
+            List<K> keys = readSnapshot(cache);
+            if (keys.isEmpty()) {
+                return;
+            }
+
+            long startNanos = System.nanoTime();
+            cache.preload.accept(keys);
+            Duration timeSpent = Duration.ofNanos(System.nanoTime() - startNanos);
+
+            cache.isPreloaded = true;
+            logger.info("Preloaded {} keys of cache '{}' in {} ms", keys.size(), cache.name,
+                    timeSpent.toMillis());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to preload the snapshot of cache '{}'", cache.name, e);
+        }
+    }
+
+    /**
+     * Starts the warm-up period of all registered caches. Meant to be called once the bot is ready
+     * and receives requests.
+     * <p>
+     * The hit rate of each cache during the warm-up period is logged when it ends. Requests before
+     * the bot is ready, such as the ones made while preloading, are not counted, since they do not
+     * reflect the usage of the cache.
+     */
+    public void startWarmUp() {
+        caches.forEach(cache -> cache.readyStats = cache.cache.stats());
+
+        ScheduledExecutorService warmUpService = Executors
+            .newSingleThreadScheduledExecutor(new NamedThreadFactory("cache-warm-up-", true));
+        warmUpService.schedule(this::endWarmUp, warmUp.toNanos(), TimeUnit.NANOSECONDS);
+        // Already scheduled tasks still run
+        warmUpService.shutdown();
+    }
+
+    private void endWarmUp() {
+        for (RegisteredCache<?> cache : caches) {
+            CacheStats warmUpEndStats = cache.cache.stats();
+            cache.warmUpEndStats = warmUpEndStats;
+
+            CacheStats warmUpStats = warmUpEndStats.minus(cache.readyStats);
+            logger.info(
+                    "Hit rate of cache '{}' during the first {} minutes after ready was {} of {} requests, {}",
+                    cache.name, warmUp.toMinutes(), formatHitRate(warmUpStats),
+                    warmUpStats.requestCount(),
+                    cache.isPreloaded ? "preloaded from a snapshot" : "without a snapshot");
+        }
+    }
+
+    private <K> @NotNull List<K> readSnapshot(@NotNull RegisteredCache<K> cache)
+            throws IOException {
+        Path snapshot = snapshotPath(cache.name);
+        if (!Files.exists(snapshot)) {
+            return List.of();
+        }
+
+        List<String> lines = Files.readAllLines(snapshot, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            return List.of();
+        }
+        Instant savedAt = Instant.ofEpochMilli(Long.parseLong(lines.get(0)));
+        if (savedAt.isBefore(Instant.now().minus(maxAge))) {
+            logger.debug("Skipped the snapshot of cache '{}', it was saved too long ago at {}",
+                    cache.name, savedAt);
+            return List.of();
+        }
+
+        return lines.stream().skip(1).limit(maxKeys).<K>map(cache.textToKey).toList();
+    }
+
+    private @NotNull Path snapshotPath(@NotNull String name) {
+        return directory.resolve(name + SNAPSHOT_FILE_SUFFIX);
+    }
+
+    private static @NotNull String formatHitRate(@NotNull CacheStats stats) {
+        return "%.1f%%".formatted(stats.hitRate() * 100);
+    }
+
+    private static final class RegisteredCache<K> {
+        private final String name;
+        private final Cache<K, ?> cache;
+        private final Function<? super K, String> keyToText;
+        private final Function<String, ? extends K> textToKey;
+        private final Consumer<? super List<K>> preload;
+        private volatile boolean isPreloaded;
+        /**
+         * Statistics of the cache when the warm-up started, {@code null} if it did not yet.
+         */
+        private volatile CacheStats readyStats;
+        /**
+         * Statistics of the cache when the warm-up ended, {@code null} if it did not yet.
+         */
+        private volatile CacheStats warmUpEndStats;
+
+        private RegisteredCache(String name, Cache<K, ?> cache,
+                Function<? super K, String> keyToText, Function<String, ? extends K> textToKey,
+                Consumer<? super List<K>> preload) {
+            this.name = name;
+            this.cache = cache;
+            this.keyToText = keyToText;
+            this.textToKey = textToKey;
+            this.preload = preload;
+        }
+    }
+}
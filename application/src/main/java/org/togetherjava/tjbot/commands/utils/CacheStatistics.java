@@ -0,0 +1,34 @@
+package org.togetherjava.tjbot.commands.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Snapshot of the usage of an in-memory cache.
+ * <p>
+ * The request counts are only available for caches that record statistics, see
+ * {@link com.github.benmanes.caffeine.cache.Caffeine#recordStats()}, they are zero otherwise.
+ *
+ * @param name the name of the cache
+ * @param estimatedSize the approximate amount of entries in the cache
+ * @param requests the amount of lookups so far
+ * @param hitRate the ratio of lookups served by the cache, between 0 and 1, 1 if there were none
+ * @param evictions the amount of entries evicted so far
+ */
+public record CacheStatistics(@NotNull String name, long estimatedSize, long requests,
+        double hitRate, long evictions) {
+
+    /**
+     * Takes a snapshot of the given cache.
+     *
+     * @param name the name of the cache
+     * @param cache the cache
+     * @return the snapshot
+     */
+    public static @NotNull CacheStatistics of(@NotNull String name, @NotNull Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(name, cache.estimatedSize(), stats.requestCount(),
+                stats.hitRate(), stats.evictionCount());
+    }
+}
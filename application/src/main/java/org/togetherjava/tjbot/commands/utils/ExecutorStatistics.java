@@ -0,0 +1,32 @@
+package org.togetherjava.tjbot.commands.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Snapshot of the load of a thread pool, such as the executor of commands.
+ *
+ * @param name the name of the thread pool
+ * @param poolSize the current amount of threads in the pool
+ * @param activeThreads the approximate amount of threads currently executing tasks
+ * @param queuedTasks the amount of tasks waiting for a free thread, including scheduled tasks that
+ *        are not due yet
+ * @param completedTasks the approximate amount of tasks completed so far
+ */
+public record ExecutorStatistics(@NotNull String name, int poolSize, int activeThreads,
+        int queuedTasks, long completedTasks) {
+
+    /**
+     * Takes a snapshot of the given thread pool.
+     *
+     * @param name the name of the thread pool
+     * @param executor the thread pool
+     * @return the snapshot
+     */
+    public static @NotNull ExecutorStatistics of(@NotNull String name,
+            @NotNull ThreadPoolExecutor executor) {
+        return new ExecutorStatistics(name, executor.getPoolSize(), executor.getActiveCount(),
+                executor.getQueue().size(), executor.getCompletedTaskCount());
+    }
+}
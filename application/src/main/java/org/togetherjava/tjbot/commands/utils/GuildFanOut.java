@@ -0,0 +1,199 @@
+package org.togetherjava.tjbot.commands.utils;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Runs work for each guild of the bot in parallel, for example in routines that iterate all guilds.
+ * <p>
+ * Guilds are processed on a small pool of threads shared by all callers, so that one slow or
+ * rate-limited guild does not delay all others. The work of each guild is isolated: failures are
+ * logged and do not affect other guilds, and work that takes longer than a timeout is cancelled by
+ * interrupting it. Afterwards, the time each guild took is logged and returned.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * {@code
+ * GuildFanOut.forEachGuild(jda, "cleanup", Duration.ofMinutes(1), this::cleanupGuild);
+ * }
+ * </pre>
+ */
+public final class GuildFanOut {
+    private static final Logger logger = LoggerFactory.getLogger(GuildFanOut.class);
+    private static final int THREADS = 4;
+
+    private static final ExecutorService GUILD_SERVICE =
+            Executors.newFixedThreadPool(THREADS, new NamedThreadFactory("guild-fan-out-", true));
+    private static final ScheduledExecutorService TIMEOUT_SERVICE = Executors
+        .newSingleThreadScheduledExecutor(new NamedThreadFactory("guild-timeout-", true));
+
+    /**
+     * How the work of a single guild ended.
+     */
+    public enum Outcome {
+        /**
+         * The work completed normally.
+         */
+        COMPLETED,
+        /**
+         * The work failed with an exception.
+         */
+        FAILED,
+        /**
+         * The work took longer than the timeout and was cancelled.
+         */
+        TIMED_OUT
+    }
+
+    /**
+     * The result of the work of a single guild.
+     *
+     * @param guildId the ID of the guild
+     * @param guildName the name of the guild
+     * @param outcome how the work ended
+     * @param duration the time the work took, the timeout if it timed out
+     */
+    public record GuildResult(long guildId, @NotNull String guildName, @NotNull Outcome outcome,
+            @NotNull Duration duration) {
+    }
+
+    private GuildFanOut() {
+        throw new UnsupportedOperationException("Utility class, construction not supported");
+    }
+
+    /**
+     * Runs the given work for each guild of the bot in parallel and waits until all of them are
+     * done.
+     *
+     * @param jda the JDA instance to get the guilds from
+     * @param taskName the name of the work, used for logging
+     * @param timeoutPerGuild the maximal time the work may take for a single guild, measured once
+     *        it started, before it is cancelled
+     * @param work the work to run for each guild, should react to interrupts
+     * @return the results of all guilds
+     */
+    public static @NotNull List<GuildResult> forEachGuild(@NotNull JDA jda,
+            @NotNull String taskName, @NotNull Duration timeoutPerGuild,
+            @NotNull Consumer<? super Guild> work) {
+        return forEachGuild(jda.getGuildCache().asList(), taskName, timeoutPerGuild, work);
+    }
+
+    /**
+     * Runs the given work for each of the given guilds in parallel and waits until all of them are
+     * done.
+     *
+     * @param guilds the guilds to run the work for
+     * @param taskName the name of the work, used for logging
+     * @param timeoutPerGuild the maximal time the work may take for a single guild, measured once
+     *        it started, before it is cancelled
+     * @param work the work to run for each guild, should react to interrupts
+     * @return the results of all guilds, in the same order
+     */
+    public static @NotNull List<GuildResult> forEachGuild(
+            @NotNull Collection<? extends Guild> guilds, @NotNull String taskName,
+            @NotNull Duration timeoutPerGuild, @NotNull Consumer<? super Guild> work) {
+        long startNanos = System.nanoTime();
+        List<GuildTask> tasks =
+                guilds.stream().map(guild -> new GuildTask(guild, timeoutPerGuild, work)).toList();
+        tasks.forEach(task -> GUILD_SERVICE.execute(task.future));
+
+        List<GuildResult> results = new ArrayList<>(tasks.size());
+        for (GuildTask task : tasks) {
+            results.add(awaitResult(task, taskName, timeoutPerGuild));
+        }
+
+        if (logger.isDebugEnabled()) {
+            results.forEach(result -> logger.debug("'{}' for guild '{}' ended as {} after {} ms",
+                    taskName, result.guildName(), result.outcome(), result.duration().toMillis()));
+        }
+        results.stream()
+            .max(Comparator.comparing(GuildResult::duration))
+            .ifPresent(slowest -> logger.info(
+                    "'{}' processed {} guilds in {} ms, {} failed and {} timed out. Slowest was '{}' with {} ms",
+                    taskName, results.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                    countOutcome(results, Outcome.FAILED), countOutcome(results, Outcome.TIMED_OUT),
+                    slowest.guildName(), slowest.duration().toMillis()));
+        return results;
+    }
+
+    private static @NotNull GuildResult awaitResult(@NotNull GuildTask task,
+            @NotNull String taskName, @NotNull Duration timeoutPerGuild) {
+        Guild guild = task.guild;
+        try {
+            Duration duration = task.future.get();
+            return new GuildResult(guild.getIdLong(), guild.getName(), Outcome.COMPLETED, duration);
+        } catch (CancellationException e) {
+            logger.warn("'{}' for guild '{}' took longer than {} ms and was cancelled", taskName,
+                    guild.getName(), timeoutPerGuild.toMillis());
+            return new GuildResult(guild.getIdLong(), guild.getName(), Outcome.TIMED_OUT,
+                    timeoutPerGuild);
+        } catch (ExecutionException e) {
+            logger.error("Unknown error in '{}' for guild '{}'", taskName, guild.getName(),
+                    e.getCause());
+            return new GuildResult(guild.getIdLong(), guild.getName(), Outcome.FAILED,
+                    task.getDuration());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.future.cancel(true);
+            return new GuildResult(guild.getIdLong(), guild.getName(), Outcome.FAILED,
+                    task.getDuration());
+        }
+    }
+
+    private static long countOutcome(@NotNull Collection<GuildResult> results,
+            @NotNull Outcome outcome) {
+        return results.stream().filter(result -> result.outcome() == outcome).count();
+    }
+
+    /**
+     * The work of a single guild. Its timeout starts once the work starts, not when it is
+     * submitted, so that waiting for a free thread does not count towards it.
+     */
+    private static final class GuildTask implements Callable<Duration> {
+        private final Guild guild;
+        private final Duration timeout;
+        private final Consumer<? super Guild> work;
+        private final FutureTask<Duration> future = new FutureTask<>(this);
+        private volatile long startNanos;
+        private volatile long endNanos;
+
+        private GuildTask(Guild guild, Duration timeout, Consumer<? super Guild> work) {
+            this.guild = guild;
+            this.timeout = timeout;
+            this.work = work;
+        }
+
+        @Override
+        public Duration call() {
+            startNanos = System.nanoTime();
+            // Interrupts the work, the thread pool clears the interrupt before running other work
+            ScheduledFuture<?> timeoutTask = TIMEOUT_SERVICE.schedule(() -> future.cancel(true),
+                    timeout.toNanos(), TimeUnit.NANOSECONDS);
+            try {
+                work.accept(guild);
+                return getDuration();
+            } finally {
+                endNanos = System.nanoTime();
+                timeoutTask.cancel(false);
+            }
+        }
+
+        private Duration getDuration() {
+            long end = endNanos == 0 ? System.nanoTime() : endNanos;
+            return Duration.ofNanos(startNanos == 0 ? 0 : end - startNanos);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.togetherjava.tjbot.commands.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factory that names its threads after a common prefix, followed by a running number, such
+ * as {@code command-executor-1}. That way, the threads of an executor can be identified in thread
+ * dumps and logs.
+ */
+public final class NamedThreadFactory implements ThreadFactory {
+    private final String namePrefix;
+    private final boolean isDaemon;
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    /**
+     * Creates a new factory for non-daemon threads.
+     *
+     * @param namePrefix the prefix of the thread names, such as {@code "command-executor-"}
+     */
+    public NamedThreadFactory(@NotNull String namePrefix) {
+        this(namePrefix, false);
+    }
+
+    /**
+     * Creates a new factory.
+     *
+     * @param namePrefix the prefix of the thread names, such as {@code "command-executor-"}
+     * @param isDaemon whether the created threads are daemon threads, which do not prevent the JVM
+     *        from exiting
+     */
+    public NamedThreadFactory(@NotNull String namePrefix, boolean isDaemon) {
+        this.namePrefix = namePrefix;
+        this.isDaemon = isDaemon;
+    }
+
+    @Override
+    public @NotNull Thread newThread(@NotNull Runnable task) {
+        Thread thread = new Thread(task, namePrefix + threadCount.incrementAndGet());
+        thread.setDaemon(isDaemon);
+        return thread;
+    }
+}
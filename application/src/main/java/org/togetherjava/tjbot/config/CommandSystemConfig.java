@@ -0,0 +1,99 @@
+package org.togetherjava.tjbot.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+/**
+ * Configuration for the execution of commands and the handling of messages, see
+ * {@link org.togetherjava.tjbot.commands.system.CommandExecutor} and
+ * {@link org.togetherjava.tjbot.commands.system.MessageDispatcher}.
+ */
+@SuppressWarnings("ClassCanBeRecord")
+@JsonRootName("commandSystem")
+public final class CommandSystemConfig {
+    private final int maxConcurrentCommands;
+    private final int maxConcurrentCommandsPerInteractor;
+    private final long autoDeferAfterMillis;
+    private final int messageDispatchLanes;
+    private final int messageQueueCapacityPerLane;
+    private final long messageDispatchMaxWaitMillis;
+
+    @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+    private CommandSystemConfig(@JsonProperty("maxConcurrentCommands") int maxConcurrentCommands,
+            @JsonProperty("maxConcurrentCommandsPerInteractor") int maxConcurrentCommandsPerInteractor,
+            @JsonProperty("autoDeferAfterMillis") long autoDeferAfterMillis,
+            @JsonProperty("messageDispatchLanes") int messageDispatchLanes,
+            @JsonProperty("messageQueueCapacityPerLane") int messageQueueCapacityPerLane,
+            @JsonProperty("messageDispatchMaxWaitMillis") long messageDispatchMaxWaitMillis) {
+        this.maxConcurrentCommands = maxConcurrentCommands;
+        this.maxConcurrentCommandsPerInteractor = maxConcurrentCommandsPerInteractor;
+        this.autoDeferAfterMillis = autoDeferAfterMillis;
+        this.messageDispatchLanes = messageDispatchLanes;
+        this.messageQueueCapacityPerLane = messageQueueCapacityPerLane;
+        this.messageDispatchMaxWaitMillis = messageDispatchMaxWaitMillis;
+    }
+
+    /**
+     * Gets the maximal amount of commands that are executed at the same time, across all user
+     * interactors. Further commands wait until a thread is free.
+     *
+     * @return the maximal amount of concurrently executed commands
+     */
+    public int getMaxConcurrentCommands() {
+        return maxConcurrentCommands;
+    }
+
+    /**
+     * Gets the maximal amount of commands of a single user interactor that are executed at the same
+     * time. Further commands of that interactor wait briefly for one of them to finish and are
+     * rejected otherwise, so that a burst of slow commands can not occupy all threads.
+     *
+     * @return the maximal amount of concurrent commands per user interactor
+     */
+    public int getMaxConcurrentCommandsPerInteractor() {
+        return maxConcurrentCommandsPerInteractor;
+    }
+
+    /**
+     * Gets the time in milliseconds after receiving an interaction, after which it is deferred
+     * automatically if its command did not acknowledge it yet. Discord only accepts
+     * acknowledgements within three seconds, so this must be clearly below that.
+     *
+     * @return the time after which unacknowledged interactions are deferred, in milliseconds
+     */
+    public long getAutoDeferAfterMillis() {
+        return autoDeferAfterMillis;
+    }
+
+    /**
+     * Gets the amount of channels whose messages are handled in parallel. Messages of the same
+     * channel are always handled one after another.
+     *
+     * @return the amount of lanes messages are handled on
+     */
+    public int getMessageDispatchLanes() {
+        return messageDispatchLanes;
+    }
+
+    /**
+     * Gets the maximal amount of messages waiting to be handled per lane. Once full, new messages
+     * wait for space and edits of messages are discarded.
+     *
+     * @return the capacity of the message queue of each lane
+     */
+    public int getMessageQueueCapacityPerLane() {
+        return messageQueueCapacityPerLane;
+    }
+
+    /**
+     * Gets the time in milliseconds the event thread waits for space in a full message queue,
+     * before a new message is discarded. The event thread does not receive any other events while
+     * waiting, so this should be short.
+     *
+     * @return the maximal wait for space in a message queue, in milliseconds
+     */
+    public long getMessageDispatchMaxWaitMillis() {
+        return messageDispatchMaxWaitMillis;
+    }
+}
@@ -14,6 +14,7 @@ import java.nio.file.Path;
  */
 public final class Config {
     private final String token;
+    private final String componentIdSecret;
     private final String gistApiKey;
     private final String databasePath;
     private final String projectWebsite;
@@ -28,10 +29,14 @@ public final class Config {
     private final ScamBlockerConfig scamBlocker;
     private final String wolframAlphaAppId;
     private final HelpSystemConfig helpSystem;
+    private final DatabaseConfig database;
+    private final CommandSystemConfig commandSystem;
+    private final MetricsConfig metrics;
 
     @SuppressWarnings("ConstructorWithTooManyParameters")
     @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
     private Config(@JsonProperty("token") String token,
+            @JsonProperty("componentIdSecret") String componentIdSecret,
             @JsonProperty("gistApiKey") String gistApiKey,
             @JsonProperty("databasePath") String databasePath,
             @JsonProperty("projectWebsite") String projectWebsite,
@@ -45,8 +50,12 @@ public final class Config {
             @JsonProperty("quarantinedRolePattern") String quarantinedRolePattern,
             @JsonProperty("scamBlocker") ScamBlockerConfig scamBlocker,
             @JsonProperty("wolframAlphaAppId") String wolframAlphaAppId,
-            @JsonProperty("helpSystem") HelpSystemConfig helpSystem) {
+            @JsonProperty("helpSystem") HelpSystemConfig helpSystem,
+            @JsonProperty("database") DatabaseConfig database,
+            @JsonProperty("commandSystem") CommandSystemConfig commandSystem,
+            @JsonProperty("metrics") MetricsConfig metrics) {
         this.token = token;
+        this.componentIdSecret = componentIdSecret;
         this.gistApiKey = gistApiKey;
         this.databasePath = databasePath;
         this.projectWebsite = projectWebsite;
@@ -61,6 +70,9 @@ public final class Config {
         this.scamBlocker = scamBlocker;
         this.wolframAlphaAppId = wolframAlphaAppId;
         this.helpSystem = helpSystem;
+        this.database = database;
+        this.commandSystem = commandSystem;
+        this.metrics = metrics;
     }
 
     /**
@@ -103,6 +115,18 @@ public final class Config {
         return token;
     }
 
+    /**
+     * Gets the secret used to authenticate component IDs that are encoded into the ID itself, see
+     * {@link org.togetherjava.tjbot.commands.componentids.StatelessComponentIds}. Unlike the token,
+     * it does not have to be rotated if the token leaks. Changing it invalidates all such IDs.
+     *
+     * @return the secret, {@code null} or empty if not configured, in which case all component IDs
+     *         are persisted instead
+     */
+    public String getComponentIdSecret() {
+        return componentIdSecret;
+    }
+
     /**
      * Gets the API Key of GitHub to upload pastes via the API.
      *
@@ -216,4 +240,31 @@ public final class Config {
     public @NotNull HelpSystemConfig getHelpSystem() {
         return helpSystem;
     }
+
+    /**
+     * Gets the config for the database.
+     *
+     * @return the database config
+     */
+    public @NotNull DatabaseConfig getDatabase() {
+        return database;
+    }
+
+    /**
+     * Gets the config for the execution of commands.
+     *
+     * @return the command system config
+     */
+    public @NotNull CommandSystemConfig getCommandSystem() {
+        return commandSystem;
+    }
+
+    /**
+     * Gets the config for the metrics endpoint.
+     *
+     * @return the metrics config
+     */
+    public @NotNull MetricsConfig getMetrics() {
+        return metrics;
+    }
 }
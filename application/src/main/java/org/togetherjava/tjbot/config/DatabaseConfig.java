@@ -0,0 +1,88 @@
+package org.togetherjava.tjbot.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRootName;
+import org.togetherjava.tjbot.db.PerformanceProfile;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the database, see {@link org.togetherjava.tjbot.db.Database}.
+ */
+@SuppressWarnings("ClassCanBeRecord")
+@JsonRootName("database")
+public final class DatabaseConfig {
+    private final int readConnectionPoolSize;
+    private final long slowQueryThresholdMillis;
+    private final PerformanceProfile performanceProfile;
+    private final String backupDirectory;
+    private final int maxBackups;
+
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+    private DatabaseConfig(@JsonProperty("readConnectionPoolSize") int readConnectionPoolSize,
+            @JsonProperty("slowQueryThresholdMillis") long slowQueryThresholdMillis,
+            @JsonProperty("synchronous") PerformanceProfile.Synchronous synchronous,
+            @JsonProperty("cacheSizeKib") int cacheSizeKib,
+            @JsonProperty("mmapSizeBytes") long mmapSizeBytes,
+            @JsonProperty("tempStore") PerformanceProfile.TempStore tempStore,
+            @JsonProperty("walAutoCheckpointPages") int walAutoCheckpointPages,
+            @JsonProperty("backupDirectory") String backupDirectory,
+            @JsonProperty("maxBackups") int maxBackups) {
+        this.readConnectionPoolSize = readConnectionPoolSize;
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+        performanceProfile = new PerformanceProfile(synchronous, cacheSizeKib, mmapSizeBytes,
+                tempStore, walAutoCheckpointPages);
+        this.backupDirectory = backupDirectory;
+        this.maxBackups = maxBackups;
+    }
+
+    /**
+     * Gets the amount of read-only connections the database uses to serve reads concurrently to
+     * writes. If 0, all access goes through a single connection.
+     *
+     * @return the size of the read-only connection pool
+     */
+    public int getReadConnectionPoolSize() {
+        return readConnectionPoolSize;
+    }
+
+    /**
+     * Gets the threshold for logging slow SQL statements. Statements that take at least this long
+     * to execute are logged, together with the class that issued them.
+     *
+     * @return the threshold for slow statements
+     */
+    public Duration getSlowQueryThreshold() {
+        return Duration.ofMillis(slowQueryThresholdMillis);
+    }
+
+    /**
+     * Gets the performance related settings of the SQLite connections, such as the size of the page
+     * cache or how often data is synced to disk.
+     *
+     * @return the performance profile of the database
+     */
+    public PerformanceProfile getPerformanceProfile() {
+        return performanceProfile;
+    }
+
+    /**
+     * Gets the path to the directory in which backups of the database are stored.
+     *
+     * @return the path to the backup directory
+     */
+    public String getBackupDirectory() {
+        return backupDirectory;
+    }
+
+    /**
+     * Gets the amount of most recent backups to keep, older backups are deleted.
+     *
+     * @return the amount of backups to keep
+     */
+    public int getMaxBackups() {
+        return maxBackups;
+    }
+}
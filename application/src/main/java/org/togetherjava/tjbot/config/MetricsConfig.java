@@ -0,0 +1,54 @@
+package org.togetherjava.tjbot.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRootName;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Configuration for the endpoint that exposes the runtime metrics of the bot, see
+ * {@link org.togetherjava.tjbot.metrics.MetricsServer}.
+ */
+@SuppressWarnings("ClassCanBeRecord")
+@JsonRootName("metrics")
+public final class MetricsConfig {
+    private final boolean enabled;
+    private final String host;
+    private final int port;
+
+    @JsonCreator(mode = JsonCreator.Mode.PROPERTIES)
+    private MetricsConfig(@JsonProperty("enabled") boolean enabled,
+            @JsonProperty("host") String host, @JsonProperty("port") int port) {
+        this.enabled = enabled;
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Whether the metrics endpoint is started. Metrics are recorded either way.
+     *
+     * @return whether the metrics endpoint is started
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the host the metrics endpoint binds to, for example {@code "127.0.0.1"} to only expose
+     * the metrics locally.
+     *
+     * @return the host of the metrics endpoint
+     */
+    public @NotNull String getHost() {
+        return host;
+    }
+
+    /**
+     * Gets the port the metrics endpoint listens on.
+     *
+     * @return the port of the metrics endpoint
+     */
+    public int getPort() {
+        return port;
+    }
+}
@@ -0,0 +1,46 @@
+package org.togetherjava.tjbot.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A value that only ever increases, such as the amount of sent requests. Create instances using
+ * {@link MetricsRegistry#counter(String, String, String...)}.
+ * <p>
+ * The counter is thread-safe.
+ */
+public final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+        // Created by the registry only
+    }
+
+    /**
+     * Increases the counter by one.
+     */
+    public void increment() {
+        value.increment();
+    }
+
+    /**
+     * Increases the counter by the given amount.
+     *
+     * @param amount the amount to increase by, must not be negative
+     */
+    public void add(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException(
+                    "Counters can only increase, but the amount was " + amount);
+        }
+        value.add(amount);
+    }
+
+    /**
+     * Gets the current value of the counter.
+     *
+     * @return the current value
+     */
+    public long get() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,70 @@
+package org.togetherjava.tjbot.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.togetherjava.tjbot.db.CallerStatistics;
+import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.db.LatencyStatistics;
+import org.togetherjava.tjbot.db.WriteBehindStatistics;
+
+/**
+ * Exposes the statistics that the {@link Database} keeps about its queries and its write-behind
+ * buffer as metrics.
+ */
+public final class DatabaseMetrics {
+    private DatabaseMetrics() {
+        throw new UnsupportedOperationException("Utility class, construction not supported");
+    }
+
+    /**
+     * Registers the metrics of the given database.
+     *
+     * @param registry the registry to register the metrics at
+     * @param database the database to expose the statistics of
+     */
+    public static void register(@NotNull MetricsRegistry registry, @NotNull Database database) {
+        registry.registerCollector(sink -> {
+            database.getQueryStatistics().forEach(statistics -> collectCaller(statistics, sink));
+            collectWriteBehind(database.getWriteBehindStatistics(), sink);
+            sink.gauge("tjbot_database_wal_size_bytes",
+                    "Size of the write-ahead log of the database", database.getWalSize());
+        });
+    }
+
+    private static void collectCaller(@NotNull CallerStatistics statistics,
+            @NotNull MetricSink sink) {
+        String caller = statistics.caller();
+        sink.counter("tjbot_database_calls_total", "Calls to access the database, by caller",
+                statistics.calls(), "caller", caller);
+        sink.counter("tjbot_database_statements_total",
+                "SQL statements executed during calls to the database, by caller",
+                statistics.statements(), "caller", caller);
+        sink.counter("tjbot_database_rows_affected_total",
+                "Rows affected by modifying statements, by caller", statistics.rowsAffected(),
+                "caller", caller);
+        collectLatency("tjbot_database_access_wait_seconds",
+                "Time waited for the write lock or a free read-only connection, over the recent calls",
+                statistics.accessWait(), caller, sink);
+        collectLatency("tjbot_database_execution_seconds",
+                "Time spent executing calls once access was granted, over the recent calls",
+                statistics.execution(), caller, sink);
+    }
+
+    private static void collectLatency(@NotNull String name, @NotNull String help,
+            @NotNull LatencyStatistics latency, @NotNull String caller, @NotNull MetricSink sink) {
+        sink.gauge(name, help, latency.p50().toNanos() / 1e9, "caller", caller, "quantile", "0.5");
+        sink.gauge(name, help, latency.p99().toNanos() / 1e9, "caller", caller, "quantile", "0.99");
+        sink.gauge(name + "_max", "Maximum of " + name + " over all calls",
+                latency.max().toNanos() / 1e9, "caller", caller);
+    }
+
+    private static void collectWriteBehind(@NotNull WriteBehindStatistics statistics,
+            @NotNull MetricSink sink) {
+        sink.gauge("tjbot_database_write_behind_queue_size",
+                "Writes currently waiting in the write-behind buffer", statistics.queueSize());
+        sink.counter("tjbot_database_write_behind_flushed_total",
+                "Writes flushed from the write-behind buffer", statistics.flushedWrites());
+        sink.counter("tjbot_database_write_behind_failed_total",
+                "Writes of the write-behind buffer that failed and were discarded",
+                statistics.failedWrites());
+    }
+}
@@ -0,0 +1,101 @@
+package org.togetherjava.tjbot.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts observed values, such as latencies, in buckets of configurable upper bounds. Create
+ * instances using {@link MetricsRegistry#histogram(String, String, String...)}.
+ * <p>
+ * The histogram is thread-safe.
+ */
+public final class Histogram {
+    /**
+     * Upper bounds of buckets in seconds, suited for latencies of requests between a few
+     * milliseconds and several seconds.
+     */
+    static final double[] DEFAULT_LATENCY_BUCKETS =
+            {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final double[] upperBounds;
+    private final LongAdder[] bucketCounts;
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+
+    Histogram(double @NotNull [] upperBounds) {
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i] <= upperBounds[i - 1]) {
+                throw new IllegalArgumentException(
+                        "The upper bounds of buckets must be strictly increasing, but were "
+                                + Arrays.toString(upperBounds));
+            }
+        }
+
+        this.upperBounds = upperBounds.clone();
+        // One more for the values above all upper bounds
+        bucketCounts = new LongAdder[upperBounds.length + 1];
+        Arrays.setAll(bucketCounts, any -> new LongAdder());
+    }
+
+    /**
+     * Observes the given value.
+     *
+     * @param value the value to observe
+     */
+    public void observe(double value) {
+        int bucket = Arrays.binarySearch(upperBounds, value);
+        // Not found yields the insertion point, which is the first bucket whose bound is greater
+        bucketCounts[bucket >= 0 ? bucket : -bucket - 1].increment();
+        count.increment();
+        sum.add(value);
+    }
+
+    /**
+     * Observes the given duration, in seconds.
+     *
+     * @param duration the duration to observe
+     */
+    public void observe(@NotNull Duration duration) {
+        observe(duration.toNanos() / 1e9);
+    }
+
+    double @NotNull [] getUpperBounds() {
+        return upperBounds.clone();
+    }
+
+    /**
+     * Gets the cumulative counts of all buckets, i.e. the amount of values less than or equal to
+     * the upper bound of each bucket, followed by the total amount of values.
+     */
+    long @NotNull [] getCumulativeCounts() {
+        long[] cumulativeCounts = new long[bucketCounts.length];
+        long cumulativeCount = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            cumulativeCount += bucketCounts[i].sum();
+            cumulativeCounts[i] = cumulativeCount;
+        }
+        return cumulativeCounts;
+    }
+
+    /**
+     * Gets the amount of observed values.
+     *
+     * @return the amount of observed values
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the sum of all observed values.
+     *
+     * @return the sum of all observed values
+     */
+    public double getSum() {
+        return sum.sum();
+    }
+}
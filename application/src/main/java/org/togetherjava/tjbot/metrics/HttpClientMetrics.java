@@ -0,0 +1,101 @@
+package org.togetherjava.tjbot.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends requests to an external service, such as the GitHub API, and records their duration, their
+ * status codes and failures.
+ * <p>
+ * The metrics are labeled with the name of the client, for example {@code "gist"}.
+ * <p>
+ * The class is thread-safe.
+ */
+public final class HttpClientMetrics {
+    private final MetricsRegistry registry;
+    private final String clientName;
+    private final Histogram requestDuration;
+    private final Counter failures;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param registry the registry to record the metrics in
+     * @param clientName the name of the client, used as label of the metrics
+     */
+    public HttpClientMetrics(@NotNull MetricsRegistry registry, @NotNull String clientName) {
+        this.registry = registry;
+        this.clientName = clientName;
+
+        requestDuration = registry.histogram("tjbot_http_client_request_duration_seconds",
+                "Duration of requests to external services, until the response was received",
+                "client", clientName);
+        failures = registry.counter("tjbot_http_client_failures_total",
+                "Requests to external services that failed without a response", "client",
+                clientName);
+    }
+
+    /**
+     * Sends the given request synchronously, see
+     * {@link HttpClient#send(HttpRequest, HttpResponse.BodyHandler)}.
+     *
+     * @param client the client to send the request with
+     * @param request the request to send
+     * @param bodyHandler the handler of the response body
+     * @param <T> the type of the response body
+     * @return the response
+     * @throws IOException if the request failed
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    public <T> @NotNull HttpResponse<T> send(@NotNull HttpClient client,
+            @NotNull HttpRequest request, @NotNull HttpResponse.BodyHandler<T> bodyHandler)
+            throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+        try {
+            HttpResponse<T> response = client.send(request, bodyHandler);
+            recordResponse(response);
+            return response;
+        } catch (IOException | InterruptedException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            requestDuration.observe((System.nanoTime() - startNanos) / 1e9);
+        }
+    }
+
+    /**
+     * Sends the given request asynchronously, see
+     * {@link HttpClient#sendAsync(HttpRequest, HttpResponse.BodyHandler)}.
+     *
+     * @param client the client to send the request with
+     * @param request the request to send
+     * @param bodyHandler the handler of the response body
+     * @param <T> the type of the response body
+     * @return the future response
+     */
+    public <T> @NotNull CompletableFuture<HttpResponse<T>> sendAsync(@NotNull HttpClient client,
+            @NotNull HttpRequest request, @NotNull HttpResponse.BodyHandler<T> bodyHandler) {
+        long startNanos = System.nanoTime();
+        return client.sendAsync(request, bodyHandler).whenComplete((response, failure) -> {
+            requestDuration.observe((System.nanoTime() - startNanos) / 1e9);
+            if (failure == null) {
+                recordResponse(response);
+            } else {
+                failures.increment();
+            }
+        });
+    }
+
+    private void recordResponse(@NotNull HttpResponse<?> response) {
+        registry
+            .counter("tjbot_http_client_responses_total",
+                    "Responses received from external services, by status code", "client",
+                    clientName, "status", Integer.toString(response.statusCode()))
+            .increment();
+    }
+}
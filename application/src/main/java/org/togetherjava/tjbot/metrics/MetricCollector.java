@@ -0,0 +1,20 @@
+package org.togetherjava.tjbot.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Provides metrics that are computed only when they are requested, for example from a snapshot of
+ * statistics that a component keeps anyway. See
+ * {@link MetricsRegistry#registerCollector(MetricCollector)}.
+ */
+@FunctionalInterface
+public interface MetricCollector {
+    /**
+     * Adds the current values of all metrics of this collector to the given sink.
+     * <p>
+     * Called on each request of the metrics, hence it should be fast.
+     *
+     * @param sink the sink to add the metrics to
+     */
+    void collect(@NotNull MetricSink sink);
+}
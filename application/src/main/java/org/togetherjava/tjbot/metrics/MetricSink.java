@@ -0,0 +1,32 @@
+package org.togetherjava.tjbot.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives the current values of metrics from a {@link MetricCollector}.
+ * <p>
+ * Labels are given as alternating names and values, for example {@code "routine", "RemindRoutine"}.
+ * Values of the same metric must always have the same type and help text.
+ */
+public interface MetricSink {
+    /**
+     * Adds the current value of a counter, a value that only ever increases.
+     *
+     * @param name the name of the metric, such as {@code "tjbot_routine_runs_total"}
+     * @param help the description of the metric
+     * @param value the current value
+     * @param labels the labels of the value, as alternating names and values
+     */
+    void counter(@NotNull String name, @NotNull String help, double value,
+            @NotNull String... labels);
+
+    /**
+     * Adds the current value of a gauge, a value that can go up and down.
+     *
+     * @param name the name of the metric, such as {@code "tjbot_gateway_ping_seconds"}
+     * @param help the description of the metric
+     * @param value the current value
+     * @param labels the labels of the value, as alternating names and values
+     */
+    void gauge(@NotNull String name, @NotNull String help, double value, @NotNull String... labels);
+}
@@ -0,0 +1,331 @@
+package org.togetherjava.tjbot.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Central registry of the runtime metrics of the bot, such as counters, gauges and histograms.
+ * <p>
+ * Metrics are either recorded directly, using the metrics returned by
+ * {@link #counter(String, String, String...)} and {@link #histogram(String, String, String...)}, or
+ * computed only when they are requested, using
+ * {@link #gauge(String, String, DoubleSupplier, String...)} and
+ * {@link #registerCollector(MetricCollector)}. The latter is suited for components that keep
+ * statistics anyway.
+ * <p>
+ * Metrics are identified by their name and labels, given as alternating names and values. Asking
+ * for the same metric twice returns the same instance. All metrics can be written in the text
+ * exposition format of Prometheus with {@link #scrape()}, for example:
+ *
+ * <pre>
+ * {@code
+ * metrics.counter("tjbot_http_client_requests_total", "Requests sent to external services",
+ *     "client", "gist").increment();
+ * }
+ * </pre>
+ * <p>
+ * The registry is thread-safe.
+ */
+public final class MetricsRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+    private static final Pattern METRIC_NAME_PATTERN = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final Pattern LABEL_NAME_PATTERN = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    private final Map<String, Family> nameToFamily = new ConcurrentHashMap<>();
+    private final Collection<MetricCollector> collectors = new CopyOnWriteArrayList<>();
+
+    private enum Type {
+        COUNTER,
+        GAUGE,
+        HISTOGRAM
+    }
+
+    /**
+     * Gets the counter of the given name and labels, creating it if it does not exist yet.
+     *
+     * @param name the name of the metric, should end with {@code _total}
+     * @param help the description of the metric
+     * @param labels the labels of the counter, as alternating names and values
+     * @return the counter
+     */
+    public @NotNull Counter counter(@NotNull String name, @NotNull String help,
+            @NotNull String... labels) {
+        return getOrCreate(name, help, Type.COUNTER, labels, any -> new Counter(), Counter.class);
+    }
+
+    /**
+     * Gets the histogram of the given name and labels, creating it with buckets suited for
+     * latencies in seconds if it does not exist yet.
+     *
+     * @param name the name of the metric, such as {@code tjbot_http_client_request_seconds}
+     * @param help the description of the metric
+     * @param labels the labels of the histogram, as alternating names and values
+     * @return the histogram
+     */
+    public @NotNull Histogram histogram(@NotNull String name, @NotNull String help,
+            @NotNull String... labels) {
+        return histogram(name, help, Histogram.DEFAULT_LATENCY_BUCKETS, labels);
+    }
+
+    /**
+     * Gets the histogram of the given name and labels, creating it with the given buckets if it
+     * does not exist yet.
+     *
+     * @param name the name of the metric
+     * @param help the description of the metric
+     * @param upperBounds the upper bounds of the buckets, strictly increasing
+     * @param labels the labels of the histogram, as alternating names and values
+     * @return the histogram
+     */
+    public @NotNull Histogram histogram(@NotNull String name, @NotNull String help,
+            double @NotNull [] upperBounds, @NotNull String... labels) {
+        return getOrCreate(name, help, Type.HISTOGRAM, labels, any -> new Histogram(upperBounds),
+                Histogram.class);
+    }
+
+    /**
+     * Registers a gauge whose value is computed by the given supplier whenever the metrics are
+     * requested. Registering a gauge of the same name and labels again has no effect.
+     *
+     * @param name the name of the metric
+     * @param help the description of the metric
+     * @param valueSupplier computes the current value, should be fast
+     * @param labels the labels of the gauge, as alternating names and values
+     */
+    public void gauge(@NotNull String name, @NotNull String help,
+            @NotNull DoubleSupplier valueSupplier, @NotNull String... labels) {
+        getOrCreate(name, help, Type.GAUGE, labels, any -> valueSupplier, DoubleSupplier.class);
+    }
+
+    /**
+     * Registers a collector, which provides the values of its metrics whenever the metrics are
+     * requested.
+     *
+     * @param collector the collector to register
+     */
+    public void registerCollector(@NotNull MetricCollector collector) {
+        collectors.add(collector);
+    }
+
+    private <T> @NotNull T getOrCreate(@NotNull String name, @NotNull String help,
+            @NotNull Type type, @NotNull String[] labels,
+            @NotNull Function<List<String>, Object> metricFactory, @NotNull Class<T> metricClass) {
+        requireValidName(name);
+        List<String> labelList = toLabelList(labels);
+
+        Family family = nameToFamily.computeIfAbsent(name, any -> new Family(type, help));
+        if (family.type != type) {
+            throw new IllegalArgumentException(
+                    "The metric '%s' is a %s already, not a %s".formatted(name, family.type, type));
+        }
+        return metricClass.cast(family.labelsToMetric.computeIfAbsent(labelList, metricFactory));
+    }
+
+    /**
+     * Writes the current values of all metrics in the text exposition format of Prometheus, version
+     * 0.0.4.
+     *
+     * @return all metrics in the text exposition format
+     */
+    public @NotNull String scrape() {
+        SortedMap<String, FamilySnapshot> nameToSnapshot = new TreeMap<>();
+        nameToFamily.forEach((name, family) -> family.addSamples(name, nameToSnapshot
+            .computeIfAbsent(name, any -> new FamilySnapshot(family.type, family.help))));
+
+        MetricSink sink = new SnapshotSink(nameToSnapshot);
+        for (MetricCollector collector : collectors) {
+            try {
+                collector.collect(sink);
+            } catch (RuntimeException e) {
+                // A broken collector should not hide all other metrics
+                logger.error("Unknown error while collecting metrics of {}", collector, e);
+            }
+        }
+
+        StringBuilder text = new StringBuilder();
+        nameToSnapshot.forEach((name, snapshot) -> {
+            text.append("# HELP ")
+                .append(name)
+                .append(' ')
+                .append(escapeHelp(snapshot.help))
+                .append('\n');
+            text.append("# TYPE ")
+                .append(name)
+                .append(' ')
+                .append(snapshot.type.name().toLowerCase(Locale.ROOT))
+                .append('\n');
+            snapshot.lines.forEach(line -> text.append(line).append('\n'));
+        });
+        return text.toString();
+    }
+
+    private static void requireValidName(@NotNull String name) {
+        if (!METRIC_NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("'%s' is not a valid metric name".formatted(name));
+        }
+    }
+
+    private static @NotNull List<String> toLabelList(@NotNull String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException(
+                    "Labels must be given as alternating names and values, but there were %d"
+                        .formatted(labels.length));
+        }
+        for (int i = 0; i < labels.length; i += 2) {
+            if (!LABEL_NAME_PATTERN.matcher(labels[i]).matches()) {
+                throw new IllegalArgumentException(
+                        "'%s' is not a valid label name".formatted(labels[i]));
+            }
+        }
+        return List.of(labels);
+    }
+
+    private static @NotNull String toSampleLine(@NotNull String name, @NotNull List<String> labels,
+            double value) {
+        StringBuilder line = new StringBuilder(name);
+        if (!labels.isEmpty()) {
+            line.append('{');
+            for (int i = 0; i < labels.size(); i += 2) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                line.append(labels.get(i))
+                    .append("=\"")
+                    .append(escapeLabelValue(labels.get(i + 1)))
+                    .append('"');
+            }
+            line.append('}');
+        }
+        return line.append(' ').append(formatValue(value)).toString();
+    }
+
+    private static @NotNull String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static @NotNull String escapeHelp(@NotNull String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static @NotNull String escapeLabelValue(@NotNull String value) {
+        return escapeHelp(value).replace("\"", "\\\"");
+    }
+
+    private static @NotNull List<String> withLabel(@NotNull List<String> labels,
+            @NotNull String name, @NotNull String value) {
+        List<String> extendedLabels = new ArrayList<>(labels);
+        extendedLabels.add(name);
+        extendedLabels.add(value);
+        return extendedLabels;
+    }
+
+    /**
+     * All metrics of the same name, differing in their labels.
+     */
+    private static final class Family {
+        private final Type type;
+        private final String help;
+        private final Map<List<String>, Object> labelsToMetric = new ConcurrentHashMap<>();
+
+        private Family(Type type, String help) {
+            this.type = type;
+            this.help = help;
+        }
+
+        private void addSamples(String name, FamilySnapshot snapshot) {
+            labelsToMetric.forEach((labels, metric) -> {
+                switch (type) {
+                    case COUNTER -> snapshot.lines
+                        .add(toSampleLine(name, labels, ((Counter) metric).get()));
+                    case GAUGE -> snapshot.lines
+                        .add(toSampleLine(name, labels, ((DoubleSupplier) metric).getAsDouble()));
+                    case HISTOGRAM -> addHistogramSamples(name, labels, (Histogram) metric,
+                            snapshot);
+                }
+            });
+        }
+
+        private static void addHistogramSamples(String name, List<String> labels,
+                Histogram histogram, FamilySnapshot snapshot) {
+            double[] upperBounds = histogram.getUpperBounds();
+            long[] cumulativeCounts = histogram.getCumulativeCounts();
+            for (int i = 0; i < upperBounds.length; i++) {
+                snapshot.lines.add(toSampleLine(name + "_bucket",
+                        withLabel(labels, "le", formatValue(upperBounds[i])), cumulativeCounts[i]));
+            }
+            long count = cumulativeCounts[cumulativeCounts.length - 1];
+            snapshot.lines
+                .add(toSampleLine(name + "_bucket", withLabel(labels, "le", "+Inf"), count));
+            snapshot.lines.add(toSampleLine(name + "_sum", labels, histogram.getSum()));
+            snapshot.lines.add(toSampleLine(name + "_count", labels, count));
+        }
+    }
+
+    /**
+     * The sample lines of all metrics of the same name, as written on a single request.
+     */
+    private static final class FamilySnapshot {
+        private final Type type;
+        private final String help;
+        private final List<String> lines = new ArrayList<>();
+
+        private FamilySnapshot(Type type, String help) {
+            this.type = type;
+            this.help = help;
+        }
+    }
+
+    private static final class SnapshotSink implements MetricSink {
+        private final Map<String, FamilySnapshot> nameToSnapshot;
+
+        private SnapshotSink(Map<String, FamilySnapshot> nameToSnapshot) {
+            this.nameToSnapshot = nameToSnapshot;
+        }
+
+        @Override
+        public void counter(@NotNull String name, @NotNull String help, double value,
+                @NotNull String... labels) {
+            add(name, help, Type.COUNTER, value, labels);
+        }
+
+        @Override
+        public void gauge(@NotNull String name, @NotNull String help, double value,
+                @NotNull String... labels) {
+            add(name, help, Type.GAUGE, value, labels);
+        }
+
+        private void add(String name, String help, Type type, double value, String[] labels) {
+            requireValidName(name);
+            FamilySnapshot snapshot =
+                    nameToSnapshot.computeIfAbsent(name, any -> new FamilySnapshot(type, help));
+            if (snapshot.type != type) {
+                throw new IllegalArgumentException("The metric '%s' is a %s already, not a %s"
+                    .formatted(name, snapshot.type, type));
+            }
+            snapshot.lines.add(toSampleLine(name, toLabelList(labels), value));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.togetherjava.tjbot.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.commands.utils.NamedThreadFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Small embedded HTTP server that exposes the metrics of a {@link MetricsRegistry} in the text
+ * exposition format of Prometheus, at {@value #METRICS_PATH}.
+ * <p>
+ * The server is meant to be scraped locally, for example with {@code curl
+ * http://127.0.0.1:9464/metrics}, hence it has no authentication and should only be bound to a
+ * local address. Requests are served one at a time on a single daemon thread.
+ */
+public final class MetricsServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsServer.class);
+    private static final String METRICS_PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricsRegistry registry;
+    private final HttpServer server;
+    private final ExecutorService service =
+            Executors.newSingleThreadExecutor(new NamedThreadFactory("metrics-server-", true));
+
+    /**
+     * Creates and starts a new server.
+     *
+     * @param registry the registry whose metrics to expose
+     * @param host the host to bind to, such as {@code "127.0.0.1"}
+     * @param port the port to listen on, {@code 0} picks a free port
+     * @throws IOException if the server could not be bound to the given address
+     */
+    public MetricsServer(@NotNull MetricsRegistry registry, @NotNull String host, int port)
+            throws IOException {
+        this.registry = registry;
+
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext(METRICS_PATH, this::handleRequest);
+        server.setExecutor(service);
+        server.start();
+        logger.info("Exposing metrics at http://{}:{}{}", host, getPort(), METRICS_PATH);
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return the port of the server
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleRequest(@NotNull HttpExchange exchange) throws IOException {
+        try (exchange) {
+            // Contexts match by prefix, but only the exact path is served
+            if (!METRICS_PATH.equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String method = exchange.getRequestMethod();
+            boolean isHead = "HEAD".equals(method);
+            if (!isHead && !"GET".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, isHead ? -1 : body.length);
+            if (!isHead) {
+                try (OutputStream responseBody = exchange.getResponseBody()) {
+                    responseBody.write(body);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the server, requests that are currently served are not waited for.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        service.shutdown();
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * This package contains the runtime metrics of the application, such as counters of executed
+ * commands or latencies of database queries. It revolves around the class
+ * {@link org.togetherjava.tjbot.metrics.MetricsRegistry}, whose metrics are exposed by
+ * {@link org.togetherjava.tjbot.metrics.MetricsServer}.
+ */
+package org.togetherjava.tjbot.metrics;
@@ -0,0 +1,96 @@
+package org.togetherjava.tjbot.routines;
+
+import net.dv8tion.jda.api.JDA;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.commands.Routine;
+import org.togetherjava.tjbot.db.BackupReport;
+import org.togetherjava.tjbot.db.CheckpointReport;
+import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.db.DatabaseBackups;
+import org.togetherjava.tjbot.db.DatabaseException;
+
+import java.time.LocalTime;
+
+/**
+ * Routine that maintains the database once per day at a quiet time.
+ * <p>
+ * It checkpoints and truncates the write-ahead log, see {@link Database#checkpoint()}, and lets
+ * SQLite refresh the statistics of its query planner, see {@link Database#optimize()}. Afterwards,
+ * it creates a backup of the database, see {@link DatabaseBackups#create()}. The size of the
+ * write-ahead log before and after the checkpoint, as well as the size and duration of the backup,
+ * are logged.
+ */
+public final class DatabaseMaintenanceRoutine implements Routine {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseMaintenanceRoutine.class);
+    /**
+     * Hour of the day, in UTC, at which the routine runs. Chosen to be a time of low activity on
+     * the server.
+     */
+    private static final int QUIET_HOUR_UTC = 3;
+
+    private final Database database;
+    private final DatabaseBackups backups;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param database the database to maintain
+     * @param backups the backups of the database to create a new backup in
+     */
+    public DatabaseMaintenanceRoutine(@NotNull Database database,
+            @NotNull DatabaseBackups backups) {
+        this.database = database;
+        this.backups = backups;
+    }
+
+    @Override
+    public @NotNull Schedule createSchedule() {
+        // Backing up can take a while, it should not delay other routines
+        return Schedule.atTimesOfDay(LocalTime.of(QUIET_HOUR_UTC, 0)).withIsolatedExecutor();
+    }
+
+    @Override
+    public void runRoutine(@NotNull JDA jda) {
+        try {
+            logCheckpointReport(database.checkpoint());
+        } catch (DatabaseException e) {
+            logger.error("Failed to checkpoint the write-ahead log of the database", e);
+        }
+
+        try {
+            database.optimize();
+        } catch (DatabaseException e) {
+            logger.error("Failed to optimize the database", e);
+        }
+
+        try {
+            logBackupReport(backups.create());
+        } catch (DatabaseException e) {
+            logger.error("Failed to create a backup of the database", e);
+        }
+    }
+
+    private static void logCheckpointReport(@NotNull CheckpointReport report) {
+        if (report.busy()) {
+            logger.warn(
+                    "Checkpoint of the write-ahead log could not complete, since the database was busy. Checkpointed {} of {} pages, the log has {} bytes, took {} ms",
+                    report.checkpointedPages(), report.walPages(), report.walSizeAfter(),
+                    report.timeSpent().toMillis());
+            return;
+        }
+
+        logger.info(
+                "Checkpointed {} pages of the write-ahead log, truncating it from {} to {} bytes, took {} ms",
+                report.checkpointedPages(), report.walSizeBefore(), report.walSizeAfter(),
+                report.timeSpent().toMillis());
+    }
+
+    private static void logBackupReport(@NotNull BackupReport report) {
+        logger.info(
+                "Created backup '{}' of the database, copied {} pages ({} bytes, {} bytes compressed), deleted {} old backups, took {} ms",
+                report.file(), report.pages(), report.databaseSize(), report.compressedSize(),
+                report.deletedBackups(), report.timeSpent().toMillis());
+    }
+}
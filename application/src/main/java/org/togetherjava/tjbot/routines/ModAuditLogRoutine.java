@@ -16,6 +16,7 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.togetherjava.tjbot.commands.Routine;
+import org.togetherjava.tjbot.commands.utils.GuildFanOut;
 import org.togetherjava.tjbot.commands.moderation.ModerationUtils;
 import org.togetherjava.tjbot.config.Config;
 import org.togetherjava.tjbot.db.Database;
@@ -23,14 +24,10 @@ import org.togetherjava.tjbot.db.generated.tables.ModAuditLogGuildProcess;
 
 import java.awt.*;
 import java.time.*;
-import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAccessor;
 import java.util.List;
 import java.util.*;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.function.BiFunction;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.togetherjava.tjbot.moderation.ModAuditLogWriter;
 
@@ -44,6 +41,8 @@ import org.togetherjava.tjbot.moderation.ModAuditLogWriter;
  */
 public final class ModAuditLogRoutine implements Routine {
     private static final Logger logger = LoggerFactory.getLogger(ModAuditLogRoutine.class);
+    // Checking the audit log is subject to heavy rate limitations
+    private static final Duration GUILD_TIMEOUT = Duration.ofMinutes(30);
     private static final int CHECK_AUDIT_LOG_START_HOUR = 4;
     private static final int CHECK_AUDIT_LOG_EVERY_HOURS = 8;
     private static final int HOURS_OF_DAY = 24;
@@ -84,31 +83,21 @@ public final class ModAuditLogRoutine implements Routine {
     }
 
     /**
-     * Creates a schedule for execution at a fixed rate (see
-     * {@link ScheduledExecutorService#scheduleAtFixedRate(Runnable, long, long, TimeUnit)}). The
-     * initial first execution will be delayed to the next fixed time that matches the given period,
-     * effectively making execution stable at fixed times of a day - regardless of when this method
-     * was originally triggered.
+     * Creates a schedule for execution at fixed times of a day, every given amount of hours
+     * starting at the given hour.
      * <p>
      * For example, if the given period is 8 hours with a start hour of 4 o'clock, this leads to the
      * fixed execution times of 4:00, 12:00 and 20:00 each day. The first execution is then delayed
      * to the closest time in that schedule. For example, if triggered at 7:00, execution will
      * happen at 12:00 and then follow the schedule.
-     * <p>
-     * Execution will also correctly roll over to the next day, for example if the method is
-     * triggered at 21:30, the next execution will be at 4:00 the following day.
      *
      * @param periodStartHour the hour of the day that marks the start of this period
      * @param periodHours the scheduling period in hours
      * @return the according schedule representing the planned execution
      */
-    private static @NotNull Schedule scheduleAtFixedRateFromNextFixedTime(
+    private static @NotNull Schedule scheduleAtFixedTimesOfDay(
             @SuppressWarnings("SameParameterValue") int periodStartHour,
             @SuppressWarnings("SameParameterValue") int periodHours) {
-        // NOTE This scheduler could be improved, for example supporting arbitrary periods (not just
-        // hour-based). Also, it probably does not correctly handle all date/time-quirks, for
-        // example if a schedule would hit a time that does not exist for a specific date due to DST
-        // or similar issues. Those are minor though and can be ignored for now.
         if (periodHours <= 0 || periodHours >= HOURS_OF_DAY) {
             throw new IllegalArgumentException(
                     "Schedule period must not be zero and must fit into a single day");
@@ -118,39 +107,12 @@ public final class ModAuditLogRoutine implements Routine {
                     "Schedule period start hour must be a valid hour of a day (0-23)");
         }
 
-        // Compute fixed schedule hours
-        List<Integer> fixedScheduleHours = new ArrayList<>();
-
-        for (int hour = periodStartHour; hour < HOURS_OF_DAY; hour += periodHours) {
-            fixedScheduleHours.add(hour);
-        }
-
-        Instant now = Instant.now();
-        Instant nextFixedTime =
-                computeClosestNextScheduleDate(now, fixedScheduleHours, periodHours);
-        return new Schedule(ScheduleMode.FIXED_RATE, ChronoUnit.SECONDS.between(now, nextFixedTime),
-                TimeUnit.HOURS.toSeconds(periodHours), TimeUnit.SECONDS);
-    }
-
-    private static @NotNull Instant computeClosestNextScheduleDate(@NotNull Instant instant,
-            @NotNull List<Integer> scheduleHours, int periodHours) {
-        OffsetDateTime offsetDateTime = instant.atOffset(ZoneOffset.UTC);
-        BiFunction<OffsetDateTime, Integer, Instant> dateAtTime =
-                (date, hour) -> date.with(LocalTime.of(hour, 0)).toInstant();
-
-        // The instant is either before the given hours, in between, or after.
-        // For latter, we roll the schedule over once to the next day
-        List<Instant> scheduleDates = scheduleHours.stream()
-            .map(hour -> dateAtTime.apply(offsetDateTime, hour))
-            .collect(Collectors.toCollection(ArrayList::new));
-        int rolloverHour =
-                (scheduleHours.get(scheduleHours.size() - 1) + periodHours) % HOURS_OF_DAY;
-        scheduleDates.add(dateAtTime.apply(offsetDateTime.plusDays(1), rolloverHour));
-
-        return scheduleDates.stream()
-            .filter(instant::isBefore)
-            .min(Comparator.comparing(scheduleDate -> Duration.between(instant, scheduleDate)))
-            .orElseThrow();
+        LocalTime[] fixedScheduleTimes = IntStream
+            .iterate(periodStartHour, hour -> hour < HOURS_OF_DAY, hour -> hour + periodHours)
+            .mapToObj(hour -> LocalTime.of(hour, 0))
+            .toArray(LocalTime[]::new);
+        // Iterates all guilds, which can take a while, so it should not delay other routines
+        return Schedule.atTimesOfDay(fixedScheduleTimes).withIsolatedExecutor();
     }
 
     private static @NotNull Optional<RestAction<MessageEmbed>> handleBanEntry(
@@ -200,17 +162,16 @@ public final class ModAuditLogRoutine implements Routine {
 
     @Override
     public @NotNull Schedule createSchedule() {
-        Schedule schedule = scheduleAtFixedRateFromNextFixedTime(CHECK_AUDIT_LOG_START_HOUR,
-                CHECK_AUDIT_LOG_EVERY_HOURS);
-        logger.info("Checking audit logs is scheduled for {}.",
-                Instant.now().plus(schedule.initialDuration(), schedule.unit().toChronoUnit()));
+        Schedule schedule =
+                scheduleAtFixedTimesOfDay(CHECK_AUDIT_LOG_START_HOUR, CHECK_AUDIT_LOG_EVERY_HOURS);
+        logger.info("Checking audit logs is scheduled daily at {} (UTC).", schedule.timesOfDay());
         return schedule;
     }
 
     private void checkAuditLogsRoutine(@NotNull JDA jda) {
         logger.info("Checking audit logs of all guilds...");
 
-        jda.getGuildCache().forEach(guild -> {
+        GuildFanOut.forEachGuild(jda, "Check audit logs", GUILD_TIMEOUT, guild -> {
             if (!guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
                 logger.error(
                         "The bot does not have 'VIEW_AUDIT_LOGS' permissions in guild '{}' which are required to log mod actions.",
@@ -0,0 +1,71 @@
+package org.togetherjava.tjbot.routines;
+
+import net.dv8tion.jda.api.JDA;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.commands.Routine;
+import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.db.DatabaseException;
+import org.togetherjava.tjbot.db.RetentionEngine;
+import org.togetherjava.tjbot.db.RetentionPolicy;
+import org.togetherjava.tjbot.db.RetentionReport;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routine that purges old rows from the database, as declared by the {@link RetentionPolicy} of
+ * each table.
+ * <p>
+ * Rows are purged in small batches, to not stall other writes to the database, see
+ * {@link RetentionEngine}. The amount of purged rows and the time spent is logged per table.
+ */
+public final class RetentionRoutine implements Routine {
+    private static final Logger logger = LoggerFactory.getLogger(RetentionRoutine.class);
+
+    private final RetentionEngine engine;
+    private final List<RetentionPolicy<?>> policies;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param database the database to purge
+     * @param policies the policies of all tables to purge
+     */
+    public RetentionRoutine(@NotNull Database database,
+            @NotNull Collection<? extends RetentionPolicy<?>> policies) {
+        engine = new RetentionEngine(database);
+        this.policies = List.copyOf(policies);
+    }
+
+    @Override
+    public @NotNull Schedule createSchedule() {
+        return new Schedule(ScheduleMode.FIXED_DELAY, 0, 4, TimeUnit.HOURS);
+    }
+
+    @Override
+    public void runRoutine(@NotNull JDA jda) {
+        for (RetentionPolicy<?> policy : policies) {
+            try {
+                logReport(engine.purge(policy));
+            } catch (DatabaseException e) {
+                logger.error("Failed to purge old rows from table '{}'", policy.table().getName(),
+                        e);
+            }
+        }
+    }
+
+    private static void logReport(@NotNull RetentionReport report) {
+        if (report.purgedRows() == 0) {
+            logger.debug("No old rows to purge from table '{}', took {} ms", report.table(),
+                    report.timeSpent().toMillis());
+            return;
+        }
+
+        logger.info("Purged {} old rows from table '{}' in {} batches, took {} ms",
+                report.purgedRows(), report.table(), report.batches(),
+                report.timeSpent().toMillis());
+    }
+}
@@ -0,0 +1,28 @@
+CREATE INDEX help_channel_messages_by_guild_sent_at
+    ON help_channel_messages (guild_id, sent_at, author_id);
+CREATE INDEX help_channel_messages_by_guild_author
+    ON help_channel_messages (guild_id, author_id, sent_at);
+CREATE INDEX help_channel_messages_by_sent_at
+    ON help_channel_messages (sent_at);
+
+CREATE INDEX moderation_actions_by_guild_target
+    ON moderation_actions (guild_id, target_id, action_type, issued_at);
+CREATE INDEX moderation_actions_by_guild_type
+    ON moderation_actions (guild_id, action_type, issued_at);
+CREATE INDEX moderation_actions_by_guild_author
+    ON moderation_actions (guild_id, author_id, issued_at);
+CREATE INDEX moderation_actions_by_expires_at
+    ON moderation_actions (action_expires_at);
+
+CREATE INDEX scam_history_by_guild_author_content
+    ON scam_history (guild_id, author_id, content_hash, sent_at);
+CREATE INDEX scam_history_by_sent_at
+    ON scam_history (sent_at);
+
+CREATE INDEX pending_reminders_by_remind_at
+    ON pending_reminders (remind_at);
+CREATE INDEX pending_reminders_by_guild_author
+    ON pending_reminders (guild_id, author_id);
+
+CREATE INDEX help_threads_by_author
+    ON help_threads (author_id);
@@ -0,0 +1,4 @@
+CREATE INDEX help_threads_by_created_at
+    ON help_threads (created_at);
+CREATE INDEX component_ids_by_last_used
+    ON component_ids (last_used);
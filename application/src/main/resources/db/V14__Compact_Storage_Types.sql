@@ -0,0 +1,224 @@
+-- Stores moments as milliseconds since the epoch instead of text, UUIDs as 16 bytes instead of
+-- 36 characters and hashes as raw bytes instead of hexadecimal text. The generated code converts
+-- them back to their previous Java types, see org.togetherjava.tjbot.db.converters.
+--
+-- SQLite can not change the type of a column, so all affected tables are copied into new tables.
+
+-- Lookup for decoding hexadecimal text into bytes, the byte with value n is at position n + 1
+CREATE TEMPORARY TABLE hex_bytes AS
+SELECT '0123456789ABCDEF' AS digits,
+       X'000102030405060708090A0B0C0D0E0F101112131415161718191A1B1C1D1E1F202122232425262728292A2B2C2D2E2F303132333435363738393A3B3C3D3E3F404142434445464748494A4B4C4D4E4F505152535455565758595A5B5C5D5E5F606162636465666768696A6B6C6D6E6F707172737475767778797A7B7C7D7E7F808182838485868788898A8B8C8D8E8F909192939495969798999A9B9C9D9E9FA0A1A2A3A4A5A6A7A8A9AAABACADAEAFB0B1B2B3B4B5B6B7B8B9BABBBCBDBEBFC0C1C2C3C4C5C6C7C8C9CACBCCCDCECFD0D1D2D3D4D5D6D7D8D9DADBDCDDDEDFE0E1E2E3E4E5E6E7E8E9EAEBECEDEEEFF0F1F2F3F4F5F6F7F8F9FAFBFCFDFEFF' AS bytes;
+
+-- component_ids
+CREATE TABLE component_ids_compact
+(
+    uuid         BLOB   NOT NULL PRIMARY KEY,
+    component_id TEXT   NOT NULL,
+    last_used    BIGINT NOT NULL,
+    lifespan     TEXT   NOT NULL
+) WITHOUT ROWID;
+
+WITH RECURSIVE decoding(uuid, remaining, decoded) AS
+(
+    SELECT uuid, upper(replace(uuid, '-', '')), X'' FROM component_ids
+    UNION ALL
+    SELECT uuid,
+           substr(remaining, 3),
+           CAST(decoded || substr(bytes, (instr(digits, substr(remaining, 1, 1)) - 1) * 16
+               + instr(digits, substr(remaining, 2, 1)), 1) AS BLOB)
+    FROM decoding, hex_bytes
+    WHERE remaining <> ''
+)
+INSERT INTO component_ids_compact (uuid, component_id, last_used, lifespan)
+SELECT decoding.decoded,
+       component_ids.component_id,
+       CAST(ROUND((julianday(component_ids.last_used) - 2440587.5) * 86400000) AS INTEGER),
+       component_ids.lifespan
+FROM decoding
+         JOIN component_ids ON component_ids.uuid = decoding.uuid
+WHERE decoding.remaining = '';
+
+DROP TABLE component_ids;
+ALTER TABLE component_ids_compact RENAME TO component_ids;
+
+CREATE INDEX component_ids_by_last_used
+    ON component_ids (last_used);
+
+-- mod_audit_log_guild_process
+CREATE TABLE mod_audit_log_guild_process_compact
+(
+    guild_id                       BIGINT NOT NULL PRIMARY KEY,
+    last_processed_audit_log_entry BIGINT NOT NULL
+);
+
+INSERT INTO mod_audit_log_guild_process_compact (guild_id, last_processed_audit_log_entry)
+SELECT guild_id, CAST(ROUND((julianday(last_processed_audit_log_entry) - 2440587.5) * 86400000) AS INTEGER)
+FROM mod_audit_log_guild_process;
+
+DROP TABLE mod_audit_log_guild_process;
+ALTER TABLE mod_audit_log_guild_process_compact RENAME TO mod_audit_log_guild_process;
+
+-- moderation_actions
+CREATE TABLE moderation_actions_compact
+(
+    case_id           INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,
+    issued_at         BIGINT  NOT NULL,
+    guild_id          BIGINT  NOT NULL,
+    author_id         BIGINT  NOT NULL,
+    target_id         BIGINT  NOT NULL,
+    action_type       TEXT    NOT NULL,
+    action_expires_at BIGINT,
+    reason            TEXT    NOT NULL
+);
+
+INSERT INTO moderation_actions_compact (case_id, issued_at, guild_id, author_id, target_id,
+                                        action_type, action_expires_at, reason)
+SELECT case_id,
+       CAST(ROUND((julianday(issued_at) - 2440587.5) * 86400000) AS INTEGER),
+       guild_id,
+       author_id,
+       target_id,
+       action_type,
+       CAST(ROUND((julianday(action_expires_at) - 2440587.5) * 86400000) AS INTEGER),
+       reason
+FROM moderation_actions;
+
+DELETE FROM sqlite_sequence WHERE name = 'moderation_actions_compact';
+INSERT INTO sqlite_sequence (name, seq)
+SELECT 'moderation_actions_compact', seq FROM sqlite_sequence WHERE name = 'moderation_actions';
+DROP TABLE moderation_actions;
+ALTER TABLE moderation_actions_compact RENAME TO moderation_actions;
+
+CREATE INDEX moderation_actions_by_guild_target
+    ON moderation_actions (guild_id, target_id, action_type, issued_at);
+CREATE INDEX moderation_actions_by_guild_type
+    ON moderation_actions (guild_id, action_type, issued_at);
+CREATE INDEX moderation_actions_by_guild_author
+    ON moderation_actions (guild_id, author_id, issued_at);
+CREATE INDEX moderation_actions_by_expires_at
+    ON moderation_actions (action_expires_at);
+
+-- help_channel_messages
+CREATE TABLE help_channel_messages_compact
+(
+    message_id     BIGINT NOT NULL PRIMARY KEY,
+    guild_id       BIGINT NOT NULL,
+    channel_id     BIGINT NOT NULL,
+    author_id      BIGINT NOT NULL,
+    sent_at        BIGINT NOT NULL,
+    message_length BIGINT NOT NULL DEFAULT 1
+);
+
+INSERT INTO help_channel_messages_compact (message_id, guild_id, channel_id, author_id, sent_at,
+                                           message_length)
+SELECT message_id, guild_id, channel_id, author_id, CAST(ROUND((julianday(sent_at) - 2440587.5) * 86400000) AS INTEGER), message_length
+FROM help_channel_messages;
+
+DROP TABLE help_channel_messages;
+ALTER TABLE help_channel_messages_compact RENAME TO help_channel_messages;
+
+CREATE INDEX help_channel_messages_by_guild_sent_at
+    ON help_channel_messages (guild_id, sent_at, author_id);
+CREATE INDEX help_channel_messages_by_guild_author
+    ON help_channel_messages (guild_id, author_id, sent_at);
+CREATE INDEX help_channel_messages_by_sent_at
+    ON help_channel_messages (sent_at);
+
+-- pending_reminders
+CREATE TABLE pending_reminders_compact
+(
+    id         INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,
+    created_at BIGINT  NOT NULL,
+    guild_id   BIGINT  NOT NULL,
+    channel_id BIGINT  NOT NULL,
+    author_id  BIGINT  NOT NULL,
+    remind_at  BIGINT  NOT NULL,
+    content    TEXT    NOT NULL
+);
+
+INSERT INTO pending_reminders_compact (id, created_at, guild_id, channel_id, author_id, remind_at,
+                                       content)
+SELECT id, CAST(ROUND((julianday(created_at) - 2440587.5) * 86400000) AS INTEGER), guild_id, channel_id, author_id, CAST(ROUND((julianday(remind_at) - 2440587.5) * 86400000) AS INTEGER), content
+FROM pending_reminders;
+
+DELETE FROM sqlite_sequence WHERE name = 'pending_reminders_compact';
+INSERT INTO sqlite_sequence (name, seq)
+SELECT 'pending_reminders_compact', seq FROM sqlite_sequence WHERE name = 'pending_reminders';
+DROP TABLE pending_reminders;
+ALTER TABLE pending_reminders_compact RENAME TO pending_reminders;
+
+CREATE INDEX pending_reminders_by_remind_at
+    ON pending_reminders (remind_at);
+CREATE INDEX pending_reminders_by_guild_author
+    ON pending_reminders (guild_id, author_id);
+
+-- scam_history
+CREATE TABLE scam_history_compact
+(
+    id           INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,
+    sent_at      BIGINT  NOT NULL,
+    guild_id     BIGINT  NOT NULL,
+    channel_id   BIGINT  NOT NULL,
+    message_id   BIGINT  NOT NULL,
+    author_id    BIGINT  NOT NULL,
+    content_hash BLOB    NOT NULL,
+    is_deleted   BOOLEAN NOT NULL
+);
+
+WITH RECURSIVE decoding(id, remaining, decoded) AS
+(
+    SELECT id, upper(content_hash), X'' FROM scam_history
+    UNION ALL
+    SELECT id,
+           substr(remaining, 3),
+           CAST(decoded || substr(bytes, (instr(digits, substr(remaining, 1, 1)) - 1) * 16
+               + instr(digits, substr(remaining, 2, 1)), 1) AS BLOB)
+    FROM decoding, hex_bytes
+    WHERE remaining <> ''
+)
+INSERT INTO scam_history_compact (id, sent_at, guild_id, channel_id, message_id, author_id,
+                                  content_hash, is_deleted)
+SELECT scam_history.id,
+       CAST(ROUND((julianday(scam_history.sent_at) - 2440587.5) * 86400000) AS INTEGER),
+       scam_history.guild_id,
+       scam_history.channel_id,
+       scam_history.message_id,
+       scam_history.author_id,
+       decoding.decoded,
+       scam_history.is_deleted
+FROM decoding
+         JOIN scam_history ON scam_history.id = decoding.id
+WHERE decoding.remaining = '';
+
+DELETE FROM sqlite_sequence WHERE name = 'scam_history_compact';
+INSERT INTO sqlite_sequence (name, seq)
+SELECT 'scam_history_compact', seq FROM sqlite_sequence WHERE name = 'scam_history';
+DROP TABLE scam_history;
+ALTER TABLE scam_history_compact RENAME TO scam_history;
+
+CREATE INDEX scam_history_by_guild_author_content
+    ON scam_history (guild_id, author_id, content_hash, sent_at);
+CREATE INDEX scam_history_by_sent_at
+    ON scam_history (sent_at);
+
+-- help_threads
+CREATE TABLE help_threads_compact
+(
+    channel_id BIGINT NOT NULL PRIMARY KEY,
+    author_id  BIGINT NOT NULL,
+    created_at BIGINT NOT NULL
+);
+
+INSERT INTO help_threads_compact (channel_id, author_id, created_at)
+SELECT channel_id, author_id, CAST(ROUND((julianday(created_at) - 2440587.5) * 86400000) AS INTEGER)
+FROM help_threads;
+
+DROP TABLE help_threads;
+ALTER TABLE help_threads_compact RENAME TO help_threads;
+
+CREATE INDEX help_threads_by_author
+    ON help_threads (author_id);
+CREATE INDEX help_threads_by_created_at
+    ON help_threads (created_at);
+
+DROP TABLE hex_bytes;
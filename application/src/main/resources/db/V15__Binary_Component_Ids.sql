@@ -0,0 +1,23 @@
+-- Stores component IDs in a compact binary form instead of CSV text, see ComponentIdCodec.
+--
+-- SQLite can not change the type of a column, so the table is copied into a new table. Existing
+-- values are copied unchanged and stay CSV text, parsing CSV in SQL is not feasible. The
+-- ComponentIdStore rewrites them into the binary form on its first start after this migration and
+-- can still read them until then.
+CREATE TABLE component_ids_binary
+(
+    uuid         BLOB   NOT NULL PRIMARY KEY,
+    component_id BLOB   NOT NULL,
+    last_used    BIGINT NOT NULL,
+    lifespan     TEXT   NOT NULL
+) WITHOUT ROWID;
+
+INSERT INTO component_ids_binary (uuid, component_id, last_used, lifespan)
+SELECT uuid, component_id, last_used, lifespan
+FROM component_ids;
+
+DROP TABLE component_ids;
+ALTER TABLE component_ids_binary RENAME TO component_ids;
+
+CREATE INDEX component_ids_by_last_used
+    ON component_ids (last_used);
@@ -0,0 +1,258 @@
+package org.togetherjava.tjbot.commands;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.*;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.utils.cache.SnowflakeCacheView;
+import net.dv8tion.jda.api.utils.concurrent.Task;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.togetherjava.tjbot.commands.help.AutoPruneHelperRoutine;
+import org.togetherjava.tjbot.commands.help.HelpSystemHelper;
+import org.togetherjava.tjbot.commands.moderation.ModerationAction;
+import org.togetherjava.tjbot.commands.moderation.ModerationActionsStore;
+import org.togetherjava.tjbot.commands.moderation.scam.ScamHistoryStore;
+import org.togetherjava.tjbot.commands.reminder.RemindRoutine;
+import org.togetherjava.tjbot.commands.tophelper.TopHelpersCommand;
+import org.togetherjava.tjbot.commands.tophelper.TopHelpersMessageListener;
+import org.togetherjava.tjbot.config.Config;
+import org.togetherjava.tjbot.config.HelpSystemConfig;
+import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.jda.JdaTester;
+import org.togetherjava.tjbot.moderation.ModAuditLogWriter;
+import org.togetherjava.tjbot.routines.RetentionRoutine;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.togetherjava.tjbot.db.generated.tables.HelpChannelMessages.HELP_CHANNEL_MESSAGES;
+
+/**
+ * Runs {@code EXPLAIN QUERY PLAN} on every query issued by the features that access hot tables and
+ * ensures that none of them falls back to a full table scan.
+ * <p>
+ * The queries are recorded from the actual features, executed against a database created by the
+ * real migrations.
+ */
+final class QueryPlanTest {
+    private static final long GUILD_ID = 1;
+    private static final long USER_ID = 2;
+
+    private Database database;
+    private List<String> statements;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) throws SQLException {
+        database = new Database("jdbc:sqlite:" + tempDir.resolve("database.db"));
+        statements = Collections.synchronizedList(new ArrayList<>());
+        database.addStatementListener(statements::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    /**
+     * Asserts that the plans of all statements recorded so far do not contain any full table scans.
+     */
+    private void assertNoFullTableScans() {
+        List<String> queries;
+        synchronized (statements) {
+            queries = statements.stream().filter(QueryPlanTest::isQuery).distinct().toList();
+            statements.clear();
+        }
+        assertFalse(queries.isEmpty(), "Expected the feature to issue queries");
+
+        for (String query : queries) {
+            List<String> plan =
+                    database.read(context -> context.fetch("EXPLAIN QUERY PLAN " + query))
+                        .map(planRow -> planRow.get("detail", String.class));
+
+            List<String> fullTableScans =
+                    plan.stream().filter(QueryPlanTest::isFullTableScan).toList();
+            assertTrue(fullTableScans.isEmpty(),
+                    () -> "Query falls back to a full table scan %s: %s".formatted(fullTableScans,
+                            query));
+        }
+    }
+
+    private static boolean isQuery(@NotNull String statement) {
+        String normalizedStatement = statement.stripLeading().toLowerCase(Locale.US);
+        return normalizedStatement.startsWith("select") || normalizedStatement.startsWith("update")
+                || normalizedStatement.startsWith("delete");
+    }
+
+    private static boolean isFullTableScan(@NotNull String planDetail) {
+        return planDetail.startsWith("SCAN ") && !planDetail.startsWith("SCAN CONSTANT ROW");
+    }
+
+    @Test
+    @DisplayName("Queries of the moderation actions store use indexes")
+    void moderationActionsStore() {
+        ModerationActionsStore store = new ModerationActionsStore(database);
+        int caseId = store.addAction(GUILD_ID, USER_ID, USER_ID, ModerationAction.MUTE,
+                Instant.now().plus(1, ChronoUnit.DAYS), "reason");
+
+        store.getExpiredActionsAscending();
+        store.getActionsByTypeAscending(GUILD_ID, ModerationAction.MUTE);
+        store.getActionsByTargetAscending(GUILD_ID, USER_ID);
+        store.getActionsByAuthorAscending(GUILD_ID, USER_ID);
+        store.findLastActionAgainstTargetByType(GUILD_ID, USER_ID, ModerationAction.MUTE);
+        store.findLastActionAgainstTargetByTypeAsync(GUILD_ID, USER_ID, ModerationAction.MUTE)
+            .join();
+        store.findActionByCaseId(caseId);
+
+        assertNoFullTableScans();
+    }
+
+    @Test
+    @DisplayName("Queries of the scam history store use indexes")
+    void scamHistoryStore() {
+        ScamHistoryStore store = new ScamHistoryStore(database);
+        Message scam = createMessageMock();
+        store.addScam(scam, false);
+
+        store.hasRecentScamDuplicate(scam);
+        store.markScamDuplicatesDeleted(scam);
+
+        assertNoFullTableScans();
+    }
+
+    private static @NotNull Message createMessageMock() {
+        Message message = mock(Message.class);
+        Guild guild = mock(Guild.class);
+        MessageChannel channel = mock(MessageChannel.class);
+        User author = mock(User.class);
+
+        when(guild.getIdLong()).thenReturn(GUILD_ID);
+        when(author.getIdLong()).thenReturn(USER_ID);
+        when(message.getTimeCreated()).thenReturn(OffsetDateTime.now(ZoneOffset.UTC));
+        when(message.getGuild()).thenReturn(guild);
+        when(message.getChannel()).thenReturn(channel);
+        when(message.getAuthor()).thenReturn(author);
+        when(message.getContentRaw()).thenReturn("scam");
+
+        return message;
+    }
+
+    @Test
+    @DisplayName("Queries of the top helpers command use indexes")
+    void topHelpersCommand() {
+        JdaTester jdaTester = new JdaTester();
+        SlashCommand command = new TopHelpersCommand(database);
+
+        SlashCommandInteractionEvent event =
+                jdaTester.createSlashCommandInteractionEvent(command).build();
+        command.onSlashCommand(event);
+
+        assertNoFullTableScans();
+    }
+
+    @Test
+    @DisplayName("Queries of the remind routine use indexes")
+    void remindRoutine() {
+        JdaTester jdaTester = new JdaTester();
+        Routine routine = new RemindRoutine(database);
+
+        routine.runRoutine(jdaTester.getJdaMock());
+
+        assertNoFullTableScans();
+    }
+
+    @Test
+    @DisplayName("Queries of the auto prune helper routine use indexes")
+    void autoPruneHelperRoutine() {
+        Config config = mock(Config.class);
+        HelpSystemConfig helpConfig = mock(HelpSystemConfig.class);
+        when(config.getHelpSystem()).thenReturn(helpConfig);
+        when(helpConfig.getOverviewChannelPattern()).thenReturn("overview");
+        when(helpConfig.getStagingChannelPattern()).thenReturn("staging");
+        when(helpConfig.getCategoryRoleSuffix()).thenReturn(" - Helper");
+        when(helpConfig.getCategories()).thenReturn(List.of("Java"));
+
+        Routine routine = new AutoPruneHelperRoutine(config, new HelpSystemHelper(config, database),
+                mock(ModAuditLogWriter.class), database);
+
+        // A full helper role, whose members are all active, so nobody actually gets pruned
+        Guild guild = mock(Guild.class);
+        Role role = mock(Role.class);
+        TextChannel overviewChannel = mock(TextChannel.class);
+        Member member = mock(Member.class);
+
+        when(guild.getIdLong()).thenReturn(GUILD_ID);
+        when(overviewChannel.getName()).thenReturn("overview");
+        when(guild.getTextChannels()).thenReturn(List.of(overviewChannel));
+        when(guild.getRolesByName("Java - Helper", true)).thenReturn(List.of(role));
+        when(role.getGuild()).thenReturn(guild);
+        when(member.getGuild()).thenReturn(guild);
+        when(member.getIdLong()).thenReturn(USER_ID);
+
+        List<Member> members = Collections.nCopies(100, member);
+        Task<List<Member>> membersTask = createSucceededTaskMock(members);
+        when(guild.findMembersWithRoles(role)).thenReturn(membersTask);
+
+        database.write(context -> context.newRecord(HELP_CHANNEL_MESSAGES)
+            .setMessageId(1L)
+            .setGuildId(GUILD_ID)
+            .setChannelId(1L)
+            .setAuthorId(USER_ID)
+            .setSentAt(Instant.now())
+            .insert());
+        statements.clear();
+
+        routine.runRoutine(createJdaMock(guild));
+
+        assertNoFullTableScans();
+    }
+
+    @Test
+    @DisplayName("Queries of the retention routine use indexes")
+    void retentionRoutine() {
+        Routine routine =
+                new RetentionRoutine(database, List.of(TopHelpersMessageListener.RETENTION_POLICY,
+                        HelpSystemHelper.RETENTION_POLICY, ScamHistoryStore.RETENTION_POLICY));
+
+        routine.runRoutine(mock(JDA.class));
+
+        assertNoFullTableScans();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> @NotNull Task<T> createSucceededTaskMock(@NotNull T result) {
+        Task<T> task = mock(Task.class);
+        when(task.onSuccess(any())).thenAnswer(invocation -> {
+            Consumer<? super T> callback = invocation.getArgument(0);
+            callback.accept(result);
+            return task;
+        });
+        return task;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static @NotNull JDA createJdaMock(@NotNull Guild guild) {
+        JDA jda = mock(JDA.class);
+        SnowflakeCacheView<Guild> guildCache = mock(SnowflakeCacheView.class);
+        doAnswer(invocation -> {
+            Consumer<? super Guild> action = invocation.getArgument(0);
+            action.accept(guild);
+            return null;
+        }).when(guildCache).forEach(any());
+        when(guildCache.asList()).thenReturn(List.of(guild));
+        when(jda.getGuildCache()).thenReturn(guildCache);
+        return jda;
+    }
+}
@@ -4,8 +4,13 @@ import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEve
 import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
+import org.togetherjava.tjbot.commands.componentids.ComponentId;
+import org.togetherjava.tjbot.commands.componentids.ComponentIdGenerator;
 import org.togetherjava.tjbot.commands.componentids.Lifespan;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 
@@ -85,4 +90,36 @@ final class SlashCommandAdapterTest {
             assertEquals(lifespan.toString(), componentIdText[2]);
         }
     }
+
+    @Test
+    void generateComponentIds() {
+        // Test that the adapter generates all IDs with a single call of the given generator
+        SlashCommandAdapter adapter = createAdapter();
+        List<List<ComponentId>> generateAllCalls = new ArrayList<>();
+        adapter.acceptComponentIdGenerator(new ComponentIdGenerator() {
+            @Override
+            public @NotNull String generate(@NotNull ComponentId componentId,
+                    @NotNull Lifespan lifespan) {
+                throw new AssertionError("IDs must be generated at once");
+            }
+
+            @Override
+            public @NotNull List<String> generateAll(@NotNull List<ComponentId> componentIds,
+                    @NotNull Lifespan lifespan) {
+                generateAllCalls.add(componentIds);
+                return componentIds.stream()
+                    .map(componentId -> "%s;%s;%s".formatted(componentId.userInteractorName(),
+                            String.join(",", componentId.elements()), lifespan))
+                    .toList();
+            }
+        });
+
+        List<String> componentIds =
+                adapter.generateComponentIds(List.of(List.of("foo", "bar"), List.of("baz")));
+
+        assertEquals(1, generateAllCalls.size());
+        assertEquals(
+                List.of(NAME + ";foo,bar;" + Lifespan.REGULAR, NAME + ";baz;" + Lifespan.REGULAR),
+                componentIds);
+    }
 }
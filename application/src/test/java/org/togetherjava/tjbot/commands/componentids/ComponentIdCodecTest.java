@@ -0,0 +1,59 @@
+package org.togetherjava.tjbot.commands.componentids;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class ComponentIdCodecTest {
+    @Test
+    @DisplayName("Component IDs can be encoded and decoded back, behind a header")
+    void encodeDecodeRoundTrip() {
+        // GIVEN component IDs with empty, special and long elements
+        List<ComponentId> componentIds =
+                List.of(new ComponentId("foo", List.of()), new ComponentId("", List.of("")),
+                        new ComponentId("bar", List.of("a,b;c", "\"quoted\"\n", "äöü 🎉")),
+                        new ComponentId("baz", List.of("x".repeat(200), "y".repeat(20_000))));
+
+        for (ComponentId componentId : componentIds) {
+            // WHEN encoding them behind a header and decoding them
+            byte[] encoded = ComponentIdCodec.encode(componentId, 3);
+
+            // THEN the header is left untouched and they are unchanged
+            assertArrayEquals(new byte[3], Arrays.copyOf(encoded, 3));
+            assertEquals(componentId, ComponentIdCodec.decode(encoded, 3));
+        }
+    }
+
+    @Test
+    @DisplayName("Short component IDs are framed by a single byte per string")
+    void shortStringsAreFramedCompactly() {
+        // GIVEN a component ID with short strings
+        ComponentId componentId = new ComponentId("foo", List.of("1", "23"));
+
+        // WHEN encoding it
+        byte[] encoded = ComponentIdCodec.encode(componentId, 0);
+
+        // THEN each string only needs one byte for its length
+        assertArrayEquals(new byte[] {3, 'f', 'o', 'o', 1, '1', 2, '2', '3'}, encoded);
+    }
+
+    @Test
+    @DisplayName("Truncated or empty binary forms are rejected")
+    void invalidBinaryFormsAreRejected() {
+        // GIVEN an encoded component ID
+        byte[] encoded = ComponentIdCodec.encode(new ComponentId("foo", List.of("x")), 0);
+
+        // WHEN decoding it truncated, or nothing at all
+        // THEN it is rejected
+        assertThrows(InvalidComponentIdFormatException.class,
+                () -> ComponentIdCodec.decode(Arrays.copyOf(encoded, encoded.length - 1), 0));
+        assertThrows(InvalidComponentIdFormatException.class,
+                () -> ComponentIdCodec.decode(new byte[] {(byte) 0x80}, 0));
+        assertThrows(InvalidComponentIdFormatException.class,
+                () -> ComponentIdCodec.decode(new byte[0], 0));
+    }
+}
@@ -0,0 +1,351 @@
+package org.togetherjava.tjbot.commands.componentids;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import org.jooq.Condition;
+import org.jooq.Field;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.togetherjava.tjbot.db.Database;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.togetherjava.tjbot.db.generated.tables.ComponentIds.COMPONENT_IDS;
+
+final class ComponentIdStoreTest {
+    private static final int HOT_IDS_AMOUNT = 200;
+    private static final int EXPIRED_IDS_AMOUNT = 200;
+    private static final int EVICT_BATCH_SIZE = EXPIRED_IDS_AMOUNT / 2;
+    private static final int READER_THREADS = 8;
+    private static final int LOOKUPS_PER_READER = 2_000;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private Database database;
+    private final List<UUID> hotIds = new ArrayList<>();
+    private final List<UUID> expiredIds = new ArrayList<>();
+    private final CountDownLatch evictionStarted = new CountDownLatch(1);
+    private final CountDownLatch resumeEviction = new CountDownLatch(1);
+    private final CountDownLatch evictionBatchesStarted = new CountDownLatch(2);
+    private final Set<UUID> evictedIds = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch evictionNotified = new CountDownLatch(EVICT_BATCH_SIZE);
+    private ComponentIdStore store;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) throws SQLException {
+        database = new Database("jdbc:sqlite:" + tempDir.resolve("database.db"), 4);
+        executor = Executors.newCachedThreadPool();
+
+        // Without eviction, to prepare the data
+        try (ComponentIdStore seedStore =
+                new ComponentIdStore(database, 1, 1, ChronoUnit.DAYS, 20, ChronoUnit.DAYS)) {
+            for (int i = 0; i < HOT_IDS_AMOUNT; i++) {
+                UUID uuid = UUID.randomUUID();
+                seedStore.putOrThrow(uuid, createComponentId(uuid), Lifespan.REGULAR);
+                hotIds.add(uuid);
+            }
+            for (int i = 0; i < EXPIRED_IDS_AMOUNT; i++) {
+                UUID uuid = UUID.randomUUID();
+                seedStore.putOrThrow(uuid, createComponentId(uuid), Lifespan.REGULAR);
+                expiredIds.add(uuid);
+            }
+        }
+        database.write(context -> context.update(COMPONENT_IDS)
+            .set(COMPONENT_IDS.LAST_USED, Instant.now().minus(30, ChronoUnit.DAYS))
+            .where(COMPONENT_IDS.UUID.in(expiredIds.stream().map(UUID::toString).toList()))
+            .execute());
+    }
+
+    /**
+     * Creates the store, with an eviction that starts right away and pauses in the middle of the
+     * transaction of its first batch, while it holds the write lock, until {@link #resumeEviction}
+     * is counted down. The expired IDs are evicted in two batches.
+     */
+    private void createStoreWithPausedEviction() {
+        database.addStatementListener(sql -> {
+            if (!sql.toLowerCase(Locale.ROOT).startsWith("delete from component_ids")) {
+                return;
+            }
+            evictionStarted.countDown();
+            evictionBatchesStarted.countDown();
+            try {
+                resumeEviction.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        store = new ComponentIdStore(database, 0, 1, ChronoUnit.DAYS, 20, ChronoUnit.DAYS,
+                EVICT_BATCH_SIZE);
+        // Listeners are notified after the evicted ID has been removed from the cache
+        store.addComponentIdRemovedListener(componentId -> {
+            evictedIds.add(UUID.fromString(componentId.elements().get(0)));
+            evictionNotified.countDown();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        resumeEviction.countDown();
+        executor.shutdownNow();
+        if (store != null) {
+            store.close();
+        }
+        database.close();
+    }
+
+    private static ComponentId createComponentId(UUID uuid) {
+        return new ComponentId("foo", List.of(uuid.toString()));
+    }
+
+    @Test
+    @DisplayName("Lookups are not blocked by a running eviction or writes waiting for it")
+    void lookupsDoNotWaitForEviction() throws Exception {
+        // GIVEN an eviction that is paused in the middle of its transaction
+        createStoreWithPausedEviction();
+        assertTrue(evictionStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        // and a write that waits for it
+        UUID putId = UUID.randomUUID();
+        Future<?> put = executor
+            .submit(() -> store.putOrThrow(putId, createComponentId(putId), Lifespan.REGULAR));
+
+        // WHEN looking up component IDs from many threads, first loading them from the database
+        // and then from the cache
+        List<Future<Long>> readers = IntStream.range(0, READER_THREADS)
+            .mapToObj(reader -> executor.submit(() -> lookUpHotIds(reader)))
+            .toList();
+
+        // THEN all lookups succeed, while the eviction is still paused
+        for (Future<Long> reader : readers) {
+            assertEquals(LOOKUPS_PER_READER, reader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        assertFalse(put.isDone());
+
+        resumeEviction.countDown();
+        put.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(Optional.of(createComponentId(putId)), store.get(putId));
+    }
+
+    private long lookUpHotIds(int reader) {
+        long found = 0;
+        for (int i = 0; i < LOOKUPS_PER_READER; i++) {
+            UUID uuid = hotIds.get((reader + i) % hotIds.size());
+            if (store.get(uuid).equals(Optional.of(createComponentId(uuid)))) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Test
+    @DisplayName("Component IDs used during eviction survive it, evicted ones can not be put back into the cache")
+    void idsUsedDuringEvictionSurvive() throws Exception {
+        // GIVEN an eviction that is paused in the middle of the transaction of its first batch
+        createStoreWithPausedEviction();
+        assertTrue(evictionStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // WHEN using the expired IDs, and looking them up concurrently while the eviction completes
+        expiredIds.forEach(store::get);
+        CyclicBarrier start = new CyclicBarrier(READER_THREADS + 1);
+        List<Future<?>> readers = IntStream.range(0, READER_THREADS)
+            .<Future<?>>mapToObj(reader -> executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < LOOKUPS_PER_READER; i++) {
+                    store.get(expiredIds.get((reader + i) % expiredIds.size()));
+                }
+                return null;
+            }))
+            .toList();
+        start.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        resumeEviction.countDown();
+        for (Future<?> reader : readers) {
+            reader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        assertTrue(evictionBatchesStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        // Waits for the last batch to be committed
+        database.write(context -> {
+        });
+        assertTrue(evictionNotified.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // THEN only the IDs of the first batch, which was deleting already, are evicted and not
+        // present anymore. The others were used in time and survive, as well as all hot IDs.
+        assertEquals(EVICT_BATCH_SIZE, evictedIds.size());
+        for (UUID expiredId : expiredIds) {
+            Optional<ComponentId> expectedComponentId =
+                    evictedIds.contains(expiredId) ? Optional.empty()
+                            : Optional.of(createComponentId(expiredId));
+            assertEquals(expectedComponentId, store.get(expiredId));
+        }
+        for (UUID hotId : hotIds) {
+            assertEquals(Optional.of(createComponentId(hotId)), store.get(hotId));
+        }
+    }
+
+    @Test
+    @DisplayName("Usages are deduplicated and written in a single batched update")
+    void usagesAreFlushedInBatch() throws Exception {
+        // GIVEN a store with component IDs that have not been used for some days
+        store = new ComponentIdStore(database, 1, 1, ChronoUnit.DAYS, 20, ChronoUnit.DAYS);
+        Instant lastUsedBefore = Instant.now().minus(10, ChronoUnit.DAYS);
+        database.write(context -> context.update(COMPONENT_IDS)
+            .set(COMPONENT_IDS.LAST_USED, lastUsedBefore)
+            .where(COMPONENT_IDS.UUID.in(hotIds.stream().map(UUID::toString).toList()))
+            .execute());
+        List<String> updates = new CopyOnWriteArrayList<>();
+        database.addStatementListener(sql -> {
+            if (sql.toLowerCase(Locale.ROOT).startsWith("update component_ids")) {
+                updates.add(sql);
+            }
+        });
+
+        // WHEN using each of them many times, concurrently
+        List<Future<Long>> readers = IntStream.range(0, READER_THREADS)
+            .mapToObj(reader -> executor.submit(() -> lookUpHotIds(reader)))
+            .toList();
+        for (Future<Long> reader : readers) {
+            reader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        store.close();
+
+        // THEN all of them are heated, with a single update
+        assertEquals(1, updates.size());
+        int heatedIds = database.read(context -> context.fetchCount(COMPONENT_IDS,
+                COMPONENT_IDS.UUID.in(hotIds.stream().map(UUID::toString).toList())
+                    .and(COMPONENT_IDS.LAST_USED.greaterThan(lastUsedBefore))));
+        assertEquals(HOT_IDS_AMOUNT, heatedIds);
+    }
+
+    @Test
+    @DisplayName("Eviction does not delete component IDs that have been used since the last flush")
+    void evictionKeepsRecentlyUsedIds() throws Exception {
+        // GIVEN a store that evicts soon, but not yet
+        CountDownLatch evictionsDone = new CountDownLatch(2);
+        database.addStatementListener(sql -> {
+            if (sql.toLowerCase(Locale.ROOT).contains("last_used <=")) {
+                evictionsDone.countDown();
+            }
+        });
+        store = new ComponentIdStore(database, 2_000, 100, ChronoUnit.MILLIS, 20, ChronoUnit.DAYS);
+
+        // WHEN using the expired IDs right before the eviction
+        for (UUID expiredId : expiredIds) {
+            assertTrue(store.get(expiredId).isPresent());
+        }
+        assertEquals(2, evictionsDone.getCount(), "Eviction started too early");
+        assertTrue(evictionsDone.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // THEN they are not evicted
+        int remainingIds = database.read(context -> context.fetchCount(COMPONENT_IDS,
+                COMPONENT_IDS.UUID.in(expiredIds.stream().map(UUID::toString).toList())));
+        assertEquals(EXPIRED_IDS_AMOUNT, remainingIds);
+    }
+
+    @Test
+    @DisplayName("Eviction does not delete component IDs that are used while the heats are flushed")
+    void evictionKeepsIdsUsedDuringFlush() throws Exception {
+        // GIVEN a store that evicts soon, and a usage that will be flushed right before
+        CountDownLatch evictionDone = new CountDownLatch(1);
+        AtomicBoolean usedExpiredIds = new AtomicBoolean(false);
+        database.addStatementListener(sql -> {
+            String lowerCaseSql = sql.toLowerCase(Locale.ROOT);
+            if (lowerCaseSql.startsWith("update component_ids")
+                    && usedExpiredIds.compareAndSet(false, true)) {
+                // WHEN using the expired IDs after the flush took the pending usages
+                expiredIds.forEach(store::get);
+            } else if (lowerCaseSql.contains("last_used <=")) {
+                evictionDone.countDown();
+            }
+        });
+        store = new ComponentIdStore(database, 500, 60_000, ChronoUnit.MILLIS, 20, ChronoUnit.DAYS);
+        store.get(hotIds.get(0));
+        assertTrue(evictionDone.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // THEN they are not evicted
+        assertTrue(usedExpiredIds.get());
+        int remainingIds = database.read(context -> context.fetchCount(COMPONENT_IDS,
+                COMPONENT_IDS.UUID.in(expiredIds.stream().map(UUID::toString).toList())));
+        assertEquals(EXPIRED_IDS_AMOUNT, remainingIds);
+    }
+
+    @Test
+    @DisplayName("Component IDs persisted as CSV text are rewritten into the binary form")
+    void legacyComponentIdsAreRewritten() throws Exception {
+        // GIVEN component IDs that are still persisted as CSV text, as before the binary form
+        CsvMapper csv = new CsvMapper();
+        ObjectWriter legacyWriter =
+                csv.writerFor(ComponentId.class).with(csv.schemaFor(ComponentId.class));
+        Map<String, String> uuidToLegacyComponentId = new HashMap<>();
+        for (UUID hotId : hotIds) {
+            uuidToLegacyComponentId.put(hotId.toString(),
+                    legacyWriter.writeValueAsString(createComponentId(hotId)));
+        }
+        Field<String> legacyComponentId =
+                DSL.field(COMPONENT_IDS.COMPONENT_ID.getUnqualifiedName(), String.class);
+        database.writeTransaction(context -> uuidToLegacyComponentId
+            .forEach((uuid, componentId) -> context.update(COMPONENT_IDS)
+                .set(legacyComponentId, componentId)
+                .where(COMPONENT_IDS.UUID.eq(uuid))
+                .execute()));
+        Condition isLegacy = DSL.condition("typeof({0}) = 'text'", COMPONENT_IDS.COMPONENT_ID);
+        int legacyIdsBefore = database.read(context -> context.fetchCount(COMPONENT_IDS, isLegacy));
+        assertEquals(HOT_IDS_AMOUNT, legacyIdsBefore);
+
+        // WHEN starting the store
+        store = new ComponentIdStore(database, 1, 1, ChronoUnit.DAYS, 20, ChronoUnit.DAYS);
+
+        // THEN they are all rewritten and can still be found
+        int legacyIdsAfter = database.read(context -> context.fetchCount(COMPONENT_IDS, isLegacy));
+        assertEquals(0, legacyIdsAfter);
+        for (UUID hotId : hotIds) {
+            assertEquals(Optional.of(createComponentId(hotId)), store.get(hotId));
+        }
+    }
+
+    @Test
+    @DisplayName("Multiple component IDs are put with a single insert, all or none")
+    void putAllInsertsAtOnce() {
+        // GIVEN a store
+        store = new ComponentIdStore(database, 1, 1, ChronoUnit.DAYS, 20, ChronoUnit.DAYS);
+        List<String> inserts = new CopyOnWriteArrayList<>();
+        database.addStatementListener(sql -> {
+            if (sql.toLowerCase(Locale.ROOT).startsWith("insert into component_ids")) {
+                inserts.add(sql);
+            }
+        });
+        Map<UUID, ComponentId> uuidToComponentId = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            UUID uuid = UUID.randomUUID();
+            uuidToComponentId.put(uuid, createComponentId(uuid));
+        }
+
+        // WHEN putting them all at once
+        store.putAllOrThrow(uuidToComponentId, Lifespan.REGULAR);
+
+        // THEN they are inserted with a single statement
+        assertEquals(1, inserts.size());
+        uuidToComponentId.forEach(
+                (uuid, componentId) -> assertEquals(Optional.of(componentId), store.get(uuid)));
+
+        // WHEN putting more, where one of them already exists
+        UUID newId = UUID.randomUUID();
+        Map<UUID, ComponentId> conflicting =
+                Map.of(newId, createComponentId(newId), hotIds.get(0), createComponentId(newId));
+
+        // THEN none of them are put
+        assertThrows(IllegalArgumentException.class,
+                () -> store.putAllOrThrow(conflicting, Lifespan.REGULAR));
+        assertEquals(Optional.empty(), store.get(newId));
+        assertEquals(Optional.of(createComponentId(hotIds.get(0))), store.get(hotIds.get(0)));
+    }
+}
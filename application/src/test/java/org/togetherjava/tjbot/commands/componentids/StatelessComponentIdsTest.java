@@ -0,0 +1,94 @@
+package org.togetherjava.tjbot.commands.componentids;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class StatelessComponentIdsTest {
+    private StatelessComponentIds statelessComponentIds;
+
+    @BeforeEach
+    void setUp() {
+        statelessComponentIds = new StatelessComponentIds("secret");
+    }
+
+    @Test
+    @DisplayName("Small component IDs can be encoded and decoded back")
+    void encodeDecodeRoundTrip() {
+        // GIVEN typical small component IDs
+        List<ComponentId> componentIds = List.of(new ComponentId("foo", List.of()),
+                new ComponentId("scam-blocker", List.of("123456789012345678", "true")),
+                new ComponentId("tex", List.of("", "äöü 🎉")));
+
+        for (ComponentId componentId : componentIds) {
+            // WHEN encoding and decoding them
+            String id = statelessComponentIds.encode(componentId).orElseThrow();
+
+            // THEN they are unchanged and fit into a component ID on Discord
+            assertTrue(StatelessComponentIds.isEncoded(id));
+            assertTrue(id.length() <= StatelessComponentIds.MAX_ID_LENGTH, id);
+            assertEquals(componentId, statelessComponentIds.decode(id));
+        }
+    }
+
+    @Test
+    @DisplayName("Encoding the same component ID twice yields distinct IDs")
+    void encodedIdsAreDistinct() {
+        // GIVEN a component ID, as used for both buttons of a yes-no dialog
+        ComponentId componentId = new ComponentId("reload", List.of("123456789012345678"));
+
+        // WHEN encoding it twice
+        String yesId = statelessComponentIds.encode(componentId).orElseThrow();
+        String noId = statelessComponentIds.encode(componentId).orElseThrow();
+
+        // THEN the IDs differ, but carry the same payload
+        assertNotEquals(yesId, noId);
+        assertEquals(statelessComponentIds.decode(yesId), statelessComponentIds.decode(noId));
+    }
+
+    @Test
+    @DisplayName("Component IDs that do not fit into a component ID on Discord are not encoded")
+    void largeComponentIdsAreNotEncoded() {
+        // GIVEN a component ID with a large payload
+        ComponentId componentId = new ComponentId("foo", List.of("x".repeat(80)));
+
+        // WHEN encoding it
+        // THEN it can not be encoded
+        assertTrue(statelessComponentIds.encode(componentId).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Tampered or foreign component IDs are rejected")
+    void tamperedComponentIdsAreRejected() {
+        // GIVEN an encoded component ID
+        String id =
+                statelessComponentIds.encode(new ComponentId("foo", List.of("1"))).orElseThrow();
+        // Changes a character in the middle, the last one might only carry unused padding bits
+        int tamperedIndex = id.length() / 2;
+        char tamperedChar = id.charAt(tamperedIndex) == 'A' ? 'B' : 'A';
+        String tamperedId =
+                id.substring(0, tamperedIndex) + tamperedChar + id.substring(tamperedIndex + 1);
+        StatelessComponentIds otherSecret = new StatelessComponentIds("other secret");
+
+        // WHEN decoding it after tampering with it, or with a different secret
+        // THEN it is rejected
+        assertThrows(InvalidComponentIdFormatException.class,
+                () -> statelessComponentIds.decode(tamperedId));
+        assertThrows(InvalidComponentIdFormatException.class, () -> otherSecret.decode(id));
+        assertThrows(InvalidComponentIdFormatException.class,
+                () -> statelessComponentIds.decode("~not base64!"));
+        assertThrows(InvalidComponentIdFormatException.class,
+                () -> statelessComponentIds.decode("~"));
+    }
+
+    @Test
+    @DisplayName("UUIDs of persisted component IDs are not mistaken for encoded component IDs")
+    void uuidsAreNotEncoded() {
+        assertFalse(StatelessComponentIds.isEncoded(UUID.randomUUID().toString()));
+    }
+}
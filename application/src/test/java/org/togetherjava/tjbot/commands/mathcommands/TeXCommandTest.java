@@ -85,8 +85,8 @@ final class TeXCommandTest {
         SlashCommandInteractionEvent event = triggerSlashCommand(badInlineQuery);
 
         // THEN the command send a failure response
-        verify(event, description("Testing query: " + badInlineQuery))
-            .reply(contains(TeXCommand.INVALID_INLINE_FORMAT_ERROR_MESSAGE));
+        verify(jdaTester.getInteractionHookMock(), description("Testing query: " + badInlineQuery))
+            .sendMessage(contains(TeXCommand.INVALID_INLINE_FORMAT_ERROR_MESSAGE));
     }
 
     private static List<String> provideBadQueries() {
@@ -103,7 +103,7 @@ final class TeXCommandTest {
         SlashCommandInteractionEvent event = triggerSlashCommand(badQuery);
 
         // THEN the command send a failure response
-        verify(event, description("Testing query: " + badQuery))
-            .reply(startsWith(TeXCommand.BAD_LATEX_ERROR_PREFIX));
+        verify(jdaTester.getInteractionHookMock(), description("Testing query: " + badQuery))
+            .sendMessage(startsWith(TeXCommand.BAD_LATEX_ERROR_PREFIX));
     }
 }
@@ -0,0 +1,300 @@
+package org.togetherjava.tjbot.commands.system;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
+import net.dv8tion.jda.api.requests.restaction.WebhookMessageAction;
+import net.dv8tion.jda.api.requests.restaction.interactions.ReplyCallbackAction;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+final class CommandExecutorTest {
+    private static final Duration AUTO_DEFER_AFTER = Duration.ofSeconds(10);
+
+    private static IReplyCallback createInteraction(boolean isAcknowledged) {
+        return createInteraction(isAcknowledged, () -> {
+        });
+    }
+
+    private static IReplyCallback createInteraction(boolean isAcknowledged, Runnable onReplySent) {
+        IReplyCallback interaction = mock(IReplyCallback.class);
+        ReplyCallbackAction replyAction = mock(ReplyCallbackAction.class);
+        when(interaction.reply(anyString())).thenReturn(replyAction);
+        when(replyAction.setEphemeral(anyBoolean())).thenReturn(replyAction);
+        doAnswer(invocation -> {
+            onReplySent.run();
+            return null;
+        }).when(replyAction).queue(any(), any());
+        when(interaction.isAcknowledged()).thenReturn(isAcknowledged);
+        return interaction;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static IReplyCallback createDeferrableInteraction(Runnable onDeferred) {
+        IReplyCallback interaction = createInteraction(false);
+        ReplyCallbackAction deferAction = mock(ReplyCallbackAction.class);
+        when(interaction.deferReply()).thenReturn(deferAction);
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Consumer.class).accept(null);
+            onDeferred.run();
+            return null;
+        }).when(deferAction).queue(any(), any());
+        return interaction;
+    }
+
+    @Test
+    @DisplayName("Commands of a busy interactor are rejected, while other interactors still run")
+    void busyInteractorIsLimited() throws InterruptedException {
+        // GIVEN an interactor that already runs as many commands as allowed, for longer than the
+        // budget to answer
+        CommandExecutor executor = new CommandExecutor(4, 1, Duration.ofMillis(200));
+        CountDownLatch slowCommandStarted = new CountDownLatch(1);
+        CountDownLatch releaseSlowCommand = new CountDownLatch(1);
+        executor.execute(createInteraction(true),
+                () -> Optional.of(new CommandExecutor.Invocation("slow", false, () -> {
+                    slowCommandStarted.countDown();
+                    awaitUninterruptibly(releaseSlowCommand);
+                })));
+        assertTrue(slowCommandStarted.await(10, TimeUnit.SECONDS));
+
+        // WHEN executing another command of it and a command of another interactor
+        CountDownLatch rejectionReplied = new CountDownLatch(1);
+        executor.execute(createInteraction(false, rejectionReplied::countDown),
+                () -> Optional.of(new CommandExecutor.Invocation("slow", false,
+                        () -> fail("Must not run a command of a busy interactor"))));
+
+        CountDownLatch otherCommandRan = new CountDownLatch(1);
+        executor.execute(createInteraction(true), () -> Optional
+            .of(new CommandExecutor.Invocation("other", false, otherCommandRan::countDown)));
+
+        // THEN the command of the busy interactor is rejected, the other one runs
+        assertTrue(rejectionReplied.await(10, TimeUnit.SECONDS));
+        assertTrue(otherCommandRan.await(10, TimeUnit.SECONDS));
+        releaseSlowCommand.countDown();
+
+        Collection<CommandStatistics> statistics = executor.getStatistics();
+        CommandStatistics slowStatistics = statistics.stream()
+            .filter(interactorStatistics -> interactorStatistics.interactorName().equals("slow"))
+            .findAny()
+            .orElseThrow();
+        assertEquals(1, slowStatistics.rejections());
+        assertEquals(1, slowStatistics.queueWait().count());
+    }
+
+    @Test
+    @DisplayName("A command of a busy interactor runs if a command of it finishes in time")
+    void busyInteractorWaitsBriefly() throws InterruptedException {
+        // GIVEN an interactor that already runs as many commands as allowed, but only briefly
+        CommandExecutor executor = new CommandExecutor(4, 1, AUTO_DEFER_AFTER);
+        CountDownLatch briefCommandStarted = new CountDownLatch(1);
+        executor.execute(createInteraction(true),
+                () -> Optional.of(new CommandExecutor.Invocation("brief", false, () -> {
+                    briefCommandStarted.countDown();
+                    sleepUninterruptibly(Duration.ofMillis(100));
+                })));
+        assertTrue(briefCommandStarted.await(10, TimeUnit.SECONDS));
+
+        // WHEN executing another command of it
+        CountDownLatch otherCommandRan = new CountDownLatch(1);
+        executor.execute(createInteraction(true), () -> Optional
+            .of(new CommandExecutor.Invocation("brief", false, otherCommandRan::countDown)));
+
+        // THEN it waits for the first one to finish and runs, instead of being rejected
+        assertTrue(otherCommandRan.await(10, TimeUnit.SECONDS));
+        CommandStatistics statistics = awaitExecutions(executor, 2);
+        assertEquals(0, statistics.rejections());
+        assertTrue(statistics.queueWait().max().compareTo(Duration.ofMillis(50)) >= 0);
+    }
+
+    @Test
+    @DisplayName("Failures to resolve a command are told to the user")
+    void failingResolutionIsReplied() throws InterruptedException {
+        // GIVEN an executor
+        CommandExecutor executor = new CommandExecutor(2, 2, AUTO_DEFER_AFTER);
+
+        // WHEN executing a command whose resolution fails
+        CountDownLatch failureReplied = new CountDownLatch(1);
+        executor.execute(createInteraction(false, failureReplied::countDown), () -> {
+            throw new IllegalStateException("Failing resolution");
+        });
+
+        // THEN the user is told about it
+        assertTrue(failureReplied.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Execution and acknowledgement of commands are recorded, also if they fail")
+    void timingsAreRecorded() throws InterruptedException {
+        // GIVEN an executor
+        CommandExecutor executor = new CommandExecutor(2, 2, AUTO_DEFER_AFTER);
+
+        // WHEN executing an acknowledged, a failing unacknowledged and an unresolved command
+        CountDownLatch allRan = new CountDownLatch(2);
+        executor.execute(createInteraction(true),
+                () -> Optional.of(new CommandExecutor.Invocation("foo", false, allRan::countDown)));
+        executor.execute(createInteraction(false),
+                () -> Optional.of(new CommandExecutor.Invocation("foo", false, () -> {
+                    allRan.countDown();
+                    throw new IllegalStateException("Failing command");
+                })));
+        executor.execute(createInteraction(false), Optional::empty);
+        assertTrue(allRan.await(10, TimeUnit.SECONDS));
+
+        // THEN both commands are recorded, one of them as unacknowledged
+        CommandStatistics statistics = awaitExecutions(executor, 2);
+        assertEquals("foo", statistics.interactorName());
+        assertEquals(0, statistics.rejections());
+        assertEquals(1, statistics.unacknowledged());
+        assertEquals(1, statistics.timeToAcknowledge().count());
+        assertTrue(statistics.execution().max().compareTo(statistics.execution().average()) >= 0);
+    }
+
+    @Test
+    @DisplayName("Interactions that are not acknowledged in time are deferred automatically")
+    void slowCommandsAreDeferred() throws InterruptedException {
+        // GIVEN an executor with a short auto-defer budget and a command slower than that
+        CommandExecutor executor = new CommandExecutor(2, 2, Duration.ofMillis(50));
+        CountDownLatch deferred = new CountDownLatch(1);
+        IReplyCallback interaction = createDeferrableInteraction(deferred::countDown);
+
+        // WHEN executing it
+        executor.execute(interaction, () -> Optional.of(new CommandExecutor.Invocation("slow", true,
+                () -> awaitUninterruptibly(deferred))));
+
+        // THEN its interaction is deferred while it is still running, and that is recorded
+        assertTrue(deferred.await(10, TimeUnit.SECONDS));
+        CommandStatistics statistics = awaitExecutions(executor, 1);
+        assertEquals("slow", statistics.interactorName());
+        assertEquals(1, statistics.autoDeferred());
+        verify(interaction).deferReply();
+    }
+
+    @Test
+    @DisplayName("Acknowledgements are timed within the budget, not when the handler returns")
+    void timeToAcknowledgeIsTakenWithinBudget() throws InterruptedException {
+        // GIVEN a command that acknowledges right away, but keeps working longer than the budget
+        Duration autoDeferAfter = Duration.ofMillis(200);
+        CommandExecutor executor = new CommandExecutor(2, 2, autoDeferAfter);
+        AtomicBoolean isAcknowledged = new AtomicBoolean();
+        IReplyCallback interaction = createInteraction(false);
+        when(interaction.isAcknowledged()).thenAnswer(invocation -> isAcknowledged.get());
+        Duration workAfterAcknowledging = Duration.ofSeconds(1);
+
+        // WHEN executing it
+        executor.execute(interaction,
+                () -> Optional.of(new CommandExecutor.Invocation("deferring", false, () -> {
+                    isAcknowledged.set(true);
+                    sleepUninterruptibly(workAfterAcknowledging);
+                })));
+
+        // THEN the time to acknowledge does not include the work after the budget
+        CommandStatistics statistics = awaitExecutions(executor, 1);
+        assertEquals(1, statistics.timeToAcknowledge().count());
+        assertTrue(statistics.execution().max().compareTo(workAfterAcknowledging) >= 0);
+        assertTrue(statistics.timeToAcknowledge().max().compareTo(autoDeferAfter) >= 0);
+        assertTrue(statistics.timeToAcknowledge().max().compareTo(workAfterAcknowledging) < 0);
+        assertEquals(0, statistics.autoDeferred());
+    }
+
+    @Test
+    @DisplayName("Interactions of commands that did not opt in are not deferred automatically")
+    void commandsNotAllowingItAreNotDeferred() throws InterruptedException {
+        // GIVEN an executor with a short auto-defer budget and a command slower than that
+        CommandExecutor executor = new CommandExecutor(2, 2, Duration.ofMillis(50));
+        IReplyCallback interaction = createDeferrableInteraction(() -> {
+        });
+
+        // WHEN executing it, without allowing automatic deferral
+        executor.execute(interaction, () -> Optional.of(new CommandExecutor.Invocation("slow",
+                false, () -> sleepUninterruptibly(Duration.ofMillis(500)))));
+
+        // THEN its interaction is left alone
+        CommandStatistics statistics = awaitExecutions(executor, 1);
+        assertEquals(0, statistics.autoDeferred());
+        assertEquals(1, statistics.unacknowledged());
+        verify(interaction, never()).deferReply();
+    }
+
+    @Test
+    @DisplayName("Rejections of acknowledged interactions are sent through the hook")
+    void rejectionOfAcknowledgedInteractionUsesHook() throws InterruptedException {
+        // GIVEN an interactor that already runs as many commands as allowed, for longer than the
+        // budget to answer
+        CommandExecutor executor = new CommandExecutor(4, 1, Duration.ofMillis(200));
+        CountDownLatch slowCommandStarted = new CountDownLatch(1);
+        CountDownLatch releaseSlowCommand = new CountDownLatch(1);
+        executor.execute(createInteraction(true),
+                () -> Optional.of(new CommandExecutor.Invocation("slow", false, () -> {
+                    slowCommandStarted.countDown();
+                    awaitUninterruptibly(releaseSlowCommand);
+                })));
+        assertTrue(slowCommandStarted.await(10, TimeUnit.SECONDS));
+
+        // WHEN executing another command of it, whose interaction was acknowledged already
+        CountDownLatch rejectionSent = new CountDownLatch(1);
+        IReplyCallback interaction = createInteraction(true);
+        InteractionHook hook = mock(InteractionHook.class);
+        @SuppressWarnings("unchecked")
+        WebhookMessageAction<Message> messageAction = mock(WebhookMessageAction.class);
+        when(interaction.getHook()).thenReturn(hook);
+        when(hook.sendMessage(anyString())).thenReturn(messageAction);
+        when(messageAction.setEphemeral(anyBoolean())).thenReturn(messageAction);
+        doAnswer(invocation -> {
+            rejectionSent.countDown();
+            return null;
+        }).when(messageAction).queue();
+
+        executor.execute(interaction, () -> Optional.of(new CommandExecutor.Invocation("slow",
+                false, () -> fail("Must not run a command of a busy interactor"))));
+
+        // THEN the rejection is sent through the hook, since replying would fail
+        assertTrue(rejectionSent.await(10, TimeUnit.SECONDS));
+        releaseSlowCommand.countDown();
+        verify(interaction, never()).reply(anyString());
+        verify(messageAction).setEphemeral(true);
+    }
+
+    private static CommandStatistics awaitExecutions(CommandExecutor executor, long executions)
+            throws InterruptedException {
+        // Metrics are recorded right after the handler returned, so they might lag behind a bit
+        for (int attempt = 0; attempt < 100; attempt++) {
+            Optional<CommandStatistics> statistics = executor.getStatistics().stream().findAny();
+            if (statistics.isPresent()
+                    && statistics.orElseThrow().execution().count() == executions) {
+                return statistics.orElseThrow();
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        return fail("The commands were not recorded in time");
+    }
+
+    private static void sleepUninterruptibly(Duration duration) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(duration.toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
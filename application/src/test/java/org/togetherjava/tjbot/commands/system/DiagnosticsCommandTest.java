@@ -0,0 +1,134 @@
+package org.togetherjava.tjbot.commands.system;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.requests.restaction.WebhookMessageUpdateAction;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.togetherjava.tjbot.commands.SlashCommand;
+import org.togetherjava.tjbot.commands.utils.CacheStatistics;
+import org.togetherjava.tjbot.commands.utils.ExecutorStatistics;
+import org.togetherjava.tjbot.config.Config;
+import org.togetherjava.tjbot.db.CallerStatistics;
+import org.togetherjava.tjbot.db.Database;
+import org.togetherjava.tjbot.db.LatencyStatistics;
+import org.togetherjava.tjbot.db.WriteBehindStatistics;
+import org.togetherjava.tjbot.jda.JdaTester;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+final class DiagnosticsCommandTest {
+    @Test
+    @DisplayName("'/diagnostics' is rejected for users without the soft moderation role")
+    void usersWithoutRoleAreRejected() {
+        // GIVEN a user without any roles
+        JdaTester jdaTester = new JdaTester();
+        Config config = mock(Config.class);
+        when(config.getSoftModerationRolePattern()).thenReturn("Moderator");
+        SlashCommand command = jdaTester.spySlashCommand(
+                new DiagnosticsCommand(mock(BotCore.class), mock(Database.class), config));
+        doReturn(List.of()).when(jdaTester.getMemberSpy()).getRoles();
+
+        // WHEN using '/diagnostics'
+        SlashCommandInteractionEvent event =
+                jdaTester.createSlashCommandInteractionEvent(command).build();
+        command.onSlashCommand(event);
+
+        // THEN the bot tells the user, without showing any diagnostics
+        verify(event).reply(startsWith("You can not see the diagnostics"));
+        verify(event, never()).deferReply(anyBoolean());
+    }
+
+    @Test
+    @DisplayName("'/diagnostics' shows all sections of the snapshot to moderators, ephemerally")
+    void moderatorsSeeDiagnostics() {
+        // GIVEN a moderator and a system that has statistics to show
+        JdaTester jdaTester = new JdaTester();
+        Config config = mock(Config.class);
+        when(config.getSoftModerationRolePattern()).thenReturn("Moderator");
+        SlashCommand command =
+                jdaTester.spySlashCommand(new DiagnosticsCommand(createCoreWithStatistics(),
+                        createDatabaseWithStatistics(), config));
+        Role moderatorRole = mock(Role.class);
+        when(moderatorRole.getName()).thenReturn("Moderator");
+        doReturn(List.of(moderatorRole)).when(jdaTester.getMemberSpy()).getRoles();
+
+        JDA jda = jdaTester.getJdaMock();
+        RestAction<Long> restPingAction = jdaTester.createSucceededActionMock(42L);
+        when(jda.getRestPing()).thenReturn(restPingAction);
+        InteractionHook hook = jdaTester.getInteractionHookMock();
+        @SuppressWarnings("unchecked")
+        WebhookMessageUpdateAction<Message> editAction = mock(WebhookMessageUpdateAction.class);
+        doReturn(editAction).when(hook).editOriginalEmbeds(ArgumentMatchers.<MessageEmbed>any());
+
+        // WHEN using '/diagnostics'
+        SlashCommandInteractionEvent event =
+                jdaTester.createSlashCommandInteractionEvent(command).build();
+        doReturn(jda).when(event).getJDA();
+        command.onSlashCommand(event);
+
+        // THEN the reply is deferred ephemerally and then edited to show all sections
+        verify(event).deferReply(true);
+        verify(event, never()).reply(anyString());
+        ArgumentCaptor<MessageEmbed> embedCaptor = ArgumentCaptor.forClass(MessageEmbed.class);
+        verify(hook).editOriginalEmbeds(embedCaptor.capture());
+        verify(editAction).queue();
+
+        List<String> sectionNames = embedCaptor.getValue()
+            .getFields()
+            .stream()
+            .map(MessageEmbed.Field::getName)
+            .toList();
+        assertEquals(List.of("Thread pools", "Caches", "Database", "Discord", "JVM", "Routines",
+                "Commands closest to the acknowledgement deadline"), sectionNames);
+        String discord = embedCaptor.getValue().getFields().get(3).getValue();
+        assertTrue(discord.contains("REST ping: 42 ms"), discord);
+        String commands = embedCaptor.getValue().getFields().get(6).getValue();
+        assertTrue(commands.contains("`tag`"), commands);
+    }
+
+    private static BotCore createCoreWithStatistics() {
+        BotCore core = mock(BotCore.class);
+        when(core.getExecutorStatistics())
+            .thenReturn(List.of(new ExecutorStatistics("command-executor", 4, 1, 0, 10)));
+        when(core.getMessageDispatchStatistics()).thenReturn(new MessageDispatcher.Statistics(2,
+                100, 0, Duration.ofMillis(3), Duration.ofMillis(20), Duration.ZERO));
+        when(core.getCacheStatistics())
+            .thenReturn(List.of(new CacheStatistics("message-routing", 5, 100, 0.95, 0)));
+        when(core.getRoutineStatistics()).thenReturn(List.of(new RoutineStatistics("reminders", 10,
+                0, 0, Duration.ofMillis(5), Duration.ofMillis(4), Instant.now())));
+        CommandStatistics.Timing timing =
+                new CommandStatistics.Timing(3, Duration.ofMillis(80), Duration.ofMillis(200));
+        when(core.getCommandStatistics())
+            .thenReturn(List.of(new CommandStatistics("tag", 0, 0, 1, timing, timing, timing)));
+        return core;
+    }
+
+    private static Database createDatabaseWithStatistics() {
+        Database database = mock(Database.class);
+        when(database.getWriteBehindStatistics())
+            .thenReturn(new WriteBehindStatistics(3, 10_000, 50, 47, 0, 5));
+        when(database.getWalSize()).thenReturn(4L * 1024 * 1024);
+        LatencyStatistics latency = new LatencyStatistics(20, Duration.ofMillis(2),
+                Duration.ofMillis(1), Duration.ofMillis(8), Duration.ofMillis(10));
+        when(database.getQueryStatistics())
+            .thenReturn(List.of(new CallerStatistics("TagSystem", 20, 20, 5, latency, latency)));
+        return database;
+    }
+}
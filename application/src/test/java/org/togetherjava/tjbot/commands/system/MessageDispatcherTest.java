@@ -0,0 +1,167 @@
+package org.togetherjava.tjbot.commands.system;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class MessageDispatcherTest {
+    private static final int QUEUE_CAPACITY = 5;
+    private static final Duration MAX_WAIT = Duration.ofMillis(100);
+    // With two lanes, these channels are handled on different lanes
+    private static final long FIRST_CHANNEL = 0;
+    private static final long SECOND_CHANNEL = 1;
+
+    private MessageDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new MessageDispatcher(2, QUEUE_CAPACITY, MAX_WAIT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.close();
+    }
+
+    @Test
+    @DisplayName("Messages of a channel are handled in order, even if handlers fail")
+    void messagesOfChannelAreOrdered() throws InterruptedException {
+        // GIVEN a channel
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        CountDownLatch allHandled = new CountDownLatch(1);
+
+        // WHEN dispatching many messages, some of them failing
+        for (int i = 0; i < 100; i++) {
+            int message = i;
+            dispatcher.dispatch(FIRST_CHANNEL, () -> {
+                handled.add(message);
+                if (message % 10 == 0) {
+                    throw new IllegalStateException("Failing handler");
+                }
+            }, MessageDispatcher.OverflowPolicy.WAIT);
+        }
+        dispatcher.dispatch(FIRST_CHANNEL, allHandled::countDown,
+                MessageDispatcher.OverflowPolicy.WAIT);
+
+        // THEN all of them are handled, in the order they were dispatched
+        assertTrue(allHandled.await(10, TimeUnit.SECONDS));
+        assertEquals(IntStream.range(0, 100).boxed().toList(), handled);
+        assertEquals(101, dispatcher.getStatistics().handledMessages());
+    }
+
+    @Test
+    @DisplayName("A busy channel neither blocks other channels nor loses messages beyond its queue")
+    void busyChannelOverflows() throws InterruptedException {
+        // GIVEN a channel whose handler is stuck
+        CountDownLatch stuckHandlerStarted = new CountDownLatch(1);
+        CountDownLatch releaseStuckHandler = new CountDownLatch(1);
+        dispatcher.dispatch(FIRST_CHANNEL, () -> {
+            stuckHandlerStarted.countDown();
+            awaitUninterruptibly(releaseStuckHandler);
+        }, MessageDispatcher.OverflowPolicy.WAIT);
+        assertTrue(stuckHandlerStarted.await(10, TimeUnit.SECONDS));
+
+        // WHEN dispatching more messages to it than its queue can hold, and a message to another
+        // channel
+        for (int i = 0; i < QUEUE_CAPACITY + 3; i++) {
+            dispatcher.dispatch(FIRST_CHANNEL, () -> {
+            }, MessageDispatcher.OverflowPolicy.DISCARD);
+        }
+        CountDownLatch otherChannelHandled = new CountDownLatch(1);
+        dispatcher.dispatch(SECOND_CHANNEL, otherChannelHandled::countDown,
+                MessageDispatcher.OverflowPolicy.DISCARD);
+
+        // THEN the other channel is still handled and only the overflow is discarded
+        assertTrue(otherChannelHandled.await(10, TimeUnit.SECONDS));
+        MessageDispatcher.Statistics statistics = dispatcher.getStatistics();
+        assertEquals(QUEUE_CAPACITY, statistics.queuedMessages());
+        assertEquals(3, statistics.discardedMessages());
+
+        releaseStuckHandler.countDown();
+    }
+
+    @Test
+    @DisplayName("Waiting for space in a full queue is bounded, the message is discarded after it")
+    void waitingForSpaceIsBounded() throws InterruptedException {
+        // GIVEN a channel whose handler is stuck and whose queue is full
+        CountDownLatch stuckHandlerStarted = new CountDownLatch(1);
+        CountDownLatch releaseStuckHandler = new CountDownLatch(1);
+        dispatcher.dispatch(FIRST_CHANNEL, () -> {
+            stuckHandlerStarted.countDown();
+            awaitUninterruptibly(releaseStuckHandler);
+        }, MessageDispatcher.OverflowPolicy.WAIT);
+        assertTrue(stuckHandlerStarted.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < QUEUE_CAPACITY; i++) {
+            dispatcher.dispatch(FIRST_CHANNEL, () -> {
+            }, MessageDispatcher.OverflowPolicy.WAIT);
+        }
+
+        // WHEN dispatching another message to it that waits for space
+        long dispatchStartNanos = System.nanoTime();
+        dispatcher.dispatch(FIRST_CHANNEL, () -> fail("Must not handle a discarded message"),
+                MessageDispatcher.OverflowPolicy.WAIT);
+        Duration dispatchTime = Duration.ofNanos(System.nanoTime() - dispatchStartNanos);
+
+        // THEN dispatching returns after the maximal wait and the message is discarded
+        MessageDispatcher.Statistics statistics = dispatcher.getStatistics();
+        assertEquals(1, statistics.discardedMessages());
+        assertEquals(QUEUE_CAPACITY, statistics.queuedMessages());
+        assertTrue(dispatchTime.compareTo(MAX_WAIT) >= 0);
+        assertTrue(statistics.maxDispatchWait().compareTo(MAX_WAIT) >= 0);
+
+        releaseStuckHandler.countDown();
+    }
+
+    @Test
+    @DisplayName("Closing handles the messages that are still queued, but drops new ones")
+    void closeDrainsQueuedMessages() throws InterruptedException {
+        // GIVEN a channel with messages waiting behind a slow handler
+        CountDownLatch slowHandlerStarted = new CountDownLatch(1);
+        dispatcher.dispatch(FIRST_CHANNEL, () -> {
+            slowHandlerStarted.countDown();
+            sleepUninterruptibly(Duration.ofMillis(200));
+        }, MessageDispatcher.OverflowPolicy.WAIT);
+        assertTrue(slowHandlerStarted.await(10, TimeUnit.SECONDS));
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < QUEUE_CAPACITY; i++) {
+            int message = i;
+            dispatcher.dispatch(FIRST_CHANNEL, () -> handled.add(message),
+                    MessageDispatcher.OverflowPolicy.WAIT);
+        }
+
+        // WHEN closing the dispatcher and dispatching another message afterwards
+        dispatcher.close();
+        dispatcher.dispatch(SECOND_CHANNEL, () -> fail("Must not handle messages after closing"),
+                MessageDispatcher.OverflowPolicy.WAIT);
+
+        // THEN all queued messages were handled before closing returned
+        assertEquals(IntStream.range(0, QUEUE_CAPACITY).boxed().toList(), handled);
+        assertEquals(0, dispatcher.getStatistics().queuedMessages());
+    }
+
+    private static void sleepUninterruptibly(Duration duration) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(duration.toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.togetherjava.tjbot.commands.system;
+
+import net.dv8tion.jda.api.entities.Channel;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.channel.update.ChannelUpdateNameEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.togetherjava.tjbot.commands.MessageReceiver;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+final class MessageRoutingTableTest {
+    private static final long CHANNEL_ID = 1;
+
+    private MessageReceiver helpReceiver;
+    private MessageReceiver announcementReceiver;
+    private MessageRoutingTable routingTable;
+
+    @BeforeEach
+    void setUp() {
+        helpReceiver = createReceiver("help.*");
+        announcementReceiver = createReceiver("announcements");
+        routingTable = new MessageRoutingTable(List.of(helpReceiver, announcementReceiver));
+    }
+
+    private static MessageReceiver createReceiver(String channelNamePattern) {
+        MessageReceiver receiver = mock(MessageReceiver.class);
+        when(receiver.getChannelNamePattern()).thenReturn(Pattern.compile(channelNamePattern));
+        return receiver;
+    }
+
+    private static Channel createChannel(String name) {
+        Channel channel = mock(Channel.class);
+        when(channel.getIdLong()).thenReturn(CHANNEL_ID);
+        when(channel.getName()).thenReturn(name);
+        return channel;
+    }
+
+    @Test
+    @DisplayName("The receivers of a channel are the ones matching its name, and they are cached")
+    void receiversAreMatchedAndCached() {
+        // GIVEN a channel matching one of the receivers
+        Channel channel = createChannel("help-java");
+
+        // WHEN getting its receivers twice
+        MessageReceiver[] receivers = routingTable.getMessageReceiversSubscribedTo(channel);
+        MessageReceiver[] cachedReceivers = routingTable.getMessageReceiversSubscribedTo(channel);
+
+        // THEN only the matching receiver is returned, the second time from the cache
+        assertArrayEquals(new MessageReceiver[] {helpReceiver}, receivers);
+        assertSame(receivers, cachedReceivers);
+        assertEquals(1, routingTable.getCacheStatistics().estimatedSize());
+    }
+
+    @Test
+    @DisplayName("Renaming a channel changes its receivers")
+    void renameChangesReceivers() {
+        // GIVEN a channel whose receivers are cached already
+        Channel channel = createChannel("help-java");
+        routingTable.getMessageReceiversSubscribedTo(channel);
+
+        // WHEN it is renamed
+        Channel renamedChannel = createChannel("announcements");
+        ChannelUpdateNameEvent event = mock(ChannelUpdateNameEvent.class);
+        when(event.getChannel()).thenReturn(renamedChannel);
+        routingTable.onChannelUpdateName(event);
+
+        // THEN the receivers matching the new name are returned
+        assertArrayEquals(new MessageReceiver[] {announcementReceiver},
+                routingTable.getMessageReceiversSubscribedTo(renamedChannel));
+    }
+
+    @Test
+    @DisplayName("Deleting a channel drops its routing")
+    void deleteDropsRouting() {
+        // GIVEN a channel whose receivers are cached already
+        Channel channel = createChannel("help-java");
+        routingTable.getMessageReceiversSubscribedTo(channel);
+
+        // WHEN it is deleted
+        ChannelDeleteEvent event = mock(ChannelDeleteEvent.class);
+        when(event.getChannel()).thenReturn(channel);
+        routingTable.onChannelDelete(event);
+
+        // THEN its routing is not cached anymore
+        assertEquals(0, routingTable.getCacheStatistics().estimatedSize());
+    }
+}
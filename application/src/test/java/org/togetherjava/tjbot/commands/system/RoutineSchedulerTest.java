@@ -0,0 +1,146 @@
+package org.togetherjava.tjbot.commands.system;
+
+import net.dv8tion.jda.api.JDA;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.togetherjava.tjbot.commands.Routine;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+final class RoutineSchedulerTest {
+    @Test
+    @DisplayName("Wall-clock schedules run at the next time of the day, rolling over to the next day")
+    void wallClockSchedule() {
+        // GIVEN a schedule at 4:00, 12:00 and 20:00
+        Routine.Schedule schedule = Routine.Schedule.atTimesOfDay(LocalTime.of(20, 0),
+                LocalTime.of(4, 0), LocalTime.of(12, 0));
+
+        // WHEN computing the first run at different times of the day
+        // THEN it is the next of the times, possibly on the next day
+        assertEquals(Instant.parse("2022-08-01T12:00:00Z"),
+                RoutineScheduler.computeFirstRun(schedule, Instant.parse("2022-08-01T07:00:00Z")));
+        assertEquals(Instant.parse("2022-08-02T04:00:00Z"),
+                RoutineScheduler.computeFirstRun(schedule, Instant.parse("2022-08-01T21:30:00Z")));
+        assertEquals(Instant.parse("2022-08-01T20:00:00Z"),
+                RoutineScheduler.computeFirstRun(schedule, Instant.parse("2022-08-01T12:00:00Z")));
+    }
+
+    @Test
+    @DisplayName("Runs that were missed by a slow execution are skipped and counted")
+    void missedRunsAreSkipped() {
+        // GIVEN a fixed rate and a wall-clock schedule, with an execution that took too long
+        Routine.Schedule fixedRate =
+                new Routine.Schedule(Routine.ScheduleMode.FIXED_RATE, 0, 10, TimeUnit.MINUTES);
+        Routine.Schedule wallClock =
+                Routine.Schedule.atTimesOfDay(LocalTime.of(4, 0), LocalTime.of(12, 0));
+        Instant plannedAt = Instant.parse("2022-08-01T04:00:00Z");
+
+        // WHEN computing the next run
+        RoutineScheduler.NextRun fixedRateOnTime = RoutineScheduler.computeNextRun(fixedRate,
+                plannedAt, plannedAt.plus(Duration.ofMinutes(1)));
+        RoutineScheduler.NextRun fixedRateLate = RoutineScheduler.computeNextRun(fixedRate,
+                plannedAt, plannedAt.plus(Duration.ofMinutes(25)));
+        RoutineScheduler.NextRun wallClockLate = RoutineScheduler.computeNextRun(wallClock,
+                plannedAt, plannedAt.plus(Duration.ofHours(9)));
+
+        // THEN runs whose time has passed are skipped
+        assertEquals(new RoutineScheduler.NextRun(plannedAt.plus(Duration.ofMinutes(10)), 0),
+                fixedRateOnTime);
+        assertEquals(new RoutineScheduler.NextRun(plannedAt.plus(Duration.ofMinutes(30)), 2),
+                fixedRateLate);
+        assertEquals(new RoutineScheduler.NextRun(Instant.parse("2022-08-02T04:00:00Z"), 1),
+                wallClockLate);
+    }
+
+    @Test
+    @DisplayName("A routine slower than its rate never runs twice at the same time")
+    void routinesDoNotOverlap() throws InterruptedException {
+        // GIVEN a routine that takes longer than its rate
+        AtomicInteger concurrentRuns = new AtomicInteger();
+        AtomicInteger maxConcurrentRuns = new AtomicInteger();
+        CountDownLatch ranThreeTimes = new CountDownLatch(3);
+        Routine routine = new Routine() {
+            @Override
+            public @NotNull Schedule createSchedule() {
+                return new Schedule(ScheduleMode.FIXED_RATE, 0, 10, TimeUnit.MILLISECONDS)
+                    .withIsolatedExecutor();
+            }
+
+            @Override
+            public void runRoutine(@NotNull JDA jda) {
+                maxConcurrentRuns.accumulateAndGet(concurrentRuns.incrementAndGet(), Math::max);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(30);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    concurrentRuns.decrementAndGet();
+                    ranThreeTimes.countDown();
+                }
+            }
+        };
+
+        // WHEN scheduling it
+        RoutineScheduler scheduler = new RoutineScheduler();
+        try {
+            scheduler.schedule(routine, mock(JDA.class));
+            assertTrue(ranThreeTimes.await(10, TimeUnit.SECONDS));
+        } finally {
+            scheduler.close();
+        }
+
+        // THEN its runs never overlapped, the missed ones were counted instead
+        assertEquals(1, maxConcurrentRuns.get());
+        RoutineStatistics statistics = scheduler.getStatistics().iterator().next();
+        assertTrue(statistics.runs() >= 2);
+        assertTrue(statistics.missedRuns() >= 2);
+        assertTrue(statistics.lastDuration().compareTo(Duration.ofMillis(30)) >= 0);
+    }
+
+    @Test
+    @DisplayName("Closing waits for running routines and cancels their planned executions")
+    void closeWaitsForRunningRoutines() throws InterruptedException {
+        // GIVEN a running routine
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        AtomicInteger finishedRuns = new AtomicInteger();
+        Routine routine = new Routine() {
+            @Override
+            public @NotNull Schedule createSchedule() {
+                return new Schedule(ScheduleMode.FIXED_DELAY, 0, 10, TimeUnit.MILLISECONDS);
+            }
+
+            @Override
+            public void runRoutine(@NotNull JDA jda) {
+                runs.incrementAndGet();
+                started.countDown();
+                try {
+                    TimeUnit.MILLISECONDS.sleep(200);
+                    finishedRuns.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        RoutineScheduler scheduler = new RoutineScheduler();
+        scheduler.schedule(routine, mock(JDA.class));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // WHEN closing the scheduler
+        scheduler.close();
+
+        // THEN the running execution finished before closing returned, and no further one starts
+        assertEquals(1, finishedRuns.get());
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertEquals(1, runs.get());
+    }
+}
@@ -0,0 +1,78 @@
+package org.togetherjava.tjbot.commands.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class CacheSnapshotsTest {
+    private static final int MAX_KEYS = 10;
+
+    private static Cache<Integer, String> createCache() {
+        // Expiring after access orders the keys strictly by their last usage
+        return Caffeine.newBuilder().expireAfterAccess(1, TimeUnit.HOURS).recordStats().build();
+    }
+
+    @Test
+    @DisplayName("The most recently used keys are saved and preloaded after a restart, up to the limit")
+    void recentKeysArePreloaded(@TempDir Path directory) throws Exception {
+        // GIVEN a cache with more entries than the limit, some of them used recently
+        Cache<Integer, String> cache = createCache();
+        IntStream.range(0, 50).forEach(key -> cache.put(key, "value " + key));
+        // Otherwise, the usages might be applied before the entries are added
+        cache.cleanUp();
+        List<Integer> hotKeys = IntStream.range(10, 10 + MAX_KEYS).boxed().toList();
+        hotKeys.forEach(cache::getIfPresent);
+        CacheSnapshots snapshots = new CacheSnapshots(directory, MAX_KEYS, Duration.ofDays(1));
+        snapshots.register("numbers", cache, String::valueOf, Integer::valueOf,
+                keys -> fail("Must not preload before the restart"));
+
+        // WHEN saving it and preloading it into an empty cache after a restart
+        snapshots.saveAll();
+        Cache<Integer, String> restartedCache = createCache();
+        List<Integer> preloadedKeys = new ArrayList<>();
+        CacheSnapshots restartedSnapshots =
+                new CacheSnapshots(directory, MAX_KEYS, Duration.ofDays(1));
+        restartedSnapshots.register("numbers", restartedCache, String::valueOf, Integer::valueOf,
+                keys -> {
+                    preloadedKeys.addAll(keys);
+                    keys.forEach(key -> restartedCache.put(key, "value " + key));
+                });
+        restartedSnapshots.preloadAll().get(10, TimeUnit.SECONDS);
+
+        // THEN exactly the hot keys are preloaded
+        assertEquals(hotKeys, preloadedKeys.stream().sorted().toList());
+        assertEquals("value 12", restartedCache.getIfPresent(12));
+    }
+
+    @Test
+    @DisplayName("Snapshots that are too old or missing are not preloaded")
+    void oldSnapshotsAreSkipped(@TempDir Path directory) throws Exception {
+        // GIVEN a snapshot that was saved two days ago
+        Files.writeString(directory.resolve("numbers.snapshot"),
+                Instant.now().minus(Duration.ofDays(2)).toEpochMilli() + "\n1\n2\n");
+        CacheSnapshots snapshots = new CacheSnapshots(directory, MAX_KEYS, Duration.ofDays(1));
+        Function<String, Integer> textToKey = Integer::valueOf;
+        snapshots.register("numbers", createCache(), String::valueOf, textToKey,
+                keys -> fail("Must not preload an old snapshot"));
+        snapshots.register("missing", createCache(), String::valueOf, textToKey,
+                keys -> fail("Must not preload a missing snapshot"));
+
+        // WHEN preloading
+        // THEN nothing is preloaded
+        assertDoesNotThrow(() -> snapshots.preloadAll().get(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,79 @@
+package org.togetherjava.tjbot.commands.utils;
+
+import net.dv8tion.jda.api.entities.Guild;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+final class GuildFanOutTest {
+    private static List<Guild> createGuilds(int amount) {
+        return LongStream.range(0, amount).mapToObj(id -> {
+            Guild guild = mock(Guild.class);
+            when(guild.getIdLong()).thenReturn(id);
+            when(guild.getName()).thenReturn("guild " + id);
+            return guild;
+        }).toList();
+    }
+
+    @Test
+    @DisplayName("Guilds are processed in parallel")
+    void guildsAreProcessedInParallel() {
+        // GIVEN guilds whose work only finishes once all of them started
+        List<Guild> guilds = createGuilds(3);
+        CountDownLatch allStarted = new CountDownLatch(guilds.size());
+
+        // WHEN processing them
+        List<GuildFanOut.GuildResult> results =
+                GuildFanOut.forEachGuild(guilds, "test", Duration.ofSeconds(10), guild -> {
+                    allStarted.countDown();
+                    try {
+                        assertTrue(allStarted.await(10, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+
+        // THEN all of them completed, in the order of the guilds
+        assertEquals(List.of(0L, 1L, 2L),
+                results.stream().map(GuildFanOut.GuildResult::guildId).toList());
+        assertTrue(results.stream()
+            .allMatch(result -> result.outcome() == GuildFanOut.Outcome.COMPLETED));
+    }
+
+    @Test
+    @DisplayName("Failing and slow guilds are isolated from the others")
+    void failingAndSlowGuildsAreIsolated() {
+        // GIVEN a guild that fails, one that hangs and one that works
+        List<Guild> guilds = createGuilds(3);
+
+        // WHEN processing them
+        List<GuildFanOut.GuildResult> results =
+                GuildFanOut.forEachGuild(guilds, "test", Duration.ofMillis(200), guild -> {
+                    if (guild.getIdLong() == 0) {
+                        throw new IllegalStateException("Failing guild");
+                    }
+                    if (guild.getIdLong() == 1) {
+                        try {
+                            TimeUnit.MINUTES.sleep(1);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+
+        // THEN only the working guild completed, the hanging one was cancelled
+        assertEquals(
+                List.of(GuildFanOut.Outcome.FAILED, GuildFanOut.Outcome.TIMED_OUT,
+                        GuildFanOut.Outcome.COMPLETED),
+                results.stream().map(GuildFanOut.GuildResult::outcome).toList());
+    }
+}
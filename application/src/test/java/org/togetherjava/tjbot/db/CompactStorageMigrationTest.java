@@ -0,0 +1,142 @@
+package org.togetherjava.tjbot.db;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.togetherjava.tjbot.db.generated.tables.records.ComponentIdsRecord;
+import org.togetherjava.tjbot.db.generated.tables.records.ModerationActionsRecord;
+import org.togetherjava.tjbot.db.generated.tables.records.ScamHistoryRecord;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.togetherjava.tjbot.db.generated.tables.ComponentIds.COMPONENT_IDS;
+import static org.togetherjava.tjbot.db.generated.tables.ModerationActions.MODERATION_ACTIONS;
+import static org.togetherjava.tjbot.db.generated.tables.PendingReminders.PENDING_REMINDERS;
+import static org.togetherjava.tjbot.db.generated.tables.ScamHistory.SCAM_HISTORY;
+
+/**
+ * Ensures that the migration to compact storage types converts data written in the old text formats
+ * without losing information.
+ */
+final class CompactStorageMigrationTest {
+    private static final String LAST_COMPACT_VERSION = "13";
+    private static final String UUID = "0f8fad5b-d9cb-469f-a165-70867728950e";
+    private static final String CONTENT_HASH =
+            "00FF10A0B1C2D3E4F5060708090A0B0C0D0E0F101112131415161718191A1B1C";
+
+    private String url;
+    private Database database;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) throws SQLException {
+        url = "jdbc:sqlite:" + tempDir.resolve("database.db");
+
+        Flyway.configure()
+            .dataSource(url, null, null)
+            .locations("classpath:/db/")
+            .target(LAST_COMPACT_VERSION)
+            .load()
+            .migrate();
+
+        try (Connection connection = DriverManager.getConnection(url);
+                Statement statement = connection.createStatement()) {
+            statement.executeUpdate("""
+                    INSERT INTO component_ids (uuid, component_id, last_used, lifespan)
+                    VALUES ('%s', 'payload', '2022-09-14 10:15:30.123456+00:00', 'PERMANENT')"""
+                .formatted(UUID));
+            statement.executeUpdate("""
+                    INSERT INTO moderation_actions (case_id, issued_at, guild_id, author_id,
+                        target_id, action_type, action_expires_at, reason)
+                    VALUES (1, '2022-09-14 10:15:30+00:00', 1, 2, 3, 'WARN', NULL, 'reason')""");
+            statement.executeUpdate("""
+                    INSERT INTO scam_history (sent_at, guild_id, channel_id, message_id,
+                        author_id, content_hash, is_deleted)
+                    VALUES ('1970-01-01 00:00:00+00:00', 1, 2, 3, 4, '%s', 0)"""
+                .formatted(CONTENT_HASH));
+            // As if reminders had been created and deleted again
+            statement.executeUpdate("""
+                    INSERT INTO pending_reminders (id, created_at, guild_id, channel_id,
+                        author_id, remind_at, content)
+                    VALUES (5, '2022-09-14 10:15:30+00:00', 1, 2, 3,
+                        '2022-09-14 10:15:30+00:00', 'content')""");
+            statement.executeUpdate("DELETE FROM pending_reminders");
+        }
+
+        // Applies the remaining migrations
+        database = new Database(url);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    @DisplayName("Timestamps are converted to epoch millis")
+    void timestampsAreConverted() {
+        // GIVEN a database migrated from legacy data
+        // WHEN reading the timestamps
+        ComponentIdsRecord componentId =
+                database.read(context -> context.fetchSingle(COMPONENT_IDS));
+        ModerationActionsRecord action =
+                database.read(context -> context.fetchSingle(MODERATION_ACTIONS));
+        ScamHistoryRecord scamMessage = database.read(context -> context.fetchSingle(SCAM_HISTORY));
+
+        // THEN they represent the same moments, with millisecond precision
+        assertEquals(Instant.parse("2022-09-14T10:15:30.123Z"), componentId.getLastUsed());
+        assertEquals(Instant.parse("2022-09-14T10:15:30Z"), action.getIssuedAt());
+        assertNull(action.getActionExpiresAt());
+        assertEquals(Instant.EPOCH, scamMessage.getSentAt());
+    }
+
+    @Test
+    @DisplayName("UUIDs and hashes are converted to raw bytes")
+    void uuidsAndHashesAreConverted() {
+        // GIVEN a database migrated from legacy data
+        // WHEN reading the UUIDs and hashes
+        String uuid = database.read(context -> context.fetchValue(COMPONENT_IDS.UUID));
+        String contentHash =
+                database.read(context -> context.fetchValue(SCAM_HISTORY.CONTENT_HASH));
+        String storedTypes = database.read(context -> context
+            .fetchSingle("SELECT typeof(uuid) || ',' || length(uuid) FROM component_ids")
+            .get(0, String.class));
+        String storedHashTypes = database.read(context -> context
+            .fetchSingle(
+                    "SELECT typeof(content_hash) || ',' || length(content_hash) FROM scam_history")
+            .get(0, String.class));
+
+        // THEN they are unchanged, but stored as blobs of the size of their raw bytes
+        assertEquals(UUID, uuid);
+        assertEquals(CONTENT_HASH, contentHash);
+        assertEquals("blob,16", storedTypes);
+        assertEquals("blob,32", storedHashTypes);
+    }
+
+    @Test
+    @DisplayName("IDs of deleted rows are not reused after the migration")
+    void autoIncrementSequencesArePreserved() {
+        // GIVEN a database migrated from legacy data, in which reminders have been deleted
+        // WHEN creating a new reminder
+        Integer id = database.writeAndProvide(context -> context.insertInto(PENDING_REMINDERS)
+            .set(PENDING_REMINDERS.CREATED_AT, Instant.now())
+            .set(PENDING_REMINDERS.GUILD_ID, 1L)
+            .set(PENDING_REMINDERS.CHANNEL_ID, 2L)
+            .set(PENDING_REMINDERS.AUTHOR_ID, 3L)
+            .set(PENDING_REMINDERS.REMIND_AT, Instant.now())
+            .set(PENDING_REMINDERS.CONTENT, "content")
+            .returning(PENDING_REMINDERS.ID)
+            .fetchOne(PENDING_REMINDERS.ID));
+
+        // THEN it continues after the IDs used before the migration
+        assertEquals(6, id);
+    }
+}
@@ -22,6 +22,7 @@ import net.dv8tion.jda.internal.entities.*;
 import net.dv8tion.jda.internal.requests.Requester;
 import net.dv8tion.jda.internal.requests.restaction.AuditableRestActionImpl;
 import net.dv8tion.jda.internal.requests.restaction.MessageActionImpl;
+import net.dv8tion.jda.internal.requests.restaction.WebhookMessageActionImpl;
 import net.dv8tion.jda.internal.requests.restaction.WebhookMessageUpdateActionImpl;
 import net.dv8tion.jda.internal.requests.restaction.interactions.ReplyCallbackActionImpl;
 import net.dv8tion.jda.internal.utils.config.AuthorizationConfig;
@@ -88,6 +89,7 @@ public final class JdaTester {
     private final AuditableRestActionImpl<Void> auditableRestAction;
     private final MessageActionImpl messageAction;
     private final WebhookMessageUpdateActionImpl webhookMessageUpdateAction;
+    private final WebhookMessageActionImpl<Message> webhookMessageAction;
     private final TextChannelImpl textChannel;
     private final PrivateChannelImpl privateChannel;
     private final InteractionHook interactionHook;
@@ -116,6 +118,7 @@ public final class JdaTester {
         privateChannel = spy(new PrivateChannelImpl(jda, PRIVATE_CHANNEL_ID, user));
         messageAction = mock(MessageActionImpl.class);
         webhookMessageUpdateAction = mock(WebhookMessageUpdateActionImpl.class);
+        webhookMessageAction = mock(WebhookMessageActionImpl.class);
         replyCallbackAction = mock(ReplyCallbackAction.class);
         EntityBuilder entityBuilder = mock(EntityBuilder.class);
         Role everyoneRole = new RoleImpl(GUILD_ID, guild);
@@ -162,6 +165,9 @@ public final class JdaTester {
         doReturn(webhookMessageUpdateAction).when(webhookMessageUpdateAction)
             .setActionRow(any(ItemComponent.class));
 
+        doNothing().when(webhookMessageAction).queue();
+        when(webhookMessageAction.setEphemeral(anyBoolean())).thenReturn(webhookMessageAction);
+
         doReturn(everyoneRole).when(guild).getPublicRole();
         doReturn(selfMember).when(guild).getMember(selfUser);
         doReturn(member).when(guild).getMember(not(eq(selfUser)));
@@ -177,6 +183,7 @@ public final class JdaTester {
             .thenReturn(webhookMessageUpdateAction);
         when(interactionHook.editOriginal(any(byte[].class), any(), any()))
             .thenReturn(webhookMessageUpdateAction);
+        when(interactionHook.sendMessage(anyString())).thenReturn(webhookMessageAction);
 
         doReturn(messageAction).when(textChannel).sendMessageEmbeds(any(), any());
         doReturn(messageAction).when(textChannel).sendMessageEmbeds(any());
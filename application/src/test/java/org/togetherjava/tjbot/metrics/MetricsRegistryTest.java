@@ -0,0 +1,78 @@
+package org.togetherjava.tjbot.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class MetricsRegistryTest {
+    @Test
+    @DisplayName("Metrics are written in the text exposition format, sorted by name")
+    void scrapeWritesTextFormat() {
+        // GIVEN a registry with a counter, a gauge and a collector
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("tjbot_requests_total", "Sent requests", "client", "gist").add(3);
+        metrics.gauge("tjbot_queue_size", "Queued tasks", () -> 2.5);
+        metrics.registerCollector(sink -> sink.counter("tjbot_routine_runs_total",
+                "Executions of routines", 7, "routine", "Say \"hi\""));
+
+        // WHEN scraping the metrics
+        String text = metrics.scrape();
+
+        // THEN each metric is written with its help, type and escaped labels
+        assertEquals("""
+                # HELP tjbot_queue_size Queued tasks
+                # TYPE tjbot_queue_size gauge
+                tjbot_queue_size 2.5
+                # HELP tjbot_requests_total Sent requests
+                # TYPE tjbot_requests_total counter
+                tjbot_requests_total{client="gist"} 3
+                # HELP tjbot_routine_runs_total Executions of routines
+                # TYPE tjbot_routine_runs_total counter
+                tjbot_routine_runs_total{routine="Say \\"hi\\""} 7
+                """, text);
+    }
+
+    @Test
+    @DisplayName("Histograms write cumulative buckets, their sum and count")
+    void histogramWritesCumulativeBuckets() {
+        // GIVEN a histogram with some observations
+        MetricsRegistry metrics = new MetricsRegistry();
+        Histogram histogram =
+                metrics.histogram("tjbot_latency_seconds", "Latency", new double[] {0.1, 1});
+        histogram.observe(0.05);
+        histogram.observe(0.1);
+        histogram.observe(0.5);
+        histogram.observe(2);
+
+        // WHEN scraping the metrics
+        String text = metrics.scrape();
+
+        // THEN the buckets count all values less than or equal to their bound
+        assertTrue(text.contains("""
+                tjbot_latency_seconds_bucket{le="0.1"} 2
+                tjbot_latency_seconds_bucket{le="1"} 3
+                tjbot_latency_seconds_bucket{le="+Inf"} 4
+                tjbot_latency_seconds_sum 2.65
+                tjbot_latency_seconds_count 4
+                """), text);
+    }
+
+    @Test
+    @DisplayName("The same name and labels yield the same metric, other types are rejected")
+    void metricsAreIdentifiedByNameAndLabels() {
+        // GIVEN a registry with a counter
+        MetricsRegistry metrics = new MetricsRegistry();
+        Counter counter = metrics.counter("tjbot_events_total", "Events", "type", "button");
+
+        // WHEN asking for metrics of the same name
+        // THEN the same labels yield the same counter, other labels another one
+        assertSame(counter, metrics.counter("tjbot_events_total", "Events", "type", "button"));
+        assertNotSame(counter, metrics.counter("tjbot_events_total", "Events", "type", "slash"));
+        // and the name can not be used for other types of metrics
+        assertThrows(IllegalArgumentException.class,
+                () -> metrics.histogram("tjbot_events_total", "Events"));
+        assertThrows(IllegalArgumentException.class,
+                () -> metrics.counter("tjbot_events_total", "Events", "type"));
+    }
+}
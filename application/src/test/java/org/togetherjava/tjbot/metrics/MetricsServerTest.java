@@ -0,0 +1,43 @@
+package org.togetherjava.tjbot.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class MetricsServerTest {
+    @Test
+    @DisplayName("The server exposes the metrics of its registry")
+    void serverExposesMetrics() throws IOException, InterruptedException {
+        // GIVEN a running server with a counter
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("tjbot_requests_total", "Sent requests").increment();
+
+        try (MetricsServer server = new MetricsServer(metrics, "127.0.0.1", 0)) {
+            // WHEN requesting the metrics and an unknown path
+            HttpClient client = HttpClient.newHttpClient();
+            String baseUrl = "http://127.0.0.1:" + server.getPort();
+            HttpResponse<String> response =
+                    client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/metrics")).build(),
+                            HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> unknownResponse = client.send(
+                    HttpRequest.newBuilder(URI.create(baseUrl + "/metrics/unknown")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            // THEN the metrics are returned in the text format, the unknown path is not found
+            assertEquals(200, response.statusCode());
+            assertTrue(response.headers()
+                .firstValue("Content-Type")
+                .orElseThrow()
+                .startsWith("text/plain; version=0.0.4"));
+            assertTrue(response.body().contains("tjbot_requests_total 1\n"), response.body());
+            assertEquals(404, unknownResponse.statusCode());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.togetherjava.tjbot.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+import org.togetherjava.tjbot.db.Database;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A file based database in a temporary directory, set up with all migrations of the bot. The
+ * directory is deleted again on {@link #close()}.
+ * <p>
+ * Benchmarks use a file instead of a memory database, since the bot runs on a file database as
+ * well. Read connection pooling and the write-ahead log only take effect for files.
+ */
+public final class TemporaryDatabase implements AutoCloseable {
+    private final Path directory;
+    private final Database database;
+
+    /**
+     * Creates a new temporary database.
+     *
+     * @param readConnectionPoolSize the amount of read-only connections to open, 0 to disable
+     *        pooling
+     */
+    public TemporaryDatabase(int readConnectionPoolSize) {
+        try {
+            directory = Files.createTempDirectory("tjbot-benchmark");
+            database = new Database("jdbc:sqlite:" + directory.resolve("database.db"),
+                    readConnectionPoolSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to create the benchmark database", e);
+        }
+    }
+
+    /**
+     * Gets the database.
+     *
+     * @return the database
+     */
+    public @NotNull Database getDatabase() {
+        return database;
+    }
+
+    /**
+     * Fills the given table with synthetic rows, generated by SQLite itself which is much faster
+     * than inserting them one by one.
+     *
+     * @param table the name of the table to fill
+     * @param columns the columns to fill, comma separated
+     * @param values SQL expressions for the values of the columns, comma separated, with the
+     *        1-based number of the row being available as {@code x}
+     * @param rows the amount of rows to generate
+     */
+    public void fill(@NotNull String table, @NotNull String columns, @NotNull String values,
+            int rows) {
+        database.write(context -> context.execute(
+                """
+                        WITH RECURSIVE sequence(x) AS (SELECT 1 UNION ALL SELECT x + 1 FROM sequence WHERE x < %d)
+                        INSERT INTO %s (%s) SELECT %s FROM sequence"""
+                    .formatted(rows, table, columns, values)));
+        database.write(context -> context.execute("ANALYZE"));
+    }
+
+    /**
+     * Creates an SQL expression for a timestamp, in the same format the bot stores them in, i.e.
+     * milliseconds since the epoch.
+     *
+     * @param epochSecondsExpression SQL expression for the seconds since the epoch of the timestamp
+     * @return the SQL expression for the timestamp
+     */
+    public static @NotNull String timestamp(@NotNull String epochSecondsExpression) {
+        return "(%s) * 1000".formatted(epochSecondsExpression);
+    }
+
+    @Override
+    public void close() {
+        database.close();
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.togetherjava.tjbot.commands.componentids;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link ComponentIdCodec binary form} of component IDs with the CSV text that the
+ * {@link ComponentIdStore} used to persist them as, serialized by Jackson the way the store did,
+ * creating the writer, reader and schema on every call.
+ * <p>
+ * The component ID resembles the ones of the bot, a user interactor name and a few IDs and flags.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ComponentIdCodecBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ComponentIdCodecBenchmark.class);
+    private static final CsvMapper CSV = new CsvMapper();
+    private static final ComponentId COMPONENT_ID = new ComponentId("scam-blocker",
+            List.of("123456789012345678", "876543210987654321", "true"));
+
+    private String csvComponentId;
+    private byte[] binaryComponentId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        csvComponentId = serializeCsv();
+        binaryComponentId = serializeBinary();
+
+        logger.info("CSV takes {} bytes, the binary form {} bytes", csvComponentId.length(),
+                binaryComponentId.length);
+    }
+
+    @Benchmark
+    public String serializeCsv() throws JsonProcessingException {
+        return CSV.writerFor(ComponentId.class)
+            .with(CSV.schemaFor(ComponentId.class))
+            .writeValueAsString(COMPONENT_ID);
+    }
+
+    @Benchmark
+    public ComponentId deserializeCsv() throws JsonProcessingException {
+        return CSV.readerFor(ComponentId.class)
+            .with(CSV.schemaFor(ComponentId.class))
+            .readValue(csvComponentId);
+    }
+
+    @Benchmark
+    public byte[] serializeBinary() {
+        return ComponentIdCodec.encode(COMPONENT_ID, 0);
+    }
+
+    @Benchmark
+    public ComponentId deserializeBinary() {
+        return ComponentIdCodec.decode(binaryComponentId, 0);
+    }
+}
@@ -0,0 +1,97 @@
+package org.togetherjava.tjbot.commands.componentids;
+
+import org.openjdk.jmh.annotations.*;
+import org.togetherjava.tjbot.benchmarks.TemporaryDatabase;
+import org.togetherjava.tjbot.db.Database;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.togetherjava.tjbot.db.generated.tables.ComponentIds.COMPONENT_IDS;
+
+/**
+ * Measures {@link ComponentIdStore#get(UUID)} with a cold and a warm cache, as well as
+ * {@link ComponentIdStore#putOrThrow(UUID, ComponentId, Lifespan)}.
+ * <p>
+ * With the cold cache, component IDs are picked from far more IDs than the cache can hold, so
+ * almost every lookup has to go to the database. With the warm cache, all component IDs that are
+ * looked up are cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ComponentIdStoreBenchmark {
+    private static final int STORED_IDS_AMOUNT = 100_000;
+    private static final int WARM_IDS_AMOUNT = 100;
+    private static final ComponentId COMPONENT_ID =
+            new ComponentId("benchmark", List.of("first", "second", "123456789012345678"));
+
+    private TemporaryDatabase temporaryDatabase;
+    private ComponentIdStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        temporaryDatabase = new TemporaryDatabase(4);
+        Database database = temporaryDatabase.getDatabase();
+        store = new ComponentIdStore(database);
+
+        // Insert one ID through the store, to copy its serialized form for the synthetic IDs
+        store.putOrThrow(new UUID(1, 0), COMPONENT_ID, Lifespan.PERMANENT);
+        byte[] serializedComponentId =
+                database.read(context -> context.select(COMPONENT_IDS.COMPONENT_ID)
+                    .from(COMPONENT_IDS)
+                    .fetchAny(COMPONENT_IDS.COMPONENT_ID));
+
+        // SQLite can not generate the binary form of the UUIDs itself, so they are inserted here
+        Instant now = Instant.now();
+        database.writeTransaction(context -> {
+            for (long x = 1; x <= STORED_IDS_AMOUNT; x++) {
+                context.insertInto(COMPONENT_IDS)
+                    .set(COMPONENT_IDS.UUID, new UUID(0, x).toString())
+                    .set(COMPONENT_IDS.COMPONENT_ID, serializedComponentId)
+                    .set(COMPONENT_IDS.LAST_USED, now)
+                    .set(COMPONENT_IDS.LIFESPAN, Lifespan.PERMANENT.name())
+                    .execute();
+            }
+        });
+        database.write(context -> context.execute("ANALYZE"));
+
+        // Heat up the cache
+        LongStream.rangeClosed(1, WARM_IDS_AMOUNT)
+            .mapToObj(x -> new UUID(0, x))
+            .forEach(store::get);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+        temporaryDatabase.close();
+    }
+
+    private static UUID randomStoredId(int bound) {
+        return new UUID(0, ThreadLocalRandom.current().nextLong(1, bound + 1L));
+    }
+
+    @Benchmark
+    public Optional<ComponentId> getColdCache() {
+        return store.get(randomStoredId(STORED_IDS_AMOUNT));
+    }
+
+    @Benchmark
+    public Optional<ComponentId> getWarmCache() {
+        return store.get(randomStoredId(WARM_IDS_AMOUNT));
+    }
+
+    @Benchmark
+    public void putOrThrow() {
+        store.putOrThrow(UUID.randomUUID(), COMPONENT_ID, Lifespan.REGULAR);
+    }
+}
@@ -0,0 +1,87 @@
+package org.togetherjava.tjbot.commands.moderation;
+
+import org.openjdk.jmh.annotations.*;
+import org.togetherjava.tjbot.benchmarks.TemporaryDatabase;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the queries of {@link ModerationActionsStore} against a synthetic history of moderation
+ * actions.
+ * <p>
+ * The actions are spread over about a year, issued by a small team of moderators against a large
+ * amount of users. Every fifth action is a temporary mute.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ModerationActionsStoreBenchmark {
+    private static final int ACTIONS_AMOUNT = 1_000_000;
+    private static final long GUILD_ID = 1;
+    private static final int AUTHORS_AMOUNT = 50;
+    private static final int TARGETS_AMOUNT = 200_000;
+    private static final long FIRST_AUTHOR_ID = 1_000;
+    private static final long FIRST_TARGET_ID = 100_000;
+
+    private TemporaryDatabase temporaryDatabase;
+    private ModerationActionsStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        temporaryDatabase = new TemporaryDatabase(4);
+        store = new ModerationActionsStore(temporaryDatabase.getDatabase());
+
+        String issuedAt = "unixepoch('now') - x * 30";
+        temporaryDatabase.fill("moderation_actions",
+                "issued_at, guild_id, author_id, target_id, action_type, action_expires_at, reason",
+                """
+                        %s, %d, %d + x %% %d, %d + x %% %d,
+                        CASE x %% 5 WHEN 0 THEN 'WARN' WHEN 1 THEN 'MUTE' WHEN 2 THEN 'BAN'
+                            WHEN 3 THEN 'KICK' ELSE 'NOTE' END,
+                        CASE x %% 5 WHEN 1 THEN %s ELSE NULL END,
+                        'reason ' || x""".formatted(TemporaryDatabase.timestamp(issuedAt), GUILD_ID,
+                        FIRST_AUTHOR_ID, AUTHORS_AMOUNT, FIRST_TARGET_ID, TARGETS_AMOUNT,
+                        TemporaryDatabase.timestamp(issuedAt + " + 3600")),
+                ACTIONS_AMOUNT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        temporaryDatabase.close();
+    }
+
+    private static long randomTargetId() {
+        return FIRST_TARGET_ID + ThreadLocalRandom.current().nextInt(TARGETS_AMOUNT);
+    }
+
+    private static long randomAuthorId() {
+        return FIRST_AUTHOR_ID + ThreadLocalRandom.current().nextInt(AUTHORS_AMOUNT);
+    }
+
+    @Benchmark
+    public List<ActionRecord> getActionsByTargetAscending() {
+        return store.getActionsByTargetAscending(GUILD_ID, randomTargetId());
+    }
+
+    @Benchmark
+    public List<ActionRecord> getActionsByAuthorAscending() {
+        return store.getActionsByAuthorAscending(GUILD_ID, randomAuthorId());
+    }
+
+    @Benchmark
+    public Optional<ActionRecord> findLastActionAgainstTargetByType() {
+        return store.findLastActionAgainstTargetByType(GUILD_ID, randomTargetId(),
+                ModerationAction.MUTE);
+    }
+
+    @Benchmark
+    public List<ActionRecord> getExpiredActionsAscending() {
+        return store.getExpiredActionsAscending();
+    }
+}
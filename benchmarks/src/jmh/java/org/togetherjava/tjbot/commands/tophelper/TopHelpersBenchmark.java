@@ -0,0 +1,82 @@
+package org.togetherjava.tjbot.commands.tophelper;
+
+import org.jooq.Record2;
+import org.jooq.Result;
+import org.jooq.impl.DSL;
+import org.openjdk.jmh.annotations.*;
+import org.togetherjava.tjbot.benchmarks.TemporaryDatabase;
+import org.togetherjava.tjbot.db.Database;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import static org.togetherjava.tjbot.db.generated.tables.HelpChannelMessages.HELP_CHANNEL_MESSAGES;
+
+/**
+ * Measures the monthly aggregation of {@link TopHelpersCommand} against a synthetic history of help
+ * channel messages.
+ * <p>
+ * The messages are spread over about a year, written by a large amount of users in multiple
+ * channels. The aggregation is the same query the command issues, executed on the database
+ * directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TopHelpersBenchmark {
+    private static final int MESSAGES_AMOUNT = 1_000_000;
+    private static final long GUILD_ID = 1;
+    private static final int CHANNELS_AMOUNT = 20;
+    private static final int AUTHORS_AMOUNT = 10_000;
+    private static final int MAX_MESSAGE_LENGTH = 500;
+    private static final int TOP_HELPER_LIMIT = 20;
+
+    private TemporaryDatabase temporaryDatabase;
+    private Database database;
+    private Instant previousMonthStart;
+    private Instant previousMonthEnd;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        temporaryDatabase = new TemporaryDatabase(4);
+        database = temporaryDatabase.getDatabase();
+
+        temporaryDatabase.fill("help_channel_messages",
+                "message_id, guild_id, channel_id, author_id, sent_at, message_length",
+                "x, %d, 1 + x %% %d, 1 + x %% %d, %s, 1 + x %% %d".formatted(GUILD_ID,
+                        CHANNELS_AMOUNT, AUTHORS_AMOUNT,
+                        TemporaryDatabase.timestamp("unixepoch('now') - x * 30"),
+                        MAX_MESSAGE_LENGTH),
+                MESSAGES_AMOUNT);
+
+        YearMonth previousMonth = YearMonth.now(ZoneOffset.UTC).minusMonths(1);
+        previousMonthStart = previousMonth.atDay(1).atTime(LocalTime.MIN).toInstant(ZoneOffset.UTC);
+        previousMonthEnd =
+                previousMonth.atEndOfMonth().atTime(LocalTime.MAX).toInstant(ZoneOffset.UTC);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        temporaryDatabase.close();
+    }
+
+    @Benchmark
+    public Result<Record2<Long, BigDecimal>> computeTopHelpersOfMonth() {
+        return database.read(context -> context
+            .select(HELP_CHANNEL_MESSAGES.AUTHOR_ID, DSL.sum(HELP_CHANNEL_MESSAGES.MESSAGE_LENGTH))
+            .from(HELP_CHANNEL_MESSAGES)
+            .where(HELP_CHANNEL_MESSAGES.GUILD_ID.eq(GUILD_ID)
+                .and(HELP_CHANNEL_MESSAGES.SENT_AT.between(previousMonthStart, previousMonthEnd)))
+            .groupBy(HELP_CHANNEL_MESSAGES.AUTHOR_ID)
+            .orderBy(DSL.two().desc())
+            .limit(TOP_HELPER_LIMIT)
+            .fetch());
+    }
+}
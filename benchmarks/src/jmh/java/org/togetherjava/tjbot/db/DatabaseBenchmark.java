@@ -0,0 +1,103 @@
+package org.togetherjava.tjbot.db;
+
+import org.jooq.Field;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.openjdk.jmh.annotations.*;
+import org.togetherjava.tjbot.benchmarks.TemporaryDatabase;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the read and write throughput of {@link Database}, on its own and with readers and a
+ * writer contending for access, with and without a pool of read-only connections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DatabaseBenchmark {
+    private static final Table<?> ENTRIES = DSL.table("entries");
+    private static final Field<Integer> ID = DSL.field("id", SQLDataType.INTEGER);
+    private static final Field<Integer> VALUE = DSL.field("value", SQLDataType.INTEGER);
+    private static final int ENTRIES_AMOUNT = 100_000;
+
+    @Param({"0", "4"})
+    private int readConnectionPoolSize;
+
+    private TemporaryDatabase temporaryDatabase;
+    private Database database;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        temporaryDatabase = new TemporaryDatabase(readConnectionPoolSize);
+        database = temporaryDatabase.getDatabase();
+
+        database.write(context -> context.createTable(ENTRIES)
+            .column(ID)
+            .column(VALUE)
+            .primaryKey(ID)
+            .execute());
+        temporaryDatabase.fill("entries", "id, value", "x, x", ENTRIES_AMOUNT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        temporaryDatabase.close();
+    }
+
+    private static int randomId() {
+        return ThreadLocalRandom.current().nextInt(1, ENTRIES_AMOUNT + 1);
+    }
+
+    private Integer readEntry() {
+        int id = randomId();
+        return database
+            .read(context -> context.select(VALUE).from(ENTRIES).where(ID.eq(id)).fetchOne(VALUE));
+    }
+
+    private int writeEntry() {
+        int id = randomId();
+        return database.writeAndProvide(context -> context.update(ENTRIES)
+            .set(VALUE, VALUE.plus(1))
+            .where(ID.eq(id))
+            .execute());
+    }
+
+    @Benchmark
+    public Integer read() {
+        return readEntry();
+    }
+
+    @Benchmark
+    public int write() {
+        return writeEntry();
+    }
+
+    @Benchmark
+    public void writeBehind() {
+        int id = randomId();
+        database.writeBehind(context -> context.update(ENTRIES)
+            .set(VALUE, VALUE.plus(1))
+            .where(ID.eq(id))
+            .execute());
+    }
+
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(3)
+    public Integer contendedRead() {
+        return readEntry();
+    }
+
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(1)
+    public int contendedWrite() {
+        return writeEntry();
+    }
+}
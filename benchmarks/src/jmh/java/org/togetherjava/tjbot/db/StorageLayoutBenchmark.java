@@ -0,0 +1,140 @@
+package org.togetherjava.tjbot.db;
+
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.benchmarks.TemporaryDatabase;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares storing moments, UUIDs and hashes as text with storing them compactly as epoch millis
+ * and raw bytes, as the bot does since the compact storage migration.
+ * <p>
+ * The table resembles the hot tables of the bot, keyed by a UUID like {@code component_ids} and
+ * with a timestamp and a hash like {@code scam_history}. Measured are a range scan over an index on
+ * the timestamp and a full table scan comparing the hash. The size of the table and its indexes is
+ * printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StorageLayoutBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(StorageLayoutBenchmark.class);
+    private static final int ROWS_AMOUNT = 1_000_000;
+    private static final int SECONDS_BETWEEN_ROWS = 30;
+    private static final DateTimeFormatter TEXT_TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSSxxx").withZone(ZoneOffset.UTC);
+
+    /**
+     * How the columns are stored.
+     */
+    public enum Layout {
+        /**
+         * Timestamps as text in the format of jOOQ, UUIDs and hashes as hexadecimal text.
+         */
+        TEXT("""
+                CREATE TABLE messages
+                (
+                    id           TEXT      NOT NULL PRIMARY KEY,
+                    sent_at      TIMESTAMP NOT NULL,
+                    content_hash TEXT      NOT NULL
+                )""", """
+                lower(hex(randomblob(4)) || '-' || hex(randomblob(2)) || '-' || hex(randomblob(2))
+                    || '-' || hex(randomblob(2)) || '-' || hex(randomblob(6))),
+                strftime('%Y-%m-%d %H:%M:%f000+00:00', unixepoch('now') - x * 30, 'unixepoch'),
+                hex(randomblob(32))"""),
+        /**
+         * Timestamps as epoch millis, UUIDs and hashes as raw bytes, in a table without row IDs.
+         */
+        COMPACT("""
+                CREATE TABLE messages
+                (
+                    id           BLOB   NOT NULL PRIMARY KEY,
+                    sent_at      BIGINT NOT NULL,
+                    content_hash BLOB   NOT NULL
+                ) WITHOUT ROWID""", """
+                randomblob(16),
+                (unixepoch('now') - x * 30) * 1000,
+                randomblob(32)""");
+
+        private final String createTable;
+        private final String values;
+
+        Layout(String createTable, String values) {
+            this.createTable = createTable;
+            this.values = values;
+        }
+    }
+
+    @Param
+    private Layout layout;
+
+    private TemporaryDatabase temporaryDatabase;
+    private Database database;
+    private Instant newestSentAt;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        temporaryDatabase = new TemporaryDatabase(4);
+        database = temporaryDatabase.getDatabase();
+        long sizeBefore = databaseSize();
+
+        database.write(context -> context.execute(layout.createTable));
+        database.write(context -> context
+            .execute("CREATE INDEX messages_by_sent_at ON messages (sent_at)"));
+        temporaryDatabase.fill("messages", "id, sent_at, content_hash", layout.values, ROWS_AMOUNT);
+        newestSentAt = Instant.now();
+
+        logger.info("Layout {}: {} rows take {} MiB including indexes", layout, ROWS_AMOUNT,
+                "%.1f".formatted((databaseSize() - sizeBefore) / (1024.0 * 1024.0)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        temporaryDatabase.close();
+    }
+
+    private long databaseSize() {
+        long size = database.read(context -> context
+            .fetchSingle("SELECT page_count * page_size FROM pragma_page_count, pragma_page_size")
+            .get(0, Long.class));
+        return size;
+    }
+
+    private Object sentAtParameter(Instant sentAt) {
+        return layout == Layout.TEXT ? TEXT_TIMESTAMP.format(sentAt) : sentAt.toEpochMilli();
+    }
+
+    @Benchmark
+    public int countMessagesOfRandomDay() {
+        long daysAgo =
+                ThreadLocalRandom.current().nextLong(ROWS_AMOUNT * SECONDS_BETWEEN_ROWS / 86_400);
+        Instant to = newestSentAt.minus(daysAgo, ChronoUnit.DAYS);
+        Instant from = to.minus(1, ChronoUnit.DAYS);
+
+        return database.read(
+                context -> context
+                    .fetchSingle("SELECT count(*) FROM messages WHERE sent_at >= ? AND sent_at < ?",
+                            sentAtParameter(from), sentAtParameter(to))
+                    .get(0, Integer.class));
+    }
+
+    @Benchmark
+    public int scanAllHashes() {
+        // No index on the hash, so SQLite has to read the whole table
+        return database.read(
+                context -> context
+                    .fetchSingle("SELECT count(*) FROM messages WHERE content_hash = ?",
+                            layout == Layout.TEXT ? "00" : new byte[] {0})
+                    .get(0, Integer.class));
+    }
+}
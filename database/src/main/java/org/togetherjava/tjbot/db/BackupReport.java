@@ -0,0 +1,18 @@
+package org.togetherjava.tjbot.db;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Report about a backup of the database, see {@link DatabaseBackups#create()}.
+ *
+ * @param file the compressed backup file
+ * @param pages the amount of pages that have been copied from the database
+ * @param databaseSize the size of the uncompressed snapshot of the database, in bytes
+ * @param compressedSize the size of the backup file, in bytes
+ * @param deletedBackups the amount of old backups that have been deleted by the rotation
+ * @param timeSpent the total time spent, including compression and rotation
+ */
+public record BackupReport(Path file, long pages, long databaseSize, long compressedSize,
+        int deletedBackups, Duration timeSpent) {
+}
@@ -0,0 +1,18 @@
+package org.togetherjava.tjbot.db;
+
+/**
+ * Snapshot of statistics about the database access of a single caller, such as a store of a
+ * feature. See {@link Database#getQueryStatistics()}.
+ *
+ * @param caller the simple name of the class that accessed the database
+ * @param calls the total amount of calls to access methods of the database, such as
+ *        {@link Database#read(org.togetherjava.tjbot.db.util.CheckedFunction)}
+ * @param statements the total amount of SQL statements executed during those calls
+ * @param rowsAffected the total amount of rows affected by modifying statements
+ * @param accessWait the time spent waiting for access, i.e. for the write lock or a free read-only
+ *        connection
+ * @param execution the time spent executing the calls, after access was granted
+ */
+public record CallerStatistics(String caller, long calls, long statements, long rowsAffected,
+        LatencyStatistics accessWait, LatencyStatistics execution) {
+}
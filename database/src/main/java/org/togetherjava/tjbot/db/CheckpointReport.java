@@ -0,0 +1,19 @@
+package org.togetherjava.tjbot.db;
+
+import java.time.Duration;
+
+/**
+ * Report about a checkpoint of the write-ahead log, see {@link Database#checkpoint()}.
+ *
+ * @param busy whether the checkpoint could not complete, for example because a reader was still
+ *        using the log
+ * @param walPages the amount of pages in the log, -1 if the database is not in WAL mode
+ * @param checkpointedPages the amount of pages that have been written back to the database file, -1
+ *        if the database is not in WAL mode
+ * @param walSizeBefore the size of the log file before the checkpoint, in bytes
+ * @param walSizeAfter the size of the log file after the checkpoint, in bytes
+ * @param timeSpent the time spent for the checkpoint
+ */
+public record CheckpointReport(boolean busy, int walPages, int checkpointedPages,
+        long walSizeBefore, long walSizeAfter, Duration timeSpent) {
+}
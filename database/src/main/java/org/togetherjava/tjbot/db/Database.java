@@ -2,44 +2,171 @@ package org.togetherjava.tjbot.db;
 
 import org.flywaydb.core.Flyway;
 import org.jooq.DSLContext;
+import org.jooq.Record;
 import org.jooq.SQLDialect;
 import org.jooq.Table;
 import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
 import org.sqlite.SQLiteConfig;
 import org.sqlite.SQLiteDataSource;
 import org.togetherjava.tjbot.db.util.CheckedConsumer;
 import org.togetherjava.tjbot.db.util.CheckedFunction;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * The main database class used by the application.
  * <p>
- * Create an instance using {@link #Database(String)} and prefer to re-use it. The underlying
- * connections are handled automatically by the system.
+ * Create an instance using {@link #Database(String)} or {@link #Database(String, int)} and prefer
+ * to re-use it. The underlying connections are handled automatically by the system.
+ * <p>
+ * By default, all access is done through a single connection. In pooled mode, a dedicated pool of
+ * read-only connections is used for all read-methods, such as {@link #read(CheckedFunction)}. Since
+ * the database operates in WAL mode, those reads can then run concurrently to each other and to a
+ * write, without waiting for it to finish. Writes always go through a single connection and are
+ * synchronized.
+ * <p>
+ * All access methods block until done. Each of them also has an asynchronous variant, such as
+ * {@link #readAsync(CheckedFunction)}, which is executed by a dedicated executor of the database
+ * instead. Those are meant for callers that must not wait for I/O, such as event listeners.
+ * <p>
+ * High-frequency writes whose results are not needed right away, such as logging an event, can use
+ * {@link #writeBehind(CheckedConsumer)} to be grouped with other writes into a single transaction.
+ * <p>
+ * All access is measured, see {@link #getQueryStatistics()}. SQL statements that take longer than a
+ * configurable threshold are logged.
+ * <p>
+ * Connections can be tuned with a {@link PerformanceProfile}. Long-running applications should
+ * periodically call {@link #checkpoint()} and {@link #optimize()} to keep the write-ahead log small
+ * and the statistics of the query planner up to date.
  * <p>
  * Instances of this class are thread-safe and can be used to concurrently write to the database.
  */
-public final class Database {
+public final class Database implements AutoCloseable {
+    private static final int WRITE_BEHIND_CAPACITY = 10_000;
+    private static final int WRITE_BEHIND_MAX_BATCH_SIZE = 500;
+    private static final long WRITE_BEHIND_FLUSH_EVERY = 500;
+    private static final TimeUnit WRITE_BEHIND_FLUSH_EVERY_UNIT = TimeUnit.MILLISECONDS;
+    private static final int MIN_ASYNC_THREADS = 2;
+    private static final long CLOSE_AWAIT_ASYNC_TIMEOUT = 5;
+    private static final TimeUnit CLOSE_AWAIT_ASYNC_TIMEOUT_UNIT = TimeUnit.SECONDS;
+    private static final Duration DEFAULT_SLOW_QUERY_THRESHOLD = Duration.ofMillis(500);
 
+    private final QueryMetrics queryMetrics;
+    private final Connection writeConnection;
     private final DSLContext dslContext;
+    /**
+     * The write-ahead log file of the database, {@code null} if the database has no file.
+     */
+    private final Path walFile;
+    /**
+     * Source of dedicated connections for backups, {@code null} for in-memory databases.
+     */
+    private final SQLiteDataSource backupDataSource;
+    /**
+     * All read-only connections of the pool, empty if not operating in pooled mode.
+     */
+    private final Collection<Connection> readConnections = new ArrayList<>();
+    /**
+     * The contexts of the read-only connections that are currently not in use, {@code null} if not
+     * operating in pooled mode.
+     */
+    private final BlockingQueue<DSLContext> availableReadContexts;
     /**
      * Lock used to implement thread-safety across this class. Any database modifying method must
      * use this lock.
      */
     private final Lock writeLock = new ReentrantLock();
+    private final WriteBehindBuffer writeBehindBuffer;
+    /**
+     * Executes the asynchronous variants of the access methods, such as
+     * {@link #readAsync(CheckedFunction)}.
+     */
+    private final ExecutorService asyncService;
 
     /**
-     * Creates an instance of a new database.
+     * Creates an instance of a new database, which uses a single connection for all access.
      *
      * @param jdbcUrl the url to the database in the format expected by JDBC
      * @throws SQLException if no connection could be established
      */
     public Database(String jdbcUrl) throws SQLException {
+        this(jdbcUrl, 0);
+    }
+
+    /**
+     * Creates an instance of a new database, which uses a pool of read-only connections for all
+     * read-access and logs statements taking longer than a default threshold.
+     *
+     * @param jdbcUrl the url to the database in the format expected by JDBC
+     * @param readConnectionPoolSize the amount of read-only connections to open, 0 to disable
+     *        pooling and use a single connection for all access
+     * @throws SQLException if no connection could be established
+     * @see #Database(String, int, Duration)
+     */
+    public Database(String jdbcUrl, int readConnectionPoolSize) throws SQLException {
+        this(jdbcUrl, readConnectionPoolSize, DEFAULT_SLOW_QUERY_THRESHOLD);
+    }
+
+    /**
+     * Creates an instance of a new database, which uses a pool of read-only connections for all
+     * read-access.
+     * <p>
+     * In-memory databases do not support pooling, since each connection would see its own database.
+     * For them, the pool size is ignored and all access goes through a single connection.
+     *
+     * @param jdbcUrl the url to the database in the format expected by JDBC
+     * @param readConnectionPoolSize the amount of read-only connections to open, 0 to disable
+     *        pooling and use a single connection for all access
+     * @param slowQueryThreshold SQL statements that take at least this long to execute are logged
+     * @throws SQLException if no connection could be established
+     * @see #Database(String, int, Duration, PerformanceProfile)
+     */
+    public Database(String jdbcUrl, int readConnectionPoolSize, Duration slowQueryThreshold)
+            throws SQLException {
+        this(jdbcUrl, readConnectionPoolSize, slowQueryThreshold,
+                PerformanceProfile.SQLITE_DEFAULTS);
+    }
+
+    /**
+     * Creates an instance of a new database, which uses a pool of read-only connections for all
+     * read-access and configures all connections according to the given performance profile.
+     * <p>
+     * In-memory databases do not support pooling, since each connection would see its own database.
+     * For them, the pool size is ignored and all access goes through a single connection.
+     *
+     * @param jdbcUrl the url to the database in the format expected by JDBC
+     * @param readConnectionPoolSize the amount of read-only connections to open, 0 to disable
+     *        pooling and use a single connection for all access
+     * @param slowQueryThreshold SQL statements that take at least this long to execute are logged
+     * @param performanceProfile the performance related settings to apply to all connections
+     * @throws SQLException if no connection could be established
+     */
+    public Database(String jdbcUrl, int readConnectionPoolSize, Duration slowQueryThreshold,
+            PerformanceProfile performanceProfile) throws SQLException {
+        if (readConnectionPoolSize < 0) {
+            throw new IllegalArgumentException(
+                    "The read connection pool size must not be negative, but was "
+                            + readConnectionPoolSize);
+        }
+
         SQLiteConfig sqliteConfig = new SQLiteConfig();
+        performanceProfile.applyTo(sqliteConfig);
         sqliteConfig.enforceForeignKeys(true);
         // In WAL mode only concurrent writes pose a problem, so we synchronize those
         sqliteConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);
@@ -51,7 +178,76 @@ public final class Database {
                 Flyway.configure().dataSource(dataSource).locations("classpath:/db/").load();
         flyway.migrate();
 
-        dslContext = DSL.using(dataSource.getConnection(), SQLDialect.SQLITE);
+        queryMetrics = new QueryMetrics(slowQueryThreshold);
+        writeConnection = dataSource.getConnection();
+        dslContext = createDslContext(writeConnection);
+        // Only the write connection checkpoints automatically, so the setting only matters here
+        dslContext
+            .execute("PRAGMA wal_autocheckpoint = " + performanceProfile.walAutoCheckpointPages());
+        walFile = findWalFile(dslContext);
+        backupDataSource = isMemoryDatabase(jdbcUrl) ? null : dataSource;
+        writeBehindBuffer =
+                new WriteBehindBuffer(this, WRITE_BEHIND_CAPACITY, WRITE_BEHIND_MAX_BATCH_SIZE,
+                        WRITE_BEHIND_FLUSH_EVERY, WRITE_BEHIND_FLUSH_EVERY_UNIT);
+        // Enough threads to utilize all read connections and the write connection at the same time
+        asyncService = createAsyncService(Math.max(MIN_ASYNC_THREADS, readConnectionPoolSize + 1));
+
+        if (readConnectionPoolSize == 0 || isMemoryDatabase(jdbcUrl)) {
+            availableReadContexts = null;
+            return;
+        }
+
+        SQLiteConfig readSqliteConfig = new SQLiteConfig();
+        performanceProfile.applyTo(readSqliteConfig);
+        readSqliteConfig.setReadOnly(true);
+
+        SQLiteDataSource readDataSource = new SQLiteDataSource(readSqliteConfig);
+        readDataSource.setUrl(jdbcUrl);
+
+        availableReadContexts = new ArrayBlockingQueue<>(readConnectionPoolSize);
+        try {
+            for (int i = 0; i < readConnectionPoolSize; i++) {
+                Connection readConnection = readDataSource.getConnection();
+                readConnections.add(readConnection);
+                availableReadContexts.add(createDslContext(readConnection));
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private DSLContext createDslContext(Connection connection) {
+        return DSL.using(new DefaultConfiguration().set(connection)
+            .set(SQLDialect.SQLITE)
+            .set(queryMetrics));
+    }
+
+    private static Path findWalFile(DSLContext context) {
+        String databaseFile = context.fetch("PRAGMA database_list")
+            .stream()
+            .filter(database -> "main".equals(database.get("name", String.class)))
+            .map(database -> database.get("file", String.class))
+            .findAny()
+            .orElse("");
+
+        // In-memory and temporary databases have no file
+        return databaseFile.isEmpty() ? null : Path.of(databaseFile + "-wal");
+    }
+
+    private static ExecutorService createAsyncService(int threads) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread =
+                    new Thread(runnable, "database-async-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static boolean isMemoryDatabase(String jdbcUrl) {
+        return "jdbc:sqlite:".equals(jdbcUrl) || jdbcUrl.contains(":memory:")
+                || jdbcUrl.contains("mode=memory");
     }
 
     /**
@@ -80,8 +276,13 @@ public final class Database {
      */
     public <T> T read(
             CheckedFunction<? super DSLContext, T, ? extends DataAccessException> action) {
+        return read(queryMetrics.findCaller(action), action);
+    }
+
+    private <T> T read(String caller,
+            CheckedFunction<? super DSLContext, T, ? extends DataAccessException> action) {
         try {
-            return action.accept(getDslContext());
+            return withReadDslContext(caller, action);
         } catch (DataAccessException e) {
             throw new DatabaseException(e);
         }
@@ -95,7 +296,7 @@ public final class Database {
      */
     public void readAndConsume(
             CheckedConsumer<? super DSLContext, ? extends DataAccessException> action) {
-        read(context -> {
+        read(queryMetrics.findCaller(action), context -> {
             action.accept(context);
             // noinspection ReturnOfNull
             return null;
@@ -112,9 +313,16 @@ public final class Database {
      */
     public <T> T writeAndProvide(
             CheckedFunction<? super DSLContext, T, ? extends DataAccessException> action) {
+        return writeAndProvide(queryMetrics.findCaller(action), action);
+    }
+
+    private <T> T writeAndProvide(String caller,
+            CheckedFunction<? super DSLContext, T, ? extends DataAccessException> action) {
+        long waitStartNanos = System.nanoTime();
         writeLock.lock();
         try {
-            return action.accept(getDslContext());
+            long waitNanos = System.nanoTime() - waitStartNanos;
+            return queryMetrics.measure(caller, waitNanos, () -> action.accept(getDslContext()));
         } catch (DataAccessException e) {
             throw new DatabaseException(e);
         } finally {
@@ -129,13 +337,240 @@ public final class Database {
      * @throws DatabaseException if an error occurs in the given action
      */
     public void write(CheckedConsumer<? super DSLContext, ? extends DataAccessException> action) {
-        writeAndProvide(context -> {
+        writeAndProvide(queryMetrics.findCaller(action), context -> {
             action.accept(context);
             // noinspection ReturnOfNull
             return null;
         });
     }
 
+    /**
+     * Asynchronous variant of {@link #read(CheckedFunction)}, which does not block the caller.
+     *
+     * @param action the action to apply to the DSL context, e.g. a query
+     * @param <T> the type returned by the given action
+     * @return a future that completes with the result returned by the given action, or
+     *         exceptionally with a {@link DatabaseException} if an error occurs in the given action
+     */
+    public <T> CompletableFuture<T> readAsync(
+            CheckedFunction<? super DSLContext, T, ? extends DataAccessException> action) {
+        String caller = queryMetrics.findCaller(action);
+        return CompletableFuture.supplyAsync(() -> read(caller, action), asyncService);
+    }
+
+    /**
+     * Asynchronous variant of {@link #writeAndProvide(CheckedFunction)}, which does not block the
+     * caller.
+     *
+     * @param action the action to apply to the DSL context, e.g. a query
+     * @param <T> the type returned by the given action
+     * @return a future that completes with the result returned by the given action, or
+     *         exceptionally with a {@link DatabaseException} if an error occurs in the given action
+     */
+    public <T> CompletableFuture<T> writeAsync(
+            CheckedFunction<? super DSLContext, T, ? extends DataAccessException> action) {
+        String caller = queryMetrics.findCaller(action);
+        return CompletableFuture.supplyAsync(() -> writeAndProvide(caller, action), asyncService);
+    }
+
+    /**
+     * Asynchronous variant of {@link #writeTransactionAndProvide(CheckedFunction)}, which does not
+     * block the caller.
+     *
+     * @param handler the handler that is executed within the context of the transaction. The
+     *        handler will be called once and its return value is returned from the transaction.
+     * @param <T> the return type of the handler
+     * @return a future that completes with the object that is returned by the given handler, or
+     *         exceptionally with a {@link DatabaseException} if an error occurs in the given
+     *         handler function
+     */
+    public <T> CompletableFuture<T> writeTransactionAsync(
+            CheckedFunction<? super DSLContext, T, DataAccessException> handler) {
+        String caller = queryMetrics.findCaller(handler);
+        return CompletableFuture.supplyAsync(() -> writeTransactionAndProvide(caller, handler),
+                asyncService);
+    }
+
+    /**
+     * Schedules the given write to be executed eventually, without waiting for it.
+     * <p>
+     * The write is buffered and executed together with other buffered writes within a single
+     * transaction, either periodically or once enough writes have been collected. This drastically
+     * reduces the overhead of many small writes, such as inserting a record for each received
+     * event. Writes are executed in the order they were scheduled.
+     * <p>
+     * Since the write is executed later, its changes are not visible to reads right away. Failures
+     * are logged but not reported to the caller. Use {@link #write(CheckedConsumer)} instead if
+     * either is a problem. If the buffer is full, the pending writes are flushed and the write is
+     * then executed directly instead, blocking until done.
+     * <p>
+     * All pending writes are flushed when the database is closed, or on demand using
+     * {@link #flushWriteBehind()}.
+     *
+     * @param action the action to apply to the DSL context, e.g. an insert
+     * @throws DatabaseException if the buffer was full and an error occurred while executing the
+     *         action directly
+     */
+    public void writeBehind(
+            CheckedConsumer<? super DSLContext, ? extends DataAccessException> action) {
+        if (!writeBehindBuffer.offer(action)) {
+            writeBehindBuffer.flushAndWrite(action);
+        }
+    }
+
+    /**
+     * Executes all writes that have been scheduled by {@link #writeBehind(CheckedConsumer)} and are
+     * still pending, blocking until done.
+     */
+    public void flushWriteBehind() {
+        writeBehindBuffer.flush();
+    }
+
+    /**
+     * Gets statistics about the writes scheduled by {@link #writeBehind(CheckedConsumer)}, such as
+     * the amount of writes that are currently pending.
+     *
+     * @return the current statistics
+     */
+    public WriteBehindStatistics getWriteBehindStatistics() {
+        return writeBehindBuffer.getStatistics();
+    }
+
+    /**
+     * Gets statistics about all access to this database so far, grouped by the class that accessed
+     * it. This includes, for example, how long calls had to wait for the write lock, how long they
+     * took to execute and how many statements they issued.
+     *
+     * @return statistics for each caller, the caller with the most calls first
+     */
+    public Collection<CallerStatistics> getQueryStatistics() {
+        return queryMetrics.getStatistics();
+    }
+
+    /**
+     * Gets the current size of the write-ahead log file of this database.
+     *
+     * @return the size of the log file in bytes, 0 if there is none, for example for in-memory
+     *         databases
+     * @throws DatabaseException if the size could not be determined
+     */
+    public long getWalSize() {
+        if (walFile == null) {
+            return 0;
+        }
+
+        try {
+            return Files.exists(walFile) ? Files.size(walFile) : 0;
+        } catch (IOException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Checkpoints the write-ahead log, writing all its pages back to the database file and
+     * truncating the log file to zero bytes afterwards.
+     * <p>
+     * SQLite checkpoints automatically, see {@link PerformanceProfile#walAutoCheckpointPages()}.
+     * However, those checkpoints never shrink the log file and can not complete while readers are
+     * using the log, so under constant load the file may grow large. This method is meant to be
+     * called periodically at quiet times to bound its size.
+     * <p>
+     * Blocks writes until done and waits for active readers to finish.
+     *
+     * @return a report about the checkpoint
+     * @throws DatabaseException if an error occurs while checkpointing
+     */
+    public CheckpointReport checkpoint() {
+        return writeAndProvide(context -> {
+            long startNanos = System.nanoTime();
+            long walSizeBefore = getWalSize();
+            Record result = context.fetchOne("PRAGMA wal_checkpoint(TRUNCATE)");
+            Objects.requireNonNull(result);
+
+            return new CheckpointReport(result.get(0, Integer.class) != 0,
+                    result.get(1, Integer.class), result.get(2, Integer.class), walSizeBefore,
+                    getWalSize(), Duration.ofNanos(System.nanoTime() - startNanos));
+        });
+    }
+
+    /**
+     * Lets SQLite refresh the statistics used by its query planner where they are outdated or
+     * missing, see <a href="https://www.sqlite.org/pragma.html#pragma_optimize">PRAGMA
+     * optimize</a>.
+     * <p>
+     * Cheap if there is nothing to do, it is meant to be called periodically, for example every few
+     * hours.
+     *
+     * @throws DatabaseException if an error occurs while optimizing
+     */
+    public void optimize() {
+        write(context -> context.fetch("PRAGMA optimize"));
+    }
+
+    /**
+     * Writes a consistent snapshot of this database into the given file, using
+     * <a href="https://www.sqlite.org/lang_vacuum.html#vacuuminto">VACUUM INTO</a>.
+     * <p>
+     * The snapshot is read through a dedicated connection. Since the database operates in WAL mode,
+     * writes are not blocked while the snapshot is taken, they are just not part of it. For
+     * in-memory databases, the snapshot is taken on the regular connection and blocks writes.
+     *
+     * @param target the file to write the snapshot to, must not exist yet
+     * @return the amount of pages that have been copied
+     * @throws DatabaseException if the snapshot could not be written
+     */
+    public long backupInto(Path target) {
+        if (backupDataSource == null) {
+            return writeAndProvide(context -> vacuumInto(context, target));
+        }
+
+        try (Connection connection = backupDataSource.getConnection()) {
+            return vacuumInto(createDslContext(connection), target);
+        } catch (SQLException | DataAccessException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    private static long vacuumInto(DSLContext context, Path target) {
+        context.execute("VACUUM INTO ?", target.toString());
+
+        Record pageSize = Objects.requireNonNull(context.fetchOne("PRAGMA page_size"));
+        try {
+            return Files.size(target) / pageSize.get(0, Long.class);
+        } catch (IOException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Registers a listener that is called with the SQL of every statement executed on this database
+     * from now on, for example to inspect query plans in tests. Bind values are inlined into the
+     * SQL.
+     * <p>
+     * The listener is called synchronously on the thread executing the statement, so it should be
+     * fast and must not access the database itself.
+     *
+     * @param listener the listener to call for each executed statement
+     */
+    public void addStatementListener(Consumer<? super String> listener) {
+        queryMetrics.addStatementListener(listener);
+    }
+
+    /**
+     * Executes the given action with all database access of the current thread being attributed to
+     * the given caller in the query statistics.
+     *
+     * @param caller the caller to attribute the access to
+     * @param action the action to execute
+     */
+    void runAsCaller(String caller, Runnable action) {
+        queryMetrics.runAsCaller(caller, () -> {
+            action.run();
+            // noinspection ReturnOfNull
+            return null;
+        });
+    }
+
     /**
      * Acquires a transaction that can only read from the database.
      *
@@ -147,10 +582,19 @@ public final class Database {
      */
     public <T> T readTransaction(
             CheckedFunction<? super DSLContext, T, DataAccessException> handler) {
+        return readTransaction(queryMetrics.findCaller(handler), handler);
+    }
+
+    private <T> T readTransaction(String caller,
+            CheckedFunction<? super DSLContext, T, DataAccessException> handler) {
         var holder = new ResultHolder<T>();
 
         try {
-            getDslContext().transaction(config -> holder.result = handler.accept(config.dsl()));
+            withReadDslContext(caller, context -> {
+                context.transaction(config -> holder.result = handler.accept(config.dsl()));
+                // noinspection ReturnOfNull
+                return null;
+            });
         } catch (DataAccessException e) {
             throw new DatabaseException(e);
         }
@@ -167,7 +611,7 @@ public final class Database {
      */
     public void readTransactionAndConsume(
             CheckedConsumer<? super DSLContext, ? extends DataAccessException> handler) {
-        readTransaction(dsl -> {
+        readTransaction(queryMetrics.findCaller(handler), dsl -> {
             handler.accept(dsl);
             // noinspection ReturnOfNull
             return null;
@@ -186,11 +630,22 @@ public final class Database {
      */
     public <T> T writeTransactionAndProvide(
             CheckedFunction<? super DSLContext, T, DataAccessException> handler) {
+        return writeTransactionAndProvide(queryMetrics.findCaller(handler), handler);
+    }
+
+    private <T> T writeTransactionAndProvide(String caller,
+            CheckedFunction<? super DSLContext, T, DataAccessException> handler) {
         var holder = new ResultHolder<T>();
 
+        long waitStartNanos = System.nanoTime();
         writeLock.lock();
         try {
-            getDslContext().transaction(config -> holder.result = handler.accept(config.dsl()));
+            long waitNanos = System.nanoTime() - waitStartNanos;
+            queryMetrics.measure(caller, waitNanos, () -> {
+                getDslContext().transaction(config -> holder.result = handler.accept(config.dsl()));
+                // noinspection ReturnOfNull
+                return null;
+            });
         } catch (DataAccessException e) {
             throw new DatabaseException(e);
         } finally {
@@ -209,17 +664,100 @@ public final class Database {
      */
     public void writeTransaction(
             CheckedConsumer<? super DSLContext, ? extends DataAccessException> handler) {
-        writeTransactionAndProvide(dsl -> {
+        writeTransactionAndProvide(queryMetrics.findCaller(handler), dsl -> {
             handler.accept(dsl);
             // noinspection ReturnOfNull
             return null;
         });
     }
 
+    /**
+     * Closes all connections of this database. The database can not be used anymore afterwards.
+     * <p>
+     * Asynchronous access that is still running, as well as all writes that are still pending from
+     * {@link #writeBehind(CheckedConsumer)}, are given the chance to finish before.
+     *
+     * @throws DatabaseException if an error occurred while closing a connection
+     */
+    @Override
+    public void close() {
+        asyncService.shutdown();
+        try {
+            asyncService.awaitTermination(CLOSE_AWAIT_ASYNC_TIMEOUT,
+                    CLOSE_AWAIT_ASYNC_TIMEOUT_UNIT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeBehindBuffer.close();
+
+        List<SQLException> failures = new ArrayList<>();
+        for (Connection connection : readConnections) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                failures.add(e);
+            }
+        }
+
+        writeLock.lock();
+        try {
+            writeConnection.close();
+        } catch (SQLException e) {
+            failures.add(e);
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (!failures.isEmpty()) {
+            DatabaseException exception = new DatabaseException(failures.get(0));
+            failures.stream().skip(1).forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
     private DSLContext getDslContext() {
         return dslContext;
     }
 
+    /**
+     * Applies the given action to a context that can be used for read-only access.
+     * <p>
+     * In pooled mode, a context of the read-only pool is acquired for the duration of the action,
+     * waiting until one is available if needed. Otherwise, the regular context is used.
+     * <p>
+     * The action is measured in the query metrics.
+     *
+     * @param caller the caller who issued the action, see {@link QueryMetrics#findCaller(Object)}
+     * @param action the action to apply to the context
+     * @param <T> the type returned by the given action
+     * @return the result returned by the given action
+     * @throws DataAccessException if an error occurs in the given action
+     * @throws DatabaseException if interrupted while waiting for a read-only connection
+     */
+    private <T> T withReadDslContext(String caller,
+            CheckedFunction<? super DSLContext, T, ? extends DataAccessException> action) {
+        if (availableReadContexts == null) {
+            return queryMetrics.measure(caller, 0, () -> action.accept(getDslContext()));
+        }
+
+        long waitStartNanos = System.nanoTime();
+        DSLContext readContext;
+        try {
+            readContext = availableReadContexts.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException(e);
+        }
+
+        long waitNanos = System.nanoTime() - waitStartNanos;
+
+        try {
+            return queryMetrics.measure(caller, waitNanos, () -> action.accept(readContext));
+        } finally {
+            availableReadContexts.add(readContext);
+        }
+    }
+
     /**
      * Utility classed used to wrap a result, for example to bypass <i>effectively final</i>
      * restrictions.
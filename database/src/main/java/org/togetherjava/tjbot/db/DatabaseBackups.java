@@ -0,0 +1,143 @@
+package org.togetherjava.tjbot.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Creates compressed backups of a {@link Database} while it is running and rotates them, keeping
+ * only the most recent ones.
+ * <p>
+ * Backups are consistent snapshots taken with {@link Database#backupInto(Path)}, which does not
+ * block writers. They are stored as gzip-compressed SQLite files in a directory, named after the
+ * moment they were taken, for example {@code backup-20220914-031500-000.db.gz}.
+ * <p>
+ * The class is thread-safe, concurrent calls to {@link #create()} are executed one after another.
+ */
+public final class DatabaseBackups {
+    private static final String FILE_PREFIX = "backup-";
+    private static final String FILE_SUFFIX = ".db.gz";
+    private static final String SNAPSHOT_SUFFIX = ".db.tmp";
+    // Lexicographic order of the names is their chronological order
+    private static final DateTimeFormatter FILE_TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+
+    private final Database database;
+    private final Path directory;
+    private final int maxBackups;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param database the database to back up
+     * @param directory the directory to store backups in, created if it does not exist yet
+     * @param maxBackups the amount of most recent backups to keep, must be positive
+     */
+    public DatabaseBackups(Database database, Path directory, int maxBackups) {
+        if (maxBackups <= 0) {
+            throw new IllegalArgumentException(
+                    "The amount of backups to keep must be positive, but was " + maxBackups);
+        }
+
+        this.database = database;
+        this.directory = directory;
+        this.maxBackups = maxBackups;
+    }
+
+    /**
+     * Creates a new compressed backup of the database and deletes the oldest backups, if there are
+     * more than the amount to keep.
+     *
+     * @return a report about the backup
+     * @throws DatabaseException if the backup could not be created
+     */
+    public synchronized BackupReport create() {
+        long startNanos = System.nanoTime();
+        String name = FILE_PREFIX + FILE_TIMESTAMP.format(Instant.now());
+        Path snapshot = directory.resolve(name + SNAPSHOT_SUFFIX);
+        Path backup = directory.resolve(name + FILE_SUFFIX);
+
+        long pages;
+        long databaseSize;
+        long compressedSize;
+        try {
+            Files.createDirectories(directory);
+
+            pages = database.backupInto(snapshot);
+            compress(snapshot, backup);
+            databaseSize = Files.size(snapshot);
+            compressedSize = Files.size(backup);
+        } catch (IOException e) {
+            deleteQuietly(backup);
+            throw new DatabaseException(e);
+        } finally {
+            deleteQuietly(snapshot);
+        }
+
+        int deletedBackups = deleteOldBackups();
+        return new BackupReport(backup, pages, databaseSize, compressedSize, deletedBackups,
+                Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Gets all backups that currently exist.
+     *
+     * @return the backup files, the most recent first
+     * @throws DatabaseException if the backup directory could not be read
+     */
+    public List<Path> getBackups() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(DatabaseBackups::isBackup)
+                .sorted(Comparator.comparing(Path::getFileName).reversed())
+                .toList();
+        } catch (IOException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    private static boolean isBackup(Path file) {
+        String fileName = file.getFileName().toString();
+        return fileName.startsWith(FILE_PREFIX) && fileName.endsWith(FILE_SUFFIX);
+    }
+
+    private static void compress(Path source, Path target) throws IOException {
+        try (InputStream input = Files.newInputStream(source);
+                OutputStream output = new GZIPOutputStream(Files.newOutputStream(target))) {
+            input.transferTo(output);
+        }
+    }
+
+    private int deleteOldBackups() {
+        List<Path> oldBackups = getBackups().stream().skip(maxBackups).toList();
+        try {
+            for (Path oldBackup : oldBackups) {
+                Files.delete(oldBackup);
+            }
+        } catch (IOException e) {
+            throw new DatabaseException(e);
+        }
+        return oldBackups.size();
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // The next backup uses a different name, so a left-over file does not break anything
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.togetherjava.tjbot.db;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of statistics about a latency, such as how long it takes to execute a query.
+ * <p>
+ * Percentiles are computed over a window of the most recent samples, while {@link #count()} and
+ * {@link #max()} cover all samples ever recorded.
+ *
+ * @param count the total amount of samples
+ * @param mean the mean over the recent samples
+ * @param p50 the median over the recent samples
+ * @param p99 the 99th percentile over the recent samples
+ * @param max the maximal sample
+ */
+public record LatencyStatistics(long count, Duration mean, Duration p50, Duration p99,
+        Duration max) {
+}
@@ -0,0 +1,109 @@
+package org.togetherjava.tjbot.db;
+
+import org.sqlite.SQLiteConfig;
+
+import java.util.Objects;
+
+/**
+ * Performance related settings of the SQLite connections of a {@link Database}.
+ * <p>
+ * See the <a href="https://www.sqlite.org/pragma.html">SQLite pragma documentation</a> for details
+ * about each setting.
+ *
+ * @param synchronous how often SQLite waits for data to be written to disk. In WAL mode,
+ *        {@link Synchronous#NORMAL} is safe against corruption and only risks losing the most
+ *        recent transactions on a power loss.
+ * @param cacheSizeKib the maximal size of the page cache of each connection, in KiB
+ * @param mmapSizeBytes the maximal amount of bytes of the database file that are memory-mapped, 0
+ *        to disable memory-mapped I/O
+ * @param tempStore where temporary tables and indices are stored
+ * @param walAutoCheckpointPages after how many pages in the WAL a checkpoint is attempted
+ *        automatically, 0 to disable automatic checkpoints
+ */
+public record PerformanceProfile(Synchronous synchronous, int cacheSizeKib, long mmapSizeBytes,
+        TempStore tempStore, int walAutoCheckpointPages) {
+
+    /**
+     * The settings SQLite uses by default.
+     */
+    public static final PerformanceProfile SQLITE_DEFAULTS =
+            new PerformanceProfile(Synchronous.FULL, 2_000, 0, TempStore.DEFAULT, 1_000);
+
+    /**
+     * Creates a new profile.
+     *
+     * @param synchronous how often SQLite waits for data to be written to disk
+     * @param cacheSizeKib the maximal size of the page cache of each connection, in KiB
+     * @param mmapSizeBytes the maximal amount of bytes of the database file that are memory-mapped,
+     *        0 to disable memory-mapped I/O
+     * @param tempStore where temporary tables and indices are stored
+     * @param walAutoCheckpointPages after how many pages in the WAL a checkpoint is attempted
+     *        automatically, 0 to disable automatic checkpoints
+     * @throws IllegalArgumentException if any of the sizes is negative
+     */
+    public PerformanceProfile {
+        Objects.requireNonNull(synchronous);
+        Objects.requireNonNull(tempStore);
+
+        if (cacheSizeKib < 0 || mmapSizeBytes < 0 || walAutoCheckpointPages < 0) {
+            throw new IllegalArgumentException(
+                    "Sizes of a performance profile must not be negative, but got " + cacheSizeKib
+                            + " KiB cache, " + mmapSizeBytes + " bytes mmap and "
+                            + walAutoCheckpointPages + " pages auto-checkpoint");
+        }
+    }
+
+    /**
+     * Applies the settings that can be set when opening a connection to the given config.
+     * <p>
+     * {@link #walAutoCheckpointPages()} is not supported by the driver config and has to be set on
+     * the connection itself.
+     *
+     * @param config the config to apply the settings to
+     */
+    void applyTo(SQLiteConfig config) {
+        config.setSynchronous(SQLiteConfig.SynchronousMode.valueOf(synchronous.name()));
+        // Negative values are interpreted as KiB instead of pages by SQLite
+        config.setCacheSize(-cacheSizeKib);
+        config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, Long.toString(mmapSizeBytes));
+        config.setTempStore(SQLiteConfig.TempStore.valueOf(tempStore.name()));
+    }
+
+    /**
+     * How often SQLite waits for data to be written to disk, see
+     * <a href="https://www.sqlite.org/pragma.html#pragma_synchronous">PRAGMA synchronous</a>.
+     */
+    public enum Synchronous {
+        /**
+         * Hands data over to the operating system without waiting for it to be written.
+         */
+        OFF,
+        /**
+         * Waits at critical moments, but less often than {@link #FULL}.
+         */
+        NORMAL,
+        /**
+         * Waits until all data is safely written to disk.
+         */
+        FULL
+    }
+
+    /**
+     * Where temporary tables and indices are stored, see
+     * <a href="https://www.sqlite.org/pragma.html#pragma_temp_store">PRAGMA temp_store</a>.
+     */
+    public enum TempStore {
+        /**
+         * As decided at compile time of SQLite, usually in files.
+         */
+        DEFAULT,
+        /**
+         * In temporary files.
+         */
+        FILE,
+        /**
+         * In memory.
+         */
+        MEMORY
+    }
+}
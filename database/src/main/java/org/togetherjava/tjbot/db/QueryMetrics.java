@@ -0,0 +1,321 @@
+package org.togetherjava.tjbot.db;
+
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.ExecuteType;
+import org.jooq.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serial;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Records metrics about all access to a {@link Database}, such as how long calls had to wait for
+ * the write lock or how long their execution took, grouped by the calling class.
+ * <p>
+ * Calls are measured by {@link #measure(String, long, Supplier)}, while individual SQL statements
+ * are observed by registering this as {@link ExecuteListener} on the DSL contexts of the database.
+ * Statements that take longer than a threshold are logged, together with their SQL. Further,
+ * listeners can be registered to observe the SQL of all executed statements.
+ * <p>
+ * The metrics are thread-safe.
+ */
+final class QueryMetrics implements ExecuteListener {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private static final Logger logger = LoggerFactory.getLogger(QueryMetrics.class);
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    /**
+     * Classes whose stack frames, including those of their nested classes, are skipped when
+     * searching for the caller of a database access.
+     */
+    private static final Set<String> NON_CALLER_CLASSES = Set.of(Database.class.getName(),
+            WriteBehindBuffer.class.getName(), QueryMetrics.class.getName());
+    /**
+     * Packages whose stack frames are skipped when searching for the caller of a database access.
+     */
+    private static final List<String> NON_CALLER_PACKAGE_PREFIXES =
+            List.of("java.", "jdk.", "org.jooq.");
+    private static final String UNKNOWN_CALLER = "unknown";
+    /**
+     * Caches the caller that classes of actions given to the database belong to, {@code null} if
+     * they belong to the database system itself.
+     */
+    private static final ClassValue<String> ACTION_CLASS_TO_CALLER = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            String className = type.getName();
+            return isCallerClass(className) ? toCallerName(className) : null;
+        }
+    };
+    private static final String START_TIME_KEY = QueryMetrics.class.getName() + ".startTime";
+
+    private final transient Map<String, CallerMetrics> callerToMetrics = new ConcurrentHashMap<>();
+    private final transient ThreadLocal<Call> currentCall = new ThreadLocal<>();
+    private final transient ThreadLocal<String> callerOverride = new ThreadLocal<>();
+    private final transient List<Consumer<? super String>> statementListeners =
+            new CopyOnWriteArrayList<>();
+    private final long slowQueryThresholdNanos;
+
+    /**
+     * Creates new, empty, metrics.
+     *
+     * @param slowQueryThreshold statements taking at least this long to execute are logged
+     */
+    QueryMetrics(Duration slowQueryThreshold) {
+        slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+    }
+
+    /**
+     * Finds the caller of the current database access, which is the class that declared the given
+     * action, or otherwise the first class on the stack that does not belong to the database system
+     * itself.
+     * <p>
+     * Lambdas and anonymous classes are named after the class declaring them, which is the caller
+     * in almost all cases. That way, the stack only has to be walked for actions that were declared
+     * by the database system itself or by the JDK, keeping this cheap enough to be called for every
+     * access.
+     *
+     * @param action the action given to the database by the caller
+     * @return the simple name of the calling class, or {@code "unknown"} if it could not be
+     *         determined
+     */
+    String findCaller(Object action) {
+        String override = callerOverride.get();
+        if (override != null) {
+            return override;
+        }
+
+        String declaringCaller = ACTION_CLASS_TO_CALLER.get(action.getClass());
+        return declaringCaller == null ? findCallerOnStack() : declaringCaller;
+    }
+
+    private static String findCallerOnStack() {
+        return STACK_WALKER
+            .walk(frames -> frames.map(StackWalker.StackFrame::getClassName)
+                .filter(QueryMetrics::isCallerClass)
+                .findFirst())
+            .map(QueryMetrics::toCallerName)
+            .orElse(UNKNOWN_CALLER);
+    }
+
+    private static boolean isCallerClass(String className) {
+        return !NON_CALLER_CLASSES.contains(toTopLevelClassName(className))
+                && NON_CALLER_PACKAGE_PREFIXES.stream().noneMatch(className::startsWith);
+    }
+
+    private static String toTopLevelClassName(String className) {
+        int nestedClassStart = className.indexOf('$');
+        return nestedClassStart == -1 ? className : className.substring(0, nestedClassStart);
+    }
+
+    private static String toCallerName(String className) {
+        String topLevelClassName = toTopLevelClassName(className);
+        return topLevelClassName.substring(topLevelClassName.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Executes the given action with all database access of the current thread being attributed to
+     * the given caller, instead of the caller found on the stack. Used for access that is executed
+     * on a different thread than it was issued from.
+     *
+     * @param caller the caller to attribute the access to
+     * @param action the action to execute
+     * @param <T> the type returned by the given action
+     * @return the result returned by the given action
+     */
+    <T> T runAsCaller(String caller, Supplier<T> action) {
+        String previousOverride = callerOverride.get();
+        callerOverride.set(caller);
+        try {
+            return action.get();
+        } finally {
+            if (previousOverride == null) {
+                callerOverride.remove();
+            } else {
+                callerOverride.set(previousOverride);
+            }
+        }
+    }
+
+    /**
+     * Executes and measures the given call to the database.
+     *
+     * @param caller the caller who issued the call, see {@link #findCaller(Object)}
+     * @param waitNanos the time the call had to wait for access to the database, in nanoseconds
+     * @param call the call to execute
+     * @param <T> the type returned by the given call
+     * @return the result returned by the given call
+     */
+    <T> T measure(String caller, long waitNanos, Supplier<T> call) {
+        Call previousCall = currentCall.get();
+        Call measuredCall = new Call(caller);
+        currentCall.set(measuredCall);
+
+        long startNanos = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            long executionNanos = System.nanoTime() - startNanos;
+
+            if (previousCall == null) {
+                currentCall.remove();
+            } else {
+                currentCall.set(previousCall);
+            }
+
+            callerToMetrics.computeIfAbsent(caller, any -> new CallerMetrics())
+                .record(waitNanos, executionNanos, measuredCall);
+        }
+    }
+
+    /**
+     * Gets statistics about all callers recorded so far.
+     *
+     * @return statistics for each caller, the caller with the most calls first
+     */
+    Collection<CallerStatistics> getStatistics() {
+        return callerToMetrics.entrySet()
+            .stream()
+            .map(callerAndMetrics -> callerAndMetrics.getValue()
+                .toStatistics(callerAndMetrics.getKey()))
+            .sorted(Comparator.comparingLong(CallerStatistics::calls).reversed())
+            .toList();
+    }
+
+    /**
+     * Registers a listener that is called with the SQL of every statement executed from now on.
+     *
+     * @param listener the listener to call, with bind values inlined into the SQL
+     */
+    void addStatementListener(Consumer<? super String> listener) {
+        statementListeners.add(listener);
+    }
+
+    @Override
+    public void start(ExecuteContext context) {
+        context.data(START_TIME_KEY, System.nanoTime());
+    }
+
+    @Override
+    public void end(ExecuteContext context) {
+        if (!(context.data(START_TIME_KEY) instanceof Long startNanos)) {
+            return;
+        }
+        long durationNanos = System.nanoTime() - startNanos;
+
+        Call call = currentCall.get();
+        if (call != null) {
+            call.statements++;
+            if (context.type() != ExecuteType.READ) {
+                call.rowsAffected += Math.max(0, context.rows());
+            }
+        }
+
+        if (durationNanos >= slowQueryThresholdNanos && logger.isWarnEnabled()) {
+            logger.warn("Slow database statement by '{}', took {} ms: {}",
+                    call == null ? UNKNOWN_CALLER : call.caller,
+                    TimeUnit.NANOSECONDS.toMillis(durationNanos), context.sql());
+        }
+
+        if (!statementListeners.isEmpty()) {
+            Query query = context.query();
+            String sql = query == null ? context.sql() : context.dsl().renderInlined(query);
+            statementListeners.forEach(listener -> listener.accept(sql));
+        }
+    }
+
+    /**
+     * A single call to the database that is currently being measured. Only accessed by the thread
+     * executing the call.
+     */
+    private static final class Call {
+        private final String caller;
+        private long statements;
+        private long rowsAffected;
+
+        private Call(String caller) {
+            this.caller = caller;
+        }
+    }
+
+    /**
+     * Metrics of a single caller.
+     */
+    private static final class CallerMetrics {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder rowsAffected = new LongAdder();
+        private final LatencyRecorder wait = new LatencyRecorder();
+        private final LatencyRecorder execution = new LatencyRecorder();
+
+        private void record(long waitNanos, long executionNanos, Call call) {
+            calls.increment();
+            statements.add(call.statements);
+            rowsAffected.add(call.rowsAffected);
+            wait.record(waitNanos);
+            execution.record(executionNanos);
+        }
+
+        private CallerStatistics toStatistics(String caller) {
+            return new CallerStatistics(caller, calls.sum(), statements.sum(), rowsAffected.sum(),
+                    wait.toStatistics(), execution.toStatistics());
+        }
+    }
+
+    /**
+     * Records latency samples. Keeps a window of the most recent samples to compute percentiles
+     * from, to limit memory usage.
+     */
+    private static final class LatencyRecorder {
+        private static final int WINDOW_SIZE = 1_024;
+
+        private final long[] recentSamples = new long[WINDOW_SIZE];
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private long count;
+
+        private synchronized void record(long sampleNanos) {
+            recentSamples[(int) (count % WINDOW_SIZE)] = sampleNanos;
+            count++;
+            max.accumulate(sampleNanos);
+        }
+
+        private LatencyStatistics toStatistics() {
+            long[] samples;
+            long totalCount;
+            synchronized (this) {
+                totalCount = count;
+                samples = Arrays.copyOf(recentSamples, (int) Math.min(count, WINDOW_SIZE));
+            }
+            if (samples.length == 0) {
+                return new LatencyStatistics(0, Duration.ZERO, Duration.ZERO, Duration.ZERO,
+                        Duration.ZERO);
+            }
+
+            Arrays.sort(samples);
+            long mean = (long) Arrays.stream(samples).average().orElse(0);
+            return new LatencyStatistics(totalCount, Duration.ofNanos(mean),
+                    Duration.ofNanos(percentile(samples, 0.5)),
+                    Duration.ofNanos(percentile(samples, 0.99)), Duration.ofNanos(max.get()));
+        }
+
+        private static long percentile(long[] sortedSamples, double percentile) {
+            int index = (int) Math.ceil(percentile * sortedSamples.length) - 1;
+            return sortedSamples[Math.max(0, index)];
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.togetherjava.tjbot.db;
+
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Delete;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.TableField;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.togetherjava.tjbot.db.util.CheckedConsumer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purges old rows from tables, as declared by {@link RetentionPolicy}s.
+ * <p>
+ * Rows are deleted in bounded batches, each in its own transaction and with a single statement. If
+ * the purged rows are needed, they are returned by the deleting statement itself. Between batches,
+ * the write lock of the database is released and the engine pauses briefly, so that purging a large
+ * table does not stall other writes.
+ * <p>
+ * The engine is thread-safe.
+ */
+public final class RetentionEngine {
+    private static final int DEFAULT_BATCH_SIZE = 5_000;
+    private static final Duration DEFAULT_PAUSE_BETWEEN_BATCHES = Duration.ofMillis(10);
+
+    private final Database database;
+    private final int batchSize;
+    private final Duration pauseBetweenBatches;
+
+    /**
+     * Creates a new engine with default batch settings.
+     *
+     * @param database the database to purge
+     */
+    public RetentionEngine(Database database) {
+        this(database, DEFAULT_BATCH_SIZE, DEFAULT_PAUSE_BETWEEN_BATCHES);
+    }
+
+    /**
+     * Creates a new engine.
+     *
+     * @param database the database to purge
+     * @param batchSize the maximal amount of rows to delete per transaction, must be positive
+     * @param pauseBetweenBatches how long to pause between two batches, giving other writes the
+     *        chance to acquire the write lock
+     */
+    public RetentionEngine(Database database, int batchSize, Duration pauseBetweenBatches) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException(
+                    "The batch size must be positive, but was " + batchSize);
+        }
+
+        this.database = database;
+        this.batchSize = batchSize;
+        this.pauseBetweenBatches = pauseBetweenBatches;
+    }
+
+    /**
+     * Purges all rows of the table which are older than the retention period of the given policy.
+     * <p>
+     * If the current thread is interrupted while pausing between batches, purging stops early and
+     * the interrupt flag is restored.
+     *
+     * @param policy the policy declaring which rows to purge
+     * @param <R> the type of the records of the table
+     * @return a report about the purge
+     * @throws DatabaseException if an error occurs while purging
+     */
+    public <R extends Record> RetentionReport purge(RetentionPolicy<R> policy) {
+        return purge(policy, context -> {
+        });
+    }
+
+    /**
+     * Purges all rows of the table which are older than the retention period of the given policy,
+     * running the given action before each batch.
+     * <p>
+     * The action is executed within the transaction of the batch, right before deleting its rows.
+     * No other write can happen in between, so the action can reliably update rows that must not be
+     * purged anymore, for example by renewing their TTL column.
+     * <p>
+     * If the current thread is interrupted while pausing between batches, purging stops early and
+     * the interrupt flag is restored.
+     *
+     * @param policy the policy declaring which rows to purge
+     * @param beforeEachBatch the action to run before each batch, within its transaction
+     * @param <R> the type of the records of the table
+     * @return a report about the purge
+     * @throws DatabaseException if an error occurs while purging
+     */
+    public <R extends Record> RetentionReport purge(RetentionPolicy<R> policy,
+            CheckedConsumer<? super DSLContext, ? extends DataAccessException> beforeEachBatch) {
+        long startNanos = System.nanoTime();
+        Instant purgeOlderThan = Instant.now().minus(policy.retainFor());
+        Condition isExpired =
+                policy.ttlColumn().lessOrEqual(purgeOlderThan).and(policy.condition());
+
+        long purgedRows = 0;
+        int batches = 0;
+        while (true) {
+            int purgedBatchRows = purgeBatch(policy, isExpired, beforeEachBatch);
+            purgedRows += purgedBatchRows;
+            batches++;
+
+            if (purgedBatchRows < batchSize || !pauseBetweenBatches()) {
+                break;
+            }
+        }
+
+        return new RetentionReport(policy.table().getName(), purgedRows, batches,
+                Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    private <R extends Record> int purgeBatch(RetentionPolicy<R> policy, Condition isExpired,
+            CheckedConsumer<? super DSLContext, ? extends DataAccessException> beforeBatch) {
+        if (policy.purgeListener() == null) {
+            return database.writeTransactionAndProvide(context -> {
+                beforeBatch.accept(context);
+                return deleteExpiredBatch(context, policy, policy.primaryKeyColumn(), isExpired);
+            });
+        }
+
+        Result<R> purgedBatch = database.writeTransactionAndProvide(context -> {
+            beforeBatch.accept(context);
+            return fetchAndDeleteExpiredBatch(context, policy, policy.primaryKeyColumn(),
+                    isExpired);
+        });
+        if (purgedBatch.isNotEmpty()) {
+            policy.purgeListener().accept(purgedBatch);
+        }
+        return purgedBatch.size();
+    }
+
+    private <R extends Record, T> int deleteExpiredBatch(DSLContext context,
+            RetentionPolicy<R> policy, TableField<R, T> primaryKey, Condition isExpired) {
+        return context.deleteFrom(policy.table())
+            .where(primaryKey
+                .in(DSL.select(primaryKey).from(policy.table()).where(isExpired).limit(batchSize)))
+            .execute();
+    }
+
+    private <R extends Record, T> Result<R> fetchAndDeleteExpiredBatch(DSLContext context,
+            RetentionPolicy<R> policy, TableField<R, T> primaryKey, Condition isExpired) {
+        Delete<R> deleteExpiredBatch = context.deleteFrom(policy.table())
+            .where(primaryKey
+                .in(DSL.select(primaryKey).from(policy.table()).where(isExpired).limit(batchSize)));
+
+        // A single statement, the deleted rows are returned by the database itself. Plain SQL,
+        // since jOOQ emulates RETURNING of deletes on SQLite by fetching the last row ID only.
+        return context.resultQuery("{0} RETURNING *", deleteExpiredBatch).fetchInto(policy.table());
+    }
+
+    private boolean pauseBetweenBatches() {
+        try {
+            TimeUnit.NANOSECONDS.sleep(pauseBetweenBatches.toNanos());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
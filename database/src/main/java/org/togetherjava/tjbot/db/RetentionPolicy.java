@@ -0,0 +1,82 @@
+package org.togetherjava.tjbot.db;
+
+import org.jooq.Condition;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.Table;
+import org.jooq.TableField;
+import org.jooq.UniqueKey;
+import org.jooq.impl.DSL;
+
+import java.time.Instant;
+import java.time.temporal.TemporalAmount;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Declares how long the rows of a table are retained before they are purged by a
+ * {@link RetentionEngine}.
+ * <p>
+ * A row is purged once the moment in its TTL column is older than the retention period and it
+ * satisfies the additional condition.
+ *
+ * @param table the table to purge, must have a primary key consisting of a single column
+ * @param ttlColumn the column holding the moment from which on the retention period of a row is
+ *        measured, for example its creation date
+ * @param retainFor how long rows are retained, measured from the moment in their TTL column
+ * @param condition an additional condition rows have to satisfy to be purged, use
+ *        {@link DSL#noCondition()} to purge all old rows
+ * @param purgeListener called with the rows of each purged batch after the batch has been
+ *        committed, or {@code null} if not needed. Rows are only fetched if a listener is present.
+ * @param <R> the type of the records of the table
+ */
+public record RetentionPolicy<R extends Record> (Table<R> table, Field<Instant> ttlColumn,
+        TemporalAmount retainFor, Condition condition, Consumer<? super Result<R>> purgeListener) {
+
+    /**
+     * Creates a new policy.
+     *
+     * @param table the table to purge, must have a primary key consisting of a single column
+     * @param ttlColumn the column holding the moment from which on the retention period of a row is
+     *        measured, for example its creation date
+     * @param retainFor how long rows are retained, measured from the moment in their TTL column
+     * @param condition an additional condition rows have to satisfy to be purged, use
+     *        {@link DSL#noCondition()} to purge all old rows
+     * @param purgeListener called with the rows of each purged batch after the batch has been
+     *        committed, or {@code null} if not needed
+     * @throws IllegalArgumentException if the table has no primary key consisting of a single
+     *         column
+     */
+    public RetentionPolicy {
+        Objects.requireNonNull(table);
+        Objects.requireNonNull(ttlColumn);
+        Objects.requireNonNull(retainFor);
+        Objects.requireNonNull(condition);
+
+        UniqueKey<R> primaryKey = table.getPrimaryKey();
+        if (primaryKey == null || primaryKey.getFields().size() != 1) {
+            throw new IllegalArgumentException(
+                    "Only tables with a primary key consisting of a single column can be purged, but got table "
+                            + table.getName());
+        }
+    }
+
+    /**
+     * Creates a new policy that purges all rows older than the retention period.
+     *
+     * @param table the table to purge, must have a primary key consisting of a single column
+     * @param ttlColumn the column holding the moment from which on the retention period of a row is
+     *        measured, for example its creation date
+     * @param retainFor how long rows are retained, measured from the moment in their TTL column
+     * @throws IllegalArgumentException if the table has no primary key consisting of a single
+     *         column
+     */
+    public RetentionPolicy(Table<R> table, Field<Instant> ttlColumn, TemporalAmount retainFor) {
+        this(table, ttlColumn, retainFor, DSL.noCondition(), null);
+    }
+
+    TableField<R, ?> primaryKeyColumn() {
+        return table.getPrimaryKey().getFields().get(0);
+    }
+}
@@ -0,0 +1,14 @@
+package org.togetherjava.tjbot.db;
+
+import java.time.Duration;
+
+/**
+ * Report about purging a single table, see {@link RetentionEngine#purge(RetentionPolicy)}.
+ *
+ * @param table the name of the purged table
+ * @param purgedRows the amount of rows that have been purged
+ * @param batches the amount of batches, i.e. transactions, the rows were purged in
+ * @param timeSpent the total time spent purging, including pauses between batches
+ */
+public record RetentionReport(String table, long purgedRows, int batches, Duration timeSpent) {
+}
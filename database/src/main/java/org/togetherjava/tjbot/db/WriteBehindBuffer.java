@@ -0,0 +1,228 @@
+package org.togetherjava.tjbot.db;
+
+import org.jooq.DSLContext;
+import org.jooq.exception.DataAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.togetherjava.tjbot.db.util.CheckedConsumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Buffer for fire-and-forget writes, used by {@link Database#writeBehind(CheckedConsumer)}.
+ * <p>
+ * Writes are collected in a bounded queue and flushed as a group in a single transaction, either
+ * periodically or once enough writes have been collected. This way, many small writes share a
+ * single commit, instead of each paying for its own.
+ * <p>
+ * The buffer is thread-safe.
+ */
+final class WriteBehindBuffer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindBuffer.class);
+    /**
+     * The caller all flushed writes are attributed to in the query statistics of the database.
+     */
+    private static final String CALLER = "write-behind";
+
+    private final Database database;
+    private final BlockingQueue<CheckedConsumer<DSLContext, DataAccessException>> pendingWrites;
+    private final int capacity;
+    private final int maxBatchSize;
+    /**
+     * Lock used to ensure that only one flush is executed at a time, keeping the order of writes.
+     */
+    private final Lock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flushService =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "database-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+    /**
+     * Lock used to ensure that no write is added while the buffer is closing. Adding writes only
+     * requires the read lock, so that writes can still be added concurrently.
+     */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean isClosed;
+    /**
+     * Whether an early flush has been triggered already and not started yet, so that a burst of
+     * writes only triggers a single one.
+     */
+    private final AtomicBoolean isEarlyFlushScheduled = new AtomicBoolean(false);
+
+    private final AtomicLong enqueuedWrites = new AtomicLong();
+    private final AtomicLong flushedWrites = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+
+    /**
+     * Creates a new buffer, which starts flushing periodically right away.
+     *
+     * @param database the database to flush writes to
+     * @param capacity the maximal amount of writes the buffer holds at a time
+     * @param maxBatchSize the maximal amount of writes flushed in a single transaction, a flush is
+     *        also triggered early once this amount has been collected
+     * @param flushEvery the delay between periodic flushes
+     * @param flushEveryUnit the unit of the 'flushEvery' value
+     */
+    WriteBehindBuffer(Database database, int capacity, int maxBatchSize, long flushEvery,
+            TimeUnit flushEveryUnit) {
+        this.database = database;
+        this.capacity = capacity;
+        this.maxBatchSize = maxBatchSize;
+        pendingWrites = new ArrayBlockingQueue<>(capacity);
+
+        flushService.scheduleWithFixedDelay(this::flushSafely, flushEvery, flushEvery,
+                flushEveryUnit);
+    }
+
+    /**
+     * Adds the given write to the buffer, it will be flushed eventually.
+     *
+     * @param action the write to add
+     * @return whether the write was added, {@code false} if the buffer is full or has been closed
+     *         already. In that case, the write has to be executed by the caller instead.
+     */
+    boolean offer(CheckedConsumer<? super DSLContext, ? extends DataAccessException> action) {
+        closeLock.readLock().lock();
+        try {
+            if (isClosed || !pendingWrites.offer(action::accept)) {
+                return false;
+            }
+            enqueuedWrites.incrementAndGet();
+        } finally {
+            closeLock.readLock().unlock();
+        }
+
+        if (pendingWrites.size() >= maxBatchSize
+                && isEarlyFlushScheduled.compareAndSet(false, true)) {
+            try {
+                flushService.execute(this::flushEarly);
+            } catch (RejectedExecutionException e) {
+                // The buffer is about to close, which will flush the write as well
+                isEarlyFlushScheduled.set(false);
+                logger.trace("Did not trigger an early flush, buffer is closing", e);
+            }
+        }
+        return true;
+    }
+
+    private void flushEarly() {
+        // Reset first, so that writes added during the flush can trigger the next one
+        isEarlyFlushScheduled.set(false);
+        flushSafely();
+    }
+
+    /**
+     * Flushes all writes that are currently in the buffer, blocking until done.
+     * <p>
+     * Writes are flushed in batches, each within a single transaction. If a batch fails, its writes
+     * are retried individually, so that a single failing write does not discard the rest of the
+     * batch.
+     */
+    void flush() {
+        flushLock.lock();
+        try {
+            List<CheckedConsumer<DSLContext, DataAccessException>> batch =
+                    new ArrayList<>(maxBatchSize);
+            while (pendingWrites.drainTo(batch, maxBatchSize) != 0) {
+                database.runAsCaller(CALLER, () -> writeBatch(batch));
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes all writes that are currently in the buffer and then executes the given write
+     * directly, blocking until done. No other flush can happen in between.
+     * <p>
+     * Used for writes that were not added to the buffer, for example since it was full, so that
+     * they are still executed after all writes that were added before them.
+     *
+     * @param action the write to execute after the buffered writes
+     * @throws DatabaseException if an error occurred while executing the given write
+     */
+    void flushAndWrite(CheckedConsumer<? super DSLContext, ? extends DataAccessException> action) {
+        flushLock.lock();
+        try {
+            flush();
+            database.write(action);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Unknown error while flushing the database write-behind buffer.", e);
+        }
+    }
+
+    private void writeBatch(List<CheckedConsumer<DSLContext, DataAccessException>> batch) {
+        flushes.incrementAndGet();
+        try {
+            database.writeTransaction(context -> {
+                for (CheckedConsumer<DSLContext, DataAccessException> action : batch) {
+                    action.accept(context);
+                }
+            });
+            flushedWrites.addAndGet(batch.size());
+            return;
+        } catch (DatabaseException e) {
+            logger.warn("Failed to flush a batch of {} writes, retrying them individually.",
+                    batch.size(), e);
+        }
+
+        for (CheckedConsumer<DSLContext, DataAccessException> action : batch) {
+            try {
+                database.write(action);
+                flushedWrites.incrementAndGet();
+            } catch (DatabaseException e) {
+                failedWrites.incrementAndGet();
+                logger.error("Failed to flush a write, it has been discarded.", e);
+            }
+        }
+    }
+
+    /**
+     * Gets statistics about the current state of this buffer.
+     *
+     * @return the current statistics
+     */
+    WriteBehindStatistics getStatistics() {
+        return new WriteBehindStatistics(pendingWrites.size(), capacity, enqueuedWrites.get(),
+                flushedWrites.get(), failedWrites.get(), flushes.get());
+    }
+
+    /**
+     * Stops accepting new writes and flushes all remaining writes, blocking until done.
+     */
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (isClosed) {
+                return;
+            }
+            // Once set, writes are not added anymore, so the final flush catches all of them
+            isClosed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+
+        flushService.shutdown();
+        flush();
+    }
+}
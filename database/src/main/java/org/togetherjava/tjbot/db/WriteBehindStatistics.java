@@ -0,0 +1,16 @@
+package org.togetherjava.tjbot.db;
+
+/**
+ * Snapshot of statistics about the write-behind buffer of a database, see
+ * {@link Database#writeBehind(org.togetherjava.tjbot.db.util.CheckedConsumer)}.
+ *
+ * @param queueSize the amount of writes currently waiting to be flushed
+ * @param queueCapacity the maximal amount of writes that can wait to be flushed at a time
+ * @param enqueuedWrites the total amount of writes that have been added to the buffer
+ * @param flushedWrites the total amount of writes that have been flushed successfully
+ * @param failedWrites the total amount of writes that failed to flush and have been discarded
+ * @param flushes the total amount of batches that have been flushed, each in its own transaction
+ */
+public record WriteBehindStatistics(int queueSize, int queueCapacity, long enqueuedWrites,
+        long flushedWrites, long failedWrites, long flushes) {
+}
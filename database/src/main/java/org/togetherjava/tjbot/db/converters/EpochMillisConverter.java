@@ -0,0 +1,35 @@
+package org.togetherjava.tjbot.db.converters;
+
+import org.jooq.impl.AbstractConverter;
+
+import java.io.Serial;
+import java.time.Instant;
+
+/**
+ * Converts between moments stored as milliseconds since the epoch in an {@code INTEGER} column and
+ * {@link Instant}.
+ * <p>
+ * Compared to storing them as text, this takes 6 to 8 bytes instead of 32 per value and lets SQLite
+ * compare them as numbers. Precision finer than milliseconds is lost.
+ */
+public final class EpochMillisConverter extends AbstractConverter<Long, Instant> {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new instance.
+     */
+    public EpochMillisConverter() {
+        super(Long.class, Instant.class);
+    }
+
+    @Override
+    public Instant from(Long epochMillis) {
+        return epochMillis == null ? null : Instant.ofEpochMilli(epochMillis);
+    }
+
+    @Override
+    public Long to(Instant instant) {
+        return instant == null ? null : instant.toEpochMilli();
+    }
+}
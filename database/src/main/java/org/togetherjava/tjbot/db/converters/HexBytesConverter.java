@@ -0,0 +1,36 @@
+package org.togetherjava.tjbot.db.converters;
+
+import org.jooq.impl.AbstractConverter;
+
+import java.io.Serial;
+import java.util.HexFormat;
+
+/**
+ * Converts between binary data stored as raw bytes in a {@code BLOB} column and its hexadecimal
+ * representation, for example hashes.
+ * <p>
+ * Compared to storing the hexadecimal text, this takes half the space. Text is produced in upper
+ * case, but accepted in any case.
+ */
+public final class HexBytesConverter extends AbstractConverter<byte[], String> {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private static final HexFormat HEX_FORMAT = HexFormat.of().withUpperCase();
+
+    /**
+     * Creates a new instance.
+     */
+    public HexBytesConverter() {
+        super(byte[].class, String.class);
+    }
+
+    @Override
+    public String from(byte[] bytes) {
+        return bytes == null ? null : HEX_FORMAT.formatHex(bytes);
+    }
+
+    @Override
+    public byte[] to(String hex) {
+        return hex == null ? null : HEX_FORMAT.parseHex(hex);
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * This package contains jOOQ converters for columns that are stored in a compact binary form, while
+ * the generated code still exposes them with their natural Java types.
+ * <p>
+ * The converters are attached to the columns by the code generation, see
+ * {@code buildSrc/src/main/groovy/database-settings.gradle}.
+ */
+package org.togetherjava.tjbot.db.converters;
@@ -0,0 +1,88 @@
+package org.togetherjava.tjbot.db;
+
+import org.jooq.Field;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class DatabaseBackupsTest {
+    private static final Table<?> ENTRIES = DSL.table("entries");
+    private static final Field<Integer> ID = DSL.field("id", SQLDataType.INTEGER);
+
+    @TempDir
+    Path tempDir;
+    private Database database;
+    private Path backupDirectory;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        database = new Database("jdbc:sqlite:" + tempDir.resolve("database.db"), 2);
+        database.write(context -> context.createTable(ENTRIES).column(ID).execute());
+        database.write(context -> context.insertInto(ENTRIES, ID).values(1).values(2).execute());
+
+        backupDirectory = tempDir.resolve("backups");
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    @DisplayName("Backups are compressed copies of the database that can be restored")
+    void backupCanBeRestored() throws IOException, SQLException {
+        // GIVEN a database with two entries
+        DatabaseBackups backups = new DatabaseBackups(database, backupDirectory, 3);
+
+        // WHEN backing it up and restoring the backup
+        BackupReport report = backups.create();
+
+        Path restored = tempDir.resolve("restored.db");
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(report.file()))) {
+            Files.copy(input, restored);
+        }
+
+        // THEN the restored database has the same content
+        assertEquals(List.of(report.file()), backups.getBackups());
+        assertTrue(report.pages() > 0);
+        assertEquals(Files.size(restored), report.databaseSize());
+        assertEquals(Files.size(report.file()), report.compressedSize());
+        try (Database restoredDatabase = new Database("jdbc:sqlite:" + restored)) {
+            int restoredEntries = restoredDatabase.read(context -> context.fetchCount(ENTRIES));
+            assertEquals(2, restoredEntries);
+        }
+    }
+
+    @Test
+    @DisplayName("Only the most recent backups are kept")
+    void oldBackupsAreDeleted() {
+        // GIVEN a limit of two backups
+        DatabaseBackups backups = new DatabaseBackups(database, backupDirectory, 2);
+
+        // WHEN backing up three times
+        Path oldestBackup = backups.create().file();
+        Path olderBackup = backups.create().file();
+        BackupReport newestReport = backups.create();
+
+        // THEN the oldest backup was deleted
+        assertEquals(1, newestReport.deletedBackups());
+        assertEquals(List.of(newestReport.file(), olderBackup), backups.getBackups());
+        assertTrue(Files.notExists(oldestBackup));
+    }
+}
@@ -0,0 +1,249 @@
+package org.togetherjava.tjbot.db;
+
+import org.jooq.Field;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class DatabaseTest {
+    private static final Table<?> ENTRIES = DSL.table("entries");
+    private static final Field<Integer> ID = DSL.field("id", SQLDataType.INTEGER);
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private Database database;
+    private ExecutorService service;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) throws SQLException {
+        database = new Database("jdbc:sqlite:" + tempDir.resolve("database.db"), 2);
+        database.write(context -> context.createTable(ENTRIES).column(ID).execute());
+        database.write(context -> context.insertInto(ENTRIES, ID).values(1).execute());
+
+        service = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdownNow();
+        database.close();
+    }
+
+    /**
+     * Starts a write transaction in the background that inserts a record and then does not finish
+     * until the returned latch is released.
+     */
+    private CountDownLatch startLongWrite() throws InterruptedException {
+        CountDownLatch writeStarted = new CountDownLatch(1);
+        CountDownLatch finishWrite = new CountDownLatch(1);
+
+        service.execute(() -> database.writeTransaction(context -> {
+            context.insertInto(ENTRIES, ID).values(2).execute();
+            writeStarted.countDown();
+            try {
+                assertTrue(finishWrite.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+
+        assertTrue(writeStarted.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+        return finishWrite;
+    }
+
+    private int countEntries() {
+        return database.read(context -> context.fetchCount(ENTRIES));
+    }
+
+    @Test
+    @DisplayName("Reads do not wait for a long running write to finish")
+    void readDoesNotBlockBehindWrite() throws Exception {
+        // GIVEN a long running write
+        CountDownLatch finishWrite = startLongWrite();
+
+        // WHEN reading concurrently
+        Future<Integer> readCount = service.submit(this::countEntries);
+        Future<Integer> readTransactionCount = service
+            .submit(() -> database.readTransaction(context -> context.fetchCount(ENTRIES)));
+
+        // THEN the reads finish while the write is still running and do not see its changes
+        assertEquals(1, readCount.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+        assertEquals(1, readTransactionCount.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+
+        finishWrite.countDown();
+    }
+
+    @Test
+    @DisplayName("Reads see the changes of a write once it finished")
+    void readSeesFinishedWrite() throws Exception {
+        // GIVEN a long running write that finishes
+        CountDownLatch finishWrite = startLongWrite();
+        finishWrite.countDown();
+
+        // WHEN waiting for the write and reading afterwards
+        database.write(context -> context.insertInto(ENTRIES, ID).values(3).execute());
+
+        // THEN the changes of the write are visible
+        assertEquals(3, countEntries());
+    }
+
+    @Test
+    @DisplayName("More concurrent reads than pooled connections wait for a connection instead of failing")
+    void moreReadsThanConnections() throws Exception {
+        // GIVEN more reads than connections in the pool
+        int reads = 20;
+        Collection<Future<Integer>> readCounts = new ArrayList<>();
+
+        // WHEN reading all concurrently
+        for (int i = 0; i < reads; i++) {
+            readCounts.add(service.submit(this::countEntries));
+        }
+
+        // THEN all reads finish successfully
+        for (Future<Integer> readCount : readCounts) {
+            assertEquals(1, readCount.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    @DisplayName("Asynchronous access completes with the result of the action")
+    void asyncAccess() throws Exception {
+        database.writeAsync(context -> context.insertInto(ENTRIES, ID).values(2).execute())
+            .get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        database
+            .writeTransactionAsync(context -> context.insertInto(ENTRIES, ID).values(3).execute())
+            .get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+
+        int count = database.readAsync(context -> context.fetchCount(ENTRIES))
+            .get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        assertEquals(3, count);
+    }
+
+    @Test
+    @DisplayName("Asynchronous access completes exceptionally if the action fails")
+    void asyncAccessFailure() {
+        CompletableFuture<Integer> failingWrite = database.writeAsync(
+                context -> context.insertInto(DSL.table("unknown"), ID).values(1).execute());
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> failingWrite.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+        assertInstanceOf(DatabaseException.class, failure.getCause());
+    }
+
+    @Test
+    @DisplayName("Pooled connections are read-only")
+    void pooledConnectionsAreReadOnly() {
+        assertThrows(DatabaseException.class, () -> database
+            .read(context -> context.insertInto(ENTRIES, ID).values(4).execute()));
+    }
+
+    @Test
+    @DisplayName("Memory databases ignore pooling and work as usual")
+    void memoryDatabaseIgnoresPool() throws SQLException {
+        try (Database memoryDatabase = new Database("jdbc:sqlite:", 2)) {
+            memoryDatabase.write(context -> context.createTable(ENTRIES).column(ID).execute());
+            memoryDatabase.write(context -> context.insertInto(ENTRIES, ID).values(1).execute());
+
+            int count = memoryDatabase.read(context -> context.fetchCount(ENTRIES));
+            assertEquals(1, count);
+        }
+    }
+
+    @Test
+    @DisplayName("Query statistics are grouped by the calling class, also for asynchronous access")
+    void queryStatisticsByCaller() throws Exception {
+        // GIVEN a database that was written to twice during setup
+        // WHEN accessing it further, synchronously and asynchronously
+        database.write(context -> context.insertInto(ENTRIES, ID).values(2).values(3).execute());
+        countEntries();
+        database.readAsync(context -> context.fetchCount(ENTRIES))
+            .get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+
+        // THEN all access is attributed to this class
+        CallerStatistics statistics = database.getQueryStatistics()
+            .stream()
+            .filter(callerStatistics -> "DatabaseTest".equals(callerStatistics.caller()))
+            .findAny()
+            .orElseThrow();
+        assertEquals(5, statistics.calls());
+        assertEquals(5, statistics.statements());
+        assertEquals(3, statistics.rowsAffected());
+        assertEquals(5, statistics.execution().count());
+        assertTrue(statistics.execution().max().compareTo(statistics.execution().p50()) >= 0);
+    }
+
+    @Test
+    @DisplayName("Access through the consuming variants is attributed to the calling class")
+    void queryStatisticsOfConsumingVariantsByCaller() {
+        // GIVEN a database that was written to twice during setup
+        // WHEN accessing it through the variants that wrap the given action
+        database.readAndConsume(context -> context.fetchCount(ENTRIES));
+        database.writeTransaction(context -> context.deleteFrom(ENTRIES).execute());
+
+        // THEN all access is attributed to this class
+        CallerStatistics statistics = database.getQueryStatistics()
+            .stream()
+            .filter(callerStatistics -> "DatabaseTest".equals(callerStatistics.caller()))
+            .findAny()
+            .orElseThrow();
+        assertEquals(4, statistics.calls());
+    }
+
+    @Test
+    @DisplayName("The performance profile is applied to the write and all read connections")
+    void performanceProfileIsApplied(@TempDir Path tempDir) throws SQLException {
+        PerformanceProfile profile = new PerformanceProfile(PerformanceProfile.Synchronous.NORMAL,
+                8_192, 1 << 20, PerformanceProfile.TempStore.MEMORY, 500);
+
+        try (Database tunedDatabase = new Database("jdbc:sqlite:" + tempDir.resolve("tuned.db"), 2,
+                Duration.ofMillis(500), profile)) {
+            String pragmas =
+                    "SELECT * FROM pragma_synchronous, pragma_cache_size, pragma_temp_store";
+            // synchronous NORMAL is 1, temp_store MEMORY is 2 and a negative cache size is in KiB
+            List<Object> expected = List.of(1, -8_192, 2);
+
+            assertEquals(expected,
+                    tunedDatabase.writeAndProvide(context -> context.fetchOne(pragmas).intoList()));
+            assertEquals(expected,
+                    tunedDatabase.read(context -> context.fetchOne(pragmas).intoList()));
+            int walAutoCheckpoint = tunedDatabase.writeAndProvide(
+                    context -> context.fetchOne("PRAGMA wal_autocheckpoint").get(0, Integer.class));
+            assertEquals(500, walAutoCheckpoint);
+        }
+    }
+
+    @Test
+    @DisplayName("Checkpoints truncate the write-ahead log")
+    void checkpointTruncatesWal() {
+        // GIVEN a database with a non-empty log
+        database.write(context -> context.insertInto(ENTRIES, ID).values(2).execute());
+        assertTrue(database.getWalSize() > 0);
+
+        // WHEN checkpointing
+        CheckpointReport report = database.checkpoint();
+
+        // THEN the log was written back and truncated
+        assertFalse(report.busy());
+        assertEquals(report.walPages(), report.checkpointedPages());
+        assertTrue(report.walSizeBefore() > 0);
+        assertEquals(0, report.walSizeAfter());
+        assertEquals(0, database.getWalSize());
+        assertEquals(2, countEntries());
+
+        assertDoesNotThrow(database::optimize);
+    }
+}
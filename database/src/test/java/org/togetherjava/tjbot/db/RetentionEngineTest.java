@@ -0,0 +1,158 @@
+package org.togetherjava.tjbot.db;
+
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class RetentionEngineTest {
+    private static final Field<Integer> ID = DSL.field("id", SQLDataType.INTEGER);
+    private static final Field<Instant> CREATED_AT = DSL.field("created_at", SQLDataType.INSTANT);
+    private static final Duration RETAIN_FOR = Duration.ofDays(7);
+
+    private Database database;
+    private Table<Record> entries;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        database = Database.createMemoryDatabase();
+        database.write(context -> context.createTable("entries")
+            .column(ID)
+            .column(CREATED_AT)
+            .primaryKey(ID)
+            .execute());
+        // Table from the meta data, to know its primary key
+        List<Table<?>> tables = database.read(context -> context.meta().getTables("entries"));
+        entries = (Table<Record>) tables.get(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    private void insertEntries(int fromId, int amount, Instant createdAt) {
+        database.write(context -> {
+            for (int id = fromId; id < fromId + amount; id++) {
+                context.insertInto(entries, ID, CREATED_AT).values(id, createdAt).execute();
+            }
+        });
+    }
+
+    private int countEntries() {
+        return database.read(context -> context.fetchCount(entries));
+    }
+
+    @Test
+    @DisplayName("Purges only expired rows, in batches of the given size")
+    void purgesExpiredRowsInBatches() {
+        // GIVEN 7 expired and 5 recent rows
+        Instant now = Instant.now();
+        insertEntries(0, 7, now.minus(10, ChronoUnit.DAYS));
+        insertEntries(7, 5, now.minus(1, ChronoUnit.DAYS));
+
+        // WHEN purging in batches of 3
+        RetentionEngine engine = new RetentionEngine(database, 3, Duration.ZERO);
+        RetentionReport report =
+                engine.purge(new RetentionPolicy<>(entries, CREATED_AT, RETAIN_FOR));
+
+        // THEN only the expired rows are purged, in 3 batches
+        assertEquals(5, countEntries());
+        assertEquals(7, report.purgedRows());
+        assertEquals(3, report.batches());
+        assertEquals("entries", report.table());
+    }
+
+    @Test
+    @DisplayName("The purge listener receives all purged rows, and only rows satisfying the condition are purged")
+    void purgeListenerAndCondition() {
+        // GIVEN 10 expired rows
+        insertEntries(0, 10, Instant.now().minus(10, ChronoUnit.DAYS));
+
+        // WHEN purging only even rows, with a listener
+        List<Integer> purgedIds = new ArrayList<>();
+        RetentionPolicy<Record> policy = new RetentionPolicy<>(entries, CREATED_AT, RETAIN_FOR,
+                ID.mod(2).eq(0), purgedBatch -> purgedIds.addAll(purgedBatch.getValues(ID)));
+        RetentionReport report = new RetentionEngine(database, 2, Duration.ZERO).purge(policy);
+
+        // THEN the listener received exactly the even rows, the odd rows remain
+        assertEquals(List.of(0, 2, 4, 6, 8), purgedIds.stream().sorted().toList());
+        assertEquals(5, report.purgedRows());
+        assertEquals(5, countEntries());
+    }
+
+    @Test
+    @DisplayName("Purged rows are returned by the deleting statement itself, one statement per batch")
+    void purgeListenerUsesSingleStatementPerBatch() {
+        // GIVEN 6 expired rows
+        insertEntries(0, 6, Instant.now().minus(10, ChronoUnit.DAYS));
+        List<String> statements = new CopyOnWriteArrayList<>();
+        database.addStatementListener(sql -> {
+            // Transaction control has no SQL
+            if (sql != null) {
+                statements.add(sql);
+            }
+        });
+
+        // WHEN purging them in batches of 3, with a listener
+        List<Integer> purgedIds = new ArrayList<>();
+        RetentionPolicy<Record> policy = new RetentionPolicy<>(entries, CREATED_AT, RETAIN_FOR,
+                DSL.noCondition(), purgedBatch -> purgedIds.addAll(purgedBatch.getValues(ID)));
+        new RetentionEngine(database, 3, Duration.ZERO).purge(policy);
+
+        // THEN each batch, including the final empty one, is a single deleting statement
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), purgedIds.stream().sorted().toList());
+        assertEquals(3, statements.size(), statements::toString);
+        statements.forEach(sql -> assertTrue(sql.startsWith("delete from"), sql));
+    }
+
+    @Test
+    @DisplayName("Rows renewed right before a batch are not purged by it")
+    void rowsRenewedBeforeBatchAreRetained() {
+        // GIVEN 6 expired rows
+        insertEntries(0, 6, Instant.now().minus(10, ChronoUnit.DAYS));
+
+        // WHEN purging them in batches of 3, renewing one of the remaining rows before each batch
+        List<Integer> renewedIds = new ArrayList<>(List.of(5, 4));
+        RetentionReport report = new RetentionEngine(database, 3, Duration.ZERO)
+            .purge(new RetentionPolicy<>(entries, CREATED_AT, RETAIN_FOR), context -> {
+                if (!renewedIds.isEmpty()) {
+                    context.update(entries)
+                        .set(CREATED_AT, Instant.now())
+                        .where(ID.eq(renewedIds.remove(0)))
+                        .execute();
+                }
+            });
+
+        // THEN the renewed rows remain
+        assertEquals(4, report.purgedRows());
+        assertEquals(List.of(4, 5),
+                database.read(context -> context.select(ID).from(entries).orderBy(ID).fetch(ID)));
+    }
+
+    @Test
+    @DisplayName("Tables without a primary key can not be purged")
+    void requiresPrimaryKey() {
+        Table<Record> tableWithoutKey = DSL.table("entries");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new RetentionPolicy<>(tableWithoutKey, CREATED_AT, RETAIN_FOR));
+    }
+}
@@ -0,0 +1,158 @@
+package org.togetherjava.tjbot.db;
+
+import org.jooq.Field;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class WriteBehindTest {
+    private static final Table<?> ENTRIES = DSL.table("entries");
+    private static final Field<Integer> ID = DSL.field("id", SQLDataType.INTEGER);
+
+    private Database database;
+
+    @BeforeEach
+    void setUp() {
+        database = Database.createMemoryDatabase();
+        database.write(context -> context.createTable(ENTRIES).column(ID).primaryKey(ID).execute());
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    private int countEntries() {
+        return database.read(context -> context.fetchCount(ENTRIES));
+    }
+
+    private void insertBehind(int id) {
+        database.writeBehind(context -> context.insertInto(ENTRIES, ID).values(id).execute());
+    }
+
+    @Test
+    @DisplayName("Buffered writes are executed once flushed")
+    void flushExecutesWrites() {
+        // GIVEN buffered writes
+        int amount = 1_234;
+        IntStream.range(0, amount).forEach(this::insertBehind);
+
+        // WHEN flushing them
+        database.flushWriteBehind();
+
+        // THEN all writes have been executed
+        assertEquals(amount, countEntries());
+
+        WriteBehindStatistics statistics = database.getWriteBehindStatistics();
+        assertEquals(0, statistics.queueSize());
+        assertEquals(amount, statistics.enqueuedWrites());
+        assertEquals(amount, statistics.flushedWrites());
+        assertEquals(0, statistics.failedWrites());
+    }
+
+    @Test
+    @DisplayName("A failing buffered write does not discard the other writes of its batch")
+    void failingWriteIsIsolated() {
+        // GIVEN buffered writes, one of them failing
+        insertBehind(1);
+        insertBehind(1);
+        insertBehind(2);
+
+        // WHEN flushing them
+        database.flushWriteBehind();
+
+        // THEN only the failing write has been discarded
+        assertEquals(2, countEntries());
+
+        WriteBehindStatistics statistics = database.getWriteBehindStatistics();
+        assertEquals(2, statistics.flushedWrites());
+        assertEquals(1, statistics.failedWrites());
+    }
+
+    @Test
+    @DisplayName("A write that does not fit into the full buffer is executed after the buffered writes")
+    void fullBufferKeepsOrder() {
+        // GIVEN a full buffer
+        try (WriteBehindBuffer buffer = new WriteBehindBuffer(database, 2, 10, 1, TimeUnit.HOURS)) {
+            assertTrue(
+                    buffer.offer(context -> context.insertInto(ENTRIES, ID).values(1).execute()));
+            assertTrue(
+                    buffer.offer(context -> context.insertInto(ENTRIES, ID).values(2).execute()));
+
+            // WHEN executing a write that depends on the buffered writes, since it did not fit
+            assertFalse(buffer.offer(context -> {
+            }));
+            buffer.flushAndWrite(
+                    context -> context.update(ENTRIES).set(ID, 3).where(ID.eq(1)).execute());
+
+            // THEN it was executed after them
+            assertEquals(List.of(2, 3), database
+                .read(context -> context.select(ID).from(ENTRIES).orderBy(ID).fetch(ID)));
+        }
+    }
+
+    @Test
+    @DisplayName("Closing the database executes all pending buffered writes")
+    void closeFlushesWrites() {
+        // GIVEN buffered writes
+        insertBehind(1);
+        insertBehind(2);
+
+        // WHEN closing the database
+        database.close();
+
+        // THEN all writes have been executed
+        assertEquals(2, database.getWriteBehindStatistics().flushedWrites());
+    }
+
+    @Test
+    @DisplayName("Writes buffered while the database is closing are not lost")
+    void closeDoesNotLoseConcurrentWrites() throws InterruptedException {
+        // GIVEN threads that keep buffering writes
+        AtomicInteger nextId = new AtomicInteger();
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread writer = new Thread(() -> {
+                try {
+                    while (true) {
+                        insertBehind(nextId.getAndIncrement());
+                    }
+                } catch (DatabaseException e) {
+                    // Writes are executed directly once the buffer is closed, which fails
+                    // once the database is closed as well
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        while (nextId.get() < 1_000) {
+            Thread.onSpinWait();
+        }
+
+        // WHEN closing the database while they are still writing
+        database.close();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        // THEN every write that was accepted by the buffer has been executed
+        WriteBehindStatistics statistics = database.getWriteBehindStatistics();
+        assertTrue(statistics.enqueuedWrites() > 0);
+        assertEquals(statistics.enqueuedWrites(), statistics.flushedWrites());
+        assertEquals(0, statistics.queueSize());
+    }
+}